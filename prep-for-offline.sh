@@ -12,3 +12,5 @@ fi
 # download package dependencies
 # run goals to download required plugins
 ${MVN} -T 1C dependency:go-offline clean verify pmd:pmd pmd:cpd -DskipTests -Dcheckstyle.skip -Dfindbugs.skip -Dpmd.skip -Dcpd.skip
+# download the dependencies of the benchmark profile
+${MVN} dependency:go-offline test-compile -P benchmark -Dcheckstyle.skip -Dfindbugs.skip
@@ -0,0 +1,127 @@
+package net.floodlightcontroller.core.internal;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFPacketInReason;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.action.OFAction;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.EthType;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFBufferId;
+import org.projectfloodlight.openflow.types.OFPort;
+
+/**
+ * Benchmarks the decoding and the encoding of OpenFlow messages by the
+ * OFMessageDecoder and OFMessageEncoder of the switch channel pipeline.
+ * <p/>
+ * Each invocation processes a batch of packet-in, flow-mod and barrier
+ * messages, as read from or written to a busy switch channel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class OFMessageCodecBenchmark {
+    private static final int BATCH_SIZE = 90;
+    private static final int PACKET_IN_DATA_LENGTH = 128;
+
+    private final OFMessageDecoder decoder = new OFMessageDecoder();
+    private final OFMessageEncoder encoder = new OFMessageEncoder();
+
+    private Channel channel;
+    private List<OFMessage> messages;
+    private ChannelBuffer encodedMessages;
+    private int encodedLength;
+
+    @Setup
+    public void setUp() throws Exception {
+        channel = createMock(Channel.class);
+        expect(channel.isConnected()).andReturn(true).anyTimes();
+        replay(channel);
+
+        final OFFactory factory = OFFactories.getFactory(OFVersion.OF_10);
+        final byte[] data = new byte[PACKET_IN_DATA_LENGTH];
+        final List<OFAction> actions = new ArrayList<>();
+        actions.add(factory.actions().output(OFPort.of(2), 0));
+
+        messages = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE / 3; i++) {
+            messages.add(factory.buildPacketIn()
+                    .setBufferId(OFBufferId.NO_BUFFER)
+                    .setInPort(OFPort.of(1))
+                    .setReason(OFPacketInReason.NO_MATCH)
+                    .setTotalLen(data.length)
+                    .setData(data)
+                    .setXid(i)
+                    .build());
+            messages.add(factory.buildFlowAdd()
+                    .setMatch(factory.buildMatch()
+                            .setExact(MatchField.ETH_TYPE, EthType.IPv4)
+                            .setExact(MatchField.ETH_DST, MacAddress.of(i + 1))
+                            .build())
+                    .setActions(actions)
+                    .setBufferId(OFBufferId.NO_BUFFER)
+                    .setPriority(100)
+                    .setXid(i)
+                    .build());
+            messages.add(factory.buildBarrierRequest()
+                    .setXid(i)
+                    .build());
+        }
+
+        encodedMessages = (ChannelBuffer) encoder.encode(null, channel, messages);
+        encodedLength = encodedMessages.readableBytes();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void decode(Blackhole bh) throws Exception {
+        encodedMessages.readerIndex(0);
+        while (encodedMessages.readable()) {
+            bh.consume(decoder.decode(null, channel, encodedMessages));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Object encode() throws Exception {
+        return encoder.encode(null, channel, messages);
+    }
+
+    /**
+     * Encodes the messages to a buffer allocated with the total size of the
+     * batch, as an alternative to the dynamic buffer of OFMessageEncoder.
+     *
+     * @return the buffer
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public ChannelBuffer encodePreallocated() {
+        ChannelBuffer buf = ChannelBuffers.buffer(encodedLength);
+        for (OFMessage message : messages) {
+            message.writeTo(buf);
+        }
+        return buf;
+    }
+}
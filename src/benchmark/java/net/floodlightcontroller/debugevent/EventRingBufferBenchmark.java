@@ -0,0 +1,87 @@
+package net.floodlightcontroller.debugevent;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Benchmarks the addition of events to the DebugEvent history by concurrent
+ * threads, with the lock-free EventRingBuffer and with the deque-based
+ * CircularBuffer it replaced, and the snapshots taken by the REST API.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+public class EventRingBufferBenchmark {
+    private static final Object EVENT_DATA = new Object();
+
+    /**
+     * Number of events held by the buffers.
+     */
+    @Param({"1024"})
+    public int capacity;
+
+    private EventRingBuffer ringBuffer;
+    private CircularBuffer<Event> circularBuffer;
+
+    /**
+     * Event reused by a thread for the CircularBuffer, which returns the
+     * removed events for reuse.
+     */
+    @State(Scope.Thread)
+    public static class SpareEvent {
+        Event event;
+    }
+
+    @Setup
+    public void setUp() {
+        ringBuffer = new EventRingBuffer(capacity);
+        circularBuffer = new CircularBuffer<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            ringBuffer.add(System.currentTimeMillis(), 1, "main", EVENT_DATA);
+            circularBuffer.add(new Event(System.currentTimeMillis(), 1, "main",
+                                         EVENT_DATA));
+        }
+    }
+
+    @Benchmark
+    public void addRingBuffer() {
+        final Thread thread = Thread.currentThread();
+        ringBuffer.add(System.currentTimeMillis(), thread.getId(),
+                       thread.getName(), EVENT_DATA);
+    }
+
+    @Benchmark
+    public Event addCircularBuffer(SpareEvent spare) {
+        final Thread thread = Thread.currentThread();
+        Event event = spare.event;
+        if (event == null) {
+            event = new Event(System.currentTimeMillis(), thread.getId(),
+                              thread.getName(), EVENT_DATA);
+        } else {
+            event.timestamp = System.currentTimeMillis();
+            event.threadId = thread.getId();
+            event.threadName = thread.getName();
+            event.eventData = EVENT_DATA;
+            event.nullifyCachedFormattedEvent();
+        }
+        spare.event = circularBuffer.add(event);
+        return spare.event;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<Event> snapshotRingBuffer() {
+        return ringBuffer.snapshot(capacity);
+    }
+}
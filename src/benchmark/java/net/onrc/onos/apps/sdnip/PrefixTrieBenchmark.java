@@ -0,0 +1,173 @@
+package net.onrc.onos.apps.sdnip;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.net.InetAddresses;
+import com.googlecode.concurrenttrees.radix.node.concrete.DefaultByteArrayNodeFactory;
+import com.googlecode.concurrenttrees.radixinverted.ConcurrentInvertedRadixTree;
+import com.googlecode.concurrenttrees.radixinverted.InvertedRadixTree;
+
+/**
+ * Compares the {@link PrefixTrie} with the radix tree keyed by binary
+ * strings SDN-IP used before, on a full IPv4 routing table.
+ * <p/>
+ * The table is read from the file given by the sdnip.benchmark.rib system
+ * property, with one "a.b.c.d/len" prefix per line, such as a dump of a BGP
+ * table. Without it, a table of random prefixes with the prefix lengths of
+ * an Internet table is generated. The heap used by the table is printed in
+ * the setup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class PrefixTrieBenchmark {
+    private static final int LOOKUP_ADDRESSES = 1 << 16;
+    private static final int ADDRESS_MASK = LOOKUP_ADDRESSES - 1;
+
+    // Approximate share of each prefix length in an Internet table, in
+    // percents, from /8 to /24
+    private static final int[] PREFIX_LENGTH_SHARES = {
+        1, 1, 1, 1, 1, 1, 1, 2, 2, 2, 3, 3, 4, 6, 10, 12, 50};
+    private static final int MIN_PREFIX_LENGTH = 8;
+
+    /**
+     * The structure: "trie" for PrefixTrie, "radix" for the radix tree.
+     */
+    @Param({"trie", "radix"})
+    public String structure;
+
+    /**
+     * The number of generated routes, without a table file.
+     */
+    @Param({"600000"})
+    public int routes;
+
+    private PrefixTrie<Prefix> trie;
+    private InvertedRadixTree<Prefix> radixTree;
+
+    private InetAddress[] addresses;
+    private int nextAddress;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Prefix> prefixes = loadPrefixes();
+
+        final long heapBefore = usedHeap();
+        if ("trie".equals(structure)) {
+            trie = new PrefixTrie<>();
+            for (Prefix prefix : prefixes) {
+                trie.put(prefix, prefix);
+            }
+        } else {
+            radixTree = new ConcurrentInvertedRadixTree<>(
+                    new DefaultByteArrayNodeFactory());
+            for (Prefix prefix : prefixes) {
+                radixTree.put(prefix.toBinaryString(), prefix);
+            }
+        }
+        final long heapAfter = usedHeap();
+
+        // Look up addresses in the routed prefixes, and some anywhere
+        final Random random = new Random(1);
+        addresses = new InetAddress[LOOKUP_ADDRESSES];
+        for (int i = 0; i < LOOKUP_ADDRESSES; i++) {
+            int address = random.nextInt();
+            if (i % 4 != 0) {
+                Prefix prefix = prefixes.get(random.nextInt(prefixes.size()));
+                int mask = (prefix.getPrefixLength() == 0) ? 0
+                        : -1 << (Prefix.MAX_PREFIX_LENGTH - prefix.getPrefixLength());
+                address = (ByteBuffer.wrap(prefix.getAddress()).getInt() & mask)
+                        | (address & ~mask);
+            }
+            addresses[i] = InetAddresses.fromInteger(address);
+        }
+
+        System.out.printf("%n%s: %d prefixes, %d MB of heap%n", structure,
+                prefixes.size(), (heapAfter - heapBefore) >> 20);
+    }
+
+    private List<Prefix> loadPrefixes() throws IOException {
+        List<Prefix> prefixes = new ArrayList<>();
+        final String ribFile = System.getProperty("sdnip.benchmark.rib");
+        if (ribFile != null) {
+            try (BufferedReader reader =
+                    new BufferedReader(new FileReader(ribFile))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.trim().split("/");
+                    if (fields.length == 2) {
+                        prefixes.add(new Prefix(fields[0],
+                                Integer.parseInt(fields[1])));
+                    }
+                }
+            }
+            return prefixes;
+        }
+
+        final Random random = new Random(0);
+        for (int i = 0; i < routes; i++) {
+            int share = random.nextInt(100);
+            int length = MIN_PREFIX_LENGTH;
+            for (int j = 0; j < PREFIX_LENGTH_SHARES.length - 1; j++) {
+                share -= PREFIX_LENGTH_SHARES[j];
+                if (share < 0) {
+                    break;
+                }
+                length++;
+            }
+            byte[] address = ByteBuffer.allocate(Prefix.ADDRESS_LENGTH_BYTES)
+                    .putInt(random.nextInt()).array();
+            prefixes.add(new Prefix(address, length));
+        }
+        return prefixes;
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Looks up the longest prefix of an address, as SdnIp does for the
+     * outgoing interface.
+     *
+     * @return the longest prefix
+     */
+    @Benchmark
+    public Prefix longestPrefixMatch() {
+        final InetAddress address = addresses[nextAddress++ & ADDRESS_MASK];
+        if (trie != null) {
+            return trie.longestPrefixMatch(address);
+        }
+        Prefix prefixToSearchFor = new Prefix(address.getAddress(),
+                Prefix.MAX_PREFIX_LENGTH);
+        Iterator<Prefix> it = radixTree.getValuesForKeysPrefixing(
+                prefixToSearchFor.toBinaryString()).iterator();
+        Prefix match = null;
+        while (it.hasNext()) {
+            match = it.next();
+        }
+        return match;
+    }
+}
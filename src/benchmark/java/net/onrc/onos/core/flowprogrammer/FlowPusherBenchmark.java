@@ -0,0 +1,135 @@
+package net.onrc.onos.core.flowprogrammer;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.floodlightcontroller.core.FloodlightContext;
+import net.floodlightcontroller.core.IFloodlightProviderService;
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.threadpool.IThreadPoolService;
+import net.onrc.onos.core.util.Dpid;
+
+import org.easymock.IAnswer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+
+/**
+ * Benchmarks the throughput of the FlowPusher queues, from the addition of
+ * the messages to their write to the switches.
+ * <p/>
+ * The switches are mocks counting the written messages, so that only the
+ * queuing and the hand-off to the FlowPusher threads are measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class FlowPusherBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Number of switches the messages are spread over.
+     */
+    @Param({"1", "16"})
+    public int switches;
+
+    /**
+     * Number of FlowPusher threads.
+     */
+    @Param({"1", "4"})
+    public int threads;
+
+    private final AtomicLong writtenMessages = new AtomicLong();
+    private FlowPusher pusher;
+    private List<Dpid> dpids;
+    private List<OFMessage> messages;
+    private long addedMessages;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        FloodlightModuleContext modContext = createNiceMock(FloodlightModuleContext.class);
+        IFloodlightProviderService provider = createNiceMock(IFloodlightProviderService.class);
+        IThreadPoolService threadPool = createNiceMock(IThreadPoolService.class);
+        expect(modContext.getServiceImpl(IFloodlightProviderService.class))
+                .andReturn(provider).anyTimes();
+        expect(modContext.getServiceImpl(IThreadPoolService.class))
+                .andReturn(threadPool).anyTimes();
+
+        final OFFactory factory = OFFactories.getFactory(OFVersion.OF_10);
+        dpids = new ArrayList<>(switches);
+        for (long i = 1; i <= switches; i++) {
+            Dpid dpid = new Dpid(i);
+            dpids.add(dpid);
+
+            IOFSwitch sw = createNiceMock(IOFSwitch.class);
+            expect(sw.isConnected()).andReturn(true).anyTimes();
+            expect(sw.getId()).andReturn(i).anyTimes();
+            expect(sw.getFactory()).andReturn(factory).anyTimes();
+            sw.write(anyObject(OFMessage.class), eq((FloodlightContext) null));
+            expectLastCall().andAnswer(new IAnswer<Object>() {
+                @Override
+                public Object answer() {
+                    writtenMessages.incrementAndGet();
+                    return null;
+                }
+            }).anyTimes();
+            replay(sw);
+            expect(provider.getMasterSwitch(i)).andReturn(sw).anyTimes();
+        }
+        replay(modContext, provider, threadPool);
+
+        messages = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            messages.add(factory.buildBarrierRequest().setXid(i).build());
+        }
+
+        pusher = new FlowPusher(threads);
+        pusher.init(modContext);
+        pusher.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pusher.stop();
+    }
+
+    /**
+     * Adds a batch of messages to the queues of the switches, and waits until
+     * all of them are written to the switches.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void addAndWrite() {
+        final int numSwitches = dpids.size();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            pusher.add(dpids.get(i % numSwitches), messages.get(i));
+        }
+        addedMessages += BATCH_SIZE;
+        while (writtenMessages.get() < addedMessages) {
+            Thread.yield();
+        }
+    }
+}
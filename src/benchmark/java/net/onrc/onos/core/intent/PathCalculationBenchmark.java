@@ -0,0 +1,76 @@
+package net.onrc.onos.core.intent;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.onrc.onos.apps.segmentrouting.ECMPShortestPathGraph;
+import net.onrc.onos.core.topology.MockTopology;
+import net.onrc.onos.core.topology.Switch;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the path calculation of the intent framework (ConstrainedBFSTree)
+ * and of the segment routing application (ECMPShortestPathGraph) between the
+ * edge switches of a k-ary fat-tree topology.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PathCalculationBenchmark {
+
+    /**
+     * Number of ports of each switch of the fat-tree.
+     */
+    @Param({"4", "8"})
+    public int k;
+
+    private List<Switch> edgeSwitches;
+    private PathIntentMap intents;
+    private int nextPair;
+
+    @Setup
+    public void setUp() {
+        MockTopology topology = new MockTopology();
+        edgeSwitches = topology.createFatTree(k, 1000.0);
+        intents = new PathIntentMap();
+        nextPair = 0;
+    }
+
+    private Switch nextSource() {
+        return edgeSwitches.get(nextPair % edgeSwitches.size());
+    }
+
+    private Switch nextDestination() {
+        // cycles through all the (source, destination) pairs
+        final Switch dst = edgeSwitches.get(
+                (nextPair / edgeSwitches.size()) % edgeSwitches.size());
+        nextPair = (nextPair + 1) % (edgeSwitches.size() * edgeSwitches.size());
+        return dst;
+    }
+
+    @Benchmark
+    public Path bfsTree() {
+        final Switch src = nextSource();
+        return new ConstrainedBFSTree(src).getPath(nextDestination());
+    }
+
+    @Benchmark
+    public Path constrainedBfsTree() {
+        final Switch src = nextSource();
+        return new ConstrainedBFSTree(src, intents, 100.0).getPath(nextDestination());
+    }
+
+    @Benchmark
+    public List<Path> ecmpShortestPathGraph() {
+        final Switch src = nextSource();
+        return new ECMPShortestPathGraph(src).getECMPPaths(nextDestination());
+    }
+}
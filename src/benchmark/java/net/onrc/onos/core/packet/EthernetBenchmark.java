@@ -0,0 +1,91 @@
+package net.onrc.onos.core.packet;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the parsing and the serialization of the packets handled by the
+ * packet-in processing path: an ARP request and a TCP segment.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class EthernetBenchmark {
+    private static final byte[] SRC_MAC = {0x00, 0x00, 0x00, 0x00, 0x00, 0x01};
+    private static final byte[] DST_MAC = {0x00, 0x00, 0x00, 0x00, 0x00, 0x02};
+    private static final byte[] BROADCAST_MAC = {
+        (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff};
+    private static final int SRC_IP = 0x0a000001;
+    private static final int DST_IP = 0x0a000002;
+    private static final int TCP_PAYLOAD_LENGTH = 512;
+
+    private Ethernet tcpPacket;
+    private TCP tcp;
+    private byte[] tcpFrame;
+    private byte[] arpFrame;
+
+    @Setup
+    public void setUp() {
+        tcp = new TCP();
+        tcp.setSourcePort((short) 40000);
+        tcp.setDestinationPort((short) 80);
+        tcp.setPayload(new Data(new byte[TCP_PAYLOAD_LENGTH]));
+
+        IPv4 ipv4 = new IPv4();
+        ipv4.setSourceAddress(SRC_IP);
+        ipv4.setDestinationAddress(DST_IP);
+        ipv4.setProtocol(IPv4.PROTOCOL_TCP);
+        ipv4.setTtl((byte) 64);
+        ipv4.setPayload(tcp);
+
+        tcpPacket = new Ethernet();
+        tcpPacket.setSourceMACAddress(SRC_MAC);
+        tcpPacket.setDestinationMACAddress(DST_MAC);
+        tcpPacket.setEtherType(Ethernet.TYPE_IPV4);
+        tcpPacket.setPayload(ipv4);
+        tcpFrame = tcpPacket.serialize();
+
+        ARP arp = new ARP();
+        arp.setHardwareType(ARP.HW_TYPE_ETHERNET);
+        arp.setProtocolType(ARP.PROTO_TYPE_IP);
+        arp.setHardwareAddressLength((byte) Ethernet.DATALAYER_ADDRESS_LENGTH);
+        arp.setProtocolAddressLength((byte) IPv4.ADDRESS_LENGTH);
+        arp.setOpCode(ARP.OP_REQUEST);
+        arp.setSenderHardwareAddress(SRC_MAC);
+        arp.setSenderProtocolAddress(SRC_IP);
+        arp.setTargetHardwareAddress(new byte[Ethernet.DATALAYER_ADDRESS_LENGTH]);
+        arp.setTargetProtocolAddress(DST_IP);
+
+        Ethernet arpPacket = new Ethernet();
+        arpPacket.setSourceMACAddress(SRC_MAC);
+        arpPacket.setDestinationMACAddress(BROADCAST_MAC);
+        arpPacket.setEtherType(Ethernet.TYPE_ARP);
+        arpPacket.setPayload(arp);
+        arpFrame = arpPacket.serialize();
+    }
+
+    @Benchmark
+    public IPacket deserializeTcp() {
+        return new Ethernet().deserialize(tcpFrame, 0, tcpFrame.length);
+    }
+
+    @Benchmark
+    public IPacket deserializeArp() {
+        return new Ethernet().deserialize(arpFrame, 0, arpFrame.length);
+    }
+
+    @Benchmark
+    public byte[] serializeTcp() {
+        // serialize() keeps the computed checksums: reset them so that they
+        // are computed on each invocation, as for a newly built packet
+        tcp.resetChecksum();
+        return tcpPacket.serialize();
+    }
+}
@@ -0,0 +1,87 @@
+package net.onrc.onos.core.topology;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the creation and the update of ImmutableTopologySnapshot
+ * instances through the ImmutableTopologySnapshot.Builder, using the elements
+ * of a k-ary fat-tree topology.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ImmutableTopologySnapshotBenchmark {
+
+    /**
+     * Number of ports of each switch of the fat-tree.
+     */
+    @Param({"4", "16"})
+    public int k;
+
+    private List<SwitchData> switches;
+    private List<PortData> ports;
+    private List<LinkData> links;
+
+    private ImmutableTopologySnapshot snapshot;
+    private int nextLink;
+
+    @Setup
+    public void setUp() {
+        MockTopology topology = new MockTopology();
+        topology.createFatTree(k, 1000.0);
+        switches = new ArrayList<>(topology.getAllSwitchDataEntries());
+        ports = new ArrayList<>(topology.getAllPortDataEntries());
+        links = new ArrayList<>(topology.getAllLinkDataEntries());
+
+        snapshot = buildSnapshot();
+        nextLink = 0;
+    }
+
+    /**
+     * Builds a snapshot of the whole topology from an empty topology.
+     *
+     * @return the snapshot
+     */
+    @Benchmark
+    public ImmutableTopologySnapshot buildSnapshot() {
+        ImmutableTopologySnapshot.Builder builder =
+                ImmutableTopologySnapshot.initialBuilder();
+        for (SwitchData sw : switches) {
+            builder.putSwitch(sw);
+        }
+        for (PortData port : ports) {
+            builder.putPort(port);
+        }
+        for (LinkData link : links) {
+            builder.putLink(link);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Derives a snapshot removing and adding back a link, as done for each
+     * link event applied to the topology.
+     *
+     * @return the snapshot
+     */
+    @Benchmark
+    public ImmutableTopologySnapshot updateLink() {
+        final LinkData link = links.get(nextLink);
+        nextLink = (nextLink + 1) % links.size();
+        return snapshot.builder()
+                .removeLink(link.getLinkTuple())
+                .putLink(link)
+                .build();
+    }
+}
@@ -0,0 +1,154 @@
+package net.onrc.onos.core.topology;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import net.floodlightcontroller.util.MACAddress;
+import net.onrc.onos.core.util.Dpid;
+import net.onrc.onos.core.util.OnosInstanceId;
+import net.onrc.onos.core.util.PortNumber;
+import net.onrc.onos.core.util.SwitchPort;
+import net.onrc.onos.core.util.serializers.KryoFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+
+/**
+ * Compares the compact {@link TopologyEventSerializer} encoding with the
+ * default field serializer encoding of TopologyEvents.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class TopologyEventSerializerBenchmark {
+    private static final OnosInstanceId ONOS_INSTANCE_ID =
+            new OnosInstanceId("ONOS-Instance-Benchmark");
+
+    /**
+     * The encoding: "compact" for TopologyEventSerializer, "field" for the
+     * default field serializer.
+     */
+    @Param({"compact", "field"})
+    public String format;
+
+    private Kryo kryo;
+
+    private TopologyEvent switchEvent;
+    private TopologyEvent portEvent;
+    private TopologyEvent linkEvent;
+    private TopologyEvent hostEvent;
+
+    private byte[] serializedSwitchEvent;
+    private byte[] serializedPortEvent;
+    private byte[] serializedLinkEvent;
+    private byte[] serializedHostEvent;
+
+    @Setup
+    public void setUp() {
+        kryo = KryoFactory.newKryoObject();
+        if ("field".equals(format)) {
+            kryo.register(TopologyEvent.class,
+                    new FieldSerializer<TopologyEvent>(kryo, TopologyEvent.class));
+        }
+
+        final Dpid dpidA = new Dpid(0x1234L);
+        final Dpid dpidB = new Dpid(Long.MAX_VALUE);
+        final PortNumber portA = PortNumber.uint32(42);
+        final PortNumber portB = PortNumber.uint32(65534);
+
+        SwitchData sw = new SwitchData(dpidA);
+        sw.createStringAttribute(TopologyElement.TYPE,
+                                 TopologyElement.TYPE_PACKET_LAYER);
+        sw.createStringAttribute(TopologyElement.ELEMENT_CONFIG_STATE,
+                                 ConfigState.NOT_CONFIGURED.toString());
+        sw.createStringAttribute(TopologyElement.ELEMENT_ADMIN_STATUS,
+                                 AdminStatus.ACTIVE.toString());
+        switchEvent = new TopologyEvent(sw.freeze(), ONOS_INSTANCE_ID);
+
+        PortData port = new PortData(dpidA, portA);
+        port.createStringAttribute(TopologyElement.TYPE,
+                                   TopologyElement.TYPE_PACKET_LAYER);
+        port.createStringAttribute("name", "eth42");
+        portEvent = new TopologyEvent(port.freeze(), ONOS_INSTANCE_ID);
+
+        LinkData link = new LinkData(new SwitchPort(dpidA, portA),
+                                     new SwitchPort(dpidB, portB));
+        link.createStringAttribute(TopologyElement.TYPE,
+                                   TopologyElement.TYPE_PACKET_LAYER);
+        linkEvent = new TopologyEvent(link.freeze(), ONOS_INSTANCE_ID);
+
+        HostData host = new HostData(MACAddress.valueOf(0x0123456789abL),
+                                     0x0a000001);
+        host.setAttachmentPoints(Arrays.asList(new SwitchPort(dpidA, portA)));
+        host.setLastSeenTime(System.currentTimeMillis());
+        hostEvent = new TopologyEvent(host.freeze(), ONOS_INSTANCE_ID);
+
+        serializedSwitchEvent = serialize(switchEvent);
+        serializedPortEvent = serialize(portEvent);
+        serializedLinkEvent = serialize(linkEvent);
+        serializedHostEvent = serialize(hostEvent);
+
+        System.out.printf("%n%s encoding sizes: switch %d, port %d, link %d, "
+                + "host %d bytes%n", format, serializedSwitchEvent.length,
+                serializedPortEvent.length, serializedLinkEvent.length,
+                serializedHostEvent.length);
+    }
+
+    private byte[] serialize(TopologyEvent event) {
+        return KryoFactory.serialize(kryo, event, -1);
+    }
+
+    private TopologyEvent deserialize(byte[] bytes) {
+        return (TopologyEvent) kryo.readClassAndObject(new Input(bytes));
+    }
+
+    @Benchmark
+    public byte[] serializeSwitchEvent() {
+        return serialize(switchEvent);
+    }
+
+    @Benchmark
+    public byte[] serializePortEvent() {
+        return serialize(portEvent);
+    }
+
+    @Benchmark
+    public byte[] serializeLinkEvent() {
+        return serialize(linkEvent);
+    }
+
+    @Benchmark
+    public byte[] serializeHostEvent() {
+        return serialize(hostEvent);
+    }
+
+    @Benchmark
+    public TopologyEvent deserializeSwitchEvent() {
+        return deserialize(serializedSwitchEvent);
+    }
+
+    @Benchmark
+    public TopologyEvent deserializePortEvent() {
+        return deserialize(serializedPortEvent);
+    }
+
+    @Benchmark
+    public TopologyEvent deserializeLinkEvent() {
+        return deserialize(serializedLinkEvent);
+    }
+
+    @Benchmark
+    public TopologyEvent deserializeHostEvent() {
+        return deserialize(serializedHostEvent);
+    }
+}
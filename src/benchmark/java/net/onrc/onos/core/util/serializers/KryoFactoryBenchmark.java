@@ -0,0 +1,143 @@
+package net.onrc.onos.core.util.serializers;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import net.floodlightcontroller.util.MACAddress;
+import net.onrc.onos.core.intent.IntentOperation.Operator;
+import net.onrc.onos.core.intent.IntentOperationList;
+import net.onrc.onos.core.intent.ShortestPathIntent;
+import net.onrc.onos.core.matchaction.MatchAction;
+import net.onrc.onos.core.matchaction.MatchActionId;
+import net.onrc.onos.core.matchaction.MatchActionOperationEntry;
+import net.onrc.onos.core.matchaction.MatchActionOperations;
+import net.onrc.onos.core.matchaction.MatchActionOperationsId;
+import net.onrc.onos.core.matchaction.action.Action;
+import net.onrc.onos.core.matchaction.action.OutputAction;
+import net.onrc.onos.core.matchaction.match.PacketMatchBuilder;
+import net.onrc.onos.core.topology.LinkData;
+import net.onrc.onos.core.topology.PortData;
+import net.onrc.onos.core.topology.SwitchData;
+import net.onrc.onos.core.topology.TopologyEvent;
+import net.onrc.onos.core.util.Dpid;
+import net.onrc.onos.core.util.OnosInstanceId;
+import net.onrc.onos.core.util.PortNumber;
+import net.onrc.onos.core.util.SwitchPort;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the KryoFactory serialization of the objects exchanged through
+ * the datagrid: TopologyEvent, IntentOperationList and MatchActionOperations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class KryoFactoryBenchmark {
+    private static final OnosInstanceId ONOS_INSTANCE_ID =
+            new OnosInstanceId("ONOS-Instance-Benchmark");
+
+    /**
+     * Number of intents and match actions in the batches.
+     */
+    @Param({"1", "100"})
+    public int batchSize;
+
+    private TopologyEvent switchEvent;
+    private TopologyEvent portEvent;
+    private TopologyEvent linkEvent;
+    private IntentOperationList intentOperations;
+    private MatchActionOperations matchActionOperations;
+
+    private byte[] serializedSwitchEvent;
+    private byte[] serializedLinkEvent;
+    private byte[] serializedIntentOperations;
+    private byte[] serializedMatchActionOperations;
+
+    @Setup
+    public void setUp() {
+        final Dpid dpidA = new Dpid(0x1234L);
+        final Dpid dpidB = new Dpid(Long.MAX_VALUE);
+        final PortNumber portA = PortNumber.uint16((short) 42);
+        final PortNumber portB = PortNumber.uint16((short) 65534);
+
+        SwitchData sw = new SwitchData(dpidA);
+        sw.createStringAttribute("foo", "bar");
+        switchEvent = new TopologyEvent(sw, ONOS_INSTANCE_ID);
+        portEvent = new TopologyEvent(new PortData(dpidA, portA), ONOS_INSTANCE_ID);
+        linkEvent = new TopologyEvent(new LinkData(new SwitchPort(dpidA, portA),
+                new SwitchPort(dpidB, portB)), ONOS_INSTANCE_ID);
+
+        intentOperations = new IntentOperationList();
+        matchActionOperations = new MatchActionOperations(new MatchActionOperationsId(1L));
+        for (int i = 0; i < batchSize; i++) {
+            intentOperations.add(Operator.ADD, new ShortestPathIntent(
+                    Integer.toString(i), dpidA.value(), portA.value(), i,
+                    dpidB.value(), portB.value(), i + batchSize));
+
+            MatchAction matchAction = new MatchAction(new MatchActionId(i),
+                    new SwitchPort(dpidA, portA),
+                    new PacketMatchBuilder().setSrcMac(MACAddress.valueOf(i)).build(),
+                    Arrays.<Action>asList(new OutputAction(portB)));
+            matchActionOperations.addOperation(new MatchActionOperationEntry(
+                    MatchActionOperations.Operator.ADD, matchAction));
+        }
+
+        serializedSwitchEvent = KryoFactory.serialize(switchEvent);
+        serializedLinkEvent = KryoFactory.serialize(linkEvent);
+        serializedIntentOperations = KryoFactory.serialize(intentOperations);
+        serializedMatchActionOperations = KryoFactory.serialize(matchActionOperations);
+    }
+
+    @Benchmark
+    public byte[] serializeSwitchEvent() {
+        return KryoFactory.serialize(switchEvent);
+    }
+
+    @Benchmark
+    public byte[] serializePortEvent() {
+        return KryoFactory.serialize(portEvent);
+    }
+
+    @Benchmark
+    public byte[] serializeLinkEvent() {
+        return KryoFactory.serialize(linkEvent);
+    }
+
+    @Benchmark
+    public TopologyEvent deserializeSwitchEvent() {
+        return KryoFactory.deserialize(serializedSwitchEvent);
+    }
+
+    @Benchmark
+    public TopologyEvent deserializeLinkEvent() {
+        return KryoFactory.deserialize(serializedLinkEvent);
+    }
+
+    @Benchmark
+    public byte[] serializeIntentOperationList() {
+        return KryoFactory.serialize(intentOperations);
+    }
+
+    @Benchmark
+    public IntentOperationList deserializeIntentOperationList() {
+        return KryoFactory.deserialize(serializedIntentOperations);
+    }
+
+    @Benchmark
+    public byte[] serializeMatchActionOperations() {
+        return KryoFactory.serialize(matchActionOperations);
+    }
+
+    @Benchmark
+    public MatchActionOperations deserializeMatchActionOperations() {
+        return KryoFactory.deserialize(serializedMatchActionOperations);
+    }
+}
@@ -40,7 +40,11 @@ public interface IOF13Switch extends IOFSwitch {
     /**
      * Pushes a collection of flows to the switch, at the same time. Can result
      * in better performance, when compared to sending flows one at a time using
-     * {@link pushFlow}, especially if the number of flows is large.
+     * {@link pushFlow}, especially if the number of flows is large. The
+     * ECMP groups referenced by the flows are created on demand and sent
+     * ahead of the flows, followed by a barrier. The groups no longer
+     * referenced by any flow are deleted after another barrier following
+     * the flows.
      *
      * @param matchActionOps a collection of information required to create a
      *        flowmod
@@ -145,10 +149,11 @@ public interface IOF13Switch extends IOFSwitch {
     /**
      * Get the ECMP group-id for the ECMP group in this switch that includes
      * ports that connect to the neighbor-switches included in the NeighborSet
-     * 'ns'
+     * 'ns'. The group is created if it does not exist yet.
      *
      * @param ns the set of Neighbor Dpids
-     * @return the ecmp group id, or -1 if no such group exists
+     * @return the ecmp group id, or -1 if the group cannot be created because
+     *         no port to the neighbors is enabled
      */
     public int getEcmpGroupId(NeighborSet ns);
 
@@ -79,6 +79,7 @@ import net.onrc.onos.core.util.Dpid;
 import net.onrc.onos.core.util.OnosInstanceId;
 
 import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.group.ChannelGroup;
 import org.jboss.netty.channel.group.DefaultChannelGroup;
@@ -1109,21 +1110,7 @@ public class Controller implements IFloodlightProviderService {
         }
 
         try {
-            final ServerBootstrap bootstrap = createServerBootStrap();
-
-            bootstrap.setOption("reuseAddr", true);
-            bootstrap.setOption("child.keepAlive", true);
-            bootstrap.setOption("child.tcpNoDelay", true);
-            bootstrap.setOption("child.sendBufferSize", Controller.SEND_BUFFER_SIZE);
-
-            ChannelPipelineFactory pfact =
-                    new OpenflowPipelineFactory(this, null);
-            bootstrap.setPipelineFactory(pfact);
-            InetSocketAddress sa = new InetSocketAddress(openFlowPort);
-            final ChannelGroup cg = new DefaultChannelGroup();
-            cg.add(bootstrap.bind(sa));
-
-            log.info("Listening for switch connections on {}", sa);
+            listen();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -1143,6 +1130,32 @@ public class Controller implements IFloodlightProviderService {
         }
     }
 
+    /**
+     * Starts listening for switch connections on the OpenFlow port.
+     *
+     * @return the channel bound to the OpenFlow port
+     */
+    // This "protected" modifier is for unit test.
+    protected Channel listen() {
+        final ServerBootstrap bootstrap = createServerBootStrap();
+
+        bootstrap.setOption("reuseAddr", true);
+        bootstrap.setOption("child.keepAlive", true);
+        bootstrap.setOption("child.tcpNoDelay", true);
+        bootstrap.setOption("child.sendBufferSize", Controller.SEND_BUFFER_SIZE);
+
+        ChannelPipelineFactory pfact =
+                new OpenflowPipelineFactory(this, null);
+        bootstrap.setPipelineFactory(pfact);
+        InetSocketAddress sa = new InetSocketAddress(openFlowPort);
+        final ChannelGroup cg = new DefaultChannelGroup();
+        final Channel channel = bootstrap.bind(sa);
+        cg.add(channel);
+
+        log.info("Listening for switch connections on {}", channel.getLocalAddress());
+        return channel;
+    }
+
     private ServerBootstrap createServerBootStrap() {
         if (workerThreads == 0) {
             return new ServerBootstrap(
@@ -88,6 +88,7 @@ class OFChannelHandler extends IdleStateAwareChannelHandler {
     private final Controller controller;
     private final Counters counters;
     private IOFSwitch sw;
+    private volatile SwitchMetrics switchMetrics;
     private long thisdpid; // channelHandler cached value of connected switch id
     private Channel channel;
     // State needs to be volatile because the HandshakeTimeoutHandler
@@ -880,6 +881,8 @@ class OFChannelHandler extends IdleStateAwareChannelHandler {
                 // set switch information
                 h.sw.setOFVersion(h.ofVersion);
                 ((OFSwitchImplBase) h.sw).setFeaturesReply(h.featuresReply);
+                h.switchMetrics = SwitchMetrics.register(h.thisdpid);
+                ((OFSwitchImplBase) h.sw).setSwitchMetrics(h.switchMetrics);
                 ((OFSwitchImplBase) h.sw).setPortDescReplies(h.portDescReplies);
                 h.sw.setConnected(true);
                 h.sw.setChannel(h.channel);
@@ -1838,7 +1841,10 @@ class OFChannelHandler extends IdleStateAwareChannelHandler {
 
         void processOFEchoReply(OFChannelHandler h, OFEchoReply m)
                 throws IOException {
-            // Do nothing with EchoReplies !!
+            SwitchMetrics metrics = h.switchMetrics;
+            if (metrics != null) {
+                metrics.echoReplyReceived(m.getXid());
+            }
         }
 
         // no default implementation for OFError
@@ -2005,6 +2011,7 @@ class OFChannelHandler extends IdleStateAwareChannelHandler {
                 // all state for the original switch (with the same dpid),
                 // which we obviously don't want.
                 controller.removeConnectedSwitch(thisdpid);
+                SwitchMetrics.remove(thisdpid);
             } else {
                 // A duplicate was disconnected on this ChannelHandler,
                 // this is the same switch reconnecting, but the original state
@@ -2124,12 +2131,20 @@ class OFChannelHandler extends IdleStateAwareChannelHandler {
     public void channelIdle(ChannelHandlerContext ctx, IdleStateEvent e)
             throws Exception {
         OFFactory factory = (ofVersion == OFVersion.OF_13) ? factory13 : factory10;
-        OFMessage m = factory.buildEchoRequest().build();
+        OFEchoRequest.Builder builder = factory.buildEchoRequest();
+        // once the switch is created, the echo request gets a transaction id
+        // so that the reply is correlated to it for the round trip time
+        SwitchMetrics metrics = switchMetrics;
+        IOFSwitch currentSw = sw;
+        if (metrics != null && currentSw != null) {
+            long xid = currentSw.getNextTransactionId();
+            builder.setXid(xid);
+            metrics.echoSent(xid);
+        }
+        OFMessage m = builder.build();
         log.info("Sending Echo Request on idle channel: {}",
                 e.getChannel().getPipeline().getLast().toString());
         e.getChannel().write(Collections.singletonList(m));
-        // XXX S some problems here -- echo request has no transaction id, and
-        // echo reply is not correlated to the echo request.
     }
 
     @Override
@@ -2151,8 +2166,12 @@ class OFChannelHandler extends IdleStateAwareChannelHandler {
                 loadlevel = LoadMonitor.LoadLevel.OK;
             }
 
+            int packetIns = 0;
             for (OFMessage ofm : msglist) {
                 counters.messageReceived.updateCounterNoFlush();
+                if (ofm.getType() == OFType.PACKET_IN) {
+                    packetIns++;
+                }
                 // Per-switch input throttling - placeholder for future
                 // throttling
                 /*if (sw != null && sw.inputThrottled(ofm)) {
@@ -2208,6 +2227,11 @@ class OFChannelHandler extends IdleStateAwareChannelHandler {
                 }
             }
 
+            SwitchMetrics metrics = switchMetrics;
+            if (packetIns > 0 && metrics != null) {
+                metrics.packetInReceived(packetIns);
+            }
+
             if (loadlevel != LoadMonitor.LoadLevel.OK) {
                 if (log.isDebugEnabled()) {
                     log.debug(
@@ -2226,7 +2250,12 @@ class OFChannelHandler extends IdleStateAwareChannelHandler {
             // TODO: Pankaj: move the counters using ONOS metrics implementation
 
             counters.messageReceived.updateCounterNoFlush();
-            state.processOFMessage(this, (OFMessage) e.getMessage());
+            OFMessage ofm = (OFMessage) e.getMessage();
+            SwitchMetrics metrics = switchMetrics;
+            if (ofm.getType() == OFType.PACKET_IN && metrics != null) {
+                metrics.packetInReceived(1);
+            }
+            state.processOFMessage(this, ofm);
         }
 
         // Flush all thread local queues etc. generated by this train
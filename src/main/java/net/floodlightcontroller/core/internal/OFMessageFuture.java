@@ -17,6 +17,8 @@
 
 package net.floodlightcontroller.core.internal;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -51,6 +53,7 @@ public abstract class OFMessageFuture<V> implements Future<V> {
     protected int transactionId;
     protected static final long DEFAULT_TIMEOUT = 60;
     protected static final TimeUnit DEFAULT_TIMEOUT_UNIT = TimeUnit.SECONDS;
+    private final List<Runnable> completionListeners = new ArrayList<>();
 
     public OFMessageFuture(IThreadPoolService tp,
                            IOFSwitch sw, OFType responseType, int transactionId) {
@@ -89,10 +92,41 @@ public abstract class OFMessageFuture<V> implements Future<V> {
             if (isFinished()) {
                 unRegister();
                 this.latch.countDown();
+                notifyCompletionListeners();
             }
         }
     }
 
+    /**
+     * Registers a callback that is run once this Future is done, either
+     * because the reply arrived or because it was canceled or timed out.
+     * If the Future is already done, the callback is run immediately in the
+     * calling thread. Otherwise it runs in the thread completing the Future,
+     * so it should be short and must not block.
+     *
+     * @param listener the callback to run on completion
+     */
+    public void addCompletionListener(Runnable listener) {
+        synchronized (completionListeners) {
+            if (!isDone()) {
+                completionListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    private void notifyCompletionListeners() {
+        List<Runnable> listeners;
+        synchronized (completionListeners) {
+            listeners = new ArrayList<>(completionListeners);
+            completionListeners.clear();
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
     /**
      * Used to handle the specific expected message this Future was reigstered
      * for, the specified msg parameter is guaranteed to match the type and
@@ -124,6 +158,7 @@ public abstract class OFMessageFuture<V> implements Future<V> {
             unRegister();
             canceled = true;
             this.latch.countDown();
+            notifyCompletionListeners();
             return !isDone();
         }
     }
@@ -59,6 +59,7 @@ import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.annotate.JsonProperty;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
 import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
 import org.projectfloodlight.openflow.protocol.OFActionType;
 import org.projectfloodlight.openflow.protocol.OFBarrierReply;
 import org.projectfloodlight.openflow.protocol.OFCapabilities;
@@ -139,6 +140,7 @@ public class OFSwitchImplBase implements IOFSwitch {
     protected Map<Integer, IOFMessageListener> iofMsgListenersMap;
     protected Map<Integer, OFFeaturesReplyFuture> featuresFutureMap;
     protected Map<Long, OFBarrierReplyFuture> barrierFutureMap;
+    protected SwitchMetrics switchMetrics;
     protected boolean connected;
     protected Role role;
     protected ReentrantReadWriteLock listenerLock;
@@ -385,7 +387,10 @@ public class OFSwitchImplBase implements IOFSwitch {
     }
 
     protected void write(List<OFMessage> msglist) throws IOException {
-        this.channel.write(msglist);
+        ChannelFuture future = this.channel.write(msglist);
+        if (switchMetrics != null) {
+            switchMetrics.messagesWritten(msglist, future);
+        }
     }
 
     @Override
@@ -1379,6 +1384,25 @@ public class OFSwitchImplBase implements IOFSwitch {
         return "";
     }
 
+    /**
+     * Get the control channel metrics of this switch.
+     *
+     * @return the metrics, or null before the handshake is complete
+     */
+    @JsonIgnore
+    public SwitchMetrics getSwitchMetrics() {
+        return switchMetrics;
+    }
+
+    /**
+     * Set the control channel metrics of this switch.
+     *
+     * @param switchMetrics the metrics registered by the channel handler
+     */
+    protected void setSwitchMetrics(SwitchMetrics switchMetrics) {
+        this.switchMetrics = switchMetrics;
+    }
+
     public OFBarrierReplyFuture sendBarrier() throws IOException {
         long xid = getNextTransactionId();
         OFMessage br = getFactory()
@@ -1393,6 +1417,9 @@ public class OFSwitchImplBase implements IOFSwitch {
     }
 
     public void deliverBarrierReply(OFBarrierReply br) {
+        if (switchMetrics != null) {
+            switchMetrics.barrierReplyReceived(br.getXid());
+        }
         OFBarrierReplyFuture f = barrierFutureMap.get(br.getXid());
         if (f != null) {
             f.deliverFuture(this, br);
@@ -0,0 +1,358 @@
+package net.floodlightcontroller.core.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.onrc.onos.core.metrics.OnosMetrics;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsComponent;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsFeature;
+import net.onrc.onos.core.util.Dpid;
+
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+
+/**
+ * Control channel metrics of a connected switch.
+ * <p/>
+ * The metrics of each switch are registered in OnosMetrics with the
+ * "Switches" component and the DPID of the switch as the feature, for example
+ * "Switches.00:00:00:00:00:00:00:01.BarrierRttNs":
+ * <ul>
+ * <li>PacketInRate: Meter of the PACKET_IN messages received.</li>
+ * <li>FlowModRate: Meter of the FLOW_MOD messages sent.</li>
+ * <li>MessageRate: Meter of all the messages sent.</li>
+ * <li>BarrierRttNs: Histogram of the round trip time of the barriers, from
+ * the write of the request to the reception of the reply.</li>
+ * <li>EchoRttNs: Histogram of the round trip time of the echo requests sent
+ * on the idle channel.</li>
+ * <li>WriteBacklog: Gauge of the messages written to the channel, but not
+ * yet written to the socket.</li>
+ * <li>QueueDepth: Gauge of the messages queued by the flow pusher, once
+ * registered.</li>
+ * </ul>
+ * The metrics are created when the switch completes the handshake, and
+ * removed when it disconnects.
+ */
+public final class SwitchMetrics {
+    private static final MetricsComponent METRICS_COMPONENT =
+        OnosMetrics.registerComponent("Switches");
+
+    // Maximum number of requests waiting for a reply. The oldest request is
+    // forgotten when the limit is reached, as it is likely never replied.
+    private static final int MAX_PENDING_REQUESTS = 1024;
+
+    private static final ConcurrentMap<Long, SwitchMetrics> SWITCHES =
+            new ConcurrentHashMap<>();
+
+    private final long dpid;
+    private final MetricsFeature metricsFeature;
+    private final Meter packetInRate;
+    private final Meter flowModRate;
+    private final Meter messageRate;
+    private final Histogram barrierRtt;
+    private final Histogram echoRtt;
+    private final AtomicLong writeBacklog = new AtomicLong();
+    private final Map<Long, Long> pendingBarriers = Collections.synchronizedMap(
+            new LinkedHashMap<Long, Long>() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                    return size() > MAX_PENDING_REQUESTS;
+                }
+            });
+    private volatile long echoXid;
+    private volatile long echoSentTime;
+    private volatile Gauge<Integer> queueDepth;
+
+    /**
+     * Creates and registers the metrics of a switch.
+     *
+     * @param dpid the DPID of the switch
+     */
+    private SwitchMetrics(long dpid) {
+        this.dpid = dpid;
+        this.metricsFeature =
+            METRICS_COMPONENT.registerFeature(new Dpid(dpid).toString());
+        this.packetInRate = OnosMetrics.createMeter(METRICS_COMPONENT,
+                metricsFeature, "PacketInRate");
+        this.flowModRate = OnosMetrics.createMeter(METRICS_COMPONENT,
+                metricsFeature, "FlowModRate");
+        this.messageRate = OnosMetrics.createMeter(METRICS_COMPONENT,
+                metricsFeature, "MessageRate");
+        this.barrierRtt = OnosMetrics.createHistogram(METRICS_COMPONENT,
+                metricsFeature, "BarrierRttNs");
+        this.echoRtt = OnosMetrics.createHistogram(METRICS_COMPONENT,
+                metricsFeature, "EchoRttNs");
+        OnosMetrics.registerMetric(METRICS_COMPONENT, metricsFeature,
+                "WriteBacklog", new Gauge<Long>() {
+                    @Override
+                    public Long getValue() {
+                        return writeBacklog.get();
+                    }
+                });
+    }
+
+    /**
+     * Gets the metrics of a switch, creating them if needed.
+     *
+     * @param dpid the DPID of the switch
+     * @return the metrics of the switch
+     */
+    public static SwitchMetrics register(long dpid) {
+        SwitchMetrics metrics = SWITCHES.get(dpid);
+        if (metrics == null) {
+            synchronized (SWITCHES) {
+                // the metrics are registered once in OnosMetrics
+                metrics = SWITCHES.get(dpid);
+                if (metrics == null) {
+                    metrics = new SwitchMetrics(dpid);
+                    SWITCHES.put(dpid, metrics);
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Gets the metrics of a switch.
+     *
+     * @param dpid the DPID of the switch
+     * @return the metrics of the switch, or null if not registered
+     */
+    public static SwitchMetrics get(long dpid) {
+        return SWITCHES.get(dpid);
+    }
+
+    /**
+     * Gets the metrics of all the registered switches.
+     *
+     * @return the list of the metrics
+     */
+    public static List<SwitchMetrics> getAll() {
+        return new ArrayList<>(SWITCHES.values());
+    }
+
+    /**
+     * Removes the metrics of a switch.
+     *
+     * @param dpid the DPID of the switch
+     */
+    public static void remove(long dpid) {
+        synchronized (SWITCHES) {
+            final SwitchMetrics metrics = SWITCHES.remove(dpid);
+            if (metrics == null) {
+                return;
+            }
+            final String prefix = OnosMetrics.generateName(METRICS_COMPONENT,
+                    metrics.metricsFeature, "");
+            OnosMetrics.removeMatching(new MetricFilter() {
+                @Override
+                public boolean matches(String name, Metric metric) {
+                    return name.startsWith(prefix);
+                }
+            });
+        }
+    }
+
+    /**
+     * Gets the DPID of the switch.
+     *
+     * @return the DPID
+     */
+    public long getDpid() {
+        return dpid;
+    }
+
+    /**
+     * Gets the Meter of the PACKET_IN messages received.
+     *
+     * @return the Meter
+     */
+    public Meter getPacketInRate() {
+        return packetInRate;
+    }
+
+    /**
+     * Gets the Meter of the FLOW_MOD messages sent.
+     *
+     * @return the Meter
+     */
+    public Meter getFlowModRate() {
+        return flowModRate;
+    }
+
+    /**
+     * Gets the Meter of all the messages sent.
+     *
+     * @return the Meter
+     */
+    public Meter getMessageRate() {
+        return messageRate;
+    }
+
+    /**
+     * Gets the Histogram of the barrier round trip time.
+     *
+     * @return the Histogram, in nanoseconds
+     */
+    public Histogram getBarrierRtt() {
+        return barrierRtt;
+    }
+
+    /**
+     * Gets the Histogram of the echo round trip time.
+     *
+     * @return the Histogram, in nanoseconds
+     */
+    public Histogram getEchoRtt() {
+        return echoRtt;
+    }
+
+    /**
+     * Gets the number of messages written to the channel, but not yet
+     * written to the socket.
+     *
+     * @return the number of messages
+     */
+    public long getWriteBacklog() {
+        return writeBacklog.get();
+    }
+
+    /**
+     * Gets the number of messages queued by the flow pusher.
+     *
+     * @return the number of messages, or 0 if the queue is not registered
+     */
+    public int getQueueDepth() {
+        final Gauge<Integer> gauge = queueDepth;
+        return (gauge == null) ? 0 : gauge.getValue();
+    }
+
+    /**
+     * Registers the Gauge of the messages queued by the flow pusher for the
+     * switch, replacing the previous one.
+     *
+     * @param gauge the Gauge, or null to unregister it
+     */
+    public synchronized void setQueueDepth(Gauge<Integer> gauge) {
+        final String name = OnosMetrics.generateName(METRICS_COMPONENT,
+                metricsFeature, "QueueDepth");
+        OnosMetrics.removeMatching(new MetricFilter() {
+            @Override
+            public boolean matches(String metricName, Metric metric) {
+                return metricName.equals(name);
+            }
+        });
+        queueDepth = gauge;
+        if (gauge != null) {
+            OnosMetrics.registerMetric(METRICS_COMPONENT, metricsFeature,
+                    "QueueDepth", gauge);
+        }
+    }
+
+    /**
+     * Records the reception of PACKET_IN messages.
+     *
+     * @param count the number of messages
+     */
+    public void packetInReceived(int count) {
+        packetInRate.mark(count);
+    }
+
+    /**
+     * Records messages written to the channel.
+     *
+     * @param msglist the messages
+     * @param future the future of the write, which is used to track the
+     *               write backlog
+     */
+    public void messagesWritten(List<OFMessage> msglist, ChannelFuture future) {
+        final int count = msglist.size();
+        int flowMods = 0;
+        for (OFMessage m : msglist) {
+            switch (m.getType()) {
+            case FLOW_MOD:
+                flowMods++;
+                break;
+            case BARRIER_REQUEST:
+                barrierSent(m.getXid());
+                break;
+            default:
+                break;
+            }
+        }
+        messageRate.mark(count);
+        if (flowMods > 0) {
+            flowModRate.mark(flowMods);
+        }
+
+        if (future == null || future.isDone()) {
+            return;
+        }
+        writeBacklog.addAndGet(count);
+        future.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture f) {
+                writeBacklog.addAndGet(-count);
+            }
+        });
+    }
+
+    /**
+     * Records the sending of a barrier request.
+     *
+     * @param xid the transaction ID of the request
+     */
+    void barrierSent(long xid) {
+        pendingBarriers.put(xid, System.nanoTime());
+    }
+
+    /**
+     * Records the reception of a barrier reply.
+     *
+     * @param xid the transaction ID of the reply
+     */
+    public void barrierReplyReceived(long xid) {
+        final Long sent = pendingBarriers.remove(xid);
+        if (sent != null) {
+            barrierRtt.update(System.nanoTime() - sent);
+        }
+    }
+
+    /**
+     * Records the sending of an echo request.
+     *
+     * @param xid the transaction ID of the request
+     */
+    public void echoSent(long xid) {
+        echoSentTime = System.nanoTime();
+        echoXid = xid;
+    }
+
+    /**
+     * Records the reception of an echo reply.
+     *
+     * @param xid the transaction ID of the reply
+     */
+    public void echoReplyReceived(long xid) {
+        // the time of the request is written before its transaction ID
+        if (xid != 0 && xid == echoXid) {
+            echoRtt.update(System.nanoTime() - echoSentTime);
+            echoXid = 0;
+        }
+    }
+}
@@ -5,19 +5,15 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Sets;
-
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
 import net.floodlightcontroller.core.module.IFloodlightModule;
@@ -39,17 +35,6 @@ public class DebugCounter implements IFloodlightModule, IDebugCounterService {
      */
     protected AtomicInteger counterIdCounter = new AtomicInteger();
 
-    /**
-     * The counter value
-     */
-    protected class MutableLong {
-        long value = 0;
-        public void increment() { value += 1; }
-        public void increment(long incr) { value += incr; }
-        public long get() { return value; }
-        public void set(long val) { value = val; }
-      }
-
     /**
      * protected class to store counter information
      */
@@ -60,7 +45,7 @@ public class DebugCounter implements IFloodlightModule, IDebugCounterService {
         String moduleName;
         String counterHierarchy;
         int counterId;
-        boolean enabled;
+        volatile boolean enabled;
         String[] metaData;
 
         public CounterInfo(int counterId, boolean enabled,
@@ -95,27 +80,32 @@ public class DebugCounter implements IFloodlightModule, IDebugCounterService {
      */
     public class DebugCounterInfo {
         CounterInfo cinfo;
-        AtomicLong cvalue;
 
         public DebugCounterInfo(CounterInfo cinfo) {
             this.cinfo = cinfo;
-            this.cvalue = new AtomicLong();
         }
         public CounterInfo getCounterInfo() {
             return cinfo;
         }
         public Long getCounterValue() {
-            return cvalue.get();
+            return counterValues.get(cinfo.counterId);
         }
     }
 
     /**
-     * Global debug-counter storage across all threads. These are
-     * updated from the local per thread counters by the flush counters method.
+     * Global debug-counter info, indexed by counter id.
      */
     protected static DebugCounterInfo[] allCounters =
                             new DebugCounterInfo[MAX_COUNTERS];
 
+    /**
+     * Global debug-counter values, indexed by counter id. The values are
+     * striped across the updating threads, so that updates from the
+     * packet-processing threads are allocation-free and do not contend.
+     */
+    protected static final StripedCounters counterValues =
+                            new StripedCounters(MAX_COUNTERS);
+
 
     /**
      * per module counters, indexed by the module name and storing three levels
@@ -136,51 +126,6 @@ public class DebugCounter implements IFloodlightModule, IDebugCounterService {
         }
     }
 
-    /**
-     * fast global cache for counter ids that are currently active
-     */
-    protected Set<Integer> currentCounters = Collections.newSetFromMap(
-                                         new ConcurrentHashMap<Integer,Boolean>());
-
-    //******************
-    // Thread local stores
-    //******************
-
-    /**
-     * Thread local storage of counter info
-     */
-    protected class LocalCounterInfo {
-        boolean enabled;
-        MutableLong cvalue;
-
-        public LocalCounterInfo(boolean enabled) {
-            this.enabled = enabled;
-            this.cvalue = new MutableLong();
-        }
-    }
-
-    /**
-     * Thread local debug counters used for maintaining counters local to a thread.
-     */
-    protected final ThreadLocal<LocalCounterInfo[]> threadlocalCounters =
-            new ThreadLocal<LocalCounterInfo[]>() {
-        @Override
-        protected LocalCounterInfo[] initialValue() {
-            return new LocalCounterInfo[MAX_COUNTERS];
-        }
-    };
-
-    /**
-     * Thread local cache for counter ids that are currently active.
-     */
-    protected final ThreadLocal<Set<Integer>> threadlocalCurrentCounters =
-            new ThreadLocal<Set<Integer>>() {
-        @Override
-        protected Set<Integer> initialValue() {
-            return new HashSet<Integer>();
-        }
-    };
-
     //*******************************
     //   IDebugCounter
     //*******************************
@@ -219,7 +164,7 @@ public class DebugCounter implements IFloodlightModule, IDebugCounterService {
         @Override
         public long getCounterValue() {
             if (!validCounterId()) return -1;
-            return allCounters[counterId].cvalue.get();
+            return counterValues.get(counterId);
         }
 
         private boolean validCounterId() {
@@ -282,95 +227,34 @@ public class DebugCounter implements IFloodlightModule, IDebugCounterService {
        CounterInfo ci = new CounterInfo(counterId, enabled, moduleName,
                                         counterHierarchy, counterDescription,
                                         counterType, metaData);
+       counterValues.reset(counterId);
        allCounters[counterId] = new DebugCounterInfo(ci);
 
        // account for the new counter in the module counter hierarchy
        addToModuleCounterHierarchy(moduleName, counterId, rci);
 
-       // finally add to active counters
-       if (enabled) {
-           currentCounters.add(counterId);
-       }
        return new CounterImpl(counterId);
    }
 
    private void updateCounter(int counterId, int incr, boolean flushNow) {
        if (counterId < 0 || counterId >= MAX_COUNTERS) return;
 
-       LocalCounterInfo[] thiscounters =  this.threadlocalCounters.get();
-       if (thiscounters[counterId] == null) {
-           // seeing this counter for the first time in this thread - create local
-           // store by consulting global store
-           DebugCounterInfo dc = allCounters[counterId];
-           if (dc != null) {
-               thiscounters[counterId] = new LocalCounterInfo(dc.cinfo.enabled);
-               if (dc.cinfo.enabled) {
-                   Set<Integer> thisset = this.threadlocalCurrentCounters.get();
-                   thisset.add(counterId);
-               }
-           } else {
-               log.error("updateCounter seen locally for counter {} but no global"
-                          + "storage exists for it yet .. not updating", counterId);
-               return;
-           }
+       // the striped global store is updated directly, so there is nothing
+       // to flush whatever the value of flushNow
+       DebugCounterInfo dc = allCounters[counterId];
+       if (dc == null) {
+           log.error("updateCounter seen for counter {} but no global"
+                      + "storage exists for it yet .. not updating", counterId);
+           return;
        }
-
-       // update local store if enabled locally for updating
-       LocalCounterInfo lc = thiscounters[counterId];
-       if (lc.enabled) {
-           lc.cvalue.increment(incr);
-           if (flushNow) {
-               DebugCounterInfo dc = allCounters[counterId];
-               if (dc.cinfo.enabled) {
-                   // globally enabled - flush now
-                   dc.cvalue.addAndGet(lc.cvalue.get());
-                   lc.cvalue.set(0);
-               } else {
-                   // global counter is disabled - don't flush, disable locally
-                   lc.enabled = false;
-                   Set<Integer> thisset = this.threadlocalCurrentCounters.get();
-                   thisset.remove(counterId);
-               }
-           }
+       if (dc.cinfo.enabled) {
+           counterValues.add(counterId, incr);
        }
    }
 
    @Override
    public void flushCounters() {
-       LocalCounterInfo[] thiscounters =  this.threadlocalCounters.get();
-       Set<Integer> thisset = this.threadlocalCurrentCounters.get();
-       ArrayList<Integer> temp = new ArrayList<Integer>();
-
-       for (int counterId : thisset) {
-           LocalCounterInfo lc = thiscounters[counterId];
-           if (lc.cvalue.get() > 0) {
-               DebugCounterInfo dc = allCounters[counterId];
-               if (dc.cinfo.enabled) {
-                   // globally enabled - flush now
-                   dc.cvalue.addAndGet(lc.cvalue.get());
-                   lc.cvalue.set(0);
-               } else {
-                   // global counter is disabled - don't flush, disable locally
-                   lc.enabled = false;
-                   temp.add(counterId);
-               }
-           }
-       }
-       for (int cId : temp) {
-           thisset.remove(cId);
-       }
-
-       // At this point it is possible that the thread-local set does not
-       // include a counter that has been enabled and is present in the global set.
-       // We need to sync thread-local currently enabled set of counterIds with
-       // the global set.
-       Sets.SetView<Integer> sv = Sets.difference(currentCounters, thisset);
-       for (int counterId : sv) {
-           if (thiscounters[counterId] != null) {
-               thiscounters[counterId].enabled = true;
-               thisset.add(counterId);
-           }
-       }
+       // counters are updated in the striped global store, nothing to flush
    }
 
    @Override
@@ -382,11 +266,11 @@ public class DebugCounter implements IFloodlightModule, IDebugCounterService {
            return;
        }
        // reset at this level
-       allCounters[rci.ctrIds[rci.foundUptoLevel-1]].cvalue.set(0);
+       counterValues.reset(rci.ctrIds[rci.foundUptoLevel-1]);
        // reset all levels below
        ArrayList<Integer> resetIds = getHierarchyBelow(moduleName, rci);
        for (int index : resetIds) {
-           allCounters[index].cvalue.set(0);
+           counterValues.reset(index);
        }
    }
 
@@ -397,7 +281,7 @@ public class DebugCounter implements IFloodlightModule, IDebugCounterService {
        for (String moduleName : moduleCounters.keySet()) {
            ArrayList<Integer> resetIds = getHierarchyBelow(moduleName, rci);
            for (int index : resetIds) {
-               allCounters[index].cvalue.set(0);
+               counterValues.reset(index);
            }
        }
    }
@@ -411,7 +295,7 @@ public class DebugCounter implements IFloodlightModule, IDebugCounterService {
        if (target != null) {
            ArrayList<Integer> resetIds = getHierarchyBelow(moduleName, rci);
            for (int index : resetIds) {
-               allCounters[index].cvalue.set(0);
+               counterValues.reset(index);
            }
        } else {
            if (log.isDebugEnabled())
@@ -430,7 +314,6 @@ public class DebugCounter implements IFloodlightModule, IDebugCounterService {
        // enable specific counter
        DebugCounterInfo dc = allCounters[rci.ctrIds[rci.foundUptoLevel-1]];
        dc.cinfo.enabled = true;
-       currentCounters.add(dc.cinfo.counterId);
    }
 
    @Override
@@ -445,8 +328,7 @@ public class DebugCounter implements IFloodlightModule, IDebugCounterService {
        DebugCounterInfo dc = allCounters[rci.ctrIds[rci.foundUptoLevel-1]];
        if (dc.cinfo.ctype == CounterType.COUNT_ON_DEMAND) {
            dc.cinfo.enabled = false;
-           dc.cvalue.set(0);
-           currentCounters.remove(dc.cinfo.counterId);
+           counterValues.reset(dc.cinfo.counterId);
        }
    }
 
@@ -130,6 +130,8 @@ public interface IDebugCounterService extends IFloodlightService {
      * module. It's typical usage is from floodlight core and it is meant
      * to flush those counters that are updated in the packet-processing pipeline,
      * typically with the 'updateCounterNoFlush" methods in IDebugCounter.
+     * Implementations updating the global counter store directly, such as
+     * DebugCounter, have nothing to flush.
      */
     public void flushCounters();
 
@@ -0,0 +1,111 @@
+package net.floodlightcontroller.debugcounter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Storage for the values of a fixed number of counters, striped so that
+ * threads updating the same counter do not contend on the same cell.
+ * <p>
+ * Each stripe holds one cell per counter. A thread always updates the stripe
+ * selected by its thread ID, so the cells updated by one thread are adjacent
+ * and the cells of different threads are in different cache lines. The value
+ * of a counter is the sum of its cells over all the stripes, which is exact
+ * once the updates are complete. Stripes are allocated on first use, so the
+ * memory used grows with the number of updating threads, up to the number of
+ * stripes.
+ * <p>
+ * Updates are allocation-free and need no flushing.
+ */
+final class StripedCounters {
+    private static final int MAX_STRIPES = 64;
+
+    private final int numCounters;
+    private final int stripeMask;
+    private final AtomicReferenceArray<AtomicLongArray> stripes;
+
+    /**
+     * Creates the storage with a number of stripes suited to the number of
+     * processors.
+     *
+     * @param numCounters the number of counters
+     */
+    StripedCounters(int numCounters) {
+        this(numCounters, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates the storage.
+     *
+     * @param numCounters the number of counters
+     * @param minStripes the minimum number of stripes, rounded up to a power
+     *                   of two no larger than 64
+     */
+    StripedCounters(int numCounters, int minStripes) {
+        int numStripes = 1;
+        while (numStripes < minStripes && numStripes < MAX_STRIPES) {
+            numStripes <<= 1;
+        }
+        this.numCounters = numCounters;
+        this.stripeMask = numStripes - 1;
+        this.stripes = new AtomicReferenceArray<>(numStripes);
+    }
+
+    /**
+     * Adds to the value of a counter.
+     *
+     * @param counterId the counter
+     * @param incr the value to add
+     */
+    void add(int counterId, long incr) {
+        getStripe().addAndGet(counterId, incr);
+    }
+
+    /**
+     * Gets the value of a counter.
+     *
+     * @param counterId the counter
+     * @return the sum of the cells of the counter
+     */
+    long get(int counterId) {
+        long sum = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            AtomicLongArray stripe = stripes.get(i);
+            if (stripe != null) {
+                sum += stripe.get(counterId);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Resets the value of a counter to zero.
+     * <p>
+     * Updates concurrent with the reset may or may not be included in the
+     * value after the reset.
+     *
+     * @param counterId the counter
+     */
+    void reset(int counterId) {
+        for (int i = 0; i < stripes.length(); i++) {
+            AtomicLongArray stripe = stripes.get(i);
+            if (stripe != null) {
+                stripe.set(counterId, 0);
+            }
+        }
+    }
+
+    private AtomicLongArray getStripe() {
+        // thread IDs are allocated sequentially, which spreads the threads
+        // evenly over the stripes
+        final int index = (int) Thread.currentThread().getId() & stripeMask;
+        AtomicLongArray stripe = stripes.get(index);
+        if (stripe == null) {
+            stripe = new AtomicLongArray(numCounters);
+            if (!stripes.compareAndSet(index, null, stripe)) {
+                stripe = stripes.get(index);
+            }
+        }
+        return stripe;
+    }
+}
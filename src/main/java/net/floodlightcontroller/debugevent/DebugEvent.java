@@ -4,10 +4,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
@@ -20,7 +18,6 @@ import net.floodlightcontroller.core.module.IFloodlightService;
 import net.floodlightcontroller.debugevent.web.DebugEventRoutable;
 import net.floodlightcontroller.restserver.IRestApiService;
 
-import com.google.common.collect.Sets;
 /**
  * This class implements a central store for all events used for debugging the
  * system. The basic idea is that given the functionality provided by this class,
@@ -39,15 +36,12 @@ public class DebugEvent implements IFloodlightModule, IDebugEventService {
     protected int eventIdCounter = 0;
     protected Object eventIdLock = new Object();
 
-    private static final int PCT_LOCAL_CAP = 10; // % of global capacity
-    private static final int MIN_LOCAL_CAPACITY = 10; //elements
-
     /**
      * Event Information
      */
     public class EventInfo {
         int eventId;
-        boolean enabled;
+        volatile boolean enabled;
         int bufferCapacity;
         EventType etype;
         String eventDesc;
@@ -88,15 +82,16 @@ public class DebugEvent implements IFloodlightModule, IDebugEventService {
     //******************
 
     /**
-     * Event history for a particular event-id is stored in a circular buffer
+     * Event history for a particular event-id is stored in a ring buffer,
+     * updated directly by the threads generating the events
      */
     protected class DebugEventHistory {
         EventInfo einfo;
-        CircularBuffer<Event> eventBuffer;
+        EventRingBuffer eventBuffer;
 
         public DebugEventHistory(EventInfo einfo, int capacity) {
             this.einfo = einfo;
-            this.eventBuffer = new CircularBuffer<Event>(capacity);
+            this.eventBuffer = new EventRingBuffer(capacity);
         }
     }
 
@@ -119,57 +114,6 @@ public class DebugEvent implements IFloodlightModule, IDebugEventService {
         moduleEvents = new ConcurrentHashMap<String,
                                 ConcurrentHashMap<String, Integer>>();
 
-    /**
-     * A collection of event ids that are currently enabled for logging
-     */
-    protected Set<Integer> currentEvents = Collections.newSetFromMap(
-                                       new ConcurrentHashMap<Integer,Boolean>());
-
-    //******************
-    // Thread local stores
-    //******************
-
-    /**
-     * Thread local storage for events
-     */
-    protected class LocalEventHistory {
-        int nextIndex;
-        int maxCapacity;
-        boolean enabled;
-        ArrayList<Event> eventList;
-
-        public LocalEventHistory(boolean enabled, int maxCapacity) {
-            this.nextIndex = 0;
-            this.maxCapacity = maxCapacity;
-            this.enabled = enabled;
-            this.eventList = new ArrayList<Event>();
-        }
-    }
-
-    /**
-     * Thread local event buffers used for maintaining event history local to
-     * a thread. Eventually this locally maintained information is flushed
-     * into the global event buffers.
-     */
-    protected final ThreadLocal<LocalEventHistory[]> threadlocalEvents =
-            new ThreadLocal<LocalEventHistory[]>() {
-        @Override
-        protected LocalEventHistory[] initialValue() {
-            return new LocalEventHistory[MAX_EVENTS];
-        }
-    };
-
-    /**
-     * Thread local cache for event-ids that are currently active.
-     */
-    protected final ThreadLocal<Set<Integer>> threadlocalCurrentEvents =
-            new ThreadLocal<Set<Integer>>() {
-        @Override
-        protected Set<Integer> initialValue() {
-            return new HashSet<Integer>();
-        }
-    };
-
     //*******************************
     //   IEventUpdater
     //*******************************
@@ -238,9 +182,6 @@ public class DebugEvent implements IFloodlightModule, IDebugEventService {
                                      et, eventClass, eventDescription, eventName,
                                      moduleName, metaData);
         allEvents[eventId] = new DebugEventHistory(ei, bufferCapacity);
-        if (enabled) {
-            currentEvents.add(eventId);
-        }
 
         return new EventUpdaterImpl<T>(eventId);
     }
@@ -248,100 +189,24 @@ public class DebugEvent implements IFloodlightModule, IDebugEventService {
     private void updateEvent(int eventId, boolean flushNow, Object eventData) {
         if (eventId < 0 || eventId > MAX_EVENTS-1) return;
 
-        LocalEventHistory[] thishist = this.threadlocalEvents.get();
-        if (thishist[eventId] == null) {
-            // seeing this event for the first time in this thread - create local
-            // store by consulting global store
-            DebugEventHistory de = allEvents[eventId];
-            if (de != null) {
-                boolean enabled = de.einfo.enabled;
-                int localCapacity = de.einfo.bufferCapacity * PCT_LOCAL_CAP/ 100;
-                if (localCapacity < 10)  localCapacity = MIN_LOCAL_CAPACITY;
-                thishist[eventId] = new LocalEventHistory(enabled, localCapacity);
-                if (enabled) {
-                    Set<Integer> thisset = this.threadlocalCurrentEvents.get();
-                    thisset.add(eventId);
-                }
-            } else {
-                log.error("updateEvent seen locally for event {} but no global"
-                          + "storage exists for it yet .. not updating", eventId);
-                return;
-            }
+        // the ring buffer is updated directly, so there is nothing to flush
+        // whatever the value of flushNow
+        DebugEventHistory de = allEvents[eventId];
+        if (de == null) {
+            log.error("updateEvent seen for event {} but no global"
+                      + "storage exists for it yet .. not updating", eventId);
+            return;
         }
-
-        // update local store if enabled locally for updating
-        LocalEventHistory le = thishist[eventId];
-        if (le.enabled) {
-            long timestamp = System.currentTimeMillis();
-            long thisthread = Thread.currentThread().getId();
-            String thisthreadname = Thread.currentThread().getName();
-            if (le.nextIndex < le.eventList.size()) {
-                if (le.eventList.get(le.nextIndex) == null) {
-                    le.eventList.set(le.nextIndex, new Event(timestamp, thisthread,
-                                                             thisthreadname,
-                                                             eventData));
-                } else {
-                    Event e = le.eventList.get(le.nextIndex);
-                    e.timestamp = timestamp;
-                    e.threadId = thisthread;
-                    e.threadName = thisthreadname;
-                    e.eventData = eventData;
-                    e.nullifyCachedFormattedEvent();
-                }
-            } else {
-                le.eventList.add(new Event(timestamp, thisthread, thisthreadname, eventData));
-            }
-            le.nextIndex++;
-
-            if (le.nextIndex >= le.maxCapacity || flushNow) {
-                // flush this buffer now
-                DebugEventHistory de = allEvents[eventId];
-                if (de.einfo.enabled) {
-                    le.eventList = de.eventBuffer.addAll(le.eventList, le.nextIndex);
-                } else {
-                    // global buffer is disabled - don't flush, disable locally
-                    le.enabled = false;
-                    Set<Integer> thisset = this.threadlocalCurrentEvents.get();
-                    thisset.remove(eventId);
-                }
-                le.nextIndex = 0;
-            }
+        if (de.einfo.enabled) {
+            Thread thisthread = Thread.currentThread();
+            de.eventBuffer.add(System.currentTimeMillis(), thisthread.getId(),
+                               thisthread.getName(), eventData);
         }
     }
 
     @Override
     public void flushEvents() {
-        LocalEventHistory[] thishist = this.threadlocalEvents.get();
-        Set<Integer> thisset = this.threadlocalCurrentEvents.get();
-        ArrayList<Integer> temp = new ArrayList<Integer>();
-
-        for (int eventId : thisset) {
-            LocalEventHistory le = thishist[eventId];
-            if (le != null && le.nextIndex > 0) {
-                // flush this buffer now
-                DebugEventHistory de = allEvents[eventId];
-                if (de.einfo.enabled) {
-                    le.eventList = de.eventBuffer.addAll(le.eventList, le.nextIndex);
-                } else {
-                    // global buffer is disabled - don't flush, disable locally
-                    le.enabled = false;
-                    temp.add(eventId);
-                }
-                le.nextIndex = 0;
-            }
-        }
-        for (int eId : temp)
-            thisset.remove(eId);
-
-        // sync thread local currently enabled set of eventIds with global set.
-        Sets.SetView<Integer> sv = Sets.difference(currentEvents, thisset);
-        for (int eventId : sv) {
-            if (thishist[eventId] != null) {
-                thishist[eventId].enabled = true;
-                thisset.add(eventId);
-            }
-        }
-
+        // events are added to the global ring buffers directly, nothing to flush
     }
 
     @Override
@@ -403,9 +268,7 @@ public class DebugEvent implements IFloodlightModule, IDebugEventService {
         if (de != null) {
             int num = 1;
             List<Map<String,String>> ret = new ArrayList<Map<String,String>>();
-            for (Event e : de.eventBuffer) {
-                if (num > last)
-                    break;
+            for (Event e : de.eventBuffer.snapshot(last)) {
                 Map<String, String> temp = e.getFormattedEvent(de.einfo.eventClass,
                                                                de.einfo.moduleEventName);
                 temp.put("#", String.valueOf(num++));
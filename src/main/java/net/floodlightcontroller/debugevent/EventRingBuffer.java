@@ -0,0 +1,163 @@
+package net.floodlightcontroller.debugevent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preallocated ring buffer of the most recent events, written concurrently
+ * by multiple threads without locking.
+ * <p>
+ * Each added event gets the next sequence number, which selects the slot it
+ * is written to. The slots hold reusable Event objects, so adding an event
+ * allocates nothing. The sequence number of the event held by each slot is
+ * published after the event fields are written: a slot being written is
+ * marked with WRITING, and readers only return the events whose slot still
+ * holds their sequence number after they were copied.
+ * <p>
+ * Writers only wait for each other when they wrap around to the same slot
+ * while it is being written, which requires more concurrent writers than
+ * slots. A writer finding that its slot already holds a newer event drops
+ * its own event, since it would have been overwritten anyway.
+ */
+public class EventRingBuffer implements Iterable<Event> {
+    private static final long EMPTY = -2;
+    private static final long WRITING = -1;
+
+    private final int capacity;
+    private final Event[] slots;
+    private final AtomicLongArray slotSequences;
+    private final AtomicLong nextSequence = new AtomicLong();
+    // sequence number of the first event not removed by clear()
+    private volatile long firstSequence = 0;
+
+    /**
+     * Creates a ring buffer.
+     *
+     * @param capacity the number of events held by the buffer
+     */
+    public EventRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.slots = new Event[capacity];
+        this.slotSequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Event(0, 0, null, null);
+            slotSequences.set(i, EMPTY);
+        }
+    }
+
+    /**
+     * Adds an event to the buffer, overwriting the oldest event if the buffer
+     * is full.
+     *
+     * @param timestamp the time of the event
+     * @param threadId the ID of the thread generating the event
+     * @param threadName the name of the thread generating the event
+     * @param eventData the event data
+     */
+    public void add(long timestamp, long threadId, String threadName,
+                    Object eventData) {
+        final long sequence = nextSequence.getAndIncrement();
+        final int index = (int) (sequence % capacity);
+        while (true) {
+            final long current = slotSequences.get(index);
+            if (current == WRITING) {
+                // another writer lapped the buffer, it is about to finish
+                Thread.yield();
+                continue;
+            }
+            if (current > sequence) {
+                // already overwritten by a newer event
+                return;
+            }
+            if (slotSequences.compareAndSet(index, current, WRITING)) {
+                break;
+            }
+        }
+
+        final Event event = slots[index];
+        event.timestamp = timestamp;
+        event.threadId = threadId;
+        event.threadName = threadName;
+        event.eventData = eventData;
+        event.nullifyCachedFormattedEvent();
+        slotSequences.set(index, sequence);
+    }
+
+    /**
+     * Gets a copy of the most recent events in the buffer, from the most
+     * recent to the oldest.
+     * <p>
+     * The events added or overwritten while the snapshot is taken may or may
+     * not be included in the snapshot.
+     *
+     * @param maxEvents the maximum number of events to return
+     * @return the list of events
+     */
+    public List<Event> snapshot(int maxEvents) {
+        final long end = nextSequence.get();
+        final long start = Math.max(end - capacity, firstSequence);
+        final List<Event> events =
+                new ArrayList<>((int) Math.max(0, Math.min(end - start, maxEvents)));
+        for (long sequence = end - 1;
+                sequence >= start && events.size() < maxEvents; sequence--) {
+            final int index = (int) (sequence % capacity);
+            if (slotSequences.get(index) != sequence) {
+                // not yet written, or being overwritten
+                continue;
+            }
+            final Event slot = slots[index];
+            final Event copy = new Event(slot.timestamp, slot.threadId,
+                                         slot.threadName, slot.eventData);
+            // the compareAndSet is a full barrier: the slot fields are read
+            // before the sequence number is checked again
+            if (slotSequences.compareAndSet(index, sequence, sequence)) {
+                events.add(copy);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the events in the buffer, from
+     * the most recent to the oldest.
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<Event> iterator() {
+        return snapshot(capacity).iterator();
+    }
+
+    /**
+     * Gets the number of events in the buffer.
+     *
+     * @return the number of events added since the last clear, up to the
+     *         capacity of the buffer
+     */
+    public int size() {
+        final long end = nextSequence.get();
+        return (int) Math.min(end - firstSequence, capacity);
+    }
+
+    /**
+     * Gets the capacity of the buffer.
+     *
+     * @return the number of events held by the buffer
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Removes all the events in the buffer.
+     */
+    public void clear() {
+        firstSequence = nextSequence.get();
+    }
+}
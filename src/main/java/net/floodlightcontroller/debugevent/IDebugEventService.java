@@ -114,6 +114,8 @@ public interface IDebugEventService extends IFloodlightService {
      * method is not typically intended for use by any module. It's typical usage is from
      * floodlight core for events that happen in the packet processing pipeline.
      * For other rare events, flushEvents should be called.
+     * Implementations updating the global event stores directly, such as
+     * DebugEvent, have nothing to flush.
      */
     public void flushEvents();
 
@@ -6,8 +6,8 @@ package net.floodlightcontroller.debugevent;
 public interface IEventUpdater<T> {
 
     /**
-     * Logs the instance of the event thread-locally. Flushing to the global
-     * circular buffer for this event is delayed resulting in better performance.
+     * Logs the instance of the event. The global ring buffer for this event is
+     * updated without locking or allocation, so no flushing is needed.
      * This method should typically be used by those events that happen in the
      * packet processing pipeline
      *
@@ -16,8 +16,7 @@ public interface IEventUpdater<T> {
     public void updateEventNoFlush(T event);
 
     /**
-     * Logs the instance of the event thread-locally and immediated flushes
-     * to the global circular buffer for this event.
+     * Logs the instance of the event in the global ring buffer for this event.
      * This method should typically be used by those events that happen
      * outside the packet processing pipeline
      *
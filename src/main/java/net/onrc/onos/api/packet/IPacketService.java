@@ -33,6 +33,21 @@ public interface IPacketService extends IFloodlightService {
      */
     public void sendPacket(Ethernet eth, SwitchPort switchPort);
 
+    /**
+     * Send a packet received from the network out a specific port.
+     * <p/>
+     * If the packet is sent out of the switch it was received from, and that
+     * switch has buffered it, the buffered packet is released by its buffer
+     * ID and the packet data is not sent again. Otherwise, this is the same
+     * as {@link #sendPacket(Ethernet, SwitchPort)}. A buffered packet can
+     * only be released once.
+     *
+     * @param eth the packet to send, as passed to
+     * {@link IPacketListener#receive}
+     * @param switchPort the port to send the packet out
+     */
+    public void sendReceivedPacket(Ethernet eth, SwitchPort switchPort);
+
     /**
      * Send a packet out multiple ports in the network.
      * <p/>
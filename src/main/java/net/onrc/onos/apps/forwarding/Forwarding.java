@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
@@ -31,11 +32,14 @@ import net.onrc.onos.core.intent.runtime.IPathCalcRuntimeService;
 import net.onrc.onos.core.packet.Ethernet;
 import net.onrc.onos.core.registry.IControllerRegistryService;
 import net.onrc.onos.core.topology.Host;
+import net.onrc.onos.core.topology.HostData;
+import net.onrc.onos.core.topology.ITopologyListener;
 import net.onrc.onos.core.topology.ITopologyService;
 import net.onrc.onos.core.topology.LinkData;
 import net.onrc.onos.core.topology.Port;
 import net.onrc.onos.core.topology.Switch;
 import net.onrc.onos.core.topology.MutableTopology;
+import net.onrc.onos.core.topology.TopologyEvents;
 import net.onrc.onos.core.util.PortNumber;
 import net.onrc.onos.core.util.SwitchPort;
 
@@ -47,10 +51,11 @@ import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
 
 public class Forwarding implements /*IOFMessageListener,*/ IFloodlightModule,
-        IPacketListener, ChangedListener {
+        IPacketListener, ChangedListener, ITopologyListener {
     private static final Logger log = LoggerFactory.getLogger(Forwarding.class);
 
-    private static final int SLEEP_TIME_FOR_DB_HOST_INSTALLED = 100; // milliseconds
+    private static final int HOST_WAIT_TIMEOUT = 500; // milliseconds
+    private static final int MAX_PACKETS_WAITING_FOR_HOST = 16;
     private static final int NUMBER_OF_THREAD_FOR_EXECUTOR = 1;
     private static final int SRC_SWITCH_TIMEOUT_ADJUST_SECOND = 2;
     private static final int DEFAULT_IDLE_TIMEOUT = 5;
@@ -75,6 +80,8 @@ public class Forwarding implements /*IOFMessageListener,*/ IFloodlightModule,
     // We should see if this will work here.
     private Map<Path, PushedFlow> pendingFlows;
     private ListMultimap<String, PacketToPush> waitingPackets;
+    // Packets to unknown hosts, until the hosts are added to the topology
+    private Map<MACAddress, HostWait> hostWaits;
 
     private final Object lock = new Object();
 
@@ -122,6 +129,28 @@ public class Forwarding implements /*IOFMessageListener,*/ IFloodlightModule,
         }
     }
 
+    private static class WaitingPacketIn {
+        public final Switch sw;
+        public final Port inPort;
+        public final Ethernet eth;
+
+        public WaitingPacketIn(Switch sw, Port inPort, Ethernet eth) {
+            this.sw = sw;
+            this.inPort = inPort;
+            this.eth = eth;
+        }
+    }
+
+    /**
+     * The packets waiting for a host to be added to the topology, and the
+     * timeout after which they are broadcast.
+     */
+    private static class HostWait {
+        public final List<WaitingPacketIn> packets =
+                new ArrayList<WaitingPacketIn>();
+        public ScheduledFuture<?> timeout;
+    }
+
     private static class PushedFlow {
         public final String intentId;
         public boolean installed = false;
@@ -199,6 +228,7 @@ public class Forwarding implements /*IOFMessageListener,*/ IFloodlightModule,
 
         pendingFlows = new HashMap<Path, PushedFlow>();
         waitingPackets = LinkedListMultimap.create();
+        hostWaits = new HashMap<MACAddress, HostWait>();
     }
 
     @Override
@@ -219,6 +249,7 @@ public class Forwarding implements /*IOFMessageListener,*/ IFloodlightModule,
         packetService.registerPacketListener(this);
 
         mutableTopology = topologyService.getTopology();
+        topologyService.addListener(this, false);
         highLevelIntentMap = pathRuntime.getHighLevelIntents();
         highLevelIntentMap.addChangeListener(highLevelIntentChangedHandler);
         pathIntentMap = pathRuntime.getPathIntents();
@@ -271,39 +302,101 @@ public class Forwarding implements /*IOFMessageListener,*/ IFloodlightModule,
                     destinationMac);
 
             //Host is not in the DB, so wait it until the host is added.
-            EXECUTOR_SERVICE.schedule(new WaitDeviceArp(sw, inPort, eth),
-                    SLEEP_TIME_FOR_DB_HOST_INSTALLED, TimeUnit.MILLISECONDS);
+            waitForHost(MACAddress.valueOf(destinationMac), sw, inPort, eth);
             return;
         }
 
         continueHandlePacketIn(sw, inPort, eth, hostObject);
     }
 
-    private class WaitDeviceArp implements Runnable {
-        Switch sw;
-        Port inPort;
-        Ethernet eth;
+    /**
+     * Queues a packet until its destination host is added to the topology.
+     * <p/>
+     * The packets are released by the host added event, or broadcast if the
+     * host is still unknown after {@link #HOST_WAIT_TIMEOUT}. The packets
+     * beyond {@link #MAX_PACKETS_WAITING_FOR_HOST} per host are dropped.
+     *
+     * @param mac the MAC address of the destination host
+     * @param sw the switch the packet was received on
+     * @param inPort the port the packet was received on
+     * @param eth the packet
+     */
+    private void waitForHost(final MACAddress mac, Switch sw, Port inPort,
+            Ethernet eth) {
+        synchronized (lock) {
+            HostWait hostWait = hostWaits.get(mac);
+            if (hostWait == null) {
+                hostWait = new HostWait();
+                hostWaits.put(mac, hostWait);
+                // If the host was added since it was looked up, the timeout
+                // still finds it in the topology
+                hostWait.timeout = EXECUTOR_SERVICE.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        releasePacketsWaitingForHost(mac);
+                    }
+                }, HOST_WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+            } else if (hostWait.packets.size() >= MAX_PACKETS_WAITING_FOR_HOST) {
+                log.debug("Too many packets waiting for host {}. Drop the packet.",
+                        mac);
+                return;
+            }
+            hostWait.packets.add(new WaitingPacketIn(sw, inPort, eth));
+        }
+    }
 
-        public WaitDeviceArp(Switch sw, Port inPort, Ethernet eth) {
-            super();
-            this.sw = sw;
-            this.inPort = inPort;
-            this.eth = eth;
+    /**
+     * Handles the packets waiting for a host, once the host is added or the
+     * wait has timed out. The packets are broadcast if the host is still not
+     * in the topology.
+     *
+     * @param mac the MAC address of the host
+     */
+    private void releasePacketsWaitingForHost(MACAddress mac) {
+        HostWait hostWait;
+        synchronized (lock) {
+            hostWait = hostWaits.remove(mac);
+        }
+        if (hostWait == null) {
+            // Already released
+            return;
         }
+        hostWait.timeout.cancel(false);
 
-        @Override
-        public void run() {
-            Host hostObject = mutableTopology.getHostByMac(MACAddress.valueOf(eth.getDestinationMACAddress()));
+        Host hostObject = mutableTopology.getHostByMac(mac);
+        if (hostObject == null) {
+            log.debug("wait {}ms and host {} was not found. " +
+                    "Send broadcast packets.", HOST_WAIT_TIMEOUT, mac);
+        } else {
+            log.debug("host {} was found, continue", mac);
+        }
+
+        for (WaitingPacketIn packet : hostWait.packets) {
             if (hostObject == null) {
-                log.debug("wait {}ms and host was not found. " +
-                        "Send broadcast packet and the thread finish.",
-                        SLEEP_TIME_FOR_DB_HOST_INSTALLED);
-                handleBroadcast(sw, inPort, eth);
-                return;
+                handleBroadcast(packet.sw, packet.inPort, packet.eth);
+            } else {
+                continueHandlePacketIn(packet.sw, packet.inPort, packet.eth,
+                        hostObject);
             }
-            log.debug("wait {}ms and host {} was found, continue",
-                    SLEEP_TIME_FOR_DB_HOST_INSTALLED, hostObject.getMacAddress());
-            continueHandlePacketIn(sw, inPort, eth, hostObject);
+        }
+    }
+
+    @Override
+    public void topologyEvents(TopologyEvents topologyEvents) {
+        for (HostData hostData : topologyEvents.getAddedHostDataEntries()) {
+            final MACAddress mac = hostData.getMac();
+            synchronized (lock) {
+                if (!hostWaits.containsKey(mac)) {
+                    continue;
+                }
+            }
+            // Don't hold up the topology event thread with the packets
+            EXECUTOR_SERVICE.execute(new Runnable() {
+                @Override
+                public void run() {
+                    releasePacketsWaitingForHost(mac);
+                }
+            });
         }
     }
 
@@ -430,7 +523,7 @@ public class Forwarding implements /*IOFMessageListener,*/ IFloodlightModule,
                         }
 
                         log.debug("Sending packet out from sw {}, outport{}", sw.getDpid(), outPort);
-                        packetService.sendPacket(eth, new SwitchPort(
+                        packetService.sendReceivedPacket(eth, new SwitchPort(
                                 sw.getDpid(), PortNumber.uint16((short) outPort)));
                     }
                 } else {
@@ -542,7 +635,9 @@ public class Forwarding implements /*IOFMessageListener,*/ IFloodlightModule,
         for (PacketToPush packet : packets) {
             log.debug("Start packetToPush to sw {}, outPort {}, path {}",
                     packet.dpid, existingFlow.firstOutPort, path);
-            packetService.sendPacket(packet.eth, new SwitchPort(
+            // The packets were received from packet.dpid, so the switch
+            // releases them from its buffer if it has kept them
+            packetService.sendReceivedPacket(packet.eth, new SwitchPort(
                             packet.dpid, existingFlow.firstOutPort));
         }
     }
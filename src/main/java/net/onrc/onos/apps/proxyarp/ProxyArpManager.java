@@ -439,7 +439,7 @@ public class ProxyArpManager implements IProxyArpService, IFloodlightModule,
                     configService.getOutgoingInterface(target).getSwitchPort();
             arpRequests.put(target, new ArpRequest(
                     new HostArpRequester(arp, dpid, inPort), false));
-            packetService.sendPacket(eth, switchPort);
+            packetService.sendReceivedPacket(eth, switchPort);
             return;
         }
 
@@ -2,8 +2,6 @@ package net.onrc.onos.apps.sdnip;
 
 import net.floodlightcontroller.core.module.IFloodlightService;
 
-import com.googlecode.concurrenttrees.radix.RadixTree;
-
 /**
  * The API exported by the main SDN-IP class. This is the interface between the
  * REST handlers and the SDN-IP module.
@@ -11,14 +9,14 @@ import com.googlecode.concurrenttrees.radix.RadixTree;
 public interface ISdnIpService extends IFloodlightService {
 
     /**
-     * Gets a reference to SDN-IP's radix tree which stores the route table
+     * Gets a reference to SDN-IP's prefix trie which stores the route table
      * learnt through BGP.
      *
      * XXX This is a poor API because it exposes internal state of SDN-IP.
      *
-     * @return the radix tree
+     * @return the prefix trie
      */
-    public RadixTree<RibEntry> getPtree();
+    public PrefixTrie<RibEntry> getPtree();
 
     /**
      * Gets the IP address of REST server on the BGPd side. This is used to
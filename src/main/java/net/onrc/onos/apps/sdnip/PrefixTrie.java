@@ -0,0 +1,332 @@
+package net.onrc.onos.apps.sdnip;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Binary Patricia trie of IPv4 prefixes, for longest prefix match lookups.
+ * <p/>
+ * The prefixes are kept as int keys, one bit per level, and the chains of
+ * nodes with a single child and no value are compressed into one node.
+ * Compared to a radix tree keyed by {@link Prefix#toBinaryString()}, it
+ * needs no string per prefix and a lookup only compares ints.
+ * <p/>
+ * The nodes are immutable. A writer copies the nodes on the path to the
+ * prefix it changes and then publishes the new root, so the readers never
+ * lock and always see a consistent trie. The writers are serialized on the
+ * trie.
+ *
+ * @param <V> the type of the values
+ */
+public class PrefixTrie<V> {
+    private static final int MAX_PREFIX_LENGTH = Prefix.MAX_PREFIX_LENGTH;
+
+    private volatile Node<V> root;
+    // Guarded by the trie
+    private int size;
+
+    /**
+     * A node of the trie. A node without a value has two children.
+     *
+     * @param <V> the type of the values
+     */
+    private static final class Node<V> {
+        private final int key;
+        private final int length;
+        private final V value;
+        private final Node<V> left;
+        private final Node<V> right;
+
+        /**
+         * Constructor.
+         *
+         * @param key the prefix bits, with the bits after the length zeroed
+         * @param length the prefix length
+         * @param value the value of the prefix, or null if the node only
+         * branches
+         * @param left the child with a 0 bit after the prefix
+         * @param right the child with a 1 bit after the prefix
+         */
+        private Node(int key, int length, V value, Node<V> left,
+                     Node<V> right) {
+            this.key = key;
+            this.length = length;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+        }
+
+        private Node<V> child(int bit) {
+            return (bit == 0) ? left : right;
+        }
+
+        private Node<V> withValue(V newValue) {
+            return new Node<>(key, length, newValue, left, right);
+        }
+
+        private Node<V> withChild(int bit, Node<V> child) {
+            return (bit == 0) ? new Node<>(key, length, value, child, right)
+                    : new Node<>(key, length, value, left, child);
+        }
+
+        /**
+         * Checks whether an address or a longer prefix is covered by the
+         * prefix of the node.
+         *
+         * @param address the address bits
+         * @return true if the first bits of the address are the prefix
+         */
+        private boolean covers(int address) {
+            return ((address ^ key) & maskOf(length)) == 0;
+        }
+    }
+
+    /**
+     * Gets the value of the longest prefix containing an address.
+     *
+     * @param address the IPv4 address
+     * @return the value, or null if no prefix contains the address
+     */
+    public V longestPrefixMatch(InetAddress address) {
+        return longestPrefixMatch(toInt(address.getAddress()));
+    }
+
+    /**
+     * Gets the value of the longest prefix containing an address.
+     *
+     * @param address the IPv4 address as an int
+     * @return the value, or null if no prefix contains the address
+     */
+    public V longestPrefixMatch(int address) {
+        V match = null;
+        Node<V> node = root;
+        while (node != null && node.covers(address)) {
+            if (node.value != null) {
+                match = node.value;
+            }
+            if (node.length == MAX_PREFIX_LENGTH) {
+                break;
+            }
+            node = node.child(bitAt(address, node.length));
+        }
+        return match;
+    }
+
+    /**
+     * Gets the value of a prefix.
+     *
+     * @param prefix the prefix
+     * @return the value, or null if the prefix is not in the trie
+     */
+    public V get(Prefix prefix) {
+        final int key = toInt(prefix.getAddress());
+        final int length = prefix.getPrefixLength();
+        Node<V> node = root;
+        while (node != null && node.length <= length && node.covers(key)) {
+            if (node.length == length) {
+                return node.value;
+            }
+            node = node.child(bitAt(key, node.length));
+        }
+        return null;
+    }
+
+    /**
+     * Adds or replaces the value of a prefix.
+     *
+     * @param prefix the prefix
+     * @param value the value, not null
+     * @return the previous value of the prefix, or null if there was none
+     */
+    public synchronized V put(Prefix prefix, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value must not be null");
+        }
+        final int key = toInt(prefix.getAddress());
+        final int length = prefix.getPrefixLength();
+        final V previous = get(prefix);
+        root = insert(root, key, length, value);
+        if (previous == null) {
+            size++;
+        }
+        return previous;
+    }
+
+    /**
+     * Removes a prefix.
+     *
+     * @param prefix the prefix
+     * @return the value of the prefix, or null if the prefix was not in the
+     * trie
+     */
+    public synchronized V remove(Prefix prefix) {
+        final V previous = get(prefix);
+        if (previous != null) {
+            root = delete(root, toInt(prefix.getAddress()),
+                    prefix.getPrefixLength());
+            size--;
+        }
+        return previous;
+    }
+
+    /**
+     * Gets the number of prefixes in the trie.
+     *
+     * @return the number of prefixes
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Gets the prefixes and their values, in the order of their binary
+     * strings.
+     *
+     * @return a snapshot of the prefixes and values
+     */
+    public List<Entry<Prefix, V>> getEntries() {
+        List<Entry<Prefix, V>> entries = new ArrayList<>();
+        addEntries(root, entries);
+        return entries;
+    }
+
+    private static <V> void addEntries(Node<V> node,
+                                       List<Entry<Prefix, V>> entries) {
+        if (node == null) {
+            return;
+        }
+        if (node.value != null) {
+            byte[] address = ByteBuffer.allocate(Prefix.ADDRESS_LENGTH_BYTES)
+                    .putInt(node.key).array();
+            entries.add(new SimpleImmutableEntry<>(
+                    new Prefix(address, node.length), node.value));
+        }
+        addEntries(node.left, entries);
+        addEntries(node.right, entries);
+    }
+
+    /**
+     * Inserts a prefix below a node, copying the nodes on the path.
+     *
+     * @param node the node, or null
+     * @param key the prefix bits
+     * @param length the prefix length
+     * @param value the value
+     * @return the new node replacing the node
+     */
+    private static <V> Node<V> insert(Node<V> node, int key, int length,
+                                      V value) {
+        if (node == null) {
+            return new Node<>(key, length, value, null, null);
+        }
+        final int common = commonLength(node.key, node.length, key, length);
+        if (common == node.length) {
+            if (common == length) {
+                return node.withValue(value);
+            }
+            // The prefix is below the node
+            final int bit = bitAt(key, node.length);
+            return node.withChild(bit,
+                    insert(node.child(bit), key, length, value));
+        }
+        if (common == length) {
+            // The prefix is above the node
+            return (bitAt(node.key, length) == 0)
+                    ? new Node<>(key, length, value, node, null)
+                    : new Node<>(key, length, value, null, node);
+        }
+        // The prefix and the node branch after their common bits
+        Node<V> leaf = new Node<>(key, length, value, null, null);
+        final int branchKey = key & maskOf(common);
+        return (bitAt(key, common) == 0)
+                ? new Node<V>(branchKey, common, null, leaf, node)
+                : new Node<V>(branchKey, common, null, node, leaf);
+    }
+
+    /**
+     * Deletes a prefix in the trie below a node, copying the nodes on the
+     * path.
+     *
+     * @param node the node, not null
+     * @param key the prefix bits
+     * @param length the prefix length
+     * @return the new node replacing the node, or null if it is removed
+     */
+    private static <V> Node<V> delete(Node<V> node, int key, int length) {
+        if (node.length == length) {
+            return compact(node.key, node.length, null, node.left,
+                    node.right);
+        }
+        final int bit = bitAt(key, node.length);
+        final Node<V> child = delete(node.child(bit), key, length);
+        return (bit == 0)
+                ? compact(node.key, node.length, node.value, child, node.right)
+                : compact(node.key, node.length, node.value, node.left, child);
+    }
+
+    /**
+     * Creates a node, or removes it if it has no value and fewer than two
+     * children.
+     *
+     * @param key the prefix bits
+     * @param length the prefix length
+     * @param value the value, or null
+     * @param left the child with a 0 bit after the prefix, or null
+     * @param right the child with a 1 bit after the prefix, or null
+     * @return the node, or its only child, or null
+     */
+    private static <V> Node<V> compact(int key, int length, V value,
+                                       Node<V> left, Node<V> right) {
+        if (value == null) {
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+        }
+        return new Node<>(key, length, value, left, right);
+    }
+
+    /**
+     * Gets the length of the common bits of two prefixes.
+     *
+     * @param key1 the bits of the first prefix
+     * @param length1 the length of the first prefix
+     * @param key2 the bits of the second prefix
+     * @param length2 the length of the second prefix
+     * @return the number of leading bits the prefixes have in common
+     */
+    private static int commonLength(int key1, int length1, int key2,
+                                    int length2) {
+        final int common = Math.min(length1, length2);
+        final int differing = Integer.numberOfLeadingZeros(key1 ^ key2);
+        return Math.min(common, differing);
+    }
+
+    /**
+     * Gets a bit of an address, counting from the most significant bit.
+     *
+     * @param address the address bits
+     * @param index the index of the bit, between 0 and 31
+     * @return the bit, 0 or 1
+     */
+    private static int bitAt(int address, int index) {
+        return (address >>> (MAX_PREFIX_LENGTH - 1 - index)) & 1;
+    }
+
+    private static int maskOf(int length) {
+        return (length == 0) ? 0 : -1 << (MAX_PREFIX_LENGTH - length);
+    }
+
+    private static int toInt(byte[] address) {
+        if (address.length != Prefix.ADDRESS_LENGTH_BYTES) {
+            throw new IllegalArgumentException("Not an IPv4 address");
+        }
+        return ByteBuffer.wrap(address).getInt();
+    }
+}
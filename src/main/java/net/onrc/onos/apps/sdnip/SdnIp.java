@@ -9,6 +9,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -42,6 +43,9 @@ import net.onrc.onos.core.matchaction.action.Actions;
 import net.onrc.onos.core.matchaction.action.ModifyDstMacAction;
 import net.onrc.onos.core.matchaction.match.PacketMatch;
 import net.onrc.onos.core.matchaction.match.PacketMatchBuilder;
+import net.onrc.onos.core.metrics.OnosMetrics;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsComponent;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsFeature;
 import net.onrc.onos.core.newintent.IdBlockAllocatorBasedIntentIdGenerator;
 import net.onrc.onos.core.packet.Ethernet;
 import net.onrc.onos.core.registry.IControllerRegistryService;
@@ -61,15 +65,13 @@ import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.net.InetAddresses;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import com.googlecode.concurrenttrees.radix.RadixTree;
-import com.googlecode.concurrenttrees.radix.node.concrete.DefaultByteArrayNodeFactory;
-import com.googlecode.concurrenttrees.radixinverted.ConcurrentInvertedRadixTree;
-import com.googlecode.concurrenttrees.radixinverted.InvertedRadixTree;
 
 /**
  * This class sets up BGP paths, handles RIB updates and relative intents.
@@ -80,12 +82,34 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
 
     private static final Logger log = LoggerFactory.getLogger(SdnIp.class);
 
+    // The maximum number of RIB updates taken from the queue at once
+    private static final int MAX_RIB_UPDATE_BATCH = 1000;
+    // The maximum number of RIB updates processed under one acquisition of
+    // the lock, so that the ARP responses are not blocked for a whole batch
+    private static final int MAX_RIB_UPDATES_PER_LOCK = 10;
+
+    private static final MetricsComponent METRICS_COMPONENT =
+            OnosMetrics.registerComponent("SdnIp");
+    private static final MetricsFeature METRICS_FEATURE_RIB_UPDATES =
+            METRICS_COMPONENT.registerFeature("RibUpdates");
+    // Rate of the RIB updates taken from the queue
+    private static final Meter RIB_UPDATE_RATE =
+            OnosMetrics.createMeter(METRICS_COMPONENT,
+                    METRICS_FEATURE_RIB_UPDATES, "UpdateRate");
+    // Rate of the RIB updates superseded by a later update in their batch
+    private static final Meter RIB_UPDATE_COALESCED_RATE =
+            OnosMetrics.createMeter(METRICS_COMPONENT,
+                    METRICS_FEATURE_RIB_UPDATES, "CoalescedRate");
+    private static final Histogram RIB_UPDATE_BATCH_SIZE =
+            OnosMetrics.createHistogram(METRICS_COMPONENT,
+                    METRICS_FEATURE_RIB_UPDATES, "BatchSize");
+
     private ILinkDiscoveryService linkDiscoveryService;
     private IRestApiService restApi;
     private IProxyArpService proxyArp;
 
-    private InvertedRadixTree<RibEntry> bgpRoutes;
-    private InvertedRadixTree<Interface> interfaceRoutes;
+    private PrefixTrie<RibEntry> bgpRoutes;
+    private PrefixTrie<Interface> interfaceRoutes;
 
     private BlockingQueue<RibUpdate> ribUpdates;
 
@@ -161,11 +185,11 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
             throw new ConfigurationRuntimeException("Error in JSON file", e);
         }
 
-        // Populate the interface InvertedRadixTree
+        // Populate the interface PrefixTrie
         for (Interface intf : interfaces.values()) {
             Prefix prefix = new Prefix(intf.getIpAddress().getAddress(),
                     intf.getPrefixLength());
-            interfaceRoutes.put(prefix.toBinaryString(), intf);
+            interfaceRoutes.put(prefix, intf);
         }
     }
 
@@ -198,10 +222,8 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
     public void init(FloodlightModuleContext context)
             throws FloodlightModuleException {
 
-        bgpRoutes = new ConcurrentInvertedRadixTree<>(
-                new DefaultByteArrayNodeFactory());
-        interfaceRoutes = new ConcurrentInvertedRadixTree<>(
-                new DefaultByteArrayNodeFactory());
+        bgpRoutes = new PrefixTrie<>();
+        interfaceRoutes = new PrefixTrie<>();
         externalNetworkSwitchPorts = new HashSet<SwitchPort>();
 
         ribUpdates = new LinkedBlockingQueue<>();
@@ -268,7 +290,7 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
     }
 
     @Override
-    public RadixTree<RibEntry> getPtree() {
+    public PrefixTrie<RibEntry> getPtree() {
         return bgpRoutes;
     }
 
@@ -363,7 +385,7 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
 
     /**
      * Process adding RIB update.
-     * Put new RIB update into InvertedRadixTree. If there was an existing nexthop
+     * Put new RIB update into the RIB PrefixTrie. If there was an existing nexthop
      * for this prefix, but the next hop was different, then execute deleting old
      * RIB update. If the next hop is the SDN domain, we do not handle it at the
      * moment. Otherwise, execute adding RIB.
@@ -376,7 +398,7 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
 
             log.debug("Processing prefix add {}", prefix);
 
-            RibEntry rib = bgpRoutes.put(prefix.toBinaryString(), update.getRibEntry());
+            RibEntry rib = bgpRoutes.put(prefix, update.getRibEntry());
 
             if (rib != null && !rib.equals(update.getRibEntry())) {
                 // There was an existing nexthop for this prefix. This update
@@ -513,7 +535,7 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
     }
 
     /**
-     * Remove prefix from InvertedRadixTree, if success, then try to delete the
+     * Remove prefix from the RIB PrefixTrie, if success, then try to delete the
      * relative intent.
      *
      * @param update RIB update
@@ -528,7 +550,7 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
             // the rib entry was what we expected (and we can't do this
             // concurrently)
 
-            if (bgpRoutes.remove(prefix.toBinaryString())) {
+            if (bgpRoutes.remove(prefix) != null) {
                 /*
                  * Only delete flows if an entry was actually removed from the tree.
                  * If no entry was removed, the <prefix, nexthop> wasn't there so
@@ -776,9 +798,9 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
                 ipAddress.getHostAddress(), macAddress);
 
         /*
-         * We synchronize on this to prevent changes to the InvertedRadixTree
-         * while we're pushing intent. If the InvertedRadixTree changes, the
-         * InvertedRadixTree and intent could get out of sync.
+         * We synchronize on this to prevent changes to the RIB PrefixTrie
+         * while we're pushing intent. If the PrefixTrie changes, the
+         * PrefixTrie and intent could get out of sync.
          */
         synchronized (this) {
 
@@ -787,20 +809,19 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
             for (RibUpdate update : prefixesToPush) {
                 // These will always be adds
 
-                RibEntry rib = bgpRoutes.getValueForExactKey(
-                        update.getPrefix().toBinaryString());
+                RibEntry rib = bgpRoutes.get(update.getPrefix());
                 if (rib != null && rib.equals(update.getRibEntry())) {
                     log.debug("Pushing prefix {} next hop {}", update.getPrefix(),
                             rib.getNextHop().getHostAddress());
                     // We only push prefix flows if the prefix is still in the
-                    // InvertedRadixTree and the next hop is the same as our update.
+                    // PrefixTrie and the next hop is the same as our update.
                     // The prefix could have been removed while we were waiting
                     // for the ARP, or the next hop could have changed.
                     addRouteIntentToNextHop(update.getPrefix(), ipAddress,
                             macAddress);
                 } else {
                     log.debug("Received ARP response, but {},{} is no longer in " +
-                            "InvertedRadixTree", update.getPrefix(),
+                            "PrefixTrie", update.getPrefix(),
                             update.getRibEntry());
                 }
             }
@@ -950,39 +971,27 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
 
     /**
      * Thread for handling RIB updates.
+     * <p/>
+     * The updates are taken from the queue in batches, so that the updates
+     * superseded by a later update of the same prefix in the batch are not
+     * processed, as after a BGP session reset.
      */
     private void doUpdatesThread() {
         boolean interrupted = false;
         try {
+            List<RibUpdate> batch = new ArrayList<>(MAX_RIB_UPDATE_BATCH);
             while (true) {
                 try {
-                    RibUpdate update = ribUpdates.take();
-                    switch (update.getOperation()) {
-                    case UPDATE:
-                        if (validateUpdate(update)) {
-                            processRibAdd(update);
-                        } else {
-                            log.debug("Rib UPDATE out of order: {} via {}",
-                                    update.getPrefix(), update.getRibEntry().getNextHop());
-                        }
-                        break;
-                    case DELETE:
-                        if (validateUpdate(update)) {
-                            processRibDelete(update);
-                        } else {
-                            log.debug("Rib DELETE out of order: {} via {}",
-                                    update.getPrefix(), update.getRibEntry().getNextHop());
-                        }
-                        break;
-                    default:
-                        log.error("Unknown operation {}", update.getOperation());
-                        break;
-                    }
+                    batch.add(ribUpdates.take());
+                    ribUpdates.drainTo(batch, MAX_RIB_UPDATE_BATCH - 1);
+                    processRibUpdates(batch);
                 } catch (InterruptedException e) {
                     log.debug("Interrupted while taking from updates queue", e);
                     interrupted = true;
                 } catch (Exception e) {
                     log.debug("exception", e);
+                } finally {
+                    batch.clear();
                 }
             }
         } finally {
@@ -992,6 +1001,67 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
         }
     }
 
+    /**
+     * Processes a batch of RIB updates.
+     * Only the latest update of each prefix is processed. The lock is taken
+     * for at most MAX_RIB_UPDATES_PER_LOCK updates at a time, and released
+     * in between.
+     *
+     * @param updates the RIB updates, in the order they were received
+     */
+    protected void processRibUpdates(Collection<RibUpdate> updates) {
+        Map<Prefix, RibUpdate> latestUpdates = new LinkedHashMap<>();
+        for (RibUpdate update : updates) {
+            RibUpdate previous = latestUpdates.get(update.getPrefix());
+            if (previous == null || supersedes(update.getRibEntry(),
+                    previous.getRibEntry())) {
+                latestUpdates.put(update.getPrefix(), update);
+            }
+        }
+        RIB_UPDATE_RATE.mark(updates.size());
+        RIB_UPDATE_COALESCED_RATE.mark(updates.size() - latestUpdates.size());
+        RIB_UPDATE_BATCH_SIZE.update(updates.size());
+
+        Iterator<RibUpdate> it = latestUpdates.values().iterator();
+        while (it.hasNext()) {
+            synchronized (this) {
+                for (int i = 0; i < MAX_RIB_UPDATES_PER_LOCK && it.hasNext(); i++) {
+                    processRibUpdate(it.next());
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes a RIB update, unless it is out of order.
+     * Must be called with the lock held.
+     *
+     * @param update the RIB update
+     */
+    private void processRibUpdate(RibUpdate update) {
+        switch (update.getOperation()) {
+        case UPDATE:
+            if (validateUpdate(update)) {
+                processRibAdd(update);
+            } else {
+                log.debug("Rib UPDATE out of order: {} via {}",
+                        update.getPrefix(), update.getRibEntry().getNextHop());
+            }
+            break;
+        case DELETE:
+            if (validateUpdate(update)) {
+                processRibDelete(update);
+            } else {
+                log.debug("Rib DELETE out of order: {} via {}",
+                        update.getPrefix(), update.getRibEntry().getNextHop());
+            }
+            break;
+        default:
+            log.error("Unknown operation {}", update.getOperation());
+            break;
+        }
+    }
+
     /**
      * Judge whether a RIB update is in correct order.
      *
@@ -1000,8 +1070,7 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
      */
     private boolean validateUpdate(RibUpdate update) {
         RibEntry newEntry = update.getRibEntry();
-        RibEntry oldEntry = bgpRoutes.getValueForExactKey(
-                update.getPrefix().toBinaryString());
+        RibEntry oldEntry = bgpRoutes.get(update.getPrefix());
 
         // If there is no existing entry we must assume this is the most recent
         // update. However this might not always be the case as we might have a
@@ -1012,6 +1081,18 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
             return true;
         }
 
+        return supersedes(newEntry, oldEntry);
+    }
+
+    /**
+     * Judge whether a RIB entry is more recent than another RIB entry of the
+     * same prefix, by BGPd system up time and sequence number.
+     *
+     * @param newEntry the RIB entry received last
+     * @param oldEntry the RIB entry received before
+     * @return boolean whether newEntry supersedes oldEntry
+     */
+    private static boolean supersedes(RibEntry newEntry, RibEntry oldEntry) {
         // This handles the case where routes are gathered in the initial
         // request because they don't have sequence number info
         if (newEntry.getSysUpTime() == -1 && newEntry.getSequenceNum() == -1) {
@@ -1034,18 +1115,7 @@ public class SdnIp implements IFloodlightModule, ISdnIpService,
      * @return Interface the Interface which has longest matchable IP prefix
      */
     private Interface longestInterfacePrefixMatch(InetAddress address) {
-        Prefix prefixToSearchFor = new Prefix(address.getAddress(),
-                Prefix.MAX_PREFIX_LENGTH);
-        Iterator<Interface> it =
-                interfaceRoutes.getValuesForKeysPrefixing(
-                        prefixToSearchFor.toBinaryString()).iterator();
-        Interface intf = null;
-        // Find the last prefix, which will be the longest prefix
-        while (it.hasNext()) {
-            intf = it.next();
-        }
-
-        return intf;
+        return interfaceRoutes.longestPrefixMatch(address);
     }
 
     /*
@@ -8,7 +8,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -27,9 +26,6 @@ import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.googlecode.concurrenttrees.radix.node.concrete.DefaultByteArrayNodeFactory;
-import com.googlecode.concurrenttrees.radixinverted.ConcurrentInvertedRadixTree;
-import com.googlecode.concurrenttrees.radixinverted.InvertedRadixTree;
 
 /**
  * SDN-IP Config Reader provides IConfigInfoService
@@ -50,7 +46,7 @@ public class SdnIpConfigReader implements IFloodlightModule, IConfigInfoService
     private Map<InetAddress, BgpPeer> bgpPeers;
     private MACAddress bgpdMacAddress;
     private short vlan;
-    private InvertedRadixTree<Interface> interfaceRoutes;
+    private PrefixTrie<Interface> interfaceRoutes;
     private Set<SwitchPort> externalNetworkSwitchPorts;
 
     /**
@@ -84,11 +80,11 @@ public class SdnIpConfigReader implements IFloodlightModule, IConfigInfoService
             throw new ConfigurationRuntimeException("Error in JSON file", e);
         }
 
-        // Populate the interface InvertedRadixTree
+        // Populate the interface PrefixTrie
         for (Interface intf : interfaces.values()) {
             Prefix prefix = new Prefix(intf.getIpAddress().getAddress(),
                     intf.getPrefixLength());
-            interfaceRoutes.put(prefix.toBinaryString(), intf);
+            interfaceRoutes.put(prefix, intf);
         }
     }
 
@@ -100,18 +96,7 @@ public class SdnIpConfigReader implements IFloodlightModule, IConfigInfoService
      * @return Interface the Interface which has longest matchable IP prefix
      */
     private Interface longestInterfacePrefixMatch(InetAddress address) {
-        Prefix prefixToSearchFor = new Prefix(address.getAddress(),
-                Prefix.MAX_PREFIX_LENGTH);
-        Iterator<Interface> it =
-                interfaceRoutes.getValuesForKeysPrefixing(
-                        prefixToSearchFor.toBinaryString()).iterator();
-        Interface intf = null;
-        // Find the last prefix, which will be the longest prefix
-        while (it.hasNext()) {
-            intf = it.next();
-        }
-
-        return intf;
+        return interfaceRoutes.longestPrefixMatch(address);
     }
 
     @Override
@@ -177,8 +162,7 @@ public class SdnIpConfigReader implements IFloodlightModule, IConfigInfoService
 
     @Override
     public void init(FloodlightModuleContext context) throws FloodlightModuleException {
-        interfaceRoutes = new ConcurrentInvertedRadixTree<>(
-                new DefaultByteArrayNodeFactory());
+        interfaceRoutes = new PrefixTrie<>();
         externalNetworkSwitchPorts = new HashSet<SwitchPort>();
         // Reading config values
         String configFilenameParameter = context.getConfigParams(this).get("configfile");
@@ -1,9 +1,10 @@
 package net.onrc.onos.apps.sdnip.web;
 
-import java.util.Iterator;
+import java.util.Map.Entry;
 
 import net.onrc.onos.apps.sdnip.ISdnIpService;
 import net.onrc.onos.apps.sdnip.Prefix;
+import net.onrc.onos.apps.sdnip.PrefixTrie;
 import net.onrc.onos.apps.sdnip.RestClient;
 import net.onrc.onos.apps.sdnip.RibEntry;
 import net.onrc.onos.apps.sdnip.RibUpdate;
@@ -16,9 +17,6 @@ import org.restlet.resource.ServerResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.googlecode.concurrenttrees.common.KeyValuePair;
-import com.googlecode.concurrenttrees.radix.RadixTree;
-
 /**
  * REST resource that handles REST calls from BGPd. This is the interface BGPd
  * uses to push RIB entries (routes) to SDN-IP.
@@ -40,21 +38,17 @@ public class IncomingRequestResource extends ServerResource {
                 get(ISdnIpService.class.getCanonicalName());
 
         if (dest == null) {
-            RadixTree<RibEntry> radixTree = sdnIp.getPtree();
+            PrefixTrie<RibEntry> prefixTrie = sdnIp.getPtree();
             output.append("{\n  \"rib\": [\n");
             boolean printed = false;
 
-            Iterator<KeyValuePair<RibEntry>> it =
-                    radixTree.getKeyValuePairsForKeysStartingWith("").iterator();
-            while (it.hasNext()) {
-                KeyValuePair<RibEntry> entry = it.next();
-
+            for (Entry<Prefix, RibEntry> entry : prefixTrie.getEntries()) {
                 if (printed) {
                     output.append(",\n");
                 }
 
                 output.append("    {\"prefix\": \"");
-                output.append(Prefix.fromBinaryString(entry.getKey().toString()));
+                output.append(entry.getKey());
                 output.append("\", \"nexthop\": \"");
                 output.append(entry.getValue().getNextHop().getHostAddress());
                 output.append("\"}");
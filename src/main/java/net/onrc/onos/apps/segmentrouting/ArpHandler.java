@@ -9,26 +9,24 @@
 package net.onrc.onos.apps.segmentrouting;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import net.floodlightcontroller.core.IFloodlightProviderService;
 import net.floodlightcontroller.core.IOFSwitch;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.util.MACAddress;
+import net.onrc.onos.apps.segmentrouting.SubnetIndex.Subnet;
 import net.onrc.onos.core.flowprogrammer.IFlowPusherService;
 import net.onrc.onos.core.packet.ARP;
 import net.onrc.onos.core.packet.Ethernet;
 import net.onrc.onos.core.packet.IPv4;
 import net.onrc.onos.core.topology.Host;
 import net.onrc.onos.core.topology.ITopologyService;
-import net.onrc.onos.core.topology.MutableTopology;
 import net.onrc.onos.core.topology.Port;
 import net.onrc.onos.core.topology.Switch;
 
-import org.json.JSONArray;
-import org.json.JSONException;
 import org.projectfloodlight.openflow.protocol.OFFactory;
 import org.projectfloodlight.openflow.protocol.OFPacketOut;
 import org.projectfloodlight.openflow.protocol.action.OFAction;
@@ -56,7 +54,6 @@ public class ArpHandler {
     private IFloodlightProviderService floodlightProvider;
     private IFlowPusherService flowPusher;
     private ITopologyService topologyService;
-    private MutableTopology mutableTopology;
     // private List<ArpEntry> arpEntries;
     private SegmentRoutingManager srManager;
 
@@ -87,7 +84,6 @@ public class ArpHandler {
         this.flowPusher = context.getServiceImpl(IFlowPusherService.class);
         this.topologyService = context.getServiceImpl(ITopologyService.class);
         this.srManager = segmentRoutingManager;
-        this.mutableTopology = topologyService.getTopology();
 
         Log.debug("Arp Handler is initialized");
 
@@ -229,66 +225,22 @@ public class ArpHandler {
      * @return true if the ARP is for the switch
      */
     private boolean isArpReqForSwitch(Switch sw, ARP arpRequest) {
-        List<String> subnetGatewayIPs = getSubnetGatewayIps(sw);
-        boolean isArpForSwitch = false;
-        if (!subnetGatewayIPs.isEmpty()) {
-            IPv4Address targetProtocolAddress = IPv4Address.of(arpRequest
-                    .getTargetProtocolAddress());
-            if (subnetGatewayIPs.contains(targetProtocolAddress.toString())) {
-                isArpForSwitch = true;
-            }
-        }
-        return isArpForSwitch;
+        IPv4Address targetProtocolAddress = IPv4Address.of(arpRequest
+                .getTargetProtocolAddress());
+        return srManager.getSubnetIndex().isGatewayIp(sw.getDpid(),
+                targetProtocolAddress.getInt());
     }
 
     /**
-     * Retrieve Gateway IP address of all subnets defined in net config file
-     * 
-     * @param sw Switch to retrieve subnet GW IPs for
-     * @return list of GW IP addresses for all subnets
+     * Get the switch ports connected to the subnets of the target address
+     *
+     * @param sw Switch
+     * @param targetAddress Target IP address
+     * @return the port numbers
      */
-    private List<String> getSubnetGatewayIps(Switch sw) {
-
-        List<String> gatewayIps = new ArrayList<String>();
-
-        String subnets = sw.getStringAttribute("subnets");
-        try {
-            JSONArray arry = new JSONArray(subnets);
-            for (int i = 0; i < arry.length(); i++) {
-                String subnetIpSlash = (String) arry.getJSONObject(i).get("subnetIp");
-                if (subnetIpSlash != null) {
-                    String subnetIp = subnetIpSlash.substring(0,
-                            subnetIpSlash.indexOf('/'));
-                    gatewayIps.add(subnetIp);
-                }
-            }
-        } catch (JSONException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
-
-        return gatewayIps;
-    }
-
-    private HashSet<Integer> getSwitchSubnetPorts(Switch sw, IPv4Address targetAddress) {
-        HashSet<Integer> switchSubnetPorts = new HashSet<Integer>();
-
-        String subnets = sw.getStringAttribute("subnets");
-        try {
-            JSONArray arry = new JSONArray(subnets);
-            for (int i = 0; i < arry.length(); i++) {
-                String subnetIpSlash = (String) arry.getJSONObject(i).get("subnetIp");
-                if (srManager.netMatch(subnetIpSlash, targetAddress.toString())) {
-                    Integer subnetPort = (Integer) arry.getJSONObject(i).get("portNo");
-                    switchSubnetPorts.add(subnetPort);
-                }
-            }
-        } catch (JSONException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
-
-        return switchSubnetPorts;
+    private Set<Integer> getSwitchSubnetPorts(Switch sw, IPv4Address targetAddress) {
+        return srManager.getSubnetIndex().getSubnetPorts(sw.getDpid(),
+                targetAddress.getInt());
     }
 
     /**
@@ -408,27 +360,9 @@ public class ArpHandler {
      */
     private String getGwIpForSubnet(int sourceAddress) {
 
-        String gwIp = null;
-        IPv4Address srcIp = IPv4Address.of(sourceAddress);
-
-        for (Switch sw : mutableTopology.getSwitches()) {
-
-            String subnets = sw.getStringAttribute("subnets");
-            try {
-                JSONArray arry = new JSONArray(subnets);
-                for (int i = 0; i < arry.length(); i++) {
-                    String subnetIpSlash = (String) arry.getJSONObject(i).get("subnetIp");
-                    if (srManager.netMatch(subnetIpSlash, srcIp.toString())) {
-                        gwIp = subnetIpSlash;
-                    }
-                }
-            } catch (JSONException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
-        }
+        Subnet subnet = srManager.getSubnetIndex().lookup(sourceAddress);
 
-        return gwIp;
+        return (subnet == null) ? null : subnet.getSubnetIp();
     }
 
 }
@@ -14,6 +14,7 @@ import java.util.List;
 import net.floodlightcontroller.core.IFloodlightProviderService;
 import net.floodlightcontroller.core.IOFSwitch;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.onrc.onos.apps.segmentrouting.SubnetIndex.Subnet;
 import net.onrc.onos.core.flowprogrammer.IFlowPusherService;
 import net.onrc.onos.core.packet.Ethernet;
 import net.onrc.onos.core.packet.ICMP;
@@ -26,8 +27,6 @@ import net.onrc.onos.core.topology.Port;
 import net.onrc.onos.core.topology.Switch;
 import net.onrc.onos.core.util.SwitchPort;
 
-import org.json.JSONArray;
-import org.json.JSONException;
 import org.projectfloodlight.openflow.protocol.OFFactory;
 import org.projectfloodlight.openflow.protocol.OFMatchV3;
 import org.projectfloodlight.openflow.protocol.OFMessage;
@@ -114,10 +113,10 @@ public class IcmpHandler {
                     String switchIpAddressStr = switchIpAddressSlash.substring(0,
                             switchIpAddressSlash.indexOf('/'));
                     IPv4Address switchIpAddress = IPv4Address.of(switchIpAddressStr);
-                    List<String> gatewayIps = getSubnetGatewayIps(sw);
                     if (((ICMP) ipv4.getPayload()).getIcmpType() == ICMP_TYPE_ECHO &&
                             (destinationAddress.getInt() == switchIpAddress.getInt() ||
-                            gatewayIps.contains(destinationAddress.toString()))) {
+                            srManager.getSubnetIndex().isGatewayIp(sw.getDpid(),
+                                    destinationAddress.getInt()))) {
                         log.debug("ICMP packet for sw {} and "
                                 + "sending ICMP response ", sw.getDpid());
                         sendICMPResponse(sw, inPort, payload);
@@ -174,35 +173,6 @@ public class IcmpHandler {
         }
     }
 
-    /**
-     * Retrieve Gateway IP address of all subnets defined in net config file
-     *
-     * @param sw Switch to retrieve subnet GW IPs for
-     * @return list of GW IP addresses for all subnets
-     */
-    private List<String> getSubnetGatewayIps(Switch sw) {
-
-        List<String> gatewayIps = new ArrayList<String>();
-
-        String subnets = sw.getStringAttribute("subnets");
-        try {
-            JSONArray arry = new JSONArray(subnets);
-            for (int i = 0; i < arry.length(); i++) {
-                String subnetIpSlash = (String) arry.getJSONObject(i).get("subnetIp");
-                if (subnetIpSlash != null) {
-                    String subnetIp = subnetIpSlash.substring(0,
-                            subnetIpSlash.indexOf('/'));
-                    gatewayIps.add(subnetIp);
-                }
-            }
-        } catch (JSONException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
-
-        return gatewayIps;
-    }
-
     /**
      * Send ICMP reply back
      *
@@ -352,23 +322,9 @@ public class IcmpHandler {
 
         int mplsLabel = -1;
 
-        for (Switch sw : mutableTopology.getSwitches()) {
-
-            String subnets = sw.getStringAttribute("subnets");
-            try {
-                JSONArray arry = new JSONArray(subnets);
-                for (int i = 0; i < arry.length(); i++) {
-                    String subnetIp = (String) arry.getJSONObject(i).get("subnetIp");
-                    if (srManager.netMatch(subnetIp, targetAddress.toString())) {
-                        String mplsLabelStr = sw.getStringAttribute("nodeSid");
-                        if (mplsLabelStr != null)
-                            mplsLabel = Integer.parseInt(mplsLabelStr);
-                    }
-                }
-            } catch (JSONException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
+        Subnet subnet = srManager.getSubnetIndex().lookup(targetAddress.getInt());
+        if (subnet != null && subnet.getNodeSid() != null) {
+            mplsLabel = Integer.parseInt(subnet.getNodeSid());
         }
 
         return mplsLabel;
@@ -383,26 +339,9 @@ public class IcmpHandler {
      */
     private String getRouterMACFromConfig(IPv4Address targetAddress) {
 
-        String routerMac = null;
+        Subnet subnet = srManager.getSubnetIndex().lookup(targetAddress.getInt());
 
-        for (Switch sw : mutableTopology.getSwitches()) {
-
-            String subnets = sw.getStringAttribute("subnets");
-            try {
-                JSONArray arry = new JSONArray(subnets);
-                for (int i = 0; i < arry.length(); i++) {
-                    String subnetIp = (String) arry.getJSONObject(i).get("subnetIp");
-                    if (srManager.netMatch(subnetIp, targetAddress.toString())) {
-                        routerMac = sw.getStringAttribute("routerMac");
-                    }
-                }
-            } catch (JSONException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
-        }
-
-        return routerMac;
+        return (subnet == null) ? null : subnet.getRouterMac();
     }
 
     /**
@@ -481,27 +420,9 @@ public class IcmpHandler {
      */
     private String getGwIpForSubnet(int sourceAddress) {
 
-        String gwIp = null;
-        IPv4Address srcIp = IPv4Address.of(sourceAddress);
-
-        for (Switch sw : mutableTopology.getSwitches()) {
-
-            String subnets = sw.getStringAttribute("subnets");
-            try {
-                JSONArray arry = new JSONArray(subnets);
-                for (int i = 0; i < arry.length(); i++) {
-                    String subnetIpSlash = (String) arry.getJSONObject(i).get("subnetIp");
-                    if (srManager.netMatch(subnetIpSlash, srcIp.toString())) {
-                        gwIp = subnetIpSlash;
-                    }
-                }
-            } catch (JSONException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
-        }
+        Subnet subnet = srManager.getSubnetIndex().lookup(sourceAddress);
 
-        return gwIp;
+        return (subnet == null) ? null : subnet.getSubnetIp();
     }
 
 }
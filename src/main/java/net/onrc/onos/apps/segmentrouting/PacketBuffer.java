@@ -0,0 +1,224 @@
+package net.onrc.onos.apps.segmentrouting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.onrc.onos.core.metrics.OnosMetrics;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsComponent;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsFeature;
+import net.onrc.onos.core.packet.IPv4;
+
+import com.codahale.metrics.Counter;
+
+/**
+ * Buffer of the IPv4 packets waiting for the ARP resolution of their
+ * destination.
+ * <p/>
+ * The packets are kept in a bounded queue per destination IP address, so
+ * the packets of a resolved destination are retrieved without scanning the
+ * packets of the other destinations. When the queue of a destination is
+ * full, its oldest packet is dropped. New destinations are dropped when too
+ * many destinations are waiting.
+ * <p/>
+ * The packets expire after a number of ticks of a timer wheel, advanced by
+ * {@link #tick()}. Each slot of the wheel holds the destinations whose
+ * oldest packet expires at that tick, so a tick only visits the
+ * destinations with expired packets.
+ */
+public class PacketBuffer {
+    private static final MetricsComponent METRICS_COMPONENT =
+            OnosMetrics.registerComponent("SegmentRouting");
+    private static final MetricsFeature METRICS_FEATURE_PACKET_BUFFER =
+            METRICS_COMPONENT.registerFeature("PacketBuffer");
+
+    private final int maxPacketsPerDestination;
+    private final int maxDestinations;
+    private final int ttlTicks;
+
+    // The buffered packets of each destination, oldest first
+    private final Map<Integer, Deque<BufferedPacket>> buffers =
+            new HashMap<>();
+    // The destinations to check at each tick, indexed by tick modulo size
+    private final List<Set<Integer>> wheel;
+    private long currentTick = 0;
+
+    private final Counter bufferedPackets;
+    private final Counter releasedPackets;
+    private final Counter expiredPackets;
+    private final Counter overflowDrops;
+    private final Counter destinationDrops;
+
+    /**
+     * A buffered packet, with the tick it expires at.
+     */
+    private static final class BufferedPacket {
+        private final IPv4 packet;
+        private final long expiryTick;
+
+        /**
+         * Constructor.
+         *
+         * @param packet the packet
+         * @param expiryTick the tick the packet expires at
+         */
+        private BufferedPacket(IPv4 packet, long expiryTick) {
+            this.packet = packet;
+            this.expiryTick = expiryTick;
+        }
+    }
+
+    /**
+     * Creates a packet buffer.
+     *
+     * @param maxPacketsPerDestination the maximum number of packets buffered
+     * for a destination
+     * @param maxDestinations the maximum number of destinations with
+     * buffered packets
+     * @param ttlTicks the number of ticks the packets are buffered for
+     */
+    public PacketBuffer(int maxPacketsPerDestination, int maxDestinations,
+                        int ttlTicks) {
+        if (maxPacketsPerDestination <= 0 || maxDestinations <= 0
+                || ttlTicks <= 0) {
+            throw new IllegalArgumentException("Invalid packet buffer size");
+        }
+        this.maxPacketsPerDestination = maxPacketsPerDestination;
+        this.maxDestinations = maxDestinations;
+        this.ttlTicks = ttlTicks;
+
+        // One more slot than the TTL, so that a destination is never
+        // scheduled in the slot being processed
+        this.wheel = new ArrayList<>(ttlTicks + 1);
+        for (int i = 0; i <= ttlTicks; i++) {
+            wheel.add(new HashSet<Integer>());
+        }
+
+        bufferedPackets = OnosMetrics.createCounter(METRICS_COMPONENT,
+                METRICS_FEATURE_PACKET_BUFFER, "Packets.Buffered");
+        releasedPackets = OnosMetrics.createCounter(METRICS_COMPONENT,
+                METRICS_FEATURE_PACKET_BUFFER, "Packets.Released");
+        expiredPackets = OnosMetrics.createCounter(METRICS_COMPONENT,
+                METRICS_FEATURE_PACKET_BUFFER, "Packets.Expired");
+        overflowDrops = OnosMetrics.createCounter(METRICS_COMPONENT,
+                METRICS_FEATURE_PACKET_BUFFER, "Drops.DestinationFull");
+        destinationDrops = OnosMetrics.createCounter(METRICS_COMPONENT,
+                METRICS_FEATURE_PACKET_BUFFER, "Drops.TooManyDestinations");
+    }
+
+    /**
+     * Buffers a packet until its destination is resolved.
+     *
+     * @param packet the packet to buffer
+     * @return false if the packet was dropped because too many destinations
+     * are waiting, otherwise true
+     */
+    public synchronized boolean add(IPv4 packet) {
+        final int destination = packet.getDestinationAddress();
+        Deque<BufferedPacket> queue = buffers.get(destination);
+        if (queue == null) {
+            if (buffers.size() >= maxDestinations) {
+                destinationDrops.inc();
+                return false;
+            }
+            queue = new ArrayDeque<>();
+            buffers.put(destination, queue);
+        }
+
+        final long expiryTick = currentTick + ttlTicks;
+        if (queue.isEmpty()) {
+            schedule(destination, expiryTick);
+        } else if (queue.size() >= maxPacketsPerDestination) {
+            queue.poll();
+            overflowDrops.inc();
+        }
+        queue.add(new BufferedPacket(packet, expiryTick));
+        bufferedPackets.inc();
+        return true;
+    }
+
+    /**
+     * Removes and returns the packets buffered for a destination.
+     *
+     * @param destination the destination IP address
+     * @return the packets, oldest first
+     */
+    public synchronized List<IPv4> remove(int destination) {
+        Deque<BufferedPacket> queue = buffers.remove(destination);
+        if (queue == null) {
+            return Collections.emptyList();
+        }
+        // The destination stays in its wheel slot, and is skipped there
+        List<IPv4> packets = new ArrayList<>(queue.size());
+        for (BufferedPacket bufferedPacket : queue) {
+            packets.add(bufferedPacket.packet);
+        }
+        releasedPackets.inc(packets.size());
+        return packets;
+    }
+
+    /**
+     * Advances the timer wheel by one tick, and drops the expired packets.
+     */
+    public synchronized void tick() {
+        currentTick++;
+        Set<Integer> slot = wheel.get(slotOf(currentTick));
+        if (slot.isEmpty()) {
+            return;
+        }
+        Integer[] destinations = slot.toArray(new Integer[slot.size()]);
+        slot.clear();
+
+        for (Integer destination : destinations) {
+            Deque<BufferedPacket> queue = buffers.get(destination);
+            if (queue == null) {
+                continue;       // Already removed
+            }
+            while (!queue.isEmpty()
+                    && queue.peek().expiryTick <= currentTick) {
+                queue.poll();
+                expiredPackets.inc();
+            }
+            if (queue.isEmpty()) {
+                buffers.remove(destination);
+            } else {
+                schedule(destination, queue.peek().expiryTick);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of destinations with buffered packets.
+     *
+     * @return the number of destinations
+     */
+    public synchronized int getDestinationCount() {
+        return buffers.size();
+    }
+
+    /**
+     * Schedules a destination to be checked at a tick.
+     *
+     * @param destination the destination IP address
+     * @param tick the tick to check the destination at
+     */
+    private void schedule(int destination, long tick) {
+        wheel.get(slotOf(tick)).add(destination);
+    }
+
+    /**
+     * Gets the wheel slot of a tick.
+     *
+     * @param tick the tick
+     * @return the index of the slot
+     */
+    private int slotOf(long tick) {
+        return (int) (tick % wheel.size());
+    }
+}
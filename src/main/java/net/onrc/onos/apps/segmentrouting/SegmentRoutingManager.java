@@ -98,12 +98,13 @@ public class SegmentRoutingManager implements IFloodlightModule,
     private ITopologyService topologyService;
     private IPacketService packetService;
     private MutableTopology mutableTopology;
-    private ConcurrentLinkedQueue<IPv4> ipPacketQueue;
+    private PacketBuffer packetBuffer;
     private IRestApiService restApi;
     private List<ArpEntry> arpEntries;
     private ArpHandler arpHandler;
     private GenericIpHandler ipHandler;
     private IcmpHandler icmpHandler;
+    private SubnetIndex subnetIndex;
     private IThreadPoolService threadPool;
     private SingletonTask discoveryTask;
     private SingletonTask linkAddTask;
@@ -132,6 +133,13 @@ public class SegmentRoutingManager implements IFloodlightModule,
     private long matchActionId = 0L;
 
     private final int DELAY_TO_ADD_LINK = 10;
+
+    // Packets waiting for ARP resolution are buffered for 5 ticks of 1 sec
+    private static final int MAX_BUFFERED_PACKETS_PER_DESTINATION = 16;
+    private static final int MAX_BUFFERED_DESTINATIONS = 1024;
+    private static final int PACKET_BUFFER_TTL_TICKS = 5;
+    private static final long PACKET_BUFFER_TICK_MS = 1000;
+
     private final int MAX_NUM_LABELS = 3;
 
     private final int POLICY_ADD1 = 1;
@@ -182,11 +190,13 @@ public class SegmentRoutingManager implements IFloodlightModule,
         arpHandler = new ArpHandler(context, this);
         icmpHandler = new IcmpHandler(context, this);
         ipHandler = new GenericIpHandler(context, this);
+        subnetIndex = new SubnetIndex();
         arpEntries = new ArrayList<ArpEntry>();
         topologyService = context.getServiceImpl(ITopologyService.class);
         threadPool = context.getServiceImpl(IThreadPoolService.class);
         mutableTopology = topologyService.getTopology();
-        ipPacketQueue = new ConcurrentLinkedQueue<IPv4>();
+        packetBuffer = new PacketBuffer(MAX_BUFFERED_PACKETS_PER_DESTINATION,
+                MAX_BUFFERED_DESTINATIONS, PACKET_BUFFER_TTL_TICKS);
         graphs = new HashMap<Switch, ECMPShortestPathGraph>();
         linksDown = new HashMap<String, LinkData>();
         linksToAdd = new HashMap<String, LinkData>();
@@ -230,6 +240,13 @@ public class SegmentRoutingManager implements IFloodlightModule,
             }
         });
 
+        ses.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                packetBuffer.tick();
+            }
+        }, PACKET_BUFFER_TICK_MS, PACKET_BUFFER_TICK_MS, TimeUnit.MILLISECONDS);
+
         testMode = POLICY_ADD1;
         //testTask.reschedule(20, TimeUnit.SECONDS);
     }
@@ -263,6 +280,9 @@ public class SegmentRoutingManager implements IFloodlightModule,
      */
     public void topologyEvents(TopologyEvents topologyEvents)
     {
+        // Keep the subnets up to date for the packet handlers
+        subnetIndex.update(topologyEvents.getAddedSwitchDataEntries(),
+                topologyEvents.getRemovedSwitchDataEntries());
 
         if (operationMode == 0) {
             discoveryTask.reschedule(20, TimeUnit.SECONDS);
@@ -1726,6 +1746,15 @@ public class SegmentRoutingManager implements IFloodlightModule,
         return mplsLabel;
     }
 
+    /**
+     * Get the index of the subnets configured on the switches
+     *
+     * @return the subnet index
+     */
+    public SubnetIndex getSubnetIndex() {
+        return subnetIndex;
+    }
+
     /**
      * The function checks if given IP matches to the given subnet mask
      *
@@ -1792,35 +1821,23 @@ public class SegmentRoutingManager implements IFloodlightModule,
     }
 
     /**
-     * Add IP packet to a buffer queue
+     * Add IP packet to the buffer of its destination, until the destination
+     * is resolved
      *
      * @param ipv4
      */
     public void addPacketToPacketBuffer(IPv4 ipv4) {
-        ipPacketQueue.add(ipv4);
+        packetBuffer.add(ipv4);
     }
 
     /**
      * Retrieve all packets whose destination is the given address.
+     * The packets are removed from the buffer.
      *
      * @param destIp Destination address of packets to retrieve
      */
     public List<IPv4> getIpPacketFromQueue(byte[] destIp) {
-
-        List<IPv4> bufferedPackets = new ArrayList<IPv4>();
-
-        if (!ipPacketQueue.isEmpty()) {
-            for (IPv4 ip : ipPacketQueue) {
-                int dest = ip.getDestinationAddress();
-                IPv4Address ip1 = IPv4Address.of(dest);
-                IPv4Address ip2 = IPv4Address.of(destIp);
-                if (ip1.equals(ip2)) {
-                    bufferedPackets.add((IPv4) (ipPacketQueue.poll()).clone());
-                }
-            }
-        }
-
-        return bufferedPackets;
+        return packetBuffer.remove(IPv4Address.of(destIp).getInt());
     }
 
     /**
@@ -0,0 +1,364 @@
+package net.onrc.onos.apps.segmentrouting;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.onrc.onos.core.topology.SwitchData;
+import net.onrc.onos.core.util.Dpid;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the subnets configured on the switches, for the packet handlers.
+ * <p/>
+ * The "subnets" attribute of each switch is a JSON array of port numbers and
+ * subnet gateway addresses, such as "10.0.1.128/24". Instead of parsing it
+ * for each packet, the index parses it when the switch is added or updated,
+ * and keeps:
+ * <ul>
+ * <li>the subnets of each switch, with the gateway IP addresses,</li>
+ * <li>a longest prefix match table of the subnets of all the switches,
+ * with one hash table per prefix length.</li>
+ * </ul>
+ * The tables are immutable, and replaced when a switch changes, so the
+ * lookups from the packet handlers do not need to lock.
+ */
+public class SubnetIndex {
+    private static final Logger log = LoggerFactory
+            .getLogger(SubnetIndex.class);
+
+    private static final String SUBNETS = "subnets";
+    private static final String SUBNET_IP = "subnetIp";
+    private static final String PORT_NO = "portNo";
+    private static final String ROUTER_MAC = "routerMac";
+    private static final String NODE_SID = "nodeSid";
+
+    private static final int MAX_PREFIX_LENGTH = 32;
+
+    // The switches, only modified by the topology listener thread
+    private final Map<Dpid, SwitchSubnets> switches = new HashMap<>();
+
+    private volatile Tables tables = new Tables(
+            Collections.<Dpid, SwitchSubnets>emptyMap());
+
+    /**
+     * A subnet configured on a switch.
+     */
+    public static final class Subnet {
+        private final String subnetIp;
+        private final int gatewayIp;
+        private final int prefix;
+        private final int mask;
+        private final int prefixLength;
+        private final Dpid dpid;
+        private final String routerMac;
+        private final String nodeSid;
+        private final List<Integer> ports = new ArrayList<>();
+
+        /**
+         * Constructor.
+         *
+         * @param subnetIp the gateway IP address and prefix length, such as
+         * "10.0.1.128/24"
+         * @param dpid the DPID of the switch
+         * @param routerMac the router MAC address of the switch
+         * @param nodeSid the node SID of the switch
+         */
+        private Subnet(String subnetIp, Dpid dpid, String routerMac,
+                       String nodeSid) {
+            final int slash = subnetIp.indexOf('/');
+            this.subnetIp = subnetIp;
+            if (slash < 0) {
+                this.gatewayIp = IPv4Address.of(subnetIp).getInt();
+                this.prefixLength = 0;
+            } else {
+                this.gatewayIp = IPv4Address.of(
+                        subnetIp.substring(0, slash)).getInt();
+                this.prefixLength =
+                        Integer.parseInt(subnetIp.substring(slash + 1));
+            }
+            if (prefixLength < 0 || prefixLength > MAX_PREFIX_LENGTH) {
+                throw new IllegalArgumentException(
+                        "Invalid prefix length: " + subnetIp);
+            }
+            this.mask = maskOf(prefixLength);
+            this.prefix = gatewayIp & mask;
+            this.dpid = dpid;
+            this.routerMac = routerMac;
+            this.nodeSid = nodeSid;
+        }
+
+        /**
+         * Gets the gateway IP address and prefix length, as configured.
+         *
+         * @return the subnet IP string, such as "10.0.1.128/24"
+         */
+        public String getSubnetIp() {
+            return subnetIp;
+        }
+
+        /**
+         * Gets the gateway IP address of the subnet.
+         *
+         * @return the gateway IP address
+         */
+        public int getGatewayIp() {
+            return gatewayIp;
+        }
+
+        /**
+         * Gets the DPID of the switch the subnet is configured on.
+         *
+         * @return the DPID of the switch
+         */
+        public Dpid getDpid() {
+            return dpid;
+        }
+
+        /**
+         * Gets the router MAC address of the switch.
+         *
+         * @return the router MAC address, or null if it is not configured
+         */
+        public String getRouterMac() {
+            return routerMac;
+        }
+
+        /**
+         * Gets the node SID of the switch.
+         *
+         * @return the node SID, or null if it is not configured
+         */
+        public String getNodeSid() {
+            return nodeSid;
+        }
+
+        /**
+         * Gets the switch ports the subnet is connected to.
+         *
+         * @return the port numbers
+         */
+        public List<Integer> getPorts() {
+            return Collections.unmodifiableList(ports);
+        }
+
+        /**
+         * Checks whether an IP address is in the subnet.
+         *
+         * @param address the IP address to check
+         * @return true if the address is in the subnet
+         */
+        public boolean contains(int address) {
+            return (address & mask) == prefix;
+        }
+    }
+
+    /**
+     * The subnets of a switch.
+     */
+    private static final class SwitchSubnets {
+        private final List<Subnet> subnets;
+        private final Set<Integer> gatewayIps = new HashSet<>();
+
+        /**
+         * Constructor.
+         *
+         * @param subnets the subnets of the switch
+         */
+        private SwitchSubnets(List<Subnet> subnets) {
+            this.subnets = subnets;
+            for (Subnet subnet : subnets) {
+                gatewayIps.add(subnet.getGatewayIp());
+            }
+        }
+    }
+
+    /**
+     * The immutable lookup tables.
+     */
+    private static final class Tables {
+        private final Map<Dpid, SwitchSubnets> switches;
+        // The subnets by prefix, for each prefix length
+        private final List<Map<Integer, Subnet>> prefixes =
+                new ArrayList<>(MAX_PREFIX_LENGTH + 1);
+        private final int[] prefixLengths;
+
+        /**
+         * Constructor.
+         *
+         * @param switches the subnets of the switches
+         */
+        private Tables(Map<Dpid, SwitchSubnets> switches) {
+            this.switches = switches;
+            for (int i = 0; i <= MAX_PREFIX_LENGTH; ++i) {
+                prefixes.add(new HashMap<Integer, Subnet>());
+            }
+            for (SwitchSubnets switchSubnets : switches.values()) {
+                for (Subnet subnet : switchSubnets.subnets) {
+                    Map<Integer, Subnet> map =
+                            prefixes.get(subnet.prefixLength);
+                    Subnet previous = map.put(subnet.prefix, subnet);
+                    if (previous != null) {
+                        log.warn("Subnet {} is configured on switches {} "
+                                + "and {}", subnet.getSubnetIp(),
+                                previous.getDpid(), subnet.getDpid());
+                    }
+                }
+            }
+            // The prefix lengths in use, longest first
+            int count = 0;
+            int[] lengths = new int[MAX_PREFIX_LENGTH + 1];
+            for (int i = MAX_PREFIX_LENGTH; i >= 0; --i) {
+                if (!prefixes.get(i).isEmpty()) {
+                    lengths[count++] = i;
+                }
+            }
+            prefixLengths = new int[count];
+            System.arraycopy(lengths, 0, prefixLengths, 0, count);
+        }
+    }
+
+    /**
+     * Updates the index with the switches added or updated, and removed.
+     * <p/>
+     * It is called by the topology listener thread only.
+     *
+     * @param switchesAdded the switches added or updated
+     * @param switchesRemoved the switches removed
+     */
+    public void update(Collection<SwitchData> switchesAdded,
+                       Collection<SwitchData> switchesRemoved) {
+        if (switchesAdded.isEmpty() && switchesRemoved.isEmpty()) {
+            return;
+        }
+        for (SwitchData switchData : switchesRemoved) {
+            switches.remove(switchData.getDpid());
+        }
+        for (SwitchData switchData : switchesAdded) {
+            switches.put(switchData.getDpid(), parseSubnets(switchData));
+        }
+        tables = new Tables(new HashMap<>(switches));
+    }
+
+    /**
+     * Parses the subnets of a switch.
+     *
+     * @param switchData the switch
+     * @return the subnets of the switch
+     */
+    private static SwitchSubnets parseSubnets(SwitchData switchData) {
+        final Dpid dpid = switchData.getDpid();
+        final String routerMac = switchData.getStringAttribute(ROUTER_MAC);
+        final String nodeSid = switchData.getStringAttribute(NODE_SID);
+        final String subnetsJson = switchData.getStringAttribute(SUBNETS);
+
+        // The ports of a subnet are configured as separate entries
+        Map<String, Subnet> subnets = new HashMap<>();
+        if (subnetsJson != null) {
+            try {
+                JSONArray array = new JSONArray(subnetsJson);
+                for (int i = 0; i < array.length(); i++) {
+                    JSONObject entry = array.getJSONObject(i);
+                    String subnetIp = entry.getString(SUBNET_IP);
+                    Subnet subnet = subnets.get(subnetIp);
+                    if (subnet == null) {
+                        subnet = new Subnet(subnetIp, dpid, routerMac, nodeSid);
+                        subnets.put(subnetIp, subnet);
+                    }
+                    if (entry.has(PORT_NO)) {
+                        subnet.ports.add(entry.getInt(PORT_NO));
+                    }
+                }
+            } catch (JSONException | IllegalArgumentException e) {
+                log.error("Invalid subnets of switch {}: {}", dpid,
+                        subnetsJson, e);
+            }
+        }
+        return new SwitchSubnets(new ArrayList<>(subnets.values()));
+    }
+
+    /**
+     * Gets the subnet with the longest prefix matching an IP address.
+     *
+     * @param address the IP address
+     * @return the subnet, or null if no subnet matches the address
+     */
+    public Subnet lookup(int address) {
+        final Tables current = tables;
+        for (int prefixLength : current.prefixLengths) {
+            Subnet subnet = current.prefixes.get(prefixLength)
+                    .get(address & maskOf(prefixLength));
+            if (subnet != null) {
+                return subnet;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the subnets configured on a switch.
+     *
+     * @param dpid the DPID of the switch
+     * @return the subnets of the switch
+     */
+    public List<Subnet> getSubnets(Dpid dpid) {
+        SwitchSubnets switchSubnets = tables.switches.get(dpid);
+        if (switchSubnets == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(switchSubnets.subnets);
+    }
+
+    /**
+     * Checks whether an IP address is a subnet gateway IP address of a
+     * switch.
+     *
+     * @param dpid the DPID of the switch
+     * @param address the IP address
+     * @return true if the address is a gateway IP address of the switch
+     */
+    public boolean isGatewayIp(Dpid dpid, int address) {
+        SwitchSubnets switchSubnets = tables.switches.get(dpid);
+        return switchSubnets != null
+                && switchSubnets.gatewayIps.contains(address);
+    }
+
+    /**
+     * Gets the ports of a switch connected to the subnets an IP address is
+     * in.
+     *
+     * @param dpid the DPID of the switch
+     * @param address the IP address
+     * @return the port numbers
+     */
+    public Set<Integer> getSubnetPorts(Dpid dpid, int address) {
+        Set<Integer> ports = new HashSet<>();
+        for (Subnet subnet : getSubnets(dpid)) {
+            if (subnet.contains(address)) {
+                ports.addAll(subnet.ports);
+            }
+        }
+        return ports;
+    }
+
+    /**
+     * Gets the network mask of a prefix length.
+     *
+     * @param prefixLength the prefix length, between 0 and 32
+     * @return the mask
+     */
+    private static int maskOf(int prefixLength) {
+        return prefixLength == 0 ? 0 : -1 << (MAX_PREFIX_LENGTH - prefixLength);
+    }
+}
@@ -7,9 +7,9 @@ import net.onrc.onos.core.topology.TopologyEvents;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.websocket.CloseReason;
 import javax.websocket.EndpointConfig;
@@ -18,10 +18,11 @@ import javax.websocket.OnError;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
 import javax.websocket.PongMessage;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 import javax.websocket.server.ServerEndpoint;
 
-import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,20 +51,34 @@ import org.slf4j.LoggerFactory;
  * topology first. From that moment on, the server sends topology events
  * (deltas) if there are any changes in the topology. Currently, all objects
  * are encoded in JSON.
+ * <p>
+ * The events are encoded and sent by the TopologyWebSocketPublisher shared by
+ * all the clients. A client which falls behind by more than
+ * MAX_PENDING_MESSAGES messages drops them, and is sent the whole topology
+ * again.
  */
 @ServerEndpoint(value = "/topology")
-public class TopologyWebSocket extends Thread implements ITopologyListener {
+public class TopologyWebSocket implements ITopologyListener {
 
     private static final Logger log =
         LoggerFactory.getLogger(TopologyWebSocket.class);
-    private BlockingQueue<TopologyEvents> topologyEventsQueue =
-        new LinkedBlockingQueue<>();
+    // Maximum number of messages waiting for the previous message to be sent
+    static final int MAX_PENDING_MESSAGES = 64;
     private Session socketSession;
-    private boolean isOpen = false;
+    private volatile boolean isOpen = false;
+    // Messages waiting to be sent, guarded by this
+    private final Deque<String> pendingMessages = new ArrayDeque<>();
+    private boolean isSending = false;  // A message is being sent
+    private final SendHandler sendHandler = new SendHandler() {
+        @Override
+        public void onResult(SendResult result) {
+            messageSent(result);
+        }
+    };
     // Ping-related state
-    private static final int PING_INTERVAL_SEC = 30;   // Ping every 30 secs
-    private static final int MAX_MISSING_PING = 3;
-    private int missingPing = 0;        // Pings to the client without a pong
+    static final int MAX_MISSING_PING = 3;
+    // Pings to the client without a pong
+    private final AtomicInteger missingPing = new AtomicInteger();
 
     /**
      * Shutdown the socket.
@@ -71,7 +86,11 @@ public class TopologyWebSocket extends Thread implements ITopologyListener {
     private void shutdown() {
         ITopologyService topologyService = WebSocketManager.topologyService;
         topologyService.removeListener(this);
-        this.isOpen = false;            // Stop the thread
+        WebSocketManager.publisher.removeClient(this);
+        this.isOpen = false;
+        synchronized (this) {
+            pendingMessages.clear();
+        }
     }
 
     /**
@@ -82,56 +101,101 @@ public class TopologyWebSocket extends Thread implements ITopologyListener {
      */
     @Override
     public void topologyEvents(TopologyEvents topologyEvents) {
-        // The topologyEvents object is immutable, so we can add it as-is
-        this.topologyEventsQueue.add(topologyEvents);
+        // The topologyEvents object is immutable, so it can be shared with
+        // the other clients
+        WebSocketManager.publisher.publish(this, topologyEvents);
     }
 
     /**
-     * Run the thread.
+     * Sends a message to the client, or queues it if the previous message
+     * is still being sent.
+     *
+     * @param message the message to send.
+     * @return false if the message was dropped because too many messages
+     * are waiting to be sent, otherwise true.
      */
-    @Override
-    public void run() {
-        this.setName("TopologyWebSocket " + this.getId());
-        ObjectMapper mapper = new ObjectMapper();
-
-        //
-        // The main loop for sending events to the clients.
-        //
-        // If there are no events, we send periodic PING messages to discover
-        // unreachable clients.
-        //
-        while (this.isOpen && (!this.isInterrupted())) {
-            String eventsJson = null;
-            try {
-                TopologyEvents events =
-                    topologyEventsQueue.poll(PING_INTERVAL_SEC,
-                                             TimeUnit.SECONDS);
-                if (events != null) {
-                    // Send the event
-                    eventsJson = mapper.writeValueAsString(events);
-                    socketSession.getBasicRemote().sendText(eventsJson);
-                    continue;
-                }
-                // Send a PING message
-                missingPing++;
-                if (missingPing > MAX_MISSING_PING) {
-                    // Timeout
-                    log.debug("WebSocket session timeout");
-                    shutdown();
-                } else {
-                    String msg = "PING(TopologyWebsocket)";
-                    ByteBuffer pingBuffer =
-                        ByteBuffer.wrap(msg.getBytes(StandardCharsets.UTF_8));
-                    socketSession.getBasicRemote().sendPing(pingBuffer);
+    boolean send(String message) {
+        synchronized (this) {
+            if (!isOpen) {
+                return true;
+            }
+            if (isSending) {
+                if (pendingMessages.size() >= MAX_PENDING_MESSAGES) {
+                    return false;
                 }
-            } catch (IOException e) {
-                log.debug("Exception sending TopologyWebSocket events: ", e);
-            } catch (InterruptedException e) {
-                log.debug("TopologyWebSocket interrupted while waiting: ", e);
-            } catch (Exception exception) {
-                log.debug("Exception processing TopologyWebSocket events: ",
-                          exception);
+                pendingMessages.add(message);
+                return true;
             }
+            isSending = true;
+        }
+        socketSession.getAsyncRemote().sendText(message, sendHandler);
+        return true;
+    }
+
+    /**
+     * A message has been sent: sends the next message, if any.
+     *
+     * @param result the result of sending the message.
+     */
+    private void messageSent(SendResult result) {
+        if (!result.isOK()) {
+            log.debug("Exception sending TopologyWebSocket events: ",
+                      result.getException());
+            shutdown();
+            return;
+        }
+        missingPing.set(0);             // The client is alive
+
+        String message;
+        synchronized (this) {
+            message = pendingMessages.poll();
+            if (message == null) {
+                isSending = false;
+                return;
+            }
+        }
+        socketSession.getAsyncRemote().sendText(message, sendHandler);
+    }
+
+    /**
+     * Drops the messages waiting to be sent, and registers again with the
+     * Topology Service to receive the whole topology, followed by the
+     * topology events generated after it.
+     */
+    void resync() {
+        synchronized (this) {
+            pendingMessages.clear();
+        }
+        ITopologyService topologyService = WebSocketManager.topologyService;
+        topologyService.removeListener(this);
+        if (isOpen) {
+            topologyService.addListener(this, true);
+        }
+    }
+
+    /**
+     * Sends a PING message to discover whether the client is unreachable,
+     * unless a message is being sent.
+     */
+    void ping() {
+        if (missingPing.incrementAndGet() > MAX_MISSING_PING) {
+            // Timeout
+            log.debug("WebSocket session timeout");
+            shutdown();
+            return;
+        }
+        synchronized (this) {
+            if (isSending) {
+                return;
+            }
+        }
+        String msg = "PING(TopologyWebsocket)";
+        ByteBuffer pingBuffer =
+            ByteBuffer.wrap(msg.getBytes(StandardCharsets.UTF_8));
+        try {
+            socketSession.getAsyncRemote().sendPing(pingBuffer);
+        } catch (IOException e) {
+            log.debug("Exception sending TopologyWebSocket ping: ", e);
         }
     }
 
@@ -150,11 +214,9 @@ public class TopologyWebSocket extends Thread implements ITopologyListener {
         // Initialization and Topology Service registration
         //
         this.socketSession = session;
+        WebSocketManager.publisher.addClient(this);
         ITopologyService topologyService = WebSocketManager.topologyService;
         topologyService.addListener(this, true);
-
-        // Start the thread
-        start();
     }
 
     /**
@@ -168,8 +230,8 @@ public class TopologyWebSocket extends Thread implements ITopologyListener {
         log.debug("WebSocket Text message received: {}", msg);
 
         // TODO: Sample code below for sending a response back
-        // NOTE: The transmission here must be synchronized by
-        // by the transmission by another thread within the run() method.
+        // NOTE: The transmission here must be serialized with the
+        // transmission of the topology events by the send() method.
         //
         // String result = msg + " (from your server)";
         // session.getBasicRemote().sendText(result);
@@ -203,7 +265,7 @@ public class TopologyWebSocket extends Thread implements ITopologyListener {
     public void onPongMessage(Session session, PongMessage msg) {
         log.trace("WebSocket Pong message received for session: {}",
                   session.getId());
-        missingPing = 0;
+        missingPing.set(0);
     }
 
     /**
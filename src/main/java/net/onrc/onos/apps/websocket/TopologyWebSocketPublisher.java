@@ -0,0 +1,140 @@
+package net.onrc.onos.apps.websocket;
+
+import net.onrc.onos.core.topology.TopologyEvents;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The publisher of the topology events to all the Topology WebSocket clients.
+ * There is a single instance for all the clients.
+ * <p>
+ * The topology events received by the clients are queued to a single
+ * thread, which encodes each Topology Events object in JSON once, however
+ * many clients received it, and hands the JSON to each client. The clients
+ * send it asynchronously, so a slow client does not delay the others.
+ * <p>
+ * The thread also pings the clients periodically, to discover the
+ * unreachable ones.
+ */
+class TopologyWebSocketPublisher extends Thread {
+    private static final Logger log =
+        LoggerFactory.getLogger(TopologyWebSocketPublisher.class);
+    private static final long PING_INTERVAL_NS =
+        TimeUnit.SECONDS.toNanos(30);          // Ping every 30 secs
+
+    private final BlockingQueue<ClientEvents> clientEventsQueue =
+        new LinkedBlockingQueue<>();
+    private final Set<TopologyWebSocket> clients =
+        new CopyOnWriteArraySet<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // The last encoded Topology Events, which are shared by the clients
+    private TopologyEvents lastEvents;
+    private String lastEventsJson;
+
+    /**
+     * Topology events received by a client.
+     */
+    static final class ClientEvents {
+        private final TopologyWebSocket client;
+        private final TopologyEvents events;
+
+        /**
+         * Constructor.
+         *
+         * @param client the client which received the events.
+         * @param events the received events.
+         */
+        ClientEvents(TopologyWebSocket client, TopologyEvents events) {
+            this.client = client;
+            this.events = events;
+        }
+    }
+
+    /**
+     * Adds a client to ping.
+     *
+     * @param client the client to add.
+     */
+    void addClient(TopologyWebSocket client) {
+        clients.add(client);
+    }
+
+    /**
+     * Removes a client.
+     *
+     * @param client the client to remove.
+     */
+    void removeClient(TopologyWebSocket client) {
+        clients.remove(client);
+    }
+
+    /**
+     * Queues topology events to be sent to a client.
+     *
+     * @param client the client which received the events.
+     * @param events the events to send.
+     */
+    void publish(TopologyWebSocket client, TopologyEvents events) {
+        clientEventsQueue.add(new ClientEvents(client, events));
+    }
+
+    /**
+     * Run the thread.
+     */
+    @Override
+    public void run() {
+        this.setName("TopologyWebSocketPublisher " + this.getId());
+        long nextPingTime = System.nanoTime() + PING_INTERVAL_NS;
+
+        while (!this.isInterrupted()) {
+            try {
+                ClientEvents clientEvents =
+                    clientEventsQueue.poll(nextPingTime - System.nanoTime(),
+                                           TimeUnit.NANOSECONDS);
+                if (clientEvents != null) {
+                    sendEvents(clientEvents);
+                }
+                if (System.nanoTime() - nextPingTime >= 0) {
+                    for (TopologyWebSocket client : clients) {
+                        client.ping();
+                    }
+                    nextPingTime = System.nanoTime() + PING_INTERVAL_NS;
+                }
+            } catch (InterruptedException e) {
+                log.debug("TopologyWebSocketPublisher interrupted: ", e);
+                return;
+            } catch (Exception exception) {
+                log.debug("Exception processing TopologyWebSocket events: ",
+                          exception);
+            }
+        }
+    }
+
+    /**
+     * Sends topology events to a client. A client which has too many
+     * messages waiting to be sent is resynchronized.
+     *
+     * @param clientEvents the events to send, and the client.
+     * @throws IOException if the events cannot be encoded.
+     */
+    void sendEvents(ClientEvents clientEvents) throws IOException {
+        if (clientEvents.events != lastEvents) {
+            lastEventsJson = mapper.writeValueAsString(clientEvents.events);
+            lastEvents = clientEvents.events;
+        }
+        if (!clientEvents.client.send(lastEventsJson)) {
+            log.debug("TopologyWebSocket client fell behind, resynchronizing");
+            clientEvents.client.resync();
+        }
+    }
+}
@@ -19,6 +19,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
  */
 class WebSocketManager {
     protected static ITopologyService topologyService;
+    protected static TopologyWebSocketPublisher publisher;
 
     private static final Logger log =
         LoggerFactory.getLogger(WebSocketManager.class);
@@ -32,10 +33,12 @@ class WebSocketManager {
      * @param webSocketPort the WebSocket port to use.
      */
     @SuppressFBWarnings(value = "ST_WRITE_TO_STATIC_FROM_INSTANCE_METHOD",
-                        justification = "The writing to WebSocketManager.topologyService happens only once on startup")
+                        justification = "The writing to WebSocketManager.topologyService "
+                                        + "and WebSocketManager.publisher happens only once on startup")
     WebSocketManager(ITopologyService topologyService,
                      int webSocketPort) {
         WebSocketManager.topologyService = topologyService;
+        WebSocketManager.publisher = new TopologyWebSocketPublisher();
         this.webSocketPort = webSocketPort;
     }
 
@@ -45,6 +48,7 @@ class WebSocketManager {
     void startup() {
         log.debug("Starting WebSocket server on port {}", webSocketPort);
 
+        publisher.start();
         jettyServer = new JettyServer(webSocketPort);
         this.jettyServer.start();
     }
@@ -15,7 +15,6 @@ import org.slf4j.LoggerFactory;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.Output;
 import com.hazelcast.core.EntryEvent;
 import com.hazelcast.core.EntryListener;
 import com.hazelcast.core.HazelcastInstance;
@@ -44,11 +43,7 @@ public class HazelcastEventChannel<K, V> implements IEventChannel<K, V> {
     private final EntryListener<K, byte[]> mapEntryListener = new MapEntryListener();
     private String mapListenerId;    // The map listener ID
 
-    // TODO: We should use a single global KryoFactory instance
-    private final KryoFactory kryoFactory = new KryoFactory();
-
-    // Maximum serialized event size
-    private static final int MAX_BUFFER_SIZE = 64 * 1024;
+    private final KryoFactory kryoFactory = KryoFactory.getGlobalPool();
 
     /**
      * Constructor for a given event channel name.
@@ -183,16 +178,7 @@ public class HazelcastEventChannel<K, V> implements IEventChannel<K, V> {
         //
         // Encode the value
         //
-        byte[] buffer = new byte[MAX_BUFFER_SIZE];
-        Kryo kryo = kryoFactory.newKryo();
-        try {
-            Output output = new Output(buffer, -1);
-            kryo.writeClassAndObject(output, value);
-            byte[] valueBytes = output.toBytes();
-            return valueBytes;
-        } finally {
-            kryoFactory.deleteKryo(kryo);
-        }
+        return KryoFactory.serialize(value, -1);
     }
 
     /**
@@ -1,7 +1,15 @@
 package net.onrc.onos.core.datastore.hazelcast;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import net.onrc.onos.core.datagrid.HazelcastDatagrid;
 import net.onrc.onos.core.datastore.IKVClient;
@@ -34,6 +42,12 @@ public final class HZClient implements IKVClient {
 
     static final long VERSION_NONEXISTENT = 0L;
 
+    private static final Set<OPERATION> WRITE_OPERATIONS =
+            EnumSet.of(OPERATION.CREATE, OPERATION.FORCE_CREATE, OPERATION.UPDATE);
+
+    private static final Set<OPERATION> DELETE_OPERATIONS =
+            EnumSet.of(OPERATION.DELETE, OPERATION.FORCE_DELETE);
+
     private static final String MAP_PREFIX = "datastore://";
 
     private static final String BASE_CONFIG_FILENAME =
@@ -175,75 +189,159 @@ public final class HZClient implements IKVClient {
 
     @Override
     public boolean multiDelete(final Collection<IMultiEntryOperation> ops) {
-        boolean failExists = false;
-        for (IMultiEntryOperation op : ops) {
-            HZMultiEntryOperation mop = (HZMultiEntryOperation) op;
-            switch (mop.getOperation()) {
-                case DELETE:
-                    try {
-                        final long version = delete(mop.getTableId(), mop.getKey(), mop.getVersion());
-                        mop.setVersion(version);
-                        mop.setStatus(STATUS.SUCCESS);
-                    } catch (ObjectDoesntExistException | WrongVersionException e) {
-                        log.error(mop + " failed.", e);
-                        mop.setStatus(STATUS.FAILED);
-                        failExists = true;
-                    }
-                    break;
-                case FORCE_DELETE:
-                    final long version = forceDelete(mop.getTableId(), mop.getKey());
-                    mop.setVersion(version);
-                    mop.setStatus(STATUS.SUCCESS);
-                    break;
-                default:
-                    throw new UnsupportedOperationException(mop.toString());
-            }
-        }
-        return failExists;
+        return executeWriteOps(ops, DELETE_OPERATIONS);
     }
 
     @Override
     public boolean multiWrite(final List<IMultiEntryOperation> ops) {
-        // there may be room to batch to improve performance
+        return executeWriteOps(ops, WRITE_OPERATIONS);
+    }
+
+    /**
+     * Executes write operations as EntryProcessors.
+     * <p/>
+     * The operations are submitted asynchronously, each to the member owning
+     * the entry, and their results are collected once all of them have been
+     * submitted. Operations on the same entry are executed in order.
+     *
+     * @param ops operations to execute
+     * @param supported operations accepted by the caller
+     * @return true if there exists a failed operation
+     */
+    private boolean executeWriteOps(final Collection<IMultiEntryOperation> ops,
+                                    final Set<OPERATION> supported) {
+        for (IMultiEntryOperation op : ops) {
+            if (!supported.contains(op.getOperation())) {
+                throw new UnsupportedOperationException(op.toString());
+            }
+        }
+
         boolean failExists = false;
+        final List<PendingWrite> pending = new ArrayList<>(ops.size());
+        final Set<List<Object>> pendingEntries = new HashSet<>();
         for (IMultiEntryOperation op : ops) {
             IModifiableMultiEntryOperation mop = (IModifiableMultiEntryOperation) op;
+            HZTable table = (HZTable) mop.getTableId();
+            final byte[] key = mop.getKey();
+
+            if (!pendingEntries.add(Arrays.<Object>asList(table.getTableName(),
+                    ByteBuffer.wrap(key)))) {
+                // wait for the preceding operation on the same entry
+                failExists |= completeWriteOps(pending);
+                pending.clear();
+                pendingEntries.clear();
+                pendingEntries.add(Arrays.<Object>asList(table.getTableName(),
+                        ByteBuffer.wrap(key)));
+            }
+
+            final VersionedWriteProcessor processor;
             switch (mop.getOperation()) {
                 case CREATE:
-                    try {
-                        long version = create(mop.getTableId(), mop.getKey(), mop.getValue());
-                        mop.setVersion(version);
-                        mop.setStatus(STATUS.SUCCESS);
-                    } catch (ObjectExistsException e) {
-                        log.error(mop + " failed.", e);
-                        mop.setStatus(STATUS.FAILED);
-                        failExists = true;
-                    }
+                    processor = VersionedWriteProcessor.create(mop.getValue(),
+                            HZTable.getInitialVersion());
                     break;
-                case FORCE_CREATE: {
-                    final long version = forceCreate(mop.getTableId(), mop.getKey(), mop.getValue());
-                    mop.setVersion(version);
-                    mop.setStatus(STATUS.SUCCESS);
+                case FORCE_CREATE:
+                    processor = VersionedWriteProcessor.forceCreate(mop.getValue(),
+                            HZTable.getInitialVersion());
                     break;
-                }
                 case UPDATE:
-                    try {
-                        long version = update(mop.getTableId(), mop.getKey(), mop.getValue(), mop.getVersion());
-                        mop.setVersion(version);
-                        mop.setStatus(STATUS.SUCCESS);
-                    } catch (ObjectDoesntExistException | WrongVersionException e) {
-                        log.error(mop + " failed.", e);
-                        mop.setStatus(STATUS.FAILED);
-                        failExists = true;
-                    }
+                    processor = VersionedWriteProcessor.update(mop.getValue(),
+                            mop.getVersion());
+                    break;
+                case DELETE:
+                    processor = VersionedWriteProcessor.delete(mop.getVersion());
+                    break;
+                case FORCE_DELETE:
+                    processor = VersionedWriteProcessor.forceDelete();
                     break;
                 default:
                     throw new UnsupportedOperationException(mop.toString());
             }
+            pending.add(new PendingWrite(mop, processor,
+                    table.getBackendMap().submitToKey(key, processor)));
+        }
+        failExists |= completeWriteOps(pending);
+        return failExists;
+    }
+
+    /**
+     * Waits for submitted write operations and sets their status and version.
+     *
+     * @param pending submitted operations
+     * @return true if there exists a failed operation
+     */
+    private boolean completeWriteOps(final List<PendingWrite> pending) {
+        boolean failExists = false;
+        for (PendingWrite write : pending) {
+            final IModifiableMultiEntryOperation mop = write.op;
+            final Long previousVersion;
+            try {
+                previousVersion = (Long) write.future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error(mop + " interrupted.", e);
+                mop.setStatus(STATUS.FAILED);
+                failExists = true;
+                continue;
+            } catch (ExecutionException e) {
+                log.error(mop + " failed.", e);
+                mop.setStatus(STATUS.FAILED);
+                failExists = true;
+                continue;
+            }
+
+            if (write.processor.isApplicable(previousVersion)) {
+                mop.setVersion(write.processor.getResultVersion(previousVersion));
+                mop.setStatus(STATUS.SUCCESS);
+            } else {
+                log.error(mop + " failed.", getFailureCause(mop, write.processor,
+                        previousVersion));
+                mop.setStatus(STATUS.FAILED);
+                failExists = true;
+            }
         }
         return failExists;
     }
 
+    /**
+     * Creates the exception the corresponding HZTable method would have
+     * thrown for a write operation which was not applied.
+     *
+     * @param mop the operation
+     * @param processor the processor executing the operation
+     * @param previousVersion version of the entry, or null if it did not exist
+     * @return the exception
+     */
+    private static Exception getFailureCause(final IModifiableMultiEntryOperation mop,
+                                             final VersionedWriteProcessor processor,
+                                             final Long previousVersion) {
+        if (mop.getOperation() == OPERATION.CREATE) {
+            return new ObjectExistsException(mop.getTableId(), mop.getKey());
+        }
+        if (previousVersion == null) {
+            return new ObjectDoesntExistException(mop.getTableId(), mop.getKey());
+        }
+        return new WrongVersionException(mop.getTableId(), mop.getKey(),
+                processor.getExpectedVersion(), previousVersion);
+    }
+
+    /**
+     * Write operation submitted to Hazelcast.
+     */
+    private static final class PendingWrite {
+        final IModifiableMultiEntryOperation op;
+        final VersionedWriteProcessor processor;
+        final Future<?> future;
+
+        PendingWrite(final IModifiableMultiEntryOperation op,
+                     final VersionedWriteProcessor processor,
+                     final Future<?> future) {
+            this.op = op;
+            this.processor = processor;
+            this.future = future;
+        }
+    }
+
     @Override
     public boolean multiRead(final Collection<IMultiEntryOperation> ops) {
         boolean failExists = false;
@@ -6,7 +6,8 @@ import com.hazelcast.nio.serialization.DataSerializableFactory;
 import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
 
 /**
- * IdentifiedDataSerializableFactory for HZTable.VersionedValue class.
+ * IdentifiedDataSerializableFactory for HZTable.VersionedValue and
+ * VersionedWriteProcessor classes.
  */
 public class VersionedValueSerializableFactory implements
         DataSerializableFactory {
@@ -17,6 +18,9 @@ public class VersionedValueSerializableFactory implements
             case HazelcastSerializationConstants.VERSIONED_VALUE_TYPE_ID:
                 return new HZTable.VersionedValue();
 
+            case HazelcastSerializationConstants.VERSIONED_WRITE_PROCESSOR_TYPE_ID:
+                return new VersionedWriteProcessor();
+
             default:
                 return null;
         }
@@ -0,0 +1,228 @@
+package net.onrc.onos.core.datastore.hazelcast;
+
+import java.io.IOException;
+import java.util.Map;
+
+import net.onrc.onos.core.datastore.hazelcast.HZTable.VersionedValue;
+import net.onrc.onos.core.util.serializers.HazelcastSerializationConstants;
+
+import com.hazelcast.map.EntryBackupProcessor;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
+
+/**
+ * EntryProcessor applying a conditional write to a {@link VersionedValue}
+ * entry on the member owning the entry.
+ * <p/>
+ * The processor performs the same version checks as the HZTable write
+ * methods, atomically and without locking the entry. It returns the version
+ * of the entry before the write, or null if the entry did not exist, from
+ * which the caller can tell whether the write was applied using
+ * {@link #isApplicable(Long)}.
+ * <p/>
+ * The new version of the entry is chosen by the caller, so that the processor
+ * gives the same result when it is applied to the backup replicas.
+ */
+class VersionedWriteProcessor
+        implements EntryProcessor<byte[], VersionedValue>,
+                   EntryBackupProcessor<byte[], VersionedValue>,
+                   IdentifiedDataSerializable {
+
+    private static final long serialVersionUID = 6528313440542215237L;
+
+    private static final byte CREATE = 0;
+    private static final byte FORCE_CREATE = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+    private static final byte FORCE_DELETE = 4;
+
+    private byte type;
+    private byte[] value;
+    private long expectedVersion;
+    private long newVersion;
+
+    /**
+     * Default constructor for deserialization.
+     */
+    protected VersionedWriteProcessor() {
+        value = new byte[0];
+        expectedVersion = HZClient.VERSION_NONEXISTENT;
+        newVersion = HZClient.VERSION_NONEXISTENT;
+    }
+
+    private VersionedWriteProcessor(final byte type, final byte[] value,
+            final long expectedVersion, final long newVersion) {
+        this.type = type;
+        this.value = (value == null) ? new byte[0] : value;
+        this.expectedVersion = expectedVersion;
+        this.newVersion = newVersion;
+    }
+
+    /**
+     * Creates a processor creating an entry if it does not exist.
+     *
+     * @param value value of the entry
+     * @param version initial version of the entry
+     * @return the processor
+     */
+    static VersionedWriteProcessor create(final byte[] value, final long version) {
+        return new VersionedWriteProcessor(CREATE, value,
+                HZClient.VERSION_NONEXISTENT, version);
+    }
+
+    /**
+     * Creates a processor creating or overwriting an entry.
+     *
+     * @param value value of the entry
+     * @param version initial version of the entry
+     * @return the processor
+     */
+    static VersionedWriteProcessor forceCreate(final byte[] value, final long version) {
+        return new VersionedWriteProcessor(FORCE_CREATE, value,
+                HZClient.VERSION_NONEXISTENT, version);
+    }
+
+    /**
+     * Creates a processor updating an entry if its version matches.
+     *
+     * @param value new value of the entry
+     * @param version expected current version of the entry
+     * @return the processor
+     */
+    static VersionedWriteProcessor update(final byte[] value, final long version) {
+        return new VersionedWriteProcessor(UPDATE, value,
+                version, HZTable.getNextVersion(version));
+    }
+
+    /**
+     * Creates a processor deleting an entry if its version matches.
+     *
+     * @param version expected current version of the entry
+     * @return the processor
+     */
+    static VersionedWriteProcessor delete(final long version) {
+        return new VersionedWriteProcessor(DELETE, null,
+                version, HZClient.VERSION_NONEXISTENT);
+    }
+
+    /**
+     * Creates a processor deleting an entry regardless of its version.
+     *
+     * @return the processor
+     */
+    static VersionedWriteProcessor forceDelete() {
+        return new VersionedWriteProcessor(FORCE_DELETE, null,
+                HZClient.VERSION_NONEXISTENT, HZClient.VERSION_NONEXISTENT);
+    }
+
+    /**
+     * Checks whether the write is applied to an entry.
+     *
+     * @param previousVersion version of the entry before the write,
+     *                        or null if the entry did not exist
+     * @return true if the write is applied
+     */
+    boolean isApplicable(final Long previousVersion) {
+        switch (type) {
+            case CREATE:
+                return previousVersion == null;
+            case UPDATE:
+            case DELETE:
+                return previousVersion != null
+                        && previousVersion.longValue() == expectedVersion;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Gets the version to report for an applied write, following the HZTable
+     * write methods: the new version for writes, and the version of the
+     * removed entry for deletes.
+     *
+     * @param previousVersion version of the entry before the write,
+     *                        or null if the entry did not exist
+     * @return the version
+     */
+    long getResultVersion(final Long previousVersion) {
+        switch (type) {
+            case DELETE:
+            case FORCE_DELETE:
+                return (previousVersion == null)
+                        ? HZClient.VERSION_NONEXISTENT : previousVersion;
+            default:
+                return newVersion;
+        }
+    }
+
+    /**
+     * Gets the expected current version of the entry.
+     *
+     * @return the expected version
+     */
+    long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    @Override
+    public Object process(final Map.Entry<byte[], VersionedValue> entry) {
+        final VersionedValue current = entry.getValue();
+        final Long previousVersion = (current == null) ? null : current.getVersion();
+        if (!isApplicable(previousVersion)) {
+            return previousVersion;
+        }
+        switch (type) {
+            case DELETE:
+            case FORCE_DELETE:
+                entry.setValue(null);
+                break;
+            default:
+                entry.setValue(new VersionedValue(value, newVersion));
+                break;
+        }
+        return previousVersion;
+    }
+
+    @Override
+    public EntryBackupProcessor<byte[], VersionedValue> getBackupProcessor() {
+        return this;
+    }
+
+    @Override
+    public void processBackup(final Map.Entry<byte[], VersionedValue> entry) {
+        process(entry);
+    }
+
+    @Override
+    public void writeData(final ObjectDataOutput out) throws IOException {
+        out.writeByte(type);
+        out.writeLong(expectedVersion);
+        out.writeLong(newVersion);
+        out.writeInt(value.length);
+        if (value.length > 0) {
+            out.write(value);
+        }
+    }
+
+    @Override
+    public void readData(final ObjectDataInput in) throws IOException {
+        type = in.readByte();
+        expectedVersion = in.readLong();
+        newVersion = in.readLong();
+        final int valueLen = in.readInt();
+        value = new byte[valueLen];
+        in.readFully(value);
+    }
+
+    @Override
+    public int getFactoryId() {
+        return HazelcastSerializationConstants.VERSIONED_VALUE_SERIALIZABLE_FACTORY_ID;
+    }
+
+    @Override
+    public int getId() {
+        return HazelcastSerializationConstants.VERSIONED_WRITE_PROCESSOR_TYPE_ID;
+    }
+}
@@ -17,13 +17,13 @@ import net.onrc.onos.core.datastore.ObjectDoesntExistException;
 import net.onrc.onos.core.datastore.ObjectExistsException;
 import net.onrc.onos.core.datastore.WrongVersionException;
 import net.onrc.onos.core.datastore.internal.IModifiableMultiEntryOperation;
+import net.onrc.onos.core.util.serializers.KryoFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.Output;
 
 /**
  * Class to represent an Object represented as a single K-V pair Value blob.
@@ -194,10 +194,8 @@ public class KVObject {
                                           final Map<Object, Object> propMap) {
 
         // value
-        byte[] rcTemp = new byte[1024 * 1024];
-        Output output = new Output(rcTemp);
-        kryo.writeObject(output, propMap);
-        return output.toBytes();
+        return KryoFactory.serializeObject(kryo, propMap,
+                                           DataStoreClient.MAX_VALUE_BYTES);
     }
 
 
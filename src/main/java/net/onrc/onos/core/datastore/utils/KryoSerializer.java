@@ -3,9 +3,9 @@ package net.onrc.onos.core.datastore.utils;
 import javax.annotation.concurrent.ThreadSafe;
 
 import net.onrc.onos.core.datastore.DataStoreClient;
+import net.onrc.onos.core.util.serializers.KryoFactory;
 
 import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.Output;
 
 /**
  * {@link Serializer} implementation using Kryo.
@@ -28,9 +28,8 @@ public final class KryoSerializer
     @Override
     public byte[] serialize(Object obj) {
         // 1MB RAMCloud limit
-        Output out = new Output(DataStoreClient.MAX_VALUE_BYTES);
-        kryo.get().writeClassAndObject(out, obj);
-        return out.toBytes();
+        return KryoFactory.serialize(kryo.get(), obj,
+                                     DataStoreClient.MAX_VALUE_BYTES);
     }
 
     @Override
@@ -96,41 +96,6 @@ public class OFSwitchImplDellOSR extends OFSwitchImplSpringOpenTTP {
     }
     */
 
-    /*
-    protected void createGroupsAtTransitRouter(Set<Dpid> dpids) {
-        // Create all possible Neighbor sets from this router
-        //NOTE: Avoid any pairings of edge routers only
-
-        Set<Set<Dpid>> sets = getPowerSetOfNeighbors(dpids);
-        sets = filterEdgeRouterOnlyPairings(sets);
-        log.debug("createGroupsAtTransitRouter: The size of neighbor powerset "
-                + "for sw {} is {}", getStringId(), sets.size());
-        Set<NeighborSet> nsSet = new HashSet<NeighborSet>();
-        for (Set<Dpid> combo : sets) {
-            if (combo.isEmpty())
-                continue;
-            for (groupPktType gType : groupPktType.values()) {
-                NeighborSet ns = new NeighborSet();
-                ns.addDpids(combo);
-                ns.setOutPktType(gType);
-                log.debug("createGroupsAtTransitRouter: sw {} combo {} ns {}",
-                        getStringId(), combo, ns);
-                nsSet.add(ns);
-            }
-        }
-        log.debug("createGroupsAtTransitRouter: The neighborset with label "
-                + "for sw {} is {}", getStringId(), nsSet);
-
-        for (NeighborSet ns : nsSet) {
-            updatePortNeighborSetMap(ns);
-            int gid = createGroupForANeighborSet(ns);
-            if (gid == -1) {
-                log.warn("Create Group failed with -1");
-            }
-        }
-    }
-   */
-
     /*
     protected void analyzeAndUpdateMplsActions(
             MatchActionOperationEntry mao) {
@@ -29,7 +29,6 @@ import net.onrc.onos.core.configmanager.INetworkConfigService;
 import net.onrc.onos.core.configmanager.INetworkConfigService.NetworkConfigState;
 import net.onrc.onos.core.configmanager.INetworkConfigService.SwitchConfigStatus;
 import net.onrc.onos.core.configmanager.NetworkConfig.LinkConfig;
-import net.onrc.onos.core.configmanager.NetworkConfig.SwitchConfig;
 import net.onrc.onos.core.configmanager.NetworkConfigManager;
 import net.onrc.onos.core.configmanager.PktLinkConfig;
 import net.onrc.onos.core.configmanager.SegmentRouterConfig;
@@ -153,14 +152,19 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
     private SegmentRouterConfig srConfig;
     protected ConcurrentMap<Dpid, Set<PortNumber>> neighbors;
     protected ConcurrentMap<PortNumber, Dpid> portToNeighbors;
-    private List<Integer> segmentIds;
-    private boolean isEdgeRouter;
     private ConcurrentMap<NeighborSet, EcmpInfo> nsToGroups;
     private ConcurrentMap<Integer, EcmpInfo> userDefinedGroups;
     private ConcurrentMap<PortNumber, HashSet<NeighborSet>> portNeighborSetMap;
     private ConcurrentMap<List<BucketInfo>, List<Integer>> auditBucketToGroupIds;
     private ConcurrentMap<Integer, EcmpInfo> ecmpGroups;
     private AtomicInteger groupid;
+    /* ECMP group references of the flows pushed with pushFlows, guarded
+     * by groupLock
+     */
+    private final Object groupLock = new Object();
+    private final Map<FlowKey, Set<NeighborSet>> flowNeighborSets =
+            new HashMap<FlowKey, Set<NeighborSet>>();
+    private GroupBatch groupBatch;
     private Map<String, String> publishAttributes;
 
     /* Set the default values. These variables will get
@@ -185,8 +189,6 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
         userDefinedGroups = new ConcurrentHashMap<Integer, EcmpInfo>();
         portNeighborSetMap =
                 new ConcurrentHashMap<PortNumber, HashSet<NeighborSet>>();
-        segmentIds = new ArrayList<Integer>();
-        isEdgeRouter = false;
         groupid = new AtomicInteger(0);
         this.usePipeline13 = usePipeline13;
     }
@@ -608,7 +610,8 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
         write(tableMissEntry, null);
     }
 
-    private boolean getNetworkConfig() {
+    // This "protected" modifier is for unit test.
+    protected boolean getNetworkConfig() {
         INetworkConfigService ncs = floodlightProvider.getNetworkConfigService();
         SwitchConfigStatus scs = ncs.checkSwitchConfig(new Dpid(getId()));
         if (scs.getConfigState() != NetworkConfigState.ACCEPT_ADD) {
@@ -621,14 +624,9 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
             log.error("Switch {} configuration is null.. aborting", getStringId());
             return false;
         }
-        isEdgeRouter = srConfig.isEdgeRouter();
         List<LinkConfig> linkConfigList = ncs.getConfiguredAllowedLinks();
         setNeighbors(linkConfigList);
 
-        if (isEdgeRouter) {
-            List<SwitchConfig> switchList = ncs.getConfiguredAllowedSwitches();
-            getAllNodeSegmentIds(switchList);
-        }
         return true;
     }
 
@@ -740,17 +738,6 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
         }
     }
 
-    private boolean isEdgeRouter(Dpid ndpid) {
-        INetworkConfigService ncs = floodlightProvider.getNetworkConfigService();
-        SwitchConfigStatus scs = ncs.checkSwitchConfig(ndpid);
-        if (scs.getConfigState() == NetworkConfigState.ACCEPT_ADD) {
-            return ((SegmentRouterConfig) scs.getSwitchConfig()).isEdgeRouter();
-        } else {
-            // TODO: return false if router not allowed
-            return false;
-        }
-    }
-
     private MacAddress getNeighborRouterMacAddress(Dpid ndpid) {
         INetworkConfigService ncs = floodlightProvider.getNetworkConfigService();
         SwitchConfigStatus scs = ncs.checkSwitchConfig(ndpid);
@@ -816,89 +803,15 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
             portToNeighbors.put(portToNeighbor, neighborDpid);
     }
 
-    private void getAllNodeSegmentIds(List<SwitchConfig> switchList) {
-        for (SwitchConfig sc : switchList) {
-            /* TODO: Do we need to check if the SwitchConfig is of
-             * type SegmentRouter?
-             */
-            if (sc.getDpid() == getId()) {
-                continue;
-            }
-            segmentIds.add(((SegmentRouterConfig) sc).getNodeSid());
-        }
-        log.debug("getAllNodeSegmentIds: at sw {} are {}",
-                getStringId(), segmentIds);
-    }
-
-    private boolean isSegmentIdSameAsNodeSegmentId(Dpid dpid, int sId) {
-        INetworkConfigService ncs = floodlightProvider.getNetworkConfigService();
-        SwitchConfigStatus scs = ncs.checkSwitchConfig(dpid);
-        if (scs.getConfigState() == NetworkConfigState.ACCEPT_ADD) {
-            return (((SegmentRouterConfig) scs.getSwitchConfig()).
-                    getNodeSid() == sId);
-        } else {
-            // TODO: return false if router not allowed
-            return false;
-        }
-    }
-
-    protected Set<Set<Dpid>> getPowerSetOfNeighbors(Set<Dpid> neighbors) {
-        List<Dpid> list = new ArrayList<Dpid>(neighbors);
-        Set<Set<Dpid>> sets = new HashSet<Set<Dpid>>();
-        /* get the number of elements in the neighbors */
-        int elements = list.size();
-        /* the number of members of a power set is 2^n
-         * including the empty set
-         */
-        int powerElements = (1 << elements);
-
-        /* run a binary counter for the number of power elements
-         * NOTE: Exclude empty set
-         */
-        for (long i = 1; i < powerElements; i++) {
-            Set<Dpid> dpidSubSet = new HashSet<Dpid>();
-            for (int j = 0; j < elements; j++) {
-                if ((i >> j) % 2 == 1) {
-                    dpidSubSet.add(list.get(j));
-                }
-            }
-            sets.add(dpidSubSet);
-        }
-        return sets;
-    }
-
-    protected Set<Set<Dpid>> filterEdgeRouterOnlyPairings(Set<Set<Dpid>> sets) {
-        Set<Set<Dpid>> fiteredSets = new HashSet<Set<Dpid>>();
-        for (Set<Dpid> dpidSubSet : sets) {
-            if (dpidSubSet.size() > 1) {
-                boolean avoidEdgeRouterPairing = true;
-                for (Dpid dpid : dpidSubSet) {
-                    if (!isEdgeRouter(dpid)) {
-                        avoidEdgeRouterPairing = false;
-                        break;
-                    }
-                }
-                if (!avoidEdgeRouterPairing)
-                    fiteredSets.add(dpidSubSet);
-            }
-            else
-                fiteredSets.add(dpidSubSet);
-
-        }
-        return fiteredSets;
-    }
-
-    private Set<Set<Dpid>> getAllNeighborSets(Set<Dpid> neighbors) {
-        Set<Set<Dpid>> sets = getPowerSetOfNeighbors(neighbors);
-        if (!isEdgeRouter) {
-            /* NOTE: Avoid any pairings of edge routers only
-             * at a backbone router */
-            sets = filterEdgeRouterOnlyPairings(sets);
-        }
-        return sets;
+    protected int createGroupForANeighborSet(NeighborSet ns) {
+        return createGroupForANeighborSet(ns, null);
     }
 
-    protected int createGroupForANeighborSet(NeighborSet ns) {
+    /* Creates the group of a neighbor set. The GroupAdd is added to
+     * groupMods if it is not null, otherwise it is sent right away.
+     */
+    private int createGroupForANeighborSet(NeighborSet ns,
+            List<OFMessage> groupMods) {
         int groupId = -1;
         List<BucketInfo> buckets = new ArrayList<BucketInfo>();
         for (Dpid d : ns.getDpids()) {
@@ -939,7 +852,14 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
             else {
                 groupId = getNextFreeGroupId();
                 EcmpInfo ecmpInfo = new EcmpInfo(groupId, OFGroupType.SELECT, buckets);
-                setEcmpGroup(ecmpInfo);
+                if (groupMods == null) {
+                    setEcmpGroup(ecmpInfo);
+                } else {
+                    OFMessage gm = buildEcmpGroupAdd(ecmpInfo);
+                    if (gm != null) {
+                        groupMods.add(gm);
+                    }
+                }
                 nsToGroups.put(ns, ecmpInfo);
                 ecmpGroups.put(groupId, ecmpInfo);
                 log.debug(
@@ -968,42 +888,6 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
         }
     }
 
-    protected List<Integer> getSegmentIdsTobePairedWithNeighborSet(
-            Set<Dpid> dpids) {
-
-        List<Integer> nsSegmentIds = new ArrayList<Integer>();
-
-        /* Add one entry for "no label" (-1) to the list if
-         * dpid list has not more than one node/neighbor as
-         * there will never be a case a packet going to more than one
-         * neighbor without a label at an edge router
-         */
-        if (dpids.size() == 1) {
-            nsSegmentIds.add(-1);
-        }
-        if (!segmentIds.isEmpty()) {
-            /* Filter out SegmentIds matching with the
-             * nodes in the combo
-             */
-            for (Integer sId : segmentIds) {
-                boolean filterOut = false;
-                /* Check if the edge label being set is of
-                 * any node in the Neighbor set
-                 */
-                for (Dpid dpid : dpids) {
-                    if (isSegmentIdSameAsNodeSegmentId(dpid, sId)) {
-                        filterOut = true;
-                        break;
-                    }
-                }
-                if (!filterOut)
-                    nsSegmentIds.add(sId);
-            }
-        }
-
-        return nsSegmentIds;
-    }
-
     private int getNextFreeGroupId() {
         int groupId = groupid.incrementAndGet();
 
@@ -1014,238 +898,24 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
         return groupId;
     }
 
-    protected void createGroupsAtEdgeRouter(Set<Dpid> dpids) {
-        /* Create all possible Neighbor sets from this router
-         */
-        Set<Set<Dpid>> powerSet = getPowerSetOfNeighbors(dpids);
-        log.debug("createGroupsAtEdgeRouter: The size of neighbor powerset "
-                + "for sw {} is {}", getStringId(), powerSet.size());
-        Set<NeighborSet> nsSet = new HashSet<NeighborSet>();
-        for (Set<Dpid> combo : powerSet) {
-            if (combo.isEmpty())
-                continue;
-            List<Integer> groupSegmentIds =
-                    getSegmentIdsTobePairedWithNeighborSet(combo);
-            if (!groupSegmentIds.isEmpty()) {
-                for (Integer sId : groupSegmentIds) {
-                    NeighborSet ns = new NeighborSet();
-                    ns.addDpids(combo);
-                    ns.setEdgeLabel(sId);
-                    log.debug("createGroupsAtEdgeRouter: sw {} combo {} sId {} ns {}",
-                            getStringId(), combo, sId, ns);
-                    nsSet.add(ns);
-                }
-            }
-        }
-        log.debug("createGroupsAtEdgeRouter: The neighborset with label for sw {} is {}",
-                getStringId(), nsSet);
-
-        for (NeighborSet ns : nsSet) {
-            updatePortNeighborSetMap(ns);
-            // synchronizeGroupsBwControllerAndSwitch();
-
-            /* Create the bucket array from the neighbor set */
-            List<BucketInfo> buckets = new ArrayList<BucketInfo>();
-            for (Dpid d : ns.getDpids()) {
-                for (PortNumber sp : neighbors.get(d)) {
-                    if (portEnabled((int) sp.value())) {
-                        BucketInfo b = new BucketInfo(d,
-                                MacAddress.of(srConfig.getRouterMac()),
-                                getNeighborRouterMacAddress(d, ns.getOutPktType()),
-                                sp, ns.getEdgeLabel(), true, -1);
-                        buckets.add(b);
-                    }
-                    else
-                    {
-                        log.debug("createGroupsAtEdgeRouter: Sw {} "
-                                + "Port {} to Neighbor {} is not "
-                                + "enabled and hence not including in buckets",
-                                getStringId(), sp, d);
-                    }
-                }
-            }
-
-            /* Check if switch already had a group with the same list of
-             * buckets. If so, knock off that group from auditBucketToGroupIds
-             * database and insert into nsToGroups database
-             */
-            Collections.sort(buckets);
-            log.debug(
-                    "createGroupsAtEdgeRouter: Sw {} auditBucketToGroupIds {} ",
-                    getStringId(), auditBucketToGroupIds);
-            log.debug(
-                    "createGroupsAtEdgeRouter: Sw {} Search buckets {} in auditBucketToGroupIds",
-                    getStringId(), buckets);
-            List<Integer> groupIds = auditBucketToGroupIds.get(buckets);
-            int groupId;
-            if (groupIds != null) {
-                /* Pop the top most group Ids for this list of buckets */
-                groupId = groupIds.get(0);
-                groupIds.remove(0);
-                if (groupIds.isEmpty())
-                    auditBucketToGroupIds.remove(buckets);
-                EcmpInfo ecmpInfo = new EcmpInfo(groupId, OFGroupType.SELECT, buckets);
-                nsToGroups.put(ns, ecmpInfo);
-                log.debug(
-                        "createGroupsAtEdgeRouter: No group created in sw {} "
-                                + "for neighborset {} as group already "
-                                + "exists with groupId {}",
-                        getStringId(), ns, groupId);
-            }
-            else
-            {
-                if (buckets.isEmpty()) {
-                    log.warn(
-                            "createGroupsAtEdgeRouter: No group created "
-                                    + "in sw {} for neighbor set {} "
-                                    + "as there are no buckets",
-                            getStringId(), ns);
-                }
-                else {
-                    groupId = getNextFreeGroupId();
-                    EcmpInfo ecmpInfo = new EcmpInfo(groupId, OFGroupType.SELECT, buckets);
-                    setEcmpGroup(ecmpInfo);
-                    nsToGroups.put(ns, ecmpInfo);
-                    ecmpGroups.put(groupId, ecmpInfo);
-                    log.debug(
-                            "createGroupsAtEdgeRouter: Creating ecmp group {} in sw {} "
-                                    + "for neighbor set {} with: {}",
-                            groupId, getStringId(), ns, ecmpInfo);
-                }
-            }
-        }
-
-        /* Handle rest of the entries in the auditBucketToGroupIds
-         * (if any left over) NOTE: These may be user defined groups
-         * or run time created groups
-         */
-        //auditBucketToGroupIds.
-        // for
-    }
-
-    protected void createGroupsAtTransitRouter(Set<Dpid> dpids) {
-        /* Create all possible Neighbor sets from this router
-         * NOTE: Avoid any pairings of edge routers only
-         */
-        Set<Set<Dpid>> sets = getPowerSetOfNeighbors(dpids);
-        sets = filterEdgeRouterOnlyPairings(sets);
-        log.debug("createGroupsAtTransitRouter: The size of neighbor powerset "
-                + "for sw {} is {}", getStringId(), sets.size());
-        Set<NeighborSet> nsSet = new HashSet<NeighborSet>();
-        for (Set<Dpid> combo : sets) {
-            if (combo.isEmpty())
-                continue;
-            NeighborSet ns = new NeighborSet();
-            ns.addDpids(combo);
-            log.debug("createGroupsAtTransitRouter: sw {} combo {} ns {}",
-                    getStringId(), combo, ns);
-            nsSet.add(ns);
-        }
-        log.debug("createGroupsAtTransitRouter: The neighborset with label "
-                + "for sw {} is {}", getStringId(), nsSet);
-
-        for (NeighborSet ns : nsSet) {
-            updatePortNeighborSetMap(ns);
-            // synchronizeGroupsBwControllerAndSwitch();
-
-            /* Create the bucket array from the neighbor set */
-            List<BucketInfo> buckets = new ArrayList<BucketInfo>();
-            for (Dpid d : ns.getDpids()) {
-                for (PortNumber sp : neighbors.get(d)) {
-                    if (portEnabled((int) sp.value())) {
-                        BucketInfo b = new BucketInfo(d,
-                                MacAddress.of(srConfig.getRouterMac()),
-                                getNeighborRouterMacAddress(d, ns.getOutPktType()),
-                                sp, ns.getEdgeLabel(), true, -1);
-                        buckets.add(b);
-                    }
-                }
-            }
-
-            /* Check if switch already had a group with the same list of
-             * buckets. If so, knock off that group from auditBucketToGroupIds
-             * database and insert into nsToGroups database
-             */
-            Collections.sort(buckets);
-            List<Integer> groupIds = auditBucketToGroupIds.get(buckets);
-            int groupId;
-            if (groupIds != null) {
-                /* Pop the top most group Ids for this list of buckets */
-                groupId = groupIds.get(0);
-                groupIds.remove(0);
-                if (groupIds.isEmpty())
-                    auditBucketToGroupIds.remove(buckets);
-                EcmpInfo ecmpInfo = new EcmpInfo(groupId, OFGroupType.SELECT, buckets);
-                nsToGroups.put(ns, ecmpInfo);
-                log.debug(
-                        "createGroupsAtTransitRouter: No group created in sw {} "
-                                + "for neighborset {} as group already "
-                                + "exists with groupId {}",
-                        getStringId(), ns, groupId);
-            }
-            else
-            {
-                if (buckets.isEmpty()) {
-                    log.warn(
-                            "createGroupsAtTransitRouter: No group created "
-                                    + "in sw {} for neighbor set {} "
-                                    + "as there are no buckets",
-                            getStringId(), ns);
-                }
-                else {
-                    groupId = getNextFreeGroupId();
-                    EcmpInfo ecmpInfo = new EcmpInfo(groupId, OFGroupType.SELECT, buckets);
-                    setEcmpGroup(ecmpInfo);
-                    nsToGroups.put(ns, ecmpInfo);
-                    ecmpGroups.put(groupId, ecmpInfo);
-                    log.debug(
-                            "createGroupsAtTransitRouter: Creating ecmp group {} in sw {} "
-                                    + "for neighbor set {} with: {}",
-                            groupId, getStringId(), ns, ecmpInfo);
-                }
-            }
-        }
-    }
-
     /**
-     * createGroups creates ECMP groups for all ports on this router connected
-     * to other routers (in the OF network). The information for ports is
-     * gleaned from the configured links. If no links are configured no groups
-     * will be created, and it is up to the caller of the IOF13Switch API to
-     * create groups.
-     * <p>
-     * By default all ports connected to the same neighbor router will be part
-     * of the same ECMP group. In addition, groups will be created for all
-     * possible combinations of neighbor routers.
-     * <p>
-     * For example, consider this router (R0) connected to 3 neighbors (R1, R2,
-     * and R3). The following groups will be created in R0:
-     * <li>1) all ports to R1,
-     * <li>2) all ports to R2,
-     * <li>3) all ports to R3,
-     * <li>4) all ports to R1 and R2
-     * <li>5) all ports to R1 and R3
-     * <li>6) all ports to R2 and R3
-     * <li>7) all ports to R1, R2, and R3
+     * createGroups used to create an ECMP group for every combination of
+     * neighbor routers at handshake, which grows exponentially with the
+     * number of neighbors. The ECMP groups are now created on demand, when a
+     * flow pushed with {@link #pushFlows(Collection)} first references a
+     * NeighborSet, and deleted once no flow references them.
      */
     private void createGroups() {
-
-        Set<Dpid> dpids = neighbors.keySet();
-        if (dpids == null || dpids.isEmpty()) {
-            return;
-        }
-
-        if (isEdgeRouter) {
-            createGroupsAtEdgeRouter(dpids);
-        }
-        else
-            createGroupsAtTransitRouter(dpids);
+        log.debug("ECMP groups for the {} neighbors of sw {} are created "
+                + "on demand", neighbors.size(), getStringId());
     }
 
     private class EcmpInfo {
         int groupId;
         OFGroupType groupType;
         List<BucketInfo> buckets;
+        /* Number of flows referencing the group, guarded by groupLock */
+        int refCount;
 
         EcmpInfo(int gid, OFGroupType gType, List<BucketInfo> bucketInfos) {
             groupId = gid;
@@ -1255,10 +925,61 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
 
         @Override
         public String toString() {
-            return "groupId: " + groupId + ", buckets: " + buckets;
+            return "groupId: " + groupId + ", buckets: " + buckets
+                    + ", refCount: " + refCount;
+        }
+    }
+
+    /**
+     * Identifies a flow entry by its table, match and priority, as a strict
+     * flow-mod does.
+     */
+    private static final class FlowKey {
+        private final TableId tableId;
+        private final org.projectfloodlight.openflow.protocol.match.Match match;
+        private final int priority;
+
+        FlowKey(OFFlowMod flowMod) {
+            tableId = flowMod.getTableId();
+            match = flowMod.getMatch();
+            priority = flowMod.getPriority();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FlowKey)) {
+                return false;
+            }
+            FlowKey that = (FlowKey) o;
+            return tableId.equals(that.tableId) && match.equals(that.match)
+                    && priority == that.priority;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 17;
+            result = 31 * result + tableId.hashCode();
+            result = 31 * result + match.hashCode();
+            result = 31 * result + priority;
+            return result;
         }
     }
 
+    /**
+     * The ECMP groups created and referenced while building the flow-mods of
+     * a pushFlows call.
+     */
+    private static final class GroupBatch {
+        /* GroupAdds to send before the flow-mods */
+        final List<OFMessage> groupAdds = new ArrayList<OFMessage>();
+        /* NeighborSets whose reference count dropped to zero in this batch */
+        final Set<NeighborSet> released = new HashSet<NeighborSet>();
+        /* NeighborSets referenced by the flow being built */
+        Set<NeighborSet> neighborSets;
+        /* Whether missing groups are created for the flow being built */
+        boolean createGroups;
+    }
+
     private class BucketInfo implements Comparable<BucketInfo> {
         Dpid neighborDpid;
         MacAddress srcMac;
@@ -1327,14 +1048,26 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
     }
 
     private void setEcmpGroup(EcmpInfo ecmpInfo) {
+        OFMessage gm = buildEcmpGroupAdd(ecmpInfo);
+        if (gm == null) {
+            return;
+        }
+        try {
+            write(Collections.singletonList(gm));
+        } catch (IOException e) {
+            // TODO Auto-generated catch block
+            e.printStackTrace();
+        }
+    }
+
+    private OFMessage buildEcmpGroupAdd(EcmpInfo ecmpInfo) {
         if ((ecmpInfo.buckets == null) || ecmpInfo.buckets.isEmpty()) {
             /* Only push the GroupAdd to the switch if the
              * bucket list is non-empty
              */
-            return;
+            return null;
         }
 
-        List<OFMessage> msglist = new ArrayList<OFMessage>();
         OFGroup group = OFGroup.of(ecmpInfo.groupId);
 
         List<OFBucket> buckets = new ArrayList<OFBucket>();
@@ -1408,20 +1141,21 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
                 .setGroupType(ecmpInfo.groupType)
                 .setXid(getNextTransactionId())
                 .build();
-        msglist.add(gm);
         log.debug("GroupAdd in sw {} groupId {}",
                 getStringId(), ecmpInfo.groupId);
+        return gm;
+    }
+
+    private void deleteGroup(EcmpInfo groupInfo) {
         try {
-            write(msglist);
+            write(Collections.singletonList(buildGroupDelete(groupInfo)));
         } catch (IOException e) {
             // TODO Auto-generated catch block
             e.printStackTrace();
         }
     }
 
-    private void deleteGroup(EcmpInfo groupInfo) {
-
-        List<OFMessage> msglist = new ArrayList<OFMessage>();
+    private OFMessage buildGroupDelete(EcmpInfo groupInfo) {
         OFGroup group = OFGroup.of(groupInfo.groupId);
 
         OFMessage gm = factory.buildGroupDelete()
@@ -1431,15 +1165,9 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
                 .setGroupType(OFGroupType.SELECT)
                 .setXid(getNextTransactionId())
                 .build();
-        msglist.add(gm);
         log.debug("GroupDelete in sw {} groupId {}",
                 getStringId(), groupInfo.groupId);
-        try {
-            write(msglist);
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
+        return gm;
     }
 
     private void modifyEcmpGroup(EcmpInfo ecmpInfo) {
@@ -1615,16 +1343,21 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
                 NeighborSet ns = ((GroupAction) action).getDpids();
                 EcmpInfo ei = nsToGroups.get(ns);
                 if (ei == null) {
-                    log.debug("Unable to find ecmp group for neighbors {} at "
-                            + "switch {} and hence creating it", ns, getStringId());
-                    updatePortNeighborSetMap(ns);
-                    gid = createGroupForANeighborSet(ns);
-                    if (gid == -1) {
-                        log.warn("Create Group failed with -1");
+                    if (groupBatch.createGroups) {
+                        log.debug("Unable to find ecmp group for neighbors {} at "
+                                + "switch {} and hence creating it", ns, getStringId());
+                        updatePortNeighborSetMap(ns);
+                        gid = createGroupForANeighborSet(ns, groupBatch.groupAdds);
+                        if (gid == -1) {
+                            log.warn("Create Group failed with -1");
+                        }
                     }
                 }
                 else
                     gid = ei.groupId;
+                if (gid > 0) {
+                    groupBatch.neighborSets.add(ns);
+                }
             }
             if (gid > 0) {
                 ofAction = factory.actions().buildGroup()
@@ -1940,10 +1673,7 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
 
     @Override
     public void pushFlow(MatchActionOperationEntry matchActionOp) throws IOException {
-        OFMessage ofm = getFlow(matchActionOp);
-        if (ofm != null) {
-            write(Collections.singletonList(ofm));
-        }
+        pushFlows(Collections.singletonList(matchActionOp));
     }
 
     private OFMessage getFlow(MatchActionOperationEntry matchActionOp) {
@@ -1965,23 +1695,126 @@ public class OFSwitchImplSpringOpenTTP extends OFSwitchImplBase implements IOF13
     @Override
     public void pushFlows(Collection<MatchActionOperationEntry> matchActionOps)
             throws IOException {
-        List<OFMessage> flowMods = new ArrayList<OFMessage>();
-        for (MatchActionOperationEntry matchActionOp : matchActionOps) {
-            OFMessage ofm = getFlow(matchActionOp);
-            if (ofm != null) {
-                flowMods.add(ofm);
+        synchronized (groupLock) {
+            GroupBatch batch = new GroupBatch();
+            List<OFMessage> flowMods = new ArrayList<OFMessage>();
+            groupBatch = batch;
+            try {
+                for (MatchActionOperationEntry matchActionOp : matchActionOps) {
+                    /* A removed flow does not need its groups */
+                    batch.createGroups =
+                            matchActionOp.getOperator() != Operator.REMOVE;
+                    batch.neighborSets = new HashSet<NeighborSet>();
+                    OFMessage ofm = getFlow(matchActionOp);
+                    if (ofm != null) {
+                        flowMods.add(ofm);
+                        updateGroupReferences(new FlowKey((OFFlowMod) ofm),
+                                matchActionOp.getOperator(), batch);
+                    }
+                }
+            } finally {
+                groupBatch = null;
+            }
+            List<OFMessage> groupDeletes = deleteUnusedGroups(batch);
+
+            /* The first barrier makes the switch add the groups before the
+             * flow-mods that use them, the second one removes the groups
+             * only after the flow-mods that stopped using them, as deleting
+             * a group also deletes the flows forwarding to it
+             */
+            List<OFMessage> msglist = new ArrayList<OFMessage>(
+                    batch.groupAdds.size() + flowMods.size()
+                    + groupDeletes.size() + 2);
+            if (!batch.groupAdds.isEmpty()) {
+                msglist.addAll(batch.groupAdds);
+                msglist.add(factory.buildBarrierRequest()
+                        .setXid(getNextTransactionId())
+                        .build());
             }
+            msglist.addAll(flowMods);
+            if (!groupDeletes.isEmpty()) {
+                msglist.add(factory.buildBarrierRequest()
+                        .setXid(getNextTransactionId())
+                        .build());
+                msglist.addAll(groupDeletes);
+            }
+            write(msglist);
+        }
+    }
+
+    /* Updates the group reference counts with the NeighborSets referenced
+     * by a flow. A group that is no longer referenced is deleted at the end
+     * of the same pushFlows call, after the flow-mods.
+     */
+    private void updateGroupReferences(FlowKey flowKey, Operator op,
+            GroupBatch batch) {
+        Set<NeighborSet> previous;
+        if (op == Operator.REMOVE) {
+            previous = flowNeighborSets.remove(flowKey);
+        } else {
+            for (NeighborSet ns : batch.neighborSets) {
+                EcmpInfo ei = nsToGroups.get(ns);
+                if (ei != null) {
+                    ei.refCount++;
+                }
+            }
+            if (batch.neighborSets.isEmpty()) {
+                previous = flowNeighborSets.remove(flowKey);
+            } else {
+                previous = flowNeighborSets.put(flowKey, batch.neighborSets);
+            }
+        }
+        if (previous == null) {
+            return;
+        }
+        for (NeighborSet ns : previous) {
+            EcmpInfo ei = nsToGroups.get(ns);
+            if (ei != null && --ei.refCount <= 0) {
+                ei.refCount = 0;
+                batch.released.add(ns);
+            }
+        }
+    }
+
+    /* Removes the groups released in a batch and not referenced again by a
+     * later flow of the batch, and returns their GroupDeletes
+     */
+    private List<OFMessage> deleteUnusedGroups(GroupBatch batch) {
+        List<OFMessage> groupDeletes = new ArrayList<OFMessage>();
+        for (NeighborSet ns : batch.released) {
+            EcmpInfo ei = nsToGroups.get(ns);
+            if (ei == null || ei.refCount > 0) {
+                continue;
+            }
+            for (HashSet<NeighborSet> portNeighborSets : portNeighborSetMap.values()) {
+                portNeighborSets.remove(ns);
+            }
+            nsToGroups.remove(ns);
+            ecmpGroups.remove(ei.groupId);
+            groupDeletes.add(buildGroupDelete(ei));
+            log.debug("Deleting unused ecmp group {} for neighbors {} in sw {}",
+                    ei.groupId, ns, getStringId());
         }
-        write(flowMods);
+        return groupDeletes;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The group is created on demand if no flow has referenced the
+     * NeighborSet yet. It is deleted once it has been referenced by flows
+     * pushed with {@link #pushFlows(Collection)} and the last of them is
+     * removed.
+     */
     @Override
     public int getEcmpGroupId(NeighborSet ns) {
-        EcmpInfo ei = nsToGroups.get(ns);
-        if (ei == null) {
-            return -1;
-        } else {
-            return ei.groupId;
+        synchronized (groupLock) {
+            EcmpInfo ei = nsToGroups.get(ns);
+            if (ei != null) {
+                return ei.groupId;
+            }
+            updatePortNeighborSetMap(ns);
+            return createGroupForANeighborSet(ns);
         }
     }
 
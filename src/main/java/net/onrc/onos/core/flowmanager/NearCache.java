@@ -0,0 +1,243 @@
+package net.onrc.onos.core.flowmanager;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.onrc.onos.core.metrics.OnosMetrics;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsComponent;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsFeature;
+import net.onrc.onos.core.util.serializers.KryoFactory;
+
+import com.codahale.metrics.Counter;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hazelcast.core.IMap;
+
+/**
+ * Local cache of the values of a shared map.
+ * <p>
+ * A value is loaded from the shared map on the first read, and is dropped
+ * from the cache whenever the entry is modified, either by this instance or
+ * through an entry event of the shared map. The absence of an entry is
+ * cached as well. The number of cached values is bounded; the least recently
+ * used values are evicted first.
+ * <p>
+ * The values are cached deserialized and each read returns a deep copy of
+ * the cached value, so the callers may modify the values they get without
+ * affecting the cache.
+ * <p>
+ * If key tracking is enabled, the cache also keeps the set of keys of the
+ * shared map up to date from the entry events, so that all the values can be
+ * listed without iterating over the shared map.
+ *
+ * @param <V> the type of the deserialized values
+ */
+class NearCache<V> {
+    private static final MetricsComponent METRICS_COMPONENT =
+            OnosMetrics.registerComponent("FlowManager");
+
+    private final IMap<String, byte[]> map;
+    private final Cache<String, Optional<V>> cache;
+    private final Set<String> keys;
+
+    // Incremented on each invalidation. Used to detect that an entry was
+    // modified while its value was being loaded from the shared map.
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    /**
+     * Creates a cache for a shared map.
+     *
+     * @param map the shared map holding the serialized values
+     * @param maximumSize the maximum number of values kept in the cache
+     * @param trackKeys true if the set of keys should be tracked
+     * @param metricsName name of the metrics feature of this cache
+     */
+    NearCache(IMap<String, byte[]> map, long maximumSize, boolean trackKeys,
+            String metricsName) {
+        this.map = checkNotNull(map);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+        this.keys = trackKeys
+                ? Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>())
+                : null;
+
+        final MetricsFeature feature = METRICS_COMPONENT.registerFeature(metricsName);
+        this.hits = OnosMetrics.createCounter(METRICS_COMPONENT, feature,
+                "NearCache.Hits");
+        this.misses = OnosMetrics.createCounter(METRICS_COMPONENT, feature,
+                "NearCache.Misses");
+        this.invalidations = OnosMetrics.createCounter(METRICS_COMPONENT, feature,
+                "NearCache.Invalidations");
+    }
+
+    /**
+     * Loads the set of keys from the shared map.
+     * <p>
+     * This method should be called after the entry listener updating this
+     * cache has been registered to the shared map.
+     */
+    void loadKeys() {
+        if (keys != null) {
+            keys.addAll(map.keySet());
+        }
+    }
+
+    /**
+     * Gets the value of an entry, loading it from the shared map if it is
+     * not cached.
+     *
+     * @param key the key of the entry
+     * @return a copy of the value, or null if the entry does not exist
+     */
+    V get(String key) {
+        Optional<V> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hits.inc();
+        } else {
+            misses.inc();
+            cached = load(key);
+        }
+        return KryoFactory.copy(cached.orNull());
+    }
+
+    /**
+     * Checks whether an entry exists, loading it from the shared map if it is
+     * not cached.
+     *
+     * @param key the key of the entry
+     * @return true if the entry exists
+     */
+    boolean contains(String key) {
+        Optional<V> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hits.inc();
+            return cached.isPresent();
+        }
+        misses.inc();
+        return load(key).isPresent();
+    }
+
+    /**
+     * Gets the values of all the entries of the shared map.
+     * Requires key tracking to be enabled.
+     * <p>
+     * The values which are not cached are loaded from the shared map in a
+     * single request.
+     *
+     * @return the list of copies of the values
+     */
+    List<V> getAll() {
+        if (keys == null) {
+            throw new IllegalStateException("Keys are not tracked by this cache");
+        }
+        List<V> values = new ArrayList<>(keys.size());
+        Set<String> missingKeys = new HashSet<>();
+        for (String key : keys) {
+            Optional<V> cached = cache.getIfPresent(key);
+            if (cached == null) {
+                missingKeys.add(key);
+            } else {
+                hits.inc();
+                addValue(values, cached);
+            }
+        }
+
+        if (!missingKeys.isEmpty()) {
+            misses.inc(missingKeys.size());
+            final long stamp = invalidationCount.get();
+            final Map<String, byte[]> loaded = map.getAll(missingKeys);
+            for (String key : missingKeys) {
+                Optional<V> value = deserialize(loaded.get(key));
+                cacheLoaded(key, value, stamp);
+                addValue(values, value);
+            }
+        }
+        return values;
+    }
+
+    private Optional<V> load(String key) {
+        final long stamp = invalidationCount.get();
+        final Optional<V> loaded = deserialize(map.get(key));
+        cacheLoaded(key, loaded, stamp);
+        return loaded;
+    }
+
+    /**
+     * Caches a value loaded from the shared map, unless the entry may have
+     * been modified since the load started.
+     *
+     * @param key the key of the entry
+     * @param value the deserialized value, absent if the entry does not exist
+     * @param stamp the invalidation count before the load started
+     */
+    private void cacheLoaded(String key, Optional<V> value, long stamp) {
+        cache.put(key, value);
+        if (invalidationCount.get() != stamp) {
+            // The entry might have been modified after it was read from the
+            // shared map: don't keep a possibly stale value.
+            cache.invalidate(key);
+        }
+    }
+
+    private void addValue(List<V> values, Optional<V> value) {
+        if (value.isPresent()) {
+            values.add(KryoFactory.copy(value.get()));
+        }
+    }
+
+    private Optional<V> deserialize(byte[] value) {
+        if (value == null) {
+            return Optional.absent();
+        }
+        return Optional.of(KryoFactory.<V>deserialize(value));
+    }
+
+    /**
+     * Drops the cached value of an entry which was added or modified.
+     *
+     * @param key the key of the entry
+     */
+    void entryUpdated(String key) {
+        if (keys != null) {
+            keys.add(key);
+        }
+        invalidate(key);
+    }
+
+    /**
+     * Drops the cached value of an entry which was removed.
+     *
+     * @param key the key of the entry
+     */
+    void entryRemoved(String key) {
+        if (keys != null) {
+            keys.remove(key);
+        }
+        invalidate(key);
+    }
+
+    /**
+     * Drops the cached value of an entry.
+     *
+     * @param key the key of the entry
+     */
+    void invalidate(String key) {
+        invalidationCount.incrementAndGet();
+        invalidations.inc();
+        cache.invalidate(key);
+    }
+}
@@ -3,7 +3,6 @@ package net.onrc.onos.core.flowmanager;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.HashSet;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import net.onrc.onos.api.flowmanager.FlowBatchId;
@@ -19,13 +18,20 @@ import com.hazelcast.core.IMap;
  * <p>
  * This class's implementation is almost the same to {@link SharedFlowMap}. The
  * base class for them should be implemented.
+ * <p>
+ * Flow batch operations and their states are kept in local near-caches,
+ * which are invalidated by the {@link SharedFlowBatchMapEventDispatcher}.
+ * Each read returns a new instance.
  */
 public class SharedFlowBatchMap implements FlowBatchMap {
     private static final String FLOWBATCHMAP_NAME = "flowbatch_map";
     private static final String FLOWBATCHSTATEMAP_NAME = "flowbatchstate_map";
+    private static final long NEAR_CACHE_SIZE = 10000;
 
     private final IMap<String, byte[]> flowBatchMap;
     private final IMap<String, byte[]> flowBatchStateMap;
+    private final NearCache<FlowBatchOperation> flowBatchCache;
+    private final NearCache<FlowBatchState> flowBatchStateCache;
     private final SharedFlowBatchMapEventDispatcher dispatcher;
 
     /**
@@ -38,23 +44,26 @@ public class SharedFlowBatchMap implements FlowBatchMap {
                 FLOWBATCHMAP_NAME, String.class, byte[].class));
         this.flowBatchStateMap = checkNotNull(service.getConcurrentMap(
                 FLOWBATCHSTATEMAP_NAME, String.class, byte[].class));
+        this.flowBatchCache = new NearCache<>(flowBatchMap, NEAR_CACHE_SIZE, true,
+                "FlowBatchMap");
+        this.flowBatchStateCache = new NearCache<>(flowBatchStateMap, NEAR_CACHE_SIZE,
+                false, "FlowBatchStateMap");
         this.dispatcher = new SharedFlowBatchMapEventDispatcher(
-                flowBatchMap, flowBatchStateMap);
+                flowBatchMap, flowBatchStateMap, flowBatchCache, flowBatchStateCache);
+        this.flowBatchCache.loadKeys();
     }
 
     @Override
     public FlowBatchOperation get(FlowBatchId id) {
-        byte[] buf = flowBatchMap.get(checkNotNull(id).toString());
-        if (buf == null) {
-            return null;
-        }
-        return KryoFactory.deserialize(buf);
+        return flowBatchCache.get(checkNotNull(id).toString());
     }
 
     @Override
     public boolean put(FlowBatchId id, FlowBatchOperation flowOp) {
         byte[] buf = KryoFactory.serialize(checkNotNull(flowOp));
-        flowBatchMap.set(id.toString(), checkNotNull(buf));
+        String flowBatchIdStr = id.toString();
+        flowBatchMap.set(flowBatchIdStr, checkNotNull(buf));
+        flowBatchCache.entryUpdated(flowBatchIdStr);
         return true;
     }
 
@@ -62,21 +71,18 @@ public class SharedFlowBatchMap implements FlowBatchMap {
     public FlowBatchOperation remove(FlowBatchId id) {
         String flowBatchIdStr = checkNotNull(id).toString();
         byte[] buf = flowBatchMap.remove(flowBatchIdStr);
+        flowBatchCache.entryRemoved(flowBatchIdStr);
         if (buf == null) {
             return null;
         }
         flowBatchStateMap.remove(flowBatchIdStr);
+        flowBatchStateCache.entryRemoved(flowBatchIdStr);
         return KryoFactory.deserialize(buf);
     }
 
     @Override
     public Set<FlowBatchOperation> getAll() {
-        Set<FlowBatchOperation> flowBatchs = new HashSet<>();
-        for (Entry<String, byte[]> entry : flowBatchMap.entrySet()) {
-            flowBatchs.add((FlowBatchOperation)
-                    KryoFactory.deserialize(entry.getValue()));
-        }
-        return flowBatchs;
+        return new HashSet<>(flowBatchCache.getAll());
     }
 
     @Override
@@ -87,32 +93,37 @@ public class SharedFlowBatchMap implements FlowBatchMap {
         final byte[] oldValue = KryoFactory.serialize(expectedState);
         final byte[] newValue = KryoFactory.serialize(state);
 
-        if (!flowBatchMap.containsKey(key)) {
+        if (!flowBatchCache.contains(key)) {
             return false;
         }
 
+        final boolean updated;
         if (expectedState == FlowBatchState.SUBMITTED) {
             // The absence of the key means SUBMITTED state.
-            return flowBatchStateMap.putIfAbsent(key, newValue) == null;
+            updated = flowBatchStateMap.putIfAbsent(key, newValue) == null;
+        } else {
+            updated = flowBatchStateMap.replace(key, oldValue, newValue);
         }
-
-        return flowBatchStateMap.replace(key, oldValue, newValue);
+        if (updated) {
+            flowBatchStateCache.entryUpdated(key);
+        }
+        return updated;
     }
 
     @Override
     public FlowBatchState getState(FlowBatchId id) {
         final String key = checkNotNull(
                 id, "FlowBatchId is not specified.").toString();
-        if (!flowBatchMap.containsKey(key)) {
+        if (!flowBatchCache.contains(key)) {
             return null;
         }
 
-        final byte[] buf = flowBatchStateMap.get(key);
-        if (buf == null) {
+        final FlowBatchState state = flowBatchStateCache.get(key);
+        if (state == null) {
             // The absence of the key means SUBMITTED state.
             return FlowBatchState.SUBMITTED;
         }
-        return KryoFactory.deserialize(buf);
+        return state;
     }
 
     @Override
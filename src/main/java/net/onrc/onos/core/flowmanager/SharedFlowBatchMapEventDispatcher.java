@@ -16,9 +16,13 @@ import com.hazelcast.core.IMap;
 
 /**
  * This class is used for managing listeners of the {@link SharedFlowBatchMap}.
+ * It also keeps the near-caches of the {@link SharedFlowBatchMap} consistent
+ * with the shared maps.
  */
 public class SharedFlowBatchMapEventDispatcher implements EntryListener<String, byte[]> {
     private CopyOnWriteArraySet<FlowBatchMapEventListener> listeners;
+    private final NearCache<FlowBatchOperation> flowBatchCache;
+    private final NearCache<FlowBatchState> flowBatchStateCache;
     private static final Logger log = LoggerFactory
             .getLogger(SharedFlowBatchMapEventDispatcher.class);
 
@@ -27,10 +31,16 @@ public class SharedFlowBatchMapEventDispatcher implements EntryListener<String,
      *
      * @param flowBatchMap the flow batch map object
      * @param flowBatchStateMap the flow batch state map object
+     * @param flowBatchCache the near-cache of the flow batch map
+     * @param flowBatchStateCache the near-cache of the flow batch state map
      */
-    public SharedFlowBatchMapEventDispatcher(IMap<String, byte[]> flowBatchMap,
-            IMap<String, byte[]> flowBatchStateMap) {
+    SharedFlowBatchMapEventDispatcher(IMap<String, byte[]> flowBatchMap,
+            IMap<String, byte[]> flowBatchStateMap,
+            NearCache<FlowBatchOperation> flowBatchCache,
+            NearCache<FlowBatchState> flowBatchStateCache) {
         listeners = new CopyOnWriteArraySet<>();
+        this.flowBatchCache = flowBatchCache;
+        this.flowBatchStateCache = flowBatchStateCache;
         flowBatchMap.addEntryListener(this, true);
         flowBatchStateMap.addEntryListener(this, true);
     }
@@ -61,6 +71,7 @@ public class SharedFlowBatchMapEventDispatcher implements EntryListener<String,
             final FlowBatchOperation flowOp = (FlowBatchOperation) value;
             final FlowBatchId id = FlowBatchId.valueOf(event.getKey());
             log.trace("Flow batch operation ID:{}, {} was added", id, flowOp);
+            flowBatchCache.entryUpdated(event.getKey());
             for (FlowBatchMapEventListener e : listeners) {
                 FlowBatchOperation copiedFlowOp =
                         new FlowBatchOperation(flowOp.getOperations());
@@ -72,6 +83,7 @@ public class SharedFlowBatchMapEventDispatcher implements EntryListener<String,
             final FlowBatchState state = (FlowBatchState) value;
             final FlowBatchId id = FlowBatchId.valueOf(event.getKey());
             log.trace("FlowState of FlowId {} was set to {}", id, state);
+            flowBatchStateCache.entryUpdated(event.getKey());
             for (FlowBatchMapEventListener e : listeners) {
                 e.flowBatchOperationStateChanged(id, FlowBatchState.SUBMITTED, state);
             }
@@ -88,12 +100,14 @@ public class SharedFlowBatchMapEventDispatcher implements EntryListener<String,
             final FlowBatchOperation flowOp = (FlowBatchOperation) value;
             final FlowBatchId id = FlowBatchId.valueOf(event.getKey());
             log.trace("Flow batch operation ID:{}, {} was removed", id, flowOp);
+            flowBatchCache.entryRemoved(event.getKey());
             for (FlowBatchMapEventListener e : listeners) {
                 e.flowBatchOperationRemoved(id);
             }
         } else if (value instanceof FlowBatchState) {
             // Handles events from flowBatchStateMap.
             log.trace("Flow batch state {} of ID:{} was removed", value, event.getKey());
+            flowBatchStateCache.entryRemoved(event.getKey());
         } else {
             throw new IllegalStateException("Removed illegal value: " + value);
         }
@@ -105,6 +119,7 @@ public class SharedFlowBatchMapEventDispatcher implements EntryListener<String,
         if (value instanceof FlowBatchOperation) {
             // Handles events from flowBatchMap.
             log.trace("Flow batch operation ID:{} updated by {}", event.getKey(), value);
+            flowBatchCache.entryUpdated(event.getKey());
         } else if (value instanceof FlowBatchState) {
             // Handles events from flowBatchStateMap.
             Object oldValue = KryoFactory.deserialize(event.getOldValue());
@@ -113,6 +128,7 @@ public class SharedFlowBatchMapEventDispatcher implements EntryListener<String,
             final FlowBatchId id = FlowBatchId.valueOf(event.getKey());
             log.trace("Flow batch state of ID:{} was updated from {} to {}",
                     id, oldState, currentState);
+            flowBatchStateCache.entryUpdated(event.getKey());
             for (FlowBatchMapEventListener e : listeners) {
                 e.flowBatchOperationStateChanged(id, oldState, currentState);
             }
@@ -123,7 +139,9 @@ public class SharedFlowBatchMapEventDispatcher implements EntryListener<String,
 
     @Override
     public void entryEvicted(EntryEvent<String, byte[]> event) {
-        // do nothing.
+        // The event does not tell which map the entry was evicted from.
+        flowBatchCache.invalidate(event.getKey());
+        flowBatchStateCache.invalidate(event.getKey());
     }
 
 }
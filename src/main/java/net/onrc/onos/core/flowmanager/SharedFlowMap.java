@@ -3,7 +3,6 @@ package net.onrc.onos.core.flowmanager;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.HashSet;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import net.onrc.onos.api.flowmanager.Flow;
@@ -16,13 +15,20 @@ import com.hazelcast.core.IMap;
 
 /**
  * Manages the distributed shared flow map.
+ * <p>
+ * Flows and flow states are kept in local near-caches, which are
+ * invalidated by the {@link SharedFlowMapEventDispatcher}. Each read returns
+ * a new instance.
  */
 class SharedFlowMap implements FlowMap {
     private static final String FLOWMAP_NAME = "flow_map";
     private static final String FLOWSTATEMAP_NAME = "flowstate_map";
+    private static final long NEAR_CACHE_SIZE = 100000;
 
     private final IMap<String, byte[]> flowMap;
     private final IMap<String, byte[]> flowStateMap;
+    private final NearCache<Flow> flowCache;
+    private final NearCache<FlowState> flowStateCache;
     private final SharedFlowMapEventDispatcher dispatcher;
 
     /**
@@ -35,23 +41,26 @@ class SharedFlowMap implements FlowMap {
                 FLOWMAP_NAME, String.class, byte[].class));
         this.flowStateMap = checkNotNull(service.getConcurrentMap(
                 FLOWSTATEMAP_NAME, String.class, byte[].class));
-        this.dispatcher = new SharedFlowMapEventDispatcher(flowMap, flowStateMap);
+        this.flowCache = new NearCache<>(flowMap, NEAR_CACHE_SIZE, true, "FlowMap");
+        this.flowStateCache = new NearCache<>(flowStateMap, NEAR_CACHE_SIZE, false,
+                "FlowStateMap");
+        this.dispatcher = new SharedFlowMapEventDispatcher(flowMap, flowStateMap,
+                flowCache, flowStateCache);
+        this.flowCache.loadKeys();
     }
 
     @Override
     public Flow get(FlowId id) {
-        byte[] buf = flowMap.get(checkNotNull(id).toString());
-        if (buf == null) {
-            return null;
-        }
-        return KryoFactory.deserialize(buf);
+        return flowCache.get(checkNotNull(id).toString());
     }
 
     @Override
     public boolean put(Flow flow) {
         checkNotNull(flow);
         byte[] buf = KryoFactory.serialize(flow);
-        flowMap.set(flow.getId().toString(), buf);
+        String flowIdStr = flow.getId().toString();
+        flowMap.set(flowIdStr, buf);
+        flowCache.entryUpdated(flowIdStr);
         return true;
     }
 
@@ -59,20 +68,18 @@ class SharedFlowMap implements FlowMap {
     public Flow remove(FlowId id) {
         String flowIdStr = checkNotNull(id).toString();
         byte[] buf = flowMap.remove(flowIdStr);
+        flowCache.entryRemoved(flowIdStr);
         if (buf == null) {
             return null;
         }
         flowStateMap.remove(flowIdStr);
+        flowStateCache.entryRemoved(flowIdStr);
         return KryoFactory.deserialize(buf);
     }
 
     @Override
     public Set<Flow> getAll() {
-        Set<Flow> flows = new HashSet<>();
-        for (Entry<String, byte[]> entry : flowMap.entrySet()) {
-            flows.add((Flow) KryoFactory.deserialize(entry.getValue()));
-        }
-        return flows;
+        return new HashSet<>(flowCache.getAll());
     }
 
     @Override
@@ -81,31 +88,36 @@ class SharedFlowMap implements FlowMap {
         final byte[] oldValue = KryoFactory.serialize(expectedState);
         final byte[] newValue = KryoFactory.serialize(state);
 
-        if (!flowMap.containsKey(key)) {
+        if (!flowCache.contains(key)) {
             return false;
         }
 
+        final boolean updated;
         if (expectedState == FlowState.SUBMITTED) {
             // The absence of the key means SUBMITTED state.
-            return flowStateMap.putIfAbsent(key, newValue) == null;
+            updated = flowStateMap.putIfAbsent(key, newValue) == null;
+        } else {
+            updated = flowStateMap.replace(key, oldValue, newValue);
         }
-
-        return flowStateMap.replace(key, oldValue, newValue);
+        if (updated) {
+            flowStateCache.entryUpdated(key);
+        }
+        return updated;
     };
 
     @Override
     public FlowState getState(FlowId id) {
         final String key = checkNotNull(id, "FlowId is not specified.").toString();
-        if (!flowMap.containsKey(key)) {
+        if (!flowCache.contains(key)) {
             return null;
         }
 
-        final byte[] buf = flowStateMap.get(key);
-        if (buf == null) {
+        final FlowState state = flowStateCache.get(key);
+        if (state == null) {
             // The absence of the key means SUBMITTED state.
             return FlowState.SUBMITTED;
         }
-        return KryoFactory.deserialize(buf);
+        return state;
     }
 
     @Override
@@ -16,9 +16,13 @@ import com.hazelcast.core.IMap;
 
 /**
  * This class is used for managing listeners of the {@link SharedFlowMap}.
+ * It also keeps the near-caches of the {@link SharedFlowMap} consistent with
+ * the shared maps.
  */
 class SharedFlowMapEventDispatcher implements EntryListener<String, byte[]> {
     private CopyOnWriteArraySet<FlowMapEventListener> listeners;
+    private final NearCache<Flow> flowCache;
+    private final NearCache<FlowState> flowStateCache;
     private static final Logger log = LoggerFactory
             .getLogger(SharedFlowMapEventDispatcher.class);
 
@@ -27,10 +31,15 @@ class SharedFlowMapEventDispatcher implements EntryListener<String, byte[]> {
      *
      * @param flowMap the flow map object
      * @param flowStateMap the flow state map object
+     * @param flowCache the near-cache of the flow map
+     * @param flowStateCache the near-cache of the flow state map
      */
     SharedFlowMapEventDispatcher(IMap<String, byte[]> flowMap,
-            IMap<String, byte[]> flowStateMap) {
+            IMap<String, byte[]> flowStateMap,
+            NearCache<Flow> flowCache, NearCache<FlowState> flowStateCache) {
         listeners = new CopyOnWriteArraySet<>();
+        this.flowCache = flowCache;
+        this.flowStateCache = flowStateCache;
         flowMap.addEntryListener(this, true);
         flowStateMap.addEntryListener(this, true);
     }
@@ -60,6 +69,7 @@ class SharedFlowMapEventDispatcher implements EntryListener<String, byte[]> {
             // Handles events from flowMap.
             final Flow flow = (Flow) value;
             log.trace("Flow {} was added", flow);
+            flowCache.entryUpdated(event.getKey());
             for (FlowMapEventListener e : listeners) {
                 e.flowAdded(flow.getId(), flow);
                 e.flowStateChanged(flow.getId(), null, FlowState.SUBMITTED);
@@ -69,6 +79,7 @@ class SharedFlowMapEventDispatcher implements EntryListener<String, byte[]> {
             final FlowState state = (FlowState) value;
             final FlowId id = FlowId.valueOf(event.getKey());
             log.trace("FlowState of FlowId {} was set to {}", id, state);
+            flowStateCache.entryUpdated(event.getKey());
             for (FlowMapEventListener e : listeners) {
                 e.flowStateChanged(id, FlowState.SUBMITTED, state);
             }
@@ -84,12 +95,14 @@ class SharedFlowMapEventDispatcher implements EntryListener<String, byte[]> {
             // Handles events from flowMap.
             final Flow flow = (Flow) value;
             log.trace("Flow {} was removed", flow);
+            flowCache.entryRemoved(event.getKey());
             for (FlowMapEventListener e : listeners) {
                 e.flowRemoved(flow.getId());
             }
         } else if (value instanceof FlowState) {
             // Handles events from flowStateMap.
             log.trace("FlowState {} of FlowId {} was removed", value, event.getKey());
+            flowStateCache.entryRemoved(event.getKey());
         } else {
             throw new IllegalStateException("Removed illegal value: " + value.toString());
         }
@@ -101,6 +114,7 @@ class SharedFlowMapEventDispatcher implements EntryListener<String, byte[]> {
         if (value instanceof Flow) {
             // Handles events from flowMap.
             log.trace("Flow Updated by {}", value);
+            flowCache.entryUpdated(event.getKey());
         } else if (value instanceof FlowState) {
             // Handles events from flowStateMap.
             Object oldValue = KryoFactory.deserialize(event.getOldValue());
@@ -109,6 +123,7 @@ class SharedFlowMapEventDispatcher implements EntryListener<String, byte[]> {
             final FlowId id = FlowId.valueOf(event.getKey());
             log.trace("FlowState of FlowId {} was updated from {} to {}",
                     id, oldState, state);
+            flowStateCache.entryUpdated(event.getKey());
             for (FlowMapEventListener e : listeners) {
                 e.flowStateChanged(id, oldState, state);
             }
@@ -119,7 +134,9 @@ class SharedFlowMapEventDispatcher implements EntryListener<String, byte[]> {
 
     @Override
     public void entryEvicted(EntryEvent<String, byte[]> event) {
-        // do nothing.
+        // The event does not tell which map the entry was evicted from.
+        flowCache.invalidate(event.getKey());
+        flowStateCache.invalidate(event.getKey());
     }
 
 }
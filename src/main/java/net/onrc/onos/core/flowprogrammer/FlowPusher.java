@@ -22,6 +22,7 @@ import net.floodlightcontroller.core.IFloodlightProviderService;
 import net.floodlightcontroller.core.IOFMessageListener;
 import net.floodlightcontroller.core.IOFSwitch;
 import net.floodlightcontroller.core.internal.OFMessageFuture;
+import net.floodlightcontroller.core.internal.SwitchMetrics;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import net.floodlightcontroller.util.MACAddress;
@@ -63,6 +64,8 @@ import org.projectfloodlight.openflow.types.U64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Gauge;
+
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
@@ -227,6 +230,19 @@ public final class FlowPusher implements IFlowPusherService, IOFMessageListener
         Queue<SwitchQueueEntry> getQueue(MsgPriority priority) {
             return rawQueues.get(priority.ordinal());
         }
+
+        /**
+         * Get the number of messages in the queues, whatever the QueueState.
+         * <p>
+         * @return Number of messages.
+         */
+        int size() {
+            int size = 0;
+            for (Queue<SwitchQueueEntry> queue : rawQueues) {
+                size += queue.size();
+            }
+            return size;
+        }
     }
 
     /**
@@ -294,8 +310,11 @@ public final class FlowPusher implements IFlowPusherService, IOFMessageListener
                     queuingLock.lock();
 
                     try {
-                        // wait for message pushed to queue
-                        messagePushed.await();
+                        // wait for message pushed to queue, unless it was
+                        // pushed since the check above
+                        if (!queuesHasMessageToSend()) {
+                            messagePushed.await();
+                        }
                     } catch (InterruptedException e) {
                         // Interrupted to be shut down (not an error)
                         log.debug("FlowPusherThread is interrupted");
@@ -364,6 +383,9 @@ public final class FlowPusher implements IFlowPusherService, IOFMessageListener
                     OFMessage msg = queueEntry.getOFMessage();
                     try {
                         sw.write(msg, null);
+                        if (msg.getType() == OFType.BARRIER_REQUEST) {
+                            barrierRequestWritten(dpid, (OFBarrierRequest) msg);
+                        }
                         if (log.isTraceEnabled()) {
                             log.trace("Pusher sends message to switch {}: {}", sw.getStringId(), msg);
                         }
@@ -379,6 +401,21 @@ public final class FlowPusher implements IFlowPusherService, IOFMessageListener
             }
         }
 
+        /**
+         * Records the write of a barrier request in its Future, so that the
+         * time the preceding messages were written is known.
+         *
+         * @param dpid DPID of the switch to which the request was written.
+         * @param msg the barrier request.
+         */
+        private void barrierRequestWritten(Dpid dpid, OFBarrierRequest msg) {
+            OFBarrierReplyFuture future =
+                    barrierFutures.get(BarrierInfo.create(dpid.value(), msg));
+            if (future != null) {
+                future.setRequestWritten();
+            }
+        }
+
         private boolean queuesHasMessageToSend() {
             for (SwitchQueue queue : assignedQueues.values()) {
                 if (queue.hasMessageToSend()) {
@@ -549,6 +586,19 @@ public final class FlowPusher implements IFlowPusherService, IOFMessageListener
         queue.state = QueueState.READY;
         proc.assignedQueues.put(dpid, queue);
 
+        SwitchMetrics metrics = SwitchMetrics.get(dpid.value());
+        if (metrics != null) {
+            final SwitchQueue depthQueue = queue;
+            metrics.setQueueDepth(new Gauge<Integer>() {
+                @Override
+                public Integer getValue() {
+                    synchronized (depthQueue) {
+                        return depthQueue.size();
+                    }
+                }
+            });
+        }
+
         return queue;
     }
 
@@ -566,6 +616,10 @@ public final class FlowPusher implements IFlowPusherService, IOFMessageListener
             if (queue == null) {
                 return false;
             }
+            SwitchMetrics metrics = SwitchMetrics.get(dpid.value());
+            if (metrics != null) {
+                metrics.setQueueDepth(null);
+            }
             return true;
         } else {
             SwitchQueue queue = getQueue(dpid);
@@ -827,7 +881,7 @@ public final class FlowPusher implements IFlowPusherService, IOFMessageListener
     }
 
     @Override
-    public OFMessageFuture<OFBarrierReply> barrierAsync(Dpid dpid) {
+    public OFBarrierReplyFuture barrierAsync(Dpid dpid) {
         // TODO creation of message and future should be moved to OFSwitchImpl
         IOFSwitch sw = floodlightProvider.getMasterSwitch(dpid.value());
         if (sw == null) {
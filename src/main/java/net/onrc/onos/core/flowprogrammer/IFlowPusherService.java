@@ -2,7 +2,6 @@ package net.onrc.onos.core.flowprogrammer;
 
 import java.util.Collection;
 
-import net.floodlightcontroller.core.internal.OFMessageFuture;
 import net.floodlightcontroller.core.module.IFloodlightService;
 import net.onrc.onos.core.intent.FlowEntry;
 import net.onrc.onos.core.matchaction.MatchActionOperationEntry;
@@ -176,7 +175,7 @@ public interface IFlowPusherService extends IFloodlightService {
      * @param dpid DPID of the switch to which a barrier message is pushed.
      * @return Future object of BARRIER_REPLY message which will be sent from switch.
      */
-    OFMessageFuture<OFBarrierReply> barrierAsync(Dpid dpid);
+    OFBarrierReplyFuture barrierAsync(Dpid dpid);
 
     /**
      * Suspend pushing message to a switch.
@@ -15,6 +15,7 @@ import org.projectfloodlight.openflow.protocol.OFType;
 public class OFBarrierReplyFuture extends OFMessageFuture<OFBarrierReply> {
 
     protected volatile boolean finished;
+    private volatile long requestWrittenTime;
 
     public OFBarrierReplyFuture(IThreadPoolService tp,
             IOFSwitch sw, int transactionId) {
@@ -33,6 +34,22 @@ public class OFBarrierReplyFuture extends OFMessageFuture<OFBarrierReply> {
         this.result = null;
     }
 
+    /**
+     * Records that the barrier request was written to the switch.
+     */
+    public void setRequestWritten() {
+        this.requestWrittenTime = System.nanoTime();
+    }
+
+    /**
+     * Gets the time the barrier request was written to the switch.
+     *
+     * @return the System.nanoTime() of the write, or 0 if not written yet
+     */
+    public long getRequestWrittenTime() {
+        return requestWrittenTime;
+    }
+
     @Override
     protected void handleReply(IOFSwitch sw, OFMessage msg) {
         this.result = (OFBarrierReply) msg;
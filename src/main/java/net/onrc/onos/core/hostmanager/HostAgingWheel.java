@@ -0,0 +1,156 @@
+package net.onrc.onos.core.hostmanager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.floodlightcontroller.util.MACAddress;
+
+/**
+ * Hashed timing wheel of the hosts by their last seen time, to find the
+ * hosts to age out without scanning all the hosts.
+ * <p/>
+ * The last seen times are divided in buckets of one tick, and the hosts of a
+ * bucket are kept in the slot of the wheel for that bucket. Refreshing a
+ * host moves it to the slot of its new bucket. Expiring the hosts only
+ * looks at the slots of the buckets that have become due since the
+ * previous expiry.
+ */
+public class HostAgingWheel {
+    /**
+     * The number of slots of the wheel by default.
+     */
+    public static final int DEFAULT_SLOTS = 256;
+
+    private final long agingMillis;
+    private final long tickMillis;
+    private final List<Set<MACAddress>> slots;
+    private final Map<MACAddress, Long> lastSeenTimes = new HashMap<>();
+
+    // The first bucket which may hold hosts not yet expired, or -1 if no
+    // expiry has been run yet
+    private long nextBucket = -1;
+
+    /**
+     * Creates a wheel with the default number of slots.
+     *
+     * @param agingMillis the time after which a host not seen is expired,
+     * in milliseconds
+     */
+    public HostAgingWheel(long agingMillis) {
+        this(agingMillis, DEFAULT_SLOTS);
+    }
+
+    /**
+     * Creates a wheel.
+     *
+     * @param agingMillis the time after which a host not seen is expired,
+     * in milliseconds
+     * @param slotCount the number of slots of the wheel
+     */
+    public HostAgingWheel(long agingMillis, int slotCount) {
+        if (agingMillis <= 0 || slotCount <= 1) {
+            throw new IllegalArgumentException("Invalid aging time "
+                    + agingMillis + " or slot count " + slotCount);
+        }
+        this.agingMillis = agingMillis;
+        // One turn of the wheel covers the aging time
+        this.tickMillis = Math.max(1, (agingMillis + slotCount - 2) / (slotCount - 1));
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new HashSet<MACAddress>());
+        }
+    }
+
+    /**
+     * Records that a host has been seen.
+     *
+     * @param mac the MAC address of the host
+     * @param lastSeenMillis the time the host was seen, in milliseconds
+     */
+    public synchronized void touch(MACAddress mac, long lastSeenMillis) {
+        Long previous = lastSeenTimes.get(mac);
+        if (previous != null) {
+            if (previous >= lastSeenMillis) {
+                return;
+            }
+            if (bucketOf(previous) == bucketOf(lastSeenMillis)) {
+                lastSeenTimes.put(mac, lastSeenMillis);
+                return;
+            }
+            slotOf(bucketOf(previous)).remove(mac);
+        }
+        lastSeenTimes.put(mac, lastSeenMillis);
+        slotOf(bucketOf(lastSeenMillis)).add(mac);
+    }
+
+    /**
+     * Removes a host.
+     *
+     * @param mac the MAC address of the host
+     */
+    public synchronized void remove(MACAddress mac) {
+        Long lastSeen = lastSeenTimes.remove(mac);
+        if (lastSeen != null) {
+            slotOf(bucketOf(lastSeen)).remove(mac);
+        }
+    }
+
+    /**
+     * Removes and returns the hosts not seen for longer than the aging time.
+     *
+     * @param nowMillis the current time, in milliseconds
+     * @return the MAC addresses of the expired hosts
+     */
+    public synchronized List<MACAddress> expire(long nowMillis) {
+        List<MACAddress> expired = new ArrayList<>();
+        // The hosts seen at or before this time are expired
+        final long expiryTime = nowMillis - agingMillis - 1;
+        if (expiryTime < 0) {
+            return expired;
+        }
+        final long lastBucket = bucketOf(expiryTime);
+        long bucket = nextBucket;
+        if (bucket < 0 || lastBucket - bucket >= slots.size()) {
+            // Each slot is only looked at once
+            bucket = Math.max(0, lastBucket - slots.size() + 1);
+        }
+
+        for (; bucket <= lastBucket; bucket++) {
+            Iterator<MACAddress> it = slotOf(bucket).iterator();
+            while (it.hasNext()) {
+                MACAddress mac = it.next();
+                // The slot may also hold hosts of later buckets
+                if (lastSeenTimes.get(mac) <= expiryTime) {
+                    it.remove();
+                    lastSeenTimes.remove(mac);
+                    expired.add(mac);
+                }
+            }
+        }
+        // The last bucket may get hosts seen after the expiry time
+        nextBucket = lastBucket;
+        return expired;
+    }
+
+    /**
+     * Gets the number of hosts in the wheel.
+     *
+     * @return the number of hosts
+     */
+    public synchronized int size() {
+        return lastSeenTimes.size();
+    }
+
+    private long bucketOf(long timeMillis) {
+        return timeMillis / tickMillis;
+    }
+
+    private Set<MACAddress> slotOf(long bucket) {
+        return slots.get((int) (bucket % slots.size()));
+    }
+}
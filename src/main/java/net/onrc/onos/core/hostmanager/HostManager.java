@@ -2,12 +2,14 @@ package net.onrc.onos.core.hostmanager;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -26,9 +28,12 @@ import net.floodlightcontroller.util.MACAddress;
 import net.onrc.onos.core.packet.ARP;
 import net.onrc.onos.core.packet.Ethernet;
 import net.onrc.onos.core.packet.IPv4;
+import net.onrc.onos.core.topology.HostData;
+import net.onrc.onos.core.topology.ITopologyListener;
 import net.onrc.onos.core.topology.ITopologyService;
 import net.onrc.onos.core.topology.MutableTopology;
 import net.onrc.onos.core.topology.Port;
+import net.onrc.onos.core.topology.TopologyEvents;
 import net.onrc.onos.core.util.Dpid;
 import net.onrc.onos.core.util.PortNumber;
 import net.onrc.onos.core.util.PortNumberUtils;
@@ -42,12 +47,15 @@ import org.slf4j.LoggerFactory;
 
 public class HostManager implements IFloodlightModule,
 IOFMessageListener,
-IHostService {
+IHostService,
+ITopologyListener {
 
     private static final Logger log = LoggerFactory.getLogger(HostManager.class);
     private static final long HOST_CLEANING_INITIAL_DELAY = 30;
     private int cleanupSecondConfig = 60 * 60;
     private int agingMillisecConfig = 60 * 60 * 1000;
+    private static final int REFRESHES_PER_AGING = 4;
+    private int refreshMillisecConfig = agingMillisecConfig / REFRESHES_PER_AGING;
 
     private CopyOnWriteArrayList<IHostListener> hostListeners;
     private IFloodlightProviderService floodlightProvider;
@@ -56,17 +64,25 @@ IHostService {
 
     private ITopologyService topologyService;
     private MutableTopology mutableTopology;
+    private HostAgingWheel agingWheel;
+    // The hosts published from the packet-ins, by MAC address
+    private final ConcurrentMap<MACAddress, LearnedHost> learnedHosts =
+            new ConcurrentHashMap<>();
 
     public enum HostUpdateType {
         ADD, DELETE, UPDATE;
     }
 
     private class HostUpdate implements IUpdate {
-        private final Host host;
+        private final Collection<Host> hosts;
         private final HostUpdateType type;
 
         public HostUpdate(Host host, HostUpdateType type) {
-            this.host = host;
+            this(Collections.singletonList(host), type);
+        }
+
+        public HostUpdate(Collection<Host> hosts, HostUpdateType type) {
+            this.hosts = hosts;
             this.type = type;
         }
 
@@ -74,16 +90,55 @@ IHostService {
         public void dispatch() {
             if (type == HostUpdateType.ADD) {
                 for (IHostListener listener : hostListeners) {
-                    listener.hostAdded(host);
+                    for (Host host : hosts) {
+                        listener.hostAdded(host);
+                    }
                 }
             } else if (type == HostUpdateType.DELETE) {
                 for (IHostListener listener : hostListeners) {
-                    listener.hostRemoved(host);
+                    if (hosts.size() == 1) {
+                        listener.hostRemoved(hosts.iterator().next());
+                    } else {
+                        listener.hostsRemoved(hosts);
+                    }
                 }
             }
         }
     }
 
+    /**
+     * The location and IP address of a host as last published, and when.
+     */
+    private static final class LearnedHost {
+        private final long dpid;
+        private final long port;
+        private final int ipAddress;
+        private final long lastPublished;
+
+        private LearnedHost(long dpid, long port, int ipAddress,
+                long lastPublished) {
+            this.dpid = dpid;
+            this.port = port;
+            this.ipAddress = ipAddress;
+            this.lastPublished = lastPublished;
+        }
+
+        /**
+         * Checks whether a sighting of the host has nothing new to publish
+         * but its time. A packet without source IP address doesn't change
+         * the IP address.
+         *
+         * @param newDpid the switch the host is seen on
+         * @param newPort the port the host is seen on
+         * @param newIpAddress the IP address of the host, or 0 if unknown
+         * @return true if the host has not moved or changed its IP address
+         */
+        private boolean isUnchanged(long newDpid, long newPort, int newIpAddress) {
+            return dpid == newDpid && port == newPort
+                    && (newIpAddress == 0 || ipAddress == newIpAddress);
+        }
+    }
+
     @Override
     public String getName() {
         return "hostmanager";
@@ -140,6 +195,19 @@ IHostService {
             return Command.STOP;
         }
 
+        // A host seen again at the same place is only refreshed locally. Its
+        // last seen time is published again after the refresh interval.
+        final MACAddress srcMac = srcHost.getMacAddress();
+        final long lastSeen = srcHost.getLastSeenTimestamp().getTime();
+        LearnedHost learnedHost = learnedHosts.get(srcMac);
+        if (learnedHost != null
+                && learnedHost.isUnchanged(dpid.value(), portNum.value(),
+                        srcHost.getIpAddress())
+                && lastSeen - learnedHost.lastPublished < refreshMillisecConfig) {
+            agingWheel.touch(srcMac, lastSeen);
+            return Command.CONTINUE;
+        }
+
         // If the switch port we try to attach a new host already has a link,
         // then don't add the host
         // TODO We probably don't need to check this here, it should be done in
@@ -159,6 +227,9 @@ IHostService {
 
         Long mac = eth.getSourceMAC().toLong();
         addHost(mac, srcHost);
+        learnedHosts.put(srcMac, new LearnedHost(dpid.value(), portNum.value(),
+                srcHost.getIpAddress(), lastSeen));
+        agingWheel.touch(srcMac, lastSeen);
 
         if (log.isTraceEnabled()) {
             log.trace("Add host info: {}", srcHost);
@@ -167,8 +238,8 @@ IHostService {
     }
 
     // Thread to delete hosts periodically.
-    // Remove all hosts from the map first and then finally delete hosts
-    // from the DB.
+    // Only the hosts due in the aging wheel are looked up in the topology,
+    // and the hosts still not seen are deleted in one update.
 
     // TODO This should be sharded based on host 'owner' (i.e. the instance
     // that owns the switch it is attached to). Currently any instance can
@@ -178,34 +249,59 @@ IHostService {
         @Override
         public void run() {
             log.debug("called HostCleaner");
-            mutableTopology.acquireReadLock();
             try {
-                Set<net.onrc.onos.core.topology.Host> deleteSet = new HashSet<>();
-                for (net.onrc.onos.core.topology.Host host : mutableTopology.getHosts()) {
-                    long now = System.currentTimeMillis();
-                    if ((now - host.getLastSeenTime() > agingMillisecConfig)) {
-                        if (log.isTraceEnabled()) {
-                            log.trace("Removing host info: mac {}, now {}, lastSeenTime {}, diff {}",
-                                    host.getMacAddress(), now, host.getLastSeenTime(), now - host.getLastSeenTime());
-                        }
-                        deleteSet.add(host);
-                    }
-                }
-
-                for (net.onrc.onos.core.topology.Host host : deleteSet) {
-                    deleteHostByMac(host.getMacAddress());
-                }
+                removeExpiredHosts(System.currentTimeMillis());
             } catch (Exception e) {
                 // Any exception thrown by the task will prevent the Executor
                 // from running the next iteration, so we need to catch and log
                 // all exceptions here.
                 log.error("Exception in host cleanup thread:", e);
-            } finally {
-                mutableTopology.releaseReadLock();
             }
         }
     }
 
+    // This "protected" modifier is for unit test.
+    // The HostCleaner runs on the executor with the current time.
+    protected void removeExpiredHosts(long now) {
+        List<MACAddress> expiredMacs = agingWheel.expire(now);
+        if (expiredMacs.isEmpty()) {
+            return;
+        }
+
+        List<Host> deleteHosts = new ArrayList<>();
+        mutableTopology.acquireReadLock();
+        try {
+            for (MACAddress mac : expiredMacs) {
+                learnedHosts.remove(mac);
+                net.onrc.onos.core.topology.Host host =
+                        mutableTopology.getHostByMac(mac);
+                if (host == null) {
+                    continue;
+                }
+                if (now - host.getLastSeenTime() <= agingMillisecConfig) {
+                    // Seen since, possibly through another instance
+                    agingWheel.touch(mac, host.getLastSeenTime());
+                    continue;
+                }
+                if (log.isTraceEnabled()) {
+                    log.trace("Removing host info: mac {}, now {}, lastSeenTime {}, diff {}",
+                            host.getMacAddress(), now, host.getLastSeenTime(), now - host.getLastSeenTime());
+                }
+                Host deleteHost = toDeleteHost(host);
+                if (deleteHost != null) {
+                    deleteHosts.add(deleteHost);
+                }
+            }
+        } finally {
+            mutableTopology.releaseReadLock();
+        }
+
+        if (!deleteHosts.isEmpty()) {
+            floodlightProvider.publishUpdate(
+                    new HostUpdate(deleteHosts, HostUpdateType.DELETE));
+        }
+    }
+
     /**
      * Parse a host from an {@link Ethernet} packet.
      *
@@ -277,17 +373,33 @@ IHostService {
         mutableTopology = topologyService.getTopology();
 
         setHostManagerProperties(context);
+        agingWheel = new HostAgingWheel(agingMillisecConfig);
     }
 
     @Override
     public void startUp(FloodlightModuleContext context) {
         floodlightProvider.addOFMessageListener(OFType.PACKET_IN, this);
+        topologyService.addListener(this, false);
+
+        // The hosts already in the topology, learned before a restart or by
+        // other instances, are aged out as well
+        mutableTopology.acquireReadLock();
+        try {
+            for (net.onrc.onos.core.topology.Host host : mutableTopology.getHosts()) {
+                agingWheel.touch(host.getMacAddress(), host.getLastSeenTime());
+            }
+        } finally {
+            mutableTopology.releaseReadLock();
+        }
+
         EXECUTOR_SERVICE.scheduleAtFixedRate(new HostCleaner(),
                 HOST_CLEANING_INITIAL_DELAY, cleanupSecondConfig, TimeUnit.SECONDS);
     }
 
     @Override
     public void deleteHost(Host host) {
+        agingWheel.remove(host.getMacAddress());
+        learnedHosts.remove(host.getMacAddress());
         floodlightProvider.publishUpdate(
                 new HostUpdate(host, HostUpdateType.DELETE));
     }
@@ -298,18 +410,7 @@ IHostService {
         mutableTopology.acquireReadLock();
         try {
             net.onrc.onos.core.topology.Host host = mutableTopology.getHostByMac(mac);
-
-            for (Port switchPort : host.getAttachmentPoints()) {
-                // We don't handle vlan now and multiple attachment points.
-                deleteHost = new Host(host.getMacAddress(),
-                        host.getIpAddress(),
-                        null,
-                        switchPort.getDpid().value(),
-                        switchPort.getNumber().value(),
-                        new Date(host.getLastSeenTime()));
-                // FIXME: remove NOPMD flag after multiple attachment points are implemented
-                break; // NOPMD
-            }
+            deleteHost = toDeleteHost(host);
         } finally {
             mutableTopology.releaseReadLock();
         }
@@ -319,12 +420,54 @@ IHostService {
         }
     }
 
+    /**
+     * Creates the host to delete for a host of the topology. The topology
+     * read lock must be held.
+     *
+     * @param host the host in the topology
+     * @return the host to delete, or null if the host has no attachment point
+     */
+    private Host toDeleteHost(net.onrc.onos.core.topology.Host host) {
+        Iterator<Port> ports = host.getAttachmentPoints().iterator();
+        if (!ports.hasNext()) {
+            return null;
+        }
+
+        // We don't handle vlan now and multiple attachment points.
+        Port switchPort = ports.next();
+        return new Host(host.getMacAddress(),
+                host.getIpAddress(),
+                null,
+                switchPort.getDpid().value(),
+                switchPort.getNumber().value(),
+                new Date(host.getLastSeenTime()));
+    }
+
     @Override
     public void addHost(Long mac, Host host) {
         floodlightProvider.publishUpdate(
                 new HostUpdate(host, HostUpdateType.ADD));
     }
 
+    @Override
+    public void topologyEvents(TopologyEvents topologyEvents) {
+        // The hosts removed from the topology are published again when they
+        // are seen
+        for (HostData hostData : topologyEvents.getRemovedHostDataEntries()) {
+            agingWheel.remove(hostData.getMac());
+            learnedHosts.remove(hostData.getMac());
+        }
+        // The hosts published by any instance are aged out by this instance
+        for (HostData hostData : topologyEvents.getAddedHostDataEntries()) {
+            agingWheel.touch(hostData.getMac(), hostData.getLastSeenTime());
+        }
+        if (!topologyEvents.getRemovedSwitchDataEntries().isEmpty()
+                || !topologyEvents.getRemovedPortDataEntries().isEmpty()) {
+            // The hosts attached to them may be gone as well
+            learnedHosts.clear();
+        }
+    }
+
     @Override
     public void addHostListener(IHostListener listener) {
         hostListeners.add(listener);
@@ -348,5 +491,13 @@ IHostService {
             agingMillisecConfig = Integer.parseInt(agingmsec);
             log.debug("AGEING_MILLSEC is set to {}", agingMillisecConfig);
         }
+
+        String refreshmsec = configOptions.get("refreshmsec");
+        if (refreshmsec != null) {
+            refreshMillisecConfig = Integer.parseInt(refreshmsec);
+        } else {
+            refreshMillisecConfig = agingMillisecConfig / REFRESHES_PER_AGING;
+        }
+        log.debug("REFRESH_MILLSEC is set to {}", refreshMillisecConfig);
     }
 }
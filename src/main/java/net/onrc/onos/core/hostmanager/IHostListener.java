@@ -1,8 +1,18 @@
 package net.onrc.onos.core.hostmanager;
 
+import java.util.Collection;
+
 public interface IHostListener {
 
     public void hostAdded(Host host);
 
     public void hostRemoved(Host host);
+
+    /**
+     * Called when several hosts are removed at once, such as the hosts aged
+     * out together.
+     *
+     * @param hosts the removed hosts
+     */
+    public void hostsRemoved(Collection<Host> hosts);
 }
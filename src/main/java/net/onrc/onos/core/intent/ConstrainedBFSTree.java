@@ -22,7 +22,7 @@ public class ConstrainedBFSTree {
     HashMap<Dpid, LinkData> upstreamLinks = new HashMap<>();
     HashMap<Dpid, Path> paths = new HashMap<>();
     Switch rootSwitch;
-    PathIntentMap intents = null;
+    LinkBandwidthProvider intents = null;
     double bandwidth = 0.0; // 0.0 means no limit for bandwidth (normal BFS tree)
 
     /**
@@ -39,10 +39,12 @@ public class ConstrainedBFSTree {
      * Constructor.
      *
      * @param rootSwitch root switch of the BFS tree
-     * @param intents map of Intents
+     * @param intents provider of the available bandwidth of links, such as
+     *        the map of Intents
      * @param bandwidth bandwidth constraint
      */
-    public ConstrainedBFSTree(Switch rootSwitch, PathIntentMap intents, double bandwidth) {
+    public ConstrainedBFSTree(Switch rootSwitch, LinkBandwidthProvider intents,
+            double bandwidth) {
         this.rootSwitch = rootSwitch;
         this.intents = intents;
         this.bandwidth = bandwidth;
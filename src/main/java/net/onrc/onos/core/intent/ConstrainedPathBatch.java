@@ -0,0 +1,114 @@
+package net.onrc.onos.core.intent;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+import net.onrc.onos.core.topology.Link;
+import net.onrc.onos.core.topology.LinkData;
+import net.onrc.onos.core.topology.Switch;
+import net.onrc.onos.core.util.SwitchPort;
+
+/**
+ * This class calculates bandwidth constrained paths for a batch of Intents.
+ * <p>
+ * The bandwidth allocated to the paths calculated earlier in the batch is
+ * accounted for when calculating the later paths, on top of the bandwidth
+ * already reserved by the PathIntents in the PathIntentMap. The allocations
+ * are kept in this object only; the PathIntentMap is not modified.
+ */
+public class ConstrainedPathBatch implements LinkBandwidthProvider {
+    private final PathIntentMap intents;
+    private final HashMap<SwitchPort, Double> allocatedBandwidth = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param intents map of the PathIntents reserving bandwidth, or null
+     */
+    public ConstrainedPathBatch(PathIntentMap intents) {
+        this.intents = intents;
+    }
+
+    /**
+     * Calculates a path satisfying the bandwidth constraint, without
+     * allocating the bandwidth.
+     *
+     * @param srcSwitch the source switch
+     * @param dstSwitch the destination switch
+     * @param bandwidth bandwidth constraint
+     * @return the path, or null if no path satisfies the constraint
+     */
+    public Path calcPath(Switch srcSwitch, Switch dstSwitch, double bandwidth) {
+        ConstrainedBFSTree tree = new ConstrainedBFSTree(srcSwitch, this, bandwidth);
+        return tree.getPath(dstSwitch);
+    }
+
+    /**
+     * Calculates a path satisfying the bandwidth constraint, and allocates
+     * the bandwidth on it for the rest of the batch.
+     *
+     * @param srcSwitch the source switch
+     * @param dstSwitch the destination switch
+     * @param bandwidth bandwidth constraint
+     * @return the path, or null if no path satisfies the constraint
+     */
+    public Path allocatePath(Switch srcSwitch, Switch dstSwitch, double bandwidth) {
+        Path path = calcPath(srcSwitch, dstSwitch, bandwidth);
+        if (path != null) {
+            allocate(path, bandwidth);
+        }
+        return path;
+    }
+
+    /**
+     * Allocates bandwidth on all switch ports of a path, the same way the
+     * PathIntentMap accounts for the bandwidth of a PathIntent.
+     *
+     * @param path the path
+     * @param bandwidth the bandwidth to allocate
+     */
+    public void allocate(Path path, double bandwidth) {
+        if (bandwidth == 0.0 || Double.isInfinite(bandwidth) || Double.isNaN(bandwidth)) {
+            return;
+        }
+        HashSet<SwitchPort> ports = new HashSet<>();
+        for (LinkData linkData : path) {
+            ports.add(linkData.getSrc());
+            ports.add(linkData.getDst());
+        }
+        for (SwitchPort port : ports) {
+            allocatedBandwidth.put(port, getAllocatedBandwidth(port) + bandwidth);
+        }
+    }
+
+    /**
+     * Gets the bandwidth allocated in this batch on a switch port.
+     *
+     * @param swPort the switch port
+     * @return the allocated bandwidth
+     */
+    public double getAllocatedBandwidth(SwitchPort swPort) {
+        Double bandwidth = allocatedBandwidth.get(swPort);
+        return (bandwidth == null) ? 0.0 : bandwidth;
+    }
+
+    /**
+     * Calculate available bandwidth of specified link, taking into account
+     * the bandwidth allocated in this batch.
+     *
+     * @param link the Link
+     * @return the available bandwidth
+     */
+    @Override
+    public Double getAvailableBandwidth(Link link) {
+        if (link == null) {
+            return null;
+        }
+        Double bandwidth = (intents == null)
+                ? link.getCapacity() : intents.getAvailableBandwidth(link);
+        if (!bandwidth.isInfinite()) {
+            bandwidth -= getAllocatedBandwidth(link.getLinkTuple().getSrc());
+        }
+        return bandwidth;
+    }
+}
@@ -1,14 +1,76 @@
 package net.onrc.onos.core.intent;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 
 /**
  * This class is simply a list of IntentOperations. It exists so
  * that IntentOperations can be serialized for notifications and persistence.
+ * <p>
+ * The list also carries the trace of its processing through the intent
+ * pipeline: a trace ID, and the System.nanoTime() timestamp at which each
+ * {@link Stage} was completed. The timestamps are only comparable with each
+ * other on the instance which recorded them.
  */
 public class IntentOperationList extends LinkedList<IntentOperation> {
     private static final long serialVersionUID = -3894081461861052610L;
 
+    /**
+     * The stages of the intent pipeline, in processing order.
+     */
+    public enum Stage {
+        /**
+         * The operations were submitted to the path calculation runtime.
+         */
+        SUBMITTED,
+
+        /**
+         * The path intents were calculated.
+         */
+        PATH_CALCULATED,
+
+        /**
+         * The path intent operations were persisted, and are being published.
+         */
+        PUBLISHED,
+
+        /**
+         * The path intent operations were received by the plan installer.
+         */
+        RECEIVED,
+
+        /**
+         * The path intent operations were taken from the plan installer queue.
+         */
+        DEQUEUED,
+
+        /**
+         * The flow entry plan was computed.
+         */
+        PLAN_COMPUTED,
+
+        /**
+         * The flow entries of the last plan phase were queued to the flow
+         * pusher.
+         */
+        FLOWS_QUEUED,
+
+        /**
+         * The barriers following the flow entries of the last plan phase were
+         * written to the switches, after the flow entries.
+         */
+        FLOWS_WRITTEN,
+
+        /**
+         * The barriers following the flow entries of the last plan phase were
+         * acknowledged.
+         */
+        BARRIER_ACKED,
+    }
+
+    private long traceId;
+    private final long[] stageTimestamps = new long[Stage.values().length];
+
     /**
      * Add an operator and Intent to the list.
      *
@@ -19,4 +81,70 @@ public class IntentOperationList extends LinkedList<IntentOperation> {
     public boolean add(IntentOperation.Operator op, Intent intent) {
         return add(new IntentOperation(op, intent));
     }
+
+    /**
+     * Gets the trace ID of the list.
+     *
+     * @return the trace ID, or 0 if the list is not traced
+     */
+    public long getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * Sets the trace ID of the list.
+     *
+     * @param traceId the trace ID
+     */
+    public void setTraceId(long traceId) {
+        this.traceId = traceId;
+    }
+
+    /**
+     * Records the current time as the completion time of a stage.
+     *
+     * @param stage the completed stage
+     */
+    public void stamp(Stage stage) {
+        stageTimestamps[stage.ordinal()] = System.nanoTime();
+    }
+
+    /**
+     * Gets the completion time of a stage.
+     *
+     * @param stage the stage
+     * @return the System.nanoTime() timestamp, or 0 if not recorded
+     */
+    public long getTimestamp(Stage stage) {
+        return stageTimestamps[stage.ordinal()];
+    }
+
+    /**
+     * Sets the completion time of a stage.
+     *
+     * @param stage the stage
+     * @param timestamp the System.nanoTime() timestamp, or 0 to clear it
+     */
+    public void setTimestamp(Stage stage, long timestamp) {
+        stageTimestamps[stage.ordinal()] = timestamp;
+    }
+
+    /**
+     * Copies the trace ID and timestamps of another list to this list.
+     *
+     * @param other the list to copy the trace from
+     */
+    public void copyTrace(IntentOperationList other) {
+        this.traceId = other.traceId;
+        System.arraycopy(other.stageTimestamps, 0, stageTimestamps, 0,
+                stageTimestamps.length);
+    }
+
+    /**
+     * Clears the trace ID and timestamps of the list.
+     */
+    public void clearTrace() {
+        traceId = 0;
+        Arrays.fill(stageTimestamps, 0);
+    }
 }
@@ -0,0 +1,17 @@
+package net.onrc.onos.core.intent;
+
+import net.onrc.onos.core.topology.Link;
+
+/**
+ * An interface to look up the bandwidth still available on links, used by
+ * bandwidth constrained path calculation.
+ */
+public interface LinkBandwidthProvider {
+    /**
+     * Gets the available bandwidth of the specified link.
+     *
+     * @param link the Link
+     * @return the available bandwidth, or null if link is null
+     */
+    Double getAvailableBandwidth(Link link);
+}
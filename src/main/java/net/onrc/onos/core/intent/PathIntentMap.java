@@ -17,15 +17,21 @@ import net.onrc.onos.core.util.SwitchPort;
  * superclass, this class maintains a mapping from switch port to
  * PathIntent. It is used to quickly identify Intents that are affected
  * when a network event involves a particular switch port.
+ * <p>
+ * The bandwidth reserved by the PathIntents on each switch port is also
+ * maintained incrementally, so that the available bandwidth of a link can be
+ * looked up in constant time.
  */
-public class PathIntentMap extends IntentMap {
+public class PathIntentMap extends IntentMap implements LinkBandwidthProvider {
     private final HashMap<Dpid, HashMap<PortNumber, HashSet<PathIntent>>> intents;
+    private final HashMap<SwitchPort, Double> reservedBandwidth;
 
     /**
      * Constructor.
      */
     public PathIntentMap() {
         intents = new HashMap<>();
+        reservedBandwidth = new HashMap<>();
     }
 
     /**
@@ -57,7 +63,49 @@ public class PathIntentMap extends IntentMap {
      * @param intent Path Intent
      */
     private void put(SwitchPort swPort, PathIntent intent) {
-        get(swPort).add(intent);
+        if (get(swPort).add(intent)) {
+            double intentBandwidth = getReservableBandwidth(intent);
+            if (intentBandwidth != 0.0) {
+                reservedBandwidth.put(swPort,
+                        getReservedBandwidth(swPort) + intentBandwidth);
+            }
+        }
+    }
+
+    /**
+     * Remove a PathIntent from a particular switch port.
+     *
+     * @param swPort switch port
+     * @param intent Path Intent
+     */
+    private void remove(SwitchPort swPort, PathIntent intent) {
+        HashSet<PathIntent> targetIntents = get(swPort);
+        if (targetIntents.remove(intent)) {
+            if (targetIntents.isEmpty()) {
+                // reset the counter to avoid accumulating rounding errors
+                reservedBandwidth.remove(swPort);
+            } else {
+                double intentBandwidth = getReservableBandwidth(intent);
+                if (intentBandwidth != 0.0) {
+                    reservedBandwidth.put(swPort,
+                            getReservedBandwidth(swPort) - intentBandwidth);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the bandwidth a PathIntent reserves on each of its switch ports.
+     *
+     * @param intent Path Intent
+     * @return the reserved bandwidth, 0.0 if the Intent has no valid bandwidth
+     */
+    private static double getReservableBandwidth(PathIntent intent) {
+        Double intentBandwidth = intent.getBandwidth();
+        if (intentBandwidth == null || intentBandwidth.isInfinite() || intentBandwidth.isNaN()) {
+            return 0.0;
+        }
+        return intentBandwidth;
     }
 
     /**
@@ -89,8 +137,8 @@ public class PathIntentMap extends IntentMap {
     protected void removeIntent(String intentId) {
         PathIntent intent = (PathIntent) getIntent(intentId);
         for (LinkData linkData : intent.getPath()) {
-            get(linkData.getSrc()).remove(intent);
-            get(linkData.getDst()).remove(intent);
+            remove(linkData.getSrc(), intent);
+            remove(linkData.getDst(), intent);
         }
         super.removeIntent(intentId);
     }
@@ -142,25 +190,32 @@ public class PathIntentMap extends IntentMap {
         return result;
     }
 
+    /**
+     * Retrieve the total bandwidth reserved by the intents that use a
+     * particular switch port.
+     *
+     * @param swPort the switch port
+     * @return the reserved bandwidth
+     */
+    public double getReservedBandwidth(SwitchPort swPort) {
+        Double bandwidth = reservedBandwidth.get(swPort);
+        return (bandwidth == null) ? 0.0 : bandwidth;
+    }
+
     /**
      * Calculate available bandwidth of specified link.
      *
      * @param link the Link
      * @return the available bandwidth
      */
+    @Override
     public Double getAvailableBandwidth(Link link) {
         if (link == null) {
             return null;
         }
         Double bandwidth = link.getCapacity();
         if (!bandwidth.isInfinite()) {
-            for (PathIntent intent : getIntentsByLink(link.getLinkTuple())) {
-                Double intentBandwidth = intent.getBandwidth();
-                if (intentBandwidth == null || intentBandwidth.isInfinite() || intentBandwidth.isNaN()) {
-                    continue;
-                }
-                bandwidth -= intentBandwidth;
-            }
+            bandwidth -= getReservedBandwidth(link.getLinkTuple().getSrc());
         }
         return bandwidth;
     }
@@ -0,0 +1,184 @@
+package net.onrc.onos.core.intent.runtime;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.onrc.onos.core.intent.IntentOperationList;
+import net.onrc.onos.core.intent.IntentOperationList.Stage;
+import net.onrc.onos.core.metrics.OnosMetrics;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsComponent;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsFeature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Histogram;
+
+/**
+ * Records the latency of the intent pipeline stages from the traces carried
+ * by IntentOperationLists.
+ * <p/>
+ * The latency of each stage, measured from the completion of the previous
+ * stage, is added to a Histogram in nanoseconds. The histograms are named
+ * "Intents.Trace.&lt;Stage&gt;.LatencyNs" and can be queried through the
+ * metrics REST API.
+ * <p/>
+ * The timestamps recorded by another ONOS instance are not comparable with
+ * the local ones, so the latency between the instances is only recorded for
+ * the traces started by this instance, which is identified by the upper
+ * 32 bits of the trace ID.
+ */
+public final class IntentTracer {
+    private static final Logger log = LoggerFactory.getLogger(IntentTracer.class);
+
+    private static final long INSTANCE_ID_MASK = 0xffffffff00000000L;
+    private static final long SEQUENCE_MASK = 0x00000000ffffffffL;
+    // minimum number of samples before reporting the outliers
+    private static final long MIN_OUTLIER_SAMPLES = 100;
+
+    private static final long INSTANCE_ID =
+            ((long) new SecureRandom().nextInt()) << Integer.SIZE;
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private static final MetricsComponent METRICS_COMPONENT =
+        OnosMetrics.registerComponent("Intents");
+    private static final MetricsFeature METRICS_FEATURE_TRACE =
+        METRICS_COMPONENT.registerFeature("Trace");
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Histogram[] STAGE_LATENCIES = new Histogram[STAGES.length];
+    static {
+        // the first stage has no latency
+        for (int i = 1; i < STAGES.length; ++i) {
+            STAGE_LATENCIES[i] =
+                OnosMetrics.createHistogram(METRICS_COMPONENT,
+                                            METRICS_FEATURE_TRACE,
+                                            STAGES[i].name() + ".LatencyNs");
+        }
+    }
+    // Latency from the submission to the barrier acknowledgment
+    private static final Histogram TOTAL_LATENCY =
+        OnosMetrics.createHistogram(METRICS_COMPONENT,
+                                    METRICS_FEATURE_TRACE,
+                                    "Total.LatencyNs");
+
+    /**
+     * Hide the default constructor of the utility class.
+     */
+    private IntentTracer() {
+    }
+
+    /**
+     * Gets the latency Histogram of a stage.
+     *
+     * @param stage the stage, other than the first one
+     * @return the Histogram
+     */
+    static Histogram getStageLatency(Stage stage) {
+        return STAGE_LATENCIES[stage.ordinal()];
+    }
+
+    /**
+     * Gets the Histogram of the latency from the submission to the barrier
+     * acknowledgment.
+     *
+     * @return the Histogram
+     */
+    static Histogram getTotalLatency() {
+        return TOTAL_LATENCY;
+    }
+
+    /**
+     * Starts the trace of a list of operations submitted to the pipeline.
+     * <p/>
+     * A list which is already traced keeps its trace ID, so that the
+     * operations resubmitted by this instance are traced as a whole.
+     *
+     * @param list the submitted list
+     */
+    public static void start(IntentOperationList list) {
+        if (list.getTraceId() == 0) {
+            list.setTraceId(INSTANCE_ID
+                    | (SEQUENCE.incrementAndGet() & SEQUENCE_MASK));
+        }
+        list.stamp(Stage.SUBMITTED);
+    }
+
+    /**
+     * Checks whether a trace was started by this instance.
+     *
+     * @param list the traced list
+     * @return true if the timestamps of the earlier stages are local
+     */
+    static boolean isLocal(IntentOperationList list) {
+        return list.getTraceId() != 0
+                && (list.getTraceId() & INSTANCE_ID_MASK) == INSTANCE_ID;
+    }
+
+    /**
+     * Records the latency of the traced stages of a list.
+     * <p/>
+     * The stages without timestamps are skipped, and their latency is
+     * included in the following stage.
+     *
+     * @param list the list which completed the pipeline, or the part of it
+     *             run by this instance
+     */
+    public static void record(IntentOperationList list) {
+        if (list.getTraceId() == 0) {
+            return;
+        }
+        final boolean local = isLocal(list);
+        long previous = 0;
+        for (Stage stage : STAGES) {
+            final long timestamp = list.getTimestamp(stage);
+            if (timestamp == 0) {
+                continue;
+            }
+            if (!local && stage.compareTo(Stage.RECEIVED) < 0) {
+                // the stages before the notification ran on another instance
+                continue;
+            }
+            if (previous != 0) {
+                STAGE_LATENCIES[stage.ordinal()].update(timestamp - previous);
+            }
+            previous = timestamp;
+        }
+
+        final long submitted = list.getTimestamp(Stage.SUBMITTED);
+        final long acked = list.getTimestamp(Stage.BARRIER_ACKED);
+        if (!local || submitted == 0 || acked == 0) {
+            return;
+        }
+        final long total = acked - submitted;
+        TOTAL_LATENCY.update(total);
+        if (log.isInfoEnabled() && TOTAL_LATENCY.getCount() >= MIN_OUTLIER_SAMPLES
+                && total > TOTAL_LATENCY.getSnapshot().get99thPercentile()) {
+            log.info("Intent operations trace {} above 99th percentile: {}",
+                    Long.toHexString(list.getTraceId()), formatStages(list));
+        }
+    }
+
+    /**
+     * Gets a string representation of the stage latencies of a list.
+     *
+     * @param list the traced list
+     * @return the latency of each stage in nanoseconds
+     */
+    static String formatStages(IntentOperationList list) {
+        final StringBuilder result = new StringBuilder();
+        long previous = 0;
+        for (Stage stage : STAGES) {
+            final long timestamp = list.getTimestamp(stage);
+            if (timestamp == 0) {
+                continue;
+            }
+            if (previous != 0) {
+                result.append(stage.name()).append('=')
+                      .append(timestamp - previous).append("ns ");
+            }
+            previous = timestamp;
+        }
+        return result.append("operations=").append(list.size()).toString();
+    }
+}
@@ -4,6 +4,7 @@ import java.util.HashMap;
 
 import net.floodlightcontroller.core.module.IFloodlightService;
 import net.onrc.onos.core.intent.ConstrainedBFSTree;
+import net.onrc.onos.core.intent.ConstrainedPathBatch;
 import net.onrc.onos.core.intent.ConstrainedShortestPathIntent;
 import net.onrc.onos.core.intent.ErrorIntent;
 import net.onrc.onos.core.intent.ErrorIntent.ErrorType;
@@ -53,6 +54,8 @@ public class PathCalcRuntime implements IFloodlightService {
             final IntentMap appIntents, final PathIntentMap pathIntents) {
         IntentOperationList pathIntentOpList = new IntentOperationList();
         HashMap<Switch, ConstrainedBFSTree> spfTrees = new HashMap<>();
+        // bandwidth allocated to the constrained paths calculated in this batch
+        ConstrainedPathBatch constrainedPaths = new ConstrainedPathBatch(pathIntents);
 
         // TODO optimize locking of Topology
         mutableTopology.acquireReadLock();
@@ -84,18 +87,18 @@ public class PathCalcRuntime implements IFloodlightService {
                     }
 
                     double bandwidth = 0.0;
-                    ConstrainedBFSTree tree = null;
+                    Path path = null;
                     if (spIntent instanceof ConstrainedShortestPathIntent) {
                         bandwidth = ((ConstrainedShortestPathIntent) intentOp.intent).getBandwidth();
-                        tree = new ConstrainedBFSTree(srcSwitch, pathIntents, bandwidth);
+                        path = constrainedPaths.calcPath(srcSwitch, dstSwitch, bandwidth);
                     } else {
-                        tree = spfTrees.get(srcSwitch);
+                        ConstrainedBFSTree tree = spfTrees.get(srcSwitch);
                         if (tree == null) {
                             tree = new ConstrainedBFSTree(srcSwitch);
                             spfTrees.put(srcSwitch, tree);
                         }
+                        path = tree.getPath(dstSwitch);
                     }
-                    Path path = tree.getPath(dstSwitch);
                     if (path == null) {
                         log.debug("Path not found. Intent: {}", spIntent.toString());
                         pathIntentOpList.add(Operator.ERROR, new ErrorIntent(
@@ -123,6 +126,7 @@ public class PathCalcRuntime implements IFloodlightService {
                         // operation for new path-intent
                         spIntent.setPathIntentId(newPathIntent);
                         pathIntentOpList.add(Operator.ADD, newPathIntent);
+                        constrainedPaths.allocate(path, bandwidth);
                         log.debug("new intent:{}", newPathIntent);
                     } else {
                         PathIntent oldPathIntent = (PathIntent) pathIntents.getIntent(oldPathIntentId);
@@ -135,6 +139,7 @@ public class PathCalcRuntime implements IFloodlightService {
                             spIntent.setPathIntentId(newPathIntent);
                             pathIntentOpList.add(Operator.REMOVE, oldPathIntent);
                             pathIntentOpList.add(Operator.ADD, newPathIntent);
+                            constrainedPaths.allocate(path, bandwidth);
                             log.debug("update intent:{} -> {}", oldPathIntent, newPathIntent);
                         }
                     }
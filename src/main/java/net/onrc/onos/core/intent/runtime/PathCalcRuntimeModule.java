@@ -33,6 +33,7 @@ import net.onrc.onos.core.intent.IntentMap.ChangedListener;
 import net.onrc.onos.core.intent.IntentOperation;
 import net.onrc.onos.core.intent.IntentOperation.Operator;
 import net.onrc.onos.core.intent.IntentOperationList;
+import net.onrc.onos.core.intent.IntentOperationList.Stage;
 import net.onrc.onos.core.intent.PathIntent;
 import net.onrc.onos.core.intent.PathIntentMap;
 import net.onrc.onos.core.intent.ShortestPathIntent;
@@ -726,6 +727,7 @@ public class PathCalcRuntimeModule implements IFloodlightModule,
             return null;
         }
 
+        IntentTracer.start(list);
         lock.lock(); // TODO optimize locking using smaller steps
         try {
             log.trace("lock executeIntentOperations, lock obj is already locked? {}", lock.isLocked());
@@ -766,6 +768,8 @@ public class PathCalcRuntimeModule implements IFloodlightModule,
 
             // calculate path-intents (low-level operations)
             IntentOperationList pathIntentOperations = runtime.calcPathIntents(list, highLevelIntents, pathIntents);
+            pathIntentOperations.copyTrace(list);
+            pathIntentOperations.stamp(Stage.PATH_CALCULATED);
 
             // persist calculated low-level operations into data store
             long key = persistIntent.getKey();
@@ -789,6 +793,7 @@ public class PathCalcRuntimeModule implements IFloodlightModule,
             // send notification
             // XXX: Send notifications using the same key every time
             // and receive them by entryAdded() and entryUpdated()
+            pathIntentOperations.stamp(Stage.PUBLISHED);
             opEventChannel.addEntry(0L, pathIntentOperations);
             //opEventChannel.removeEntry(key);
             return pathIntentOperations;
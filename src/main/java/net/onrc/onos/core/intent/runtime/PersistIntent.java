@@ -1,7 +1,5 @@
 package net.onrc.onos.core.intent.runtime;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
@@ -18,7 +16,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.esotericsoftware.kryo.Kryo;
-import com.esotericsoftware.kryo.io.Output;
 
 /**
  * The module used by PathCalcRuntimeModule class.
@@ -32,9 +29,6 @@ public class PersistIntent {
     private static final String INTENT_JOURNAL = "G:IntentJournal";
     private static final int VALUE_STORE_LIMIT = 1024 * 1024;
     private IKVTable table;
-    private Kryo kryo;
-    private ByteArrayOutputStream stream;
-    private Output output = null;
     private AtomicLong nextId = null;
     private long rangeEnd;
     private IdBlock idBlock = null;
@@ -47,9 +41,6 @@ public class PersistIntent {
     public PersistIntent(final IControllerRegistryService controllerRegistry) {
         this.controllerRegistry = controllerRegistry;
         table = DataStoreClient.getClient().getTable(INTENT_JOURNAL);
-        stream = new ByteArrayOutputStream(1024);
-        output = new Output(stream);
-        kryo = KryoFactory.newKryoObject();
     }
 
     private long getNextBlock() {
@@ -96,10 +87,8 @@ public class PersistIntent {
             try {
                 // reserve key 10 entries for multi-write if size over 1MB
                 keyValue *= 10;
-                kryo.writeObject(output, operations);
-                output.close();
+                byte[] buffer = serialize(operations);
                 ByteBuffer keyBytes = ByteBuffer.allocate(8).putLong(keyValue);
-                byte[] buffer = stream.toByteArray();
                 int total = buffer.length;
                 if ((total >= VALUE_STORE_LIMIT)) {
                     int writeCount = total / VALUE_STORE_LIMIT;
@@ -125,16 +114,28 @@ public class PersistIntent {
                     table.create(keyBytes.array(), buffer);
                 }
                 log.debug("key is {} value length is {}", keyValue, buffer.length);
-                stream.reset();
-                stream.close();
                 log.debug("persist operations to ramcloud size of operations: {}", operations.size());
                 ret = true;
             } catch (ObjectExistsException ex) {
                 log.warn("Failed to store intent journal with key " + keyValue);
-            } catch (IOException ex) {
-                log.error("Failed to close the stream");
             }
         }
         return ret;
     }
+
+    /**
+     * Serializes intent operations with a Kryo instance of the global pool.
+     *
+     * @param operations intent operations
+     * @return the serialized operations
+     */
+    private static byte[] serialize(IntentOperationList operations) {
+        KryoFactory pool = KryoFactory.getGlobalPool();
+        Kryo kryo = pool.newKryo();
+        try {
+            return KryoFactory.serializeObject(kryo, operations, -1);
+        } finally {
+            pool.deleteKryo(kryo);
+        }
+    }
 }
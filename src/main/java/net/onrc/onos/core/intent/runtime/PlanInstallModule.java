@@ -27,6 +27,7 @@ import net.onrc.onos.core.intent.Intent;
 import net.onrc.onos.core.intent.Intent.IntentState;
 import net.onrc.onos.core.intent.IntentOperation;
 import net.onrc.onos.core.intent.IntentOperationList;
+import net.onrc.onos.core.intent.IntentOperationList.Stage;
 import net.onrc.onos.core.intent.PathIntent;
 import net.onrc.onos.core.intent.ShortestPathIntent;
 import net.onrc.onos.core.topology.ITopologyService;
@@ -76,6 +77,7 @@ public class PlanInstallModule implements IFloodlightModule, IOFMessageListener
             while (true) {
                 try {
                     IntentOperationList intents = intentQueue.take();
+                    intents.stamp(Stage.DEQUEUED);
                     // TODO: consider draining the remaining intent lists
                     // and processing in one big batch
 
@@ -98,16 +100,18 @@ public class PlanInstallModule implements IFloodlightModule, IOFMessageListener
             log.debug("Processing OperationList {}", intents);
             log("begin_computePlan");
             List<Set<FlowEntry>> plan = planCalc.computePlan(intents);
+            intents.stamp(Stage.PLAN_COMPUTED);
             log("end_computePlan");
             log.debug("Plan: {}", plan);
             log("begin_installPlan");
-            boolean success = planInstall.installPlan(plan);
+            boolean success = planInstall.installPlan(plan, intents);
             log("end_installPlan");
             Set<Long> domainSwitchDpids = floodlightProvider.getSwitches().keySet();
             log("begin_sendInstallNotif");
             sendNotifications(intents, true, success, domainSwitchDpids);
             log("end_sendInstallNotif");
             log("finish");
+            IntentTracer.record(intents);
         }
 
         /***
@@ -184,6 +188,7 @@ public class PlanInstallModule implements IFloodlightModule, IOFMessageListener
          */
         @Override
         public void entryUpdated(IntentOperationList value) {
+            value.stamp(Stage.RECEIVED);
             putIntentOpsInfoInParentMap(value);
             log("start_intentNotifRecv");
             log("begin_sendReceivedNotif");
@@ -11,13 +11,14 @@ import java.util.concurrent.ExecutionException;
 
 import net.floodlightcontroller.core.IFloodlightProviderService;
 import net.floodlightcontroller.core.IOFSwitch;
-import net.floodlightcontroller.core.internal.OFMessageFuture;
 import net.onrc.onos.core.flowprogrammer.IFlowPusherService;
+import net.onrc.onos.core.flowprogrammer.OFBarrierReplyFuture;
 import net.onrc.onos.core.intent.FlowEntry;
+import net.onrc.onos.core.intent.IntentOperationList;
+import net.onrc.onos.core.intent.IntentOperationList.Stage;
 import net.onrc.onos.core.util.Dpid;
 
 import org.apache.commons.lang3.tuple.Pair;
-import org.projectfloodlight.openflow.protocol.OFBarrierReply;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -162,9 +163,11 @@ public class PlanInstallRuntime {
      * before proceeded with the next set of entries
      *
      * @param plan list of set of FlowEntries for installation on local switches
+     * @param intents the operations the plan was computed from, stamped with
+     *                the completion of the installation stages
      * @return true (we assume installation is successful)
      */
-    public boolean installPlan(List<Set<FlowEntry>> plan) {
+    public boolean installPlan(List<Set<FlowEntry>> plan, IntentOperationList intents) {
         long start = System.nanoTime();
         Map<Long, IOFSwitch> switches = provider.getSwitches();
 
@@ -193,23 +196,31 @@ public class PlanInstallRuntime {
             log.debug("Pushing flow entries: {}", entries);
             pusher.pushFlowEntries(entries);
             long step3 = System.nanoTime();
+            intents.setTimestamp(Stage.FLOWS_QUEUED, step3);
 
             // insert a barrier after each phase on each modifiedSwitch
             // wait for confirmation messages before proceeding
-            List<Pair<IOFSwitch, OFMessageFuture<OFBarrierReply>>> barriers = new ArrayList<>();
+            List<Pair<IOFSwitch, OFBarrierReplyFuture>> barriers = new ArrayList<>();
             for (IOFSwitch sw : modifiedSwitches) {
                 barriers.add(Pair.of(sw, pusher.barrierAsync(new Dpid(sw.getId()))));
             }
-            for (Pair<IOFSwitch, OFMessageFuture<OFBarrierReply>> pair : barriers) {
+            long flowsWritten = 0;
+            for (Pair<IOFSwitch, OFBarrierReplyFuture> pair : barriers) {
                 IOFSwitch sw = pair.getLeft();
-                OFMessageFuture<OFBarrierReply> future = pair.getRight();
+                OFBarrierReplyFuture future = pair.getRight();
                 try {
                     future.get();
                 } catch (InterruptedException | ExecutionException e) {
                     log.error("Barrier message not received for sw: {}", sw);
                 }
+                // the barrier is written after the flow entries of the switch
+                flowsWritten = Math.max(flowsWritten, future.getRequestWrittenTime());
             }
             long step4 = System.nanoTime();
+            if (flowsWritten != 0) {
+                intents.setTimestamp(Stage.FLOWS_WRITTEN, flowsWritten);
+            }
+            intents.setTimestamp(Stage.BARRIER_ACKED, step4);
             log.debug("MEASUREMENT: convert: {} ns, push: {} ns, barrierWait: {} ns",
                     step2 - step1, step3 - step2, step4 - step3);
 
@@ -11,7 +11,9 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.floodlightcontroller.core.IFloodlightProviderService;
 import net.floodlightcontroller.core.internal.OFMessageFuture;
@@ -21,17 +23,23 @@ import net.onrc.onos.core.datagrid.IDatagridService;
 import net.onrc.onos.core.datagrid.IEventChannel;
 import net.onrc.onos.core.datagrid.IEventChannelListener;
 import net.onrc.onos.core.flowprogrammer.IFlowPusherService;
+import net.onrc.onos.core.metrics.OnosMetrics;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsComponent;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsFeature;
 import net.onrc.onos.core.registry.IControllerRegistryService;
 import net.onrc.onos.core.util.Dpid;
 import net.onrc.onos.core.util.IdBlockAllocator;
 import net.onrc.onos.core.util.IdGenerator;
 import net.onrc.onos.core.util.SwitchPort;
 
-import org.apache.commons.lang3.tuple.Pair;
 import org.projectfloodlight.openflow.protocol.OFBarrierReply;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+
 /**
  * Manages Match-Action entries.
  * <p>
@@ -40,6 +48,17 @@ import org.slf4j.LoggerFactory;
 public class MatchActionComponent implements MatchActionService, IFloodlightService {
 
     private static final Logger log = LoggerFactory.getLogger(MatchActionService.class);
+
+    /**
+     * Default number of installer worker threads.
+     */
+    public static final int DEFAULT_INSTALLER_THREADS = 4;
+
+    /**
+     * Default capacity of the work queue of each installer worker thread.
+     */
+    public static final int DEFAULT_INSTALL_QUEUE_CAPACITY = 100;
+
     private final IFlowPusherService pusher;
     private final IFloodlightProviderService provider;
 
@@ -48,7 +67,10 @@ public class MatchActionComponent implements MatchActionService, IFloodlightServ
             new ConcurrentHashMap<>();
     //  TODO - want something better here for the resolved Queue
     private final BlockingQueue<MatchActionOperationsId> resolvedQueue = new ArrayBlockingQueue<>(100);
-    private final BlockingQueue<MatchActionOperations> installationWorkQueue = new ArrayBlockingQueue<>(100);
+    private final int installerThreads;
+    private final int installQueueCapacity;
+    private final List<InstallerWorker> installerWorkers = new ArrayList<>();
+    private ExecutorService replyExecutor;
 
     private IEventChannel<Long, MatchActionOperations> installSetChannel;
     private IEventChannel<String, SwitchResultList> installSetReplyChannel;
@@ -59,8 +81,27 @@ public class MatchActionComponent implements MatchActionService, IFloodlightServ
     private MatchActionIdGeneratorWithIdBlockAllocator matchActionIdGenerator;
     private MatchActionOperationsIdGeneratorWithIdBlockAllocator matchActionOperationsIdGenerator;
 
+    //
+    // Metrics
+    //
+    private static final MetricsComponent METRICS_COMPONENT =
+        OnosMetrics.registerComponent("MatchAction");
+    private static final MetricsFeature METRICS_FEATURE_INSTALLER =
+        METRICS_COMPONENT.registerFeature("Installer");
+    // Number of times the installer listener blocked on a full work queue
+    private final Counter installQueueFullCount =
+        OnosMetrics.createCounter(METRICS_COMPONENT,
+                                  METRICS_FEATURE_INSTALLER,
+                                  "QueueFullCount");
+    // Rate of the MatchActionOperations sets completed by this instance
+    private final Meter installCompletedRate =
+        OnosMetrics.createMeter(METRICS_COMPONENT,
+                                METRICS_FEATURE_INSTALLER,
+                                "CompletedRate");
+
     /**
-     * Constructs a MatchActionComponent given the services it depends on.
+     * Constructs a MatchActionComponent given the services it depends on,
+     * using the default installer configuration.
      *
      * @param newDatagrid datagrid dependency
      * @param newPusher flow pusher dependency
@@ -71,10 +112,44 @@ public class MatchActionComponent implements MatchActionService, IFloodlightServ
                                 final IFlowPusherService newPusher,
                                 final IFloodlightProviderService newProvider,
                                 final IControllerRegistryService newRegistryService) {
+        this(newDatagrid, newPusher, newProvider, newRegistryService,
+             DEFAULT_INSTALLER_THREADS, DEFAULT_INSTALL_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructs a MatchActionComponent given the services it depends on
+     * and the installer configuration.
+     *
+     * @param newDatagrid datagrid dependency
+     * @param newPusher flow pusher dependency
+     * @param newProvider provider used for switch queries
+     * @param newRegistryService registry for ID block allocation
+     * @param newInstallerThreads number of installer worker threads
+     * @param newInstallQueueCapacity capacity of the work queue of each
+     *        installer worker thread
+     */
+    public MatchActionComponent(final IDatagridService newDatagrid,
+                                final IFlowPusherService newPusher,
+                                final IFloodlightProviderService newProvider,
+                                final IControllerRegistryService newRegistryService,
+                                final int newInstallerThreads,
+                                final int newInstallQueueCapacity) {
+        if (newInstallerThreads <= 0) {
+            throw new IllegalArgumentException(
+                    "Number of installer threads must be positive: "
+                    + newInstallerThreads);
+        }
+        if (newInstallQueueCapacity <= 0) {
+            throw new IllegalArgumentException(
+                    "Installer queue capacity must be positive: "
+                    + newInstallQueueCapacity);
+        }
         datagrid = newDatagrid;
         pusher = newPusher;
         provider = newProvider;
         registryService = newRegistryService;
+        installerThreads = newInstallerThreads;
+        installQueueCapacity = newInstallQueueCapacity;
     }
 
     /**
@@ -104,10 +179,45 @@ public class MatchActionComponent implements MatchActionService, IFloodlightServ
                 String.class,
                 SwitchResultList.class);
 
-        // TODO Single instance for now, should be a work queue of some sort eventually
-        final InstallerWorker installer = new InstallerWorker();
-        installer.start();
+        replyExecutor = Executors.newSingleThreadExecutor();
+        for (int i = 0; i < installerThreads; i++) {
+            final InstallerWorker installer = new InstallerWorker(i);
+            installerWorkers.add(installer);
+            installer.start();
+        }
+
+        OnosMetrics.registerMetric(METRICS_COMPONENT,
+                                   METRICS_FEATURE_INSTALLER,
+                                   "QueueDepth",
+                                   new Gauge<Integer>() {
+                                       @Override
+                                       public Integer getValue() {
+                                           return getInstallQueueDepth();
+                                       }
+                                   });
+        OnosMetrics.registerMetric(METRICS_COMPONENT,
+                                   METRICS_FEATURE_INSTALLER,
+                                   "QueueCapacity",
+                                   new Gauge<Integer>() {
+                                       @Override
+                                       public Integer getValue() {
+                                           return installerThreads * installQueueCapacity;
+                                       }
+                                   });
+    }
 
+    /**
+     * Gets the number of per-switch installation tasks waiting in the
+     * installer worker queues.
+     *
+     * @return the total depth of the installer work queues
+     */
+    public int getInstallQueueDepth() {
+        int depth = 0;
+        for (InstallerWorker worker : installerWorkers) {
+            depth += worker.workQueue.size();
+        }
+        return depth;
     }
 
     /**
@@ -316,86 +426,188 @@ public class MatchActionComponent implements MatchActionService, IFloodlightServ
     }
 
     /**
-     * Worker thread that pushes MatchActionOperations to the switches via
-     * the FlowPusher.
+     * The part of a MatchActionOperations set that has to be installed on a
+     * single switch.
      */
-    private class InstallerWorker extends Thread {
+    private static final class InstallTask {
+        private final Dpid dpid;
+        private final List<MatchActionOperationEntry> operations = new ArrayList<>();
+        private final InstallTracker tracker;
 
         /**
-         * Default constructor.
+         * Constructs an empty task for a switch.
+         *
+         * @param dpid the switch the operations are installed on
+         * @param tracker tracker of the set the operations belong to
          */
-        InstallerWorker() {
-            // nothing to initialize
+        InstallTask(Dpid dpid, InstallTracker tracker) {
+            this.dpid = dpid;
+            this.tracker = tracker;
         }
+    }
 
-        // Note: we should consider using an alternative representation for
-        // apply sets
+    /**
+     * Tracks the outstanding per-switch installations of a
+     * MatchActionOperations set on this instance, and sends the
+     * SwitchResultList to the coordinator as soon as every switch of the
+     * set has been confirmed by a barrier reply or has failed.
+     */
+    private final class InstallTracker {
+        private final MatchActionOperationsId setId;
+        private final SwitchResultList results = new SwitchResultList();
+        private final AtomicInteger pendingSwitches;
 
         /**
-         * Installs a set of MatchActionOperations using the Flow Pusher.
+         * Constructs a tracker for a set.
          *
-         * @param matchSet set of MatchActions to install
+         * @param setId identifier of the set being installed
+         * @param switchCount number of switches modified by the set
          */
-        private void install(MatchActionOperations matchSet) {
-            Set<Long> masterDpids = provider.getAllMasterSwitchDpids();
+        InstallTracker(MatchActionOperationsId setId, int switchCount) {
+            this.setId = setId;
+            this.pendingSwitches = new AtomicInteger(switchCount);
+        }
 
-            Set<MatchActionOperationEntry> installSet = new HashSet<>();
-            Set<Dpid> modifiedSwitches = new HashSet<>();
+        /**
+         * Records the outcome of the installation on one switch.
+         *
+         * @param dpid the switch
+         * @param status outcome of the installation on the switch
+         */
+        void switchCompleted(Dpid dpid, SwitchResult.Status status) {
+            final SwitchResult result = new SwitchResult(setId, dpid);
+            result.setStatus(status);
+            synchronized (results) {
+                results.add(result);
+            }
+            if (pendingSwitches.decrementAndGet() == 0) {
+                replyExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        sendResults();
+                    }
+                });
+            }
+        }
 
-            for (MatchActionOperationEntry matchActionOp : matchSet.getOperations()) {
-                MatchAction matchAction = matchActionOp.getTarget();
-                Dpid dpid = matchAction.getSwitchPort().getDpid();
-                if (masterDpids.contains(dpid.value())) {
-                    // only install if we are the master
-                    // TODO this optimization will introduce some nice race
-                    // conditions on failure requiring mastership change
-                    installSet.add(matchActionOp);
-                    modifiedSwitches.add(dpid);
+        /**
+         * Sends the results of the set to the coordinator.
+         */
+        private void sendResults() {
+            // TODO: we might want to use another ID here, i.e. GUID, to avoid
+            // overlap
+            installCompletedRate.mark();
+            installSetReplyChannel.addTransientEntry(setId.toString(), results);
+        }
+    }
+
+    /**
+     * Splits a set of MatchActionOperations per switch and dispatches the
+     * parts to the installer workers. Only the switches this instance is
+     * master of are installed.
+     *
+     * @param matchSet set of MatchActions to install
+     * @throws InterruptedException if interrupted while waiting for space
+     *         in a full work queue
+     */
+    private void dispatch(MatchActionOperations matchSet) throws InterruptedException {
+        Set<Long> masterDpids = provider.getAllMasterSwitchDpids();
+
+        Map<Dpid, List<MatchActionOperationEntry>> switchOps = new HashMap<>();
+        for (MatchActionOperationEntry matchActionOp : matchSet.getOperations()) {
+            MatchAction matchAction = matchActionOp.getTarget();
+            Dpid dpid = matchAction.getSwitchPort().getDpid();
+            if (masterDpids.contains(dpid.value())) {
+                // only install if we are the master
+                // TODO this optimization will introduce some nice race
+                // conditions on failure requiring mastership change
+                List<MatchActionOperationEntry> ops = switchOps.get(dpid);
+                if (ops == null) {
+                    ops = new ArrayList<>();
+                    switchOps.put(dpid, ops);
                 }
+                ops.add(matchActionOp);
             }
+        }
+        if (switchOps.isEmpty()) {
+            return;
+        }
+
+        final InstallTracker tracker =
+                new InstallTracker(matchSet.getOperationsId(), switchOps.size());
+        for (Map.Entry<Dpid, List<MatchActionOperationEntry>> entry : switchOps.entrySet()) {
+            InstallTask task = new InstallTask(entry.getKey(), tracker);
+            task.operations.addAll(entry.getValue());
+            // The operations for a switch are always handled by the same
+            // worker, which keeps them in order on that switch.
+            InstallerWorker worker = installerWorkers.get(
+                    (int) ((entry.getKey().value() & Long.MAX_VALUE) % installerWorkers.size()));
+            if (!worker.workQueue.offer(task)) {
+                installQueueFullCount.inc();
+                worker.workQueue.put(task);
+            }
+        }
+    }
+
+    /**
+     * Worker thread that pushes the per-switch parts of MatchActionOperations
+     * to the switches via the FlowPusher. Barrier replies are collected
+     * asynchronously, so a worker does not wait for a switch before taking
+     * its next task.
+     */
+    private class InstallerWorker extends Thread {
 
-            // push flow entries to switches
-            pusher.pushMatchActions(installSet);
+        private final BlockingQueue<InstallTask> workQueue =
+                new ArrayBlockingQueue<>(installQueueCapacity);
+
+        /**
+         * Constructs a worker.
+         *
+         * @param index index of the worker, used to name the thread
+         */
+        InstallerWorker(int index) {
+            super("MatchActionInstaller-" + index);
+            setDaemon(true);
+        }
 
-            // insert a barrier after each phase on each modifiedSwitch
-            // wait for confirmation messages before proceeding
-            List<Pair<Dpid, OFMessageFuture<OFBarrierReply>>> barriers = new ArrayList<>();
-            for (Dpid dpid : modifiedSwitches) {
-                barriers.add(Pair.of(dpid, pusher.barrierAsync(dpid)));
+        /**
+         * Installs the operations of a task on its switch using the Flow
+         * Pusher, and inserts a barrier after them.
+         *
+         * @param task the operations to install
+         */
+        private void install(final InstallTask task) {
+            // push flow entries to the switch
+            pusher.pushMatchActions(task.operations);
+
+            // insert a barrier and report the result once it is confirmed
+            final OFMessageFuture<OFBarrierReply> future = pusher.barrierAsync(task.dpid);
+            if (future == null) {
+                log.error("Barrier message could not be sent to sw: {}", task.dpid);
+                task.tracker.switchCompleted(task.dpid, SwitchResult.Status.FAILURE);
+                return;
             }
-            List<SwitchResult> switchResults = new ArrayList<>();
-            for (Pair<Dpid, OFMessageFuture<OFBarrierReply>> pair : barriers) {
-                Dpid dpid = pair.getLeft();
-                OFMessageFuture<OFBarrierReply> future = pair.getRight();
-                SwitchResult switchResult = new SwitchResult(matchSet.getOperationsId(),
-                        dpid);
-                try {
-                    future.get();
-                    switchResult.setStatus(SwitchResult.Status.SUCCESS);
-                } catch (InterruptedException | ExecutionException e) {
-                    log.error("Barrier message not received for sw: {}", dpid);
-                    switchResult.setStatus(SwitchResult.Status.FAILURE);
+            future.addCompletionListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.isCancelled()) {
+                        log.error("Barrier message not received for sw: {}", task.dpid);
+                        task.tracker.switchCompleted(task.dpid,
+                                SwitchResult.Status.FAILURE);
+                    } else {
+                        task.tracker.switchCompleted(task.dpid,
+                                SwitchResult.Status.SUCCESS);
+                    }
                 }
-                switchResults.add(switchResult);
-            }
-
-            // send update message to coordinator
-            // TODO: we might want to use another ID here, i.e. GUID, to avoid
-            // overlap
-            final SwitchResultList switchResultList = new SwitchResultList();
-            switchResultList.addAll(switchResults);
-            installSetReplyChannel.addTransientEntry(matchSet.getOperationsId().toString(),
-                    switchResultList);
+            });
         }
 
         @Override
         public void run() {
             //noinspection InfiniteLoopStatement - for IntelliJ
             while (true) {
-                // 1. Remove MatchActionOperations(s) from the Global Resolved Queue
                 try {
-                    MatchActionOperations operations = installationWorkQueue.take();
-                    install(operations);
+                    install(workQueue.take());
                 } catch (InterruptedException e) {
                     log.warn("Error taking from installation queue: {}", e.getMessage());
                 }
@@ -405,8 +617,9 @@ public class MatchActionComponent implements MatchActionService, IFloodlightServ
 
     /**
      * Consumer class for MatchActionOperations.  Listens on the MatchAction
-     * channel and places inbound requests on a queue to be handled by the
-     * InstallerWorker threads.
+     * channel and dispatches inbound requests to the queues of the
+     * InstallerWorker threads. The listener blocks while the queue of a
+     * worker is full.
      */
     class Installer
             implements IEventChannelListener<Long, MatchActionOperations> {
@@ -415,7 +628,7 @@ public class MatchActionComponent implements MatchActionService, IFloodlightServ
         public void entryAdded(MatchActionOperations value) {
             try {
                 log.trace("MatchAction Installer receiving set: {}", value);
-                installationWorkQueue.put(value);
+                dispatch(value);
             } catch (InterruptedException e) {
                 log.warn("Error adding to installer work queue: {}",
                         e.getMessage());
@@ -431,7 +644,7 @@ public class MatchActionComponent implements MatchActionService, IFloodlightServ
         public void entryUpdated(MatchActionOperations value) {
             try {
                 log.trace("MatchAction Installer receiving set: {}", value);
-                installationWorkQueue.put(value);
+                dispatch(value);
             } catch (InterruptedException e) {
                 log.warn("Error adding to installer work queue: {}",
                         e.getMessage());
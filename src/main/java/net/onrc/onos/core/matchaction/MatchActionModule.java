@@ -34,6 +34,9 @@ public class MatchActionModule implements MatchActionFloodlightService, IFloodli
             .getLogger(MatchActionModule.class);
     private MatchActionComponent matchActionComponent;
 
+    private static final String INSTALLER_THREADS_PROPERTY = "installerthreads";
+    private static final String INSTALL_QUEUE_CAPACITY_PROPERTY = "installqueuecapacity";
+
     @Override
     public Collection<Class<? extends IFloodlightService>> getModuleServices() {
         List<Class<? extends IFloodlightService>> services = new ArrayList<>();
@@ -71,7 +74,27 @@ public class MatchActionModule implements MatchActionFloodlightService, IFloodli
 
         restApi.addRestletRoutable(new MatchActionWebRoutable());
 
-        matchActionComponent = new MatchActionComponent(datagrid, pusher, provider, registry);
+        int installerThreads = MatchActionComponent.DEFAULT_INSTALLER_THREADS;
+        int installQueueCapacity = MatchActionComponent.DEFAULT_INSTALL_QUEUE_CAPACITY;
+        Map<String, String> configOptions = context.getConfigParams(this);
+        String installerThreadsOption = configOptions.get(INSTALLER_THREADS_PROPERTY);
+        String installQueueCapacityOption = configOptions.get(INSTALL_QUEUE_CAPACITY_PROPERTY);
+        try {
+            if (installerThreadsOption != null) {
+                installerThreads = Integer.parseInt(installerThreadsOption);
+            }
+            if (installQueueCapacityOption != null) {
+                installQueueCapacity = Integer.parseInt(installQueueCapacityOption);
+            }
+        } catch (NumberFormatException e) {
+            throw new FloodlightModuleException(
+                    "Invalid MatchAction installer configuration", e);
+        }
+        log.debug("MatchAction installer threads: {}, queue capacity: {}",
+                installerThreads, installQueueCapacity);
+
+        matchActionComponent = new MatchActionComponent(datagrid, pusher, provider, registry,
+                installerThreads, installQueueCapacity);
     }
 
     @Override
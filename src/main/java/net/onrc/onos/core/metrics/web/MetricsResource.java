@@ -29,6 +29,7 @@ public class MetricsResource extends ServerResource {
      */
     private static class MetricNameFilter implements MetricFilter {
         private final Set<String> names;
+        private final List<String> prefixes;
 
         /**
          * Hide default constructor.
@@ -36,15 +37,19 @@ public class MetricsResource extends ServerResource {
         @SuppressWarnings("unused")
         private MetricNameFilter() {
             names = null;
+            prefixes = null;
         }
 
         /**
-         * Initializes a filter for the given name list.
+         * Initializes a filter for the given name and prefix lists.
          *
          * @param nameListString comma separated list of strings of the
          *                       names of metrics to query
+         * @param prefixListString comma separated list of strings of the
+         *                         prefixes of the names of metrics to query
          */
-        public MetricNameFilter(final String nameListString) {
+        public MetricNameFilter(final String nameListString,
+                                final String prefixListString) {
 
             if (nameListString == null) {
                 names = null;
@@ -53,15 +58,39 @@ public class MetricsResource extends ServerResource {
                 names = new HashSet<>();
                 names.addAll(nameList);
             }
+
+            if (prefixListString == null) {
+                prefixes = null;
+            } else {
+                prefixes = Arrays.asList(prefixListString.split(","));
+            }
         }
 
         @Override
         public boolean matches(String s, Metric metric) {
-            return names == null || names.contains(s);
+            if (names == null && prefixes == null) {
+                return true;
+            }
+            if (names != null && names.contains(s)) {
+                return true;
+            }
+            if (prefixes != null) {
+                for (String prefix : prefixes) {
+                    if (s.startsWith(prefix)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
         }
     }
     /**
      * REST API to get all of the system's metrics.
+     * <p/>
+     * The metrics can be selected by name with the "ids" query parameter,
+     * and by name prefix with the "prefix" query parameter. For example,
+     * "?prefix=Intents.Trace" selects the latency histograms of the intent
+     * pipeline stages.
      *
      * @return a Representation object containing the metrics
      */
@@ -82,8 +111,10 @@ public class MetricsResource extends ServerResource {
                 new ArrayList<>();
 
         final String metricIdsString = getQuery().getValues("ids");
+        final String metricPrefixesString = getQuery().getValues("prefix");
 
-        final MetricFilter filter = new MetricNameFilter(metricIdsString);
+        final MetricFilter filter =
+                new MetricNameFilter(metricIdsString, metricPrefixesString);
 
         for (final Map.Entry<String, Timer> timer :
              OnosMetrics.getTimers(filter).entrySet()) {
@@ -18,6 +18,8 @@ public class MetricsWebRoutable implements RestletRoutable {
     @Override
     public Restlet getRestlet(Context context) {
         Router router = new Router(context);
+        // GET the metrics of the slowest switches
+        router.attach("/switches", SwitchMetricsResource.class);
         // GET all metrics
         router.attach("", MetricsResource.class);
         return router;
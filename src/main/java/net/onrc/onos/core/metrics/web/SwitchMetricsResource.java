@@ -0,0 +1,252 @@
+package net.onrc.onos.core.metrics.web;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+import net.floodlightcontroller.core.internal.SwitchMetrics;
+import net.onrc.onos.core.util.Dpid;
+import org.restlet.representation.Representation;
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * REST API for the control channel metrics of the connected switches.
+ */
+public class SwitchMetricsResource extends ServerResource {
+
+    /**
+     * Default number of switches returned.
+     */
+    private static final int DEFAULT_TOP = 10;
+
+    /**
+     * Orders the switches from the slowest to the fastest, by 99th percentile
+     * of the barrier round trip time, then of the echo round trip time.
+     */
+    private static final Comparator<SwitchObjectResource> SLOWEST_FIRST =
+            new Comparator<SwitchObjectResource>() {
+                @Override
+                public int compare(SwitchObjectResource o1,
+                                   SwitchObjectResource o2) {
+                    final int result = Double.compare(o2.getBarrierRtt99thNs(),
+                                                      o1.getBarrierRtt99thNs());
+                    if (result != 0) {
+                        return result;
+                    }
+                    return Double.compare(o2.getEchoRtt99thNs(),
+                                          o1.getEchoRtt99thNs());
+                }
+            };
+
+    /**
+     * Snapshot of the control channel metrics of a switch.
+     */
+    public static class SwitchObjectResource {
+        private final String dpid;
+        private final double packetInRate;
+        private final double flowModRate;
+        private final double messageRate;
+        private final long barrierCount;
+        private final double barrierRttMedianNs;
+        private final double barrierRtt99thNs;
+        private final long barrierRttMaxNs;
+        private final long echoCount;
+        private final double echoRttMedianNs;
+        private final double echoRtt99thNs;
+        private final long echoRttMaxNs;
+        private final int queueDepth;
+        private final long writeBacklog;
+
+        /**
+         * Takes a snapshot of the metrics of a switch.
+         *
+         * @param metrics the metrics of the switch
+         */
+        public SwitchObjectResource(final SwitchMetrics metrics) {
+            dpid = new Dpid(metrics.getDpid()).toString();
+            packetInRate = metrics.getPacketInRate().getOneMinuteRate();
+            flowModRate = metrics.getFlowModRate().getOneMinuteRate();
+            messageRate = metrics.getMessageRate().getOneMinuteRate();
+
+            final Histogram barrierRtt = metrics.getBarrierRtt();
+            final Snapshot barrierSnapshot = barrierRtt.getSnapshot();
+            barrierCount = barrierRtt.getCount();
+            barrierRttMedianNs = barrierSnapshot.getMedian();
+            barrierRtt99thNs = barrierSnapshot.get99thPercentile();
+            barrierRttMaxNs = barrierSnapshot.getMax();
+
+            final Histogram echoRtt = metrics.getEchoRtt();
+            final Snapshot echoSnapshot = echoRtt.getSnapshot();
+            echoCount = echoRtt.getCount();
+            echoRttMedianNs = echoSnapshot.getMedian();
+            echoRtt99thNs = echoSnapshot.get99thPercentile();
+            echoRttMaxNs = echoSnapshot.getMax();
+
+            queueDepth = metrics.getQueueDepth();
+            writeBacklog = metrics.getWriteBacklog();
+        }
+
+        /**
+         * Gets the DPID of the switch.
+         *
+         * @return the DPID as a ':' separated hexadecimal string
+         */
+        public String getDpid() {
+            return dpid;
+        }
+
+        /**
+         * Gets the one minute rate of the PACKET_IN messages received.
+         *
+         * @return the rate, in messages per second
+         */
+        public double getPacketInRate() {
+            return packetInRate;
+        }
+
+        /**
+         * Gets the one minute rate of the FLOW_MOD messages sent.
+         *
+         * @return the rate, in messages per second
+         */
+        public double getFlowModRate() {
+            return flowModRate;
+        }
+
+        /**
+         * Gets the one minute rate of all the messages sent.
+         *
+         * @return the rate, in messages per second
+         */
+        public double getMessageRate() {
+            return messageRate;
+        }
+
+        /**
+         * Gets the number of barrier round trips measured.
+         *
+         * @return the number of barrier replies
+         */
+        public long getBarrierCount() {
+            return barrierCount;
+        }
+
+        /**
+         * Gets the median of the barrier round trip time.
+         *
+         * @return the median, in nanoseconds
+         */
+        public double getBarrierRttMedianNs() {
+            return barrierRttMedianNs;
+        }
+
+        /**
+         * Gets the 99th percentile of the barrier round trip time.
+         *
+         * @return the 99th percentile, in nanoseconds
+         */
+        public double getBarrierRtt99thNs() {
+            return barrierRtt99thNs;
+        }
+
+        /**
+         * Gets the maximum of the barrier round trip time.
+         *
+         * @return the maximum, in nanoseconds
+         */
+        public long getBarrierRttMaxNs() {
+            return barrierRttMaxNs;
+        }
+
+        /**
+         * Gets the number of echo round trips measured.
+         *
+         * @return the number of echo replies
+         */
+        public long getEchoCount() {
+            return echoCount;
+        }
+
+        /**
+         * Gets the median of the echo round trip time.
+         *
+         * @return the median, in nanoseconds
+         */
+        public double getEchoRttMedianNs() {
+            return echoRttMedianNs;
+        }
+
+        /**
+         * Gets the 99th percentile of the echo round trip time.
+         *
+         * @return the 99th percentile, in nanoseconds
+         */
+        public double getEchoRtt99thNs() {
+            return echoRtt99thNs;
+        }
+
+        /**
+         * Gets the maximum of the echo round trip time.
+         *
+         * @return the maximum, in nanoseconds
+         */
+        public long getEchoRttMaxNs() {
+            return echoRttMaxNs;
+        }
+
+        /**
+         * Gets the number of messages queued by the flow pusher.
+         *
+         * @return the number of messages
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        /**
+         * Gets the number of messages not yet written to the socket.
+         *
+         * @return the number of messages
+         */
+        public long getWriteBacklog() {
+            return writeBacklog;
+        }
+    }
+
+    /**
+     * REST API to get the control channel metrics of the slowest switches.
+     * <p/>
+     * The switches are ordered from the slowest to the fastest by 99th
+     * percentile of the barrier round trip time. The number of switches
+     * returned is set by the "top" query parameter, 10 by default.
+     * For example, "/wm/onos/metrics/switches?top=5".
+     *
+     * @return a Representation object containing the switch metrics
+     */
+    @Get("json")
+    public Representation retrieve() {
+        int top = DEFAULT_TOP;
+        final String topString = getQuery().getValues("top");
+        if (topString != null) {
+            try {
+                top = Integer.parseInt(topString);
+            } catch (NumberFormatException e) {
+                top = DEFAULT_TOP;
+            }
+        }
+
+        final List<SwitchObjectResource> switches = new ArrayList<>();
+        for (final SwitchMetrics metrics : SwitchMetrics.getAll()) {
+            switches.add(new SwitchObjectResource(metrics));
+        }
+        Collections.sort(switches, SLOWEST_FIRST);
+
+        final int count = Math.max(0, Math.min(top, switches.size()));
+        return toRepresentation(
+                new ArrayList<>(switches.subList(0, count)), null);
+    }
+}
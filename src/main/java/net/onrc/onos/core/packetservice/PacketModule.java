@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import net.floodlightcontroller.core.FloodlightContext;
 import net.floodlightcontroller.core.IFloodlightProviderService;
@@ -40,10 +41,13 @@ import org.projectfloodlight.openflow.protocol.OFPacketOut;
 import org.projectfloodlight.openflow.protocol.OFPortDesc;
 import org.projectfloodlight.openflow.protocol.OFType;
 import org.projectfloodlight.openflow.protocol.action.OFAction;
+import org.projectfloodlight.openflow.types.OFBufferId;
 import org.projectfloodlight.openflow.types.OFPort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 
@@ -64,6 +68,35 @@ public class PacketModule implements IOFMessageListener, IPacketService,
     private static final String PACKET_OUT_CHANNEL_NAME =
             "onos.packet_out";
 
+    // Switches may reuse a buffer after a few seconds, so an older buffer ID
+    // is not used
+    private static final long BUFFER_TIMEOUT_MS = 2000;
+
+    private boolean useBufferId = true;
+
+    // The buffers of the received packets, keyed by the identity of the
+    // packets passed to the listeners. An entry goes away with its packet.
+    private final Cache<Ethernet, BufferedPacket> bufferedPackets =
+            CacheBuilder.newBuilder()
+                    .weakKeys()
+                    .expireAfterWrite(BUFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                    .build();
+
+    /**
+     * A packet-in buffered by the switch that received it.
+     */
+    private static final class BufferedPacket {
+        private final long dpid;
+        private final short inPort;
+        private final OFBufferId bufferId;
+
+        private BufferedPacket(long dpid, short inPort, OFBufferId bufferId) {
+            this.dpid = dpid;
+            this.inPort = inPort;
+            this.bufferId = bufferId;
+        }
+    }
+
     private PacketOutEventHandler packetOutEventHandler =
             new PacketOutEventHandler();
 
@@ -117,6 +150,34 @@ public class PacketModule implements IOFMessageListener, IPacketService,
         packetOutEventChannel.addTransientEntry(dstMac, notification);
     }
 
+    @Override
+    public void sendReceivedPacket(Ethernet eth, SwitchPort switchPort) {
+        BufferedPacket bufferedPacket = bufferedPackets.getIfPresent(eth);
+        if (bufferedPacket != null
+                && bufferedPacket.dpid == switchPort.getDpid().value()
+                && bufferedPackets.asMap().remove(eth, bufferedPacket)) {
+            IOFSwitch sw = floodlightProvider.getSwitches().get(bufferedPacket.dpid);
+            if (sw != null) {
+                OFFactory factory = sw.getFactory();
+                List<OFAction> actions = new ArrayList<>();
+                actions.add(factory.actions().output(
+                        OFPort.of(switchPort.getPortNumber().shortValue()),
+                        Short.MAX_VALUE));
+
+                OFPacketOut po = factory.buildPacketOut()
+                        .setBufferId(bufferedPacket.bufferId)
+                        .setInPort(OFPort.of(bufferedPacket.inPort))
+                        .setActions(actions)
+                        .build();
+
+                flowPusher.add(switchPort.getDpid(), po);
+                return;
+            }
+        }
+
+        sendPacket(eth, switchPort);
+    }
+
     @Override
     public void sendPacket(Ethernet eth, List<SwitchPort> switchPorts) {
         // TODO Auto-generated method stub
@@ -193,6 +254,12 @@ public class PacketModule implements IOFMessageListener, IPacketService,
             return Command.CONTINUE;
         }
 
+        OFBufferId bufferId = ((OFPacketIn) msg).getBufferId();
+        if (useBufferId && !OFBufferId.NO_BUFFER.equals(bufferId)) {
+            bufferedPackets.put(eth,
+                    new BufferedPacket(sw.getId(), inport, bufferId));
+        }
+
         for (IPacketListener listener : listeners) {
             listener.receive(topologySwitch, inPort, eth);
         }
@@ -241,6 +308,13 @@ public class PacketModule implements IOFMessageListener, IPacketService,
 
     @Override
     public void startUp(FloodlightModuleContext context) {
+        Map<String, String> configOptions = context.getConfigParams(this);
+        String useBufferIdOption = configOptions.get("usebufferid");
+        if (useBufferIdOption != null) {
+            useBufferId = Boolean.parseBoolean(useBufferIdOption);
+        }
+        log.info("Release buffered packets by buffer ID: {}", useBufferId);
+
         floodlightProvider.addOFMessageListener(OFType.PACKET_IN, this);
         packetOutEventChannel = datagrid.addListener(PACKET_OUT_CHANNEL_NAME,
                 packetOutEventHandler,
@@ -23,6 +23,10 @@ public final class TopologyEvent implements TopologyBatchTarget {
     private final TopologyElement<?> event;
     private final OnosInstanceId onosInstanceId;   // The ONOS Instance ID
 
+    private static final byte[] NOOP_ID =
+        "NO-OP".getBytes(StandardCharsets.UTF_8);
+    private static final byte ID_SEPARATOR = '@';
+
     /**
      * The topology event type.
      */
@@ -246,8 +250,7 @@ public final class TopologyEvent implements TopologyBatchTarget {
         // Get the Event ID
         //
         if (eventType == Type.NOOP) {
-            String id = "NO-OP";
-            eventId = ByteBuffer.wrap(id.getBytes(StandardCharsets.UTF_8));
+            eventId = ByteBuffer.wrap(NOOP_ID);
         } else {
             eventId = event.getIDasByteBuffer();
         }
@@ -256,13 +259,13 @@ public final class TopologyEvent implements TopologyBatchTarget {
         // Prepare the ONOS Instance ID. The '@' separator is needed to avoid
         // potential key collisions.
         //
-        byte[] onosId =
-            ("@" + onosInstanceId.toString()).getBytes(StandardCharsets.UTF_8);
+        byte[] onosId = onosInstanceId.toString().getBytes(StandardCharsets.UTF_8);
 
         // Concatenate the IDs
         ByteBuffer buf =
-            ByteBuffer.allocate(eventId.capacity() + onosId.length);
+            ByteBuffer.allocate(eventId.remaining() + 1 + onosId.length);
         buf.put(eventId);
+        buf.put(ID_SEPARATOR);
         buf.put(onosId);
         buf.flip();
         return buf;
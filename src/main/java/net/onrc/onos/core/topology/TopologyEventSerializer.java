@@ -0,0 +1,322 @@
+package net.onrc.onos.core.topology;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.floodlightcontroller.core.IFloodlightProviderService.Role;
+import net.floodlightcontroller.util.MACAddress;
+import net.onrc.onos.core.util.Dpid;
+import net.onrc.onos.core.util.OnosInstanceId;
+import net.onrc.onos.core.util.PortNumber;
+import net.onrc.onos.core.util.SwitchPort;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Kryo Serializer for TopologyEvents, with a compact binary encoding.
+ * <p/>
+ * The default field serializer writes the class of each nested object, the
+ * attributes as a ConcurrentHashMap of strings, and boxed fields. This
+ * serializer writes each type of event with a fixed schema instead:
+ * <ul>
+ * <li>DPIDs as 8 bytes and port numbers as 4 bytes,</li>
+ * <li>the well-known attribute names and values as their index in a fixed
+ * dictionary, and the other strings in UTF-8 with a varint length,</li>
+ * <li>the counts of attributes and attachment points as varints,</li>
+ * <li>the ONOS Instance IDs as Kryo objects, so that the ID shared by the
+ * events of a batch is written once, and then referenced.</li>
+ * </ul>
+ * The dictionary defines the encoding, so new strings must only be appended
+ * to it.
+ */
+public class TopologyEventSerializer extends Serializer<TopologyEvent> {
+
+    private static final TopologyEvent.Type[] TYPES =
+            TopologyEvent.Type.values();
+    private static final Role[] ROLES = Role.values();
+
+    // WARNING: the index of a string is its encoding, always add to the end
+    private static final String[] DICTIONARY = {
+        TopologyElement.TYPE,
+        TopologyElement.TYPE_PACKET_LAYER,
+        TopologyElement.TYPE_OPTICAL_LAYER,
+        TopologyElement.TYPE_ALL_LAYERS,
+        TopologyElement.ELEMENT_CONFIG_STATE,
+        ConfigState.NOT_CONFIGURED.toString(),
+        ConfigState.CONFIGURED.toString(),
+        TopologyElement.ELEMENT_ADMIN_STATUS,
+        AdminStatus.ACTIVE.toString(),
+        AdminStatus.INACTIVE.toString(),
+        TopologyElement.ELEMENT_TYPE,
+        PortData.DESCRIPTION,
+        "ConnectedSince",
+        "name",
+        "remoteAddress",
+        "state",
+    };
+    private static final Map<String, Integer> DICTIONARY_INDEX =
+            new HashMap<>();
+
+    static {
+        for (int i = 0; i < DICTIONARY.length; ++i) {
+            DICTIONARY_INDEX.put(DICTIONARY[i], i);
+        }
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, TopologyEvent event) {
+        output.writeByte(event.getEventType().ordinal());
+        kryo.writeObject(output, event.getOnosInstanceId());
+
+        switch (event.getEventType()) {
+        case MASTERSHIP:
+            MastershipData mastershipData = event.getMastershipData();
+            output.writeLong(mastershipData.getDpid().value());
+            kryo.writeObject(output, mastershipData.getOnosInstanceId());
+            output.writeByte(mastershipData.getRole().ordinal());
+            writeAttributes(output, mastershipData);
+            break;
+        case SWITCH:
+            SwitchData switchData = event.getSwitchData();
+            output.writeLong(switchData.getDpid().value());
+            writeAttributes(output, switchData);
+            break;
+        case PORT:
+            PortData portData = event.getPortData();
+            writeSwitchPort(output, portData.getSwitchPort());
+            writeAttributes(output, portData);
+            break;
+        case LINK:
+            LinkData linkData = event.getLinkData();
+            writeSwitchPort(output, linkData.getSrc());
+            writeSwitchPort(output, linkData.getDst());
+            output.writeDouble(linkData.getCapacity());
+            writeAttributes(output, linkData);
+            break;
+        case HOST:
+            HostData hostData = event.getHostData();
+            output.writeBytes(hostData.getMac().toBytes());
+            output.writeInt(hostData.getIp());
+            List<SwitchPort> attachmentPoints =
+                    hostData.getAttachmentPoints();
+            output.writeInt(attachmentPoints.size(), true);
+            for (SwitchPort attachmentPoint : attachmentPoints) {
+                writeSwitchPort(output, attachmentPoint);
+            }
+            output.writeLong(hostData.getLastSeenTime());
+            writeAttributes(output, hostData);
+            break;
+        case NOOP:
+        default:
+            break;
+        }
+    }
+
+    @Override
+    public TopologyEvent read(Kryo kryo, Input input,
+                              Class<TopologyEvent> type) {
+        final int typeOrdinal = input.readByte();
+        if (typeOrdinal < 0 || typeOrdinal >= TYPES.length) {
+            throw new KryoException("Invalid TopologyEvent type: "
+                    + typeOrdinal);
+        }
+        final OnosInstanceId onosInstanceId =
+                kryo.readObject(input, OnosInstanceId.class);
+
+        switch (TYPES[typeOrdinal]) {
+        case MASTERSHIP:
+            Dpid dpid = new Dpid(input.readLong());
+            OnosInstanceId masterId =
+                    kryo.readObject(input, OnosInstanceId.class);
+            final int roleOrdinal = input.readByte();
+            if (roleOrdinal < 0 || roleOrdinal >= ROLES.length) {
+                throw new KryoException("Invalid MastershipData role: "
+                        + roleOrdinal);
+            }
+            Role role = ROLES[roleOrdinal];
+            MastershipData mastershipData =
+                    new MastershipData(dpid, masterId, role);
+            readAttributes(input, mastershipData);
+            return new TopologyEvent(mastershipData, onosInstanceId);
+        case SWITCH:
+            SwitchData switchData = new SwitchData(new Dpid(input.readLong()));
+            readAttributes(input, switchData);
+            return new TopologyEvent(switchData, onosInstanceId);
+        case PORT:
+            PortData portData = new PortData(readSwitchPort(input));
+            readAttributes(input, portData);
+            return new TopologyEvent(portData, onosInstanceId);
+        case LINK:
+            LinkData linkData =
+                    new LinkData(readSwitchPort(input), readSwitchPort(input));
+            linkData.setCapacity(input.readDouble());
+            readAttributes(input, linkData);
+            return new TopologyEvent(linkData, onosInstanceId);
+        case HOST:
+            HostData hostData = new HostData(
+                    MACAddress.valueOf(
+                            input.readBytes(MACAddress.MAC_ADDRESS_LENGTH)),
+                    input.readInt());
+            final int size = input.readInt(true);
+            List<SwitchPort> attachmentPoints = new ArrayList<>(size);
+            for (int i = 0; i < size; ++i) {
+                attachmentPoints.add(readSwitchPort(input));
+            }
+            hostData.setAttachmentPoints(attachmentPoints);
+            hostData.setLastSeenTime(input.readLong());
+            readAttributes(input, hostData);
+            return new TopologyEvent(hostData, onosInstanceId);
+        case NOOP:
+        default:
+            return new TopologyEvent(onosInstanceId);
+        }
+    }
+
+    @Override
+    public TopologyEvent copy(Kryo kryo, TopologyEvent original) {
+        final OnosInstanceId onosInstanceId = original.getOnosInstanceId();
+
+        switch (original.getEventType()) {
+        case MASTERSHIP:
+            MastershipData mastershipData = original.getMastershipData();
+            return new TopologyEvent(
+                    freezeAs(new MastershipData(mastershipData), mastershipData),
+                    onosInstanceId);
+        case SWITCH:
+            SwitchData switchData = original.getSwitchData();
+            return new TopologyEvent(
+                    freezeAs(new SwitchData(switchData), switchData),
+                    onosInstanceId);
+        case PORT:
+            PortData portData = original.getPortData();
+            return new TopologyEvent(
+                    freezeAs(new PortData(portData), portData),
+                    onosInstanceId);
+        case LINK:
+            LinkData linkData = original.getLinkData();
+            LinkData linkCopy = new LinkData(linkData);
+            linkCopy.setCapacity(linkData.getCapacity());
+            return new TopologyEvent(freezeAs(linkCopy, linkData),
+                                     onosInstanceId);
+        case HOST:
+            HostData hostData = original.getHostData();
+            return new TopologyEvent(
+                    freezeAs(new HostData(hostData), hostData),
+                    onosInstanceId);
+        case NOOP:
+        default:
+            return new TopologyEvent(onosInstanceId);
+        }
+    }
+
+    /**
+     * Freezes the copy of an element if the original element is frozen.
+     *
+     * @param copy the unfrozen copy
+     * @param original the original element
+     * @param <T> the type of the element
+     * @return the copy
+     */
+    private static <T extends TopologyElement<T>> T freezeAs(
+            T copy, TopologyElement<?> original) {
+        return original.isFrozen() ? copy.freeze() : copy;
+    }
+
+    /**
+     * Writes a SwitchPort as a fixed width DPID and port number.
+     *
+     * @param output the output to write to
+     * @param switchPort the SwitchPort to write
+     */
+    private static void writeSwitchPort(Output output, SwitchPort switchPort) {
+        output.writeLong(switchPort.getDpid().value());
+        output.writeInt((int) switchPort.getPortNumber().value());
+    }
+
+    /**
+     * Reads a SwitchPort written by {@link #writeSwitchPort}.
+     *
+     * @param input the input to read from
+     * @return the SwitchPort
+     */
+    private static SwitchPort readSwitchPort(Input input) {
+        final Dpid dpid = new Dpid(input.readLong());
+        return new SwitchPort(dpid, PortNumber.uint32(input.readInt()));
+    }
+
+    /**
+     * Writes the string attributes and the frozen state of an element.
+     *
+     * @param output the output to write to
+     * @param element the element
+     */
+    private static void writeAttributes(Output output,
+                                        TopologyElement<?> element) {
+        Map<String, String> attributes = element.getAllStringAttributes();
+        output.writeInt(attributes.size(), true);
+        for (Map.Entry<String, String> entry : attributes.entrySet()) {
+            writeString(output, entry.getKey());
+            writeString(output, entry.getValue());
+        }
+        output.writeBoolean(element.isFrozen());
+    }
+
+    /**
+     * Reads the string attributes and the frozen state of an element.
+     *
+     * @param input the input to read from
+     * @param element the element to set the attributes of
+     */
+    private static void readAttributes(Input input,
+                                       TopologyElement<?> element) {
+        final int size = input.readInt(true);
+        for (int i = 0; i < size; ++i) {
+            final String key = readString(input);
+            element.createStringAttribute(key, readString(input));
+        }
+        if (input.readBoolean()) {
+            element.freeze();
+        }
+    }
+
+    /**
+     * Writes a string as its index in the dictionary plus one, or 0
+     * followed by the string if it is not in the dictionary.
+     *
+     * @param output the output to write to
+     * @param string the string to write
+     */
+    private static void writeString(Output output, String string) {
+        final Integer index = DICTIONARY_INDEX.get(string);
+        if (index == null) {
+            output.writeInt(0, true);
+            output.writeString(string);
+        } else {
+            output.writeInt(index + 1, true);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     *
+     * @param input the input to read from
+     * @return the string
+     */
+    private static String readString(Input input) {
+        final int index = input.readInt(true);
+        if (index == 0) {
+            return input.readString();
+        }
+        if (index > DICTIONARY.length) {
+            throw new KryoException("Invalid dictionary string index: "
+                    + index);
+        }
+        return DICTIONARY[index - 1];
+    }
+}
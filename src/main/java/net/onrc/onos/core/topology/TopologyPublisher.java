@@ -3,11 +3,15 @@ package net.onrc.onos.core.topology;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -26,6 +30,7 @@ import net.floodlightcontroller.core.module.IFloodlightModule;
 import net.floodlightcontroller.core.module.IFloodlightService;
 import net.floodlightcontroller.core.util.SingletonTask;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
+import net.floodlightcontroller.util.MACAddress;
 import net.onrc.onos.api.batchoperation.BatchOperationEntry;
 import net.onrc.onos.core.configmanager.INetworkConfigService;
 import net.onrc.onos.core.configmanager.INetworkConfigService.LinkConfigStatus;
@@ -660,27 +665,44 @@ public class TopologyPublisher implements IOFSwitchListener,
     public void hostRemoved(Host host) {
         log.debug("Host removed with MAC {}", host.getMacAddress());
 
+        hostsRemoved(Collections.singletonList(host));
+    }
+
+    @Override
+    public void hostsRemoved(Collection<Host> hosts) {
+        Set<MACAddress> removedMacs = new HashSet<>();
+        for (Host host : hosts) {
+            removedMacs.add(host.getMacAddress());
+        }
+        log.debug("{} hosts removed", removedMacs.size());
+
         //
-        // Remove all previously added HostData for this MAC address
+        // Remove all previously added HostData for these MAC addresses
         //
         // TODO: Currently, the caller of hostRemoved() might not include
         // the correct set of Attachment Points in the HostData entry itself.
         // Also, we might have multiple HostData entries for the same
         // host (MAC address), each containing a single (different) Attachment
         // Point.
-        // Hence, here we have to cleanup all HostData entries for this
-        // particular host, based on its MAC address.
+        // Hence, here we have to cleanup all HostData entries for these
+        // particular hosts, based on their MAC address.
+        //
+        // All the removals are published in a single batch.
         //
-        List<HostData> removeHostDataEntries = new LinkedList<>();
+        TopologyBatchOperation tbo = new TopologyBatchOperation();
         for (ConcurrentMap<ByteBuffer, HostData> cm : publishedHostDataEntries.values()) {
-            for (HostData hostData : cm.values()) {
-                if (hostData.getMac().equals(host.getMacAddress())) {
-                    removeHostDataEntries.add(hostData);
+            Iterator<HostData> it = cm.values().iterator();
+            while (it.hasNext()) {
+                HostData hostData = it.next();
+                if (removedMacs.contains(hostData.getMac())) {
+                    tbo.appendRemoveOperation(
+                            new TopologyEvent(hostData, getOnosInstanceId()));
+                    it.remove();
                 }
             }
         }
-        for (HostData hostData : removeHostDataEntries) {
-            publishRemoveHostEvent(hostData);
+        if (tbo.size() > 0) {
+            publishTopologyOperations(tbo);
         }
     }
 
@@ -0,0 +1,190 @@
+package net.onrc.onos.core.topology.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import net.onrc.onos.core.topology.Host;
+import net.onrc.onos.core.topology.Link;
+import net.onrc.onos.core.topology.MutableTopology;
+import net.onrc.onos.core.topology.Switch;
+import net.onrc.onos.core.util.Dpid;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.representation.OutputRepresentation;
+
+/**
+ * JSON representation of the network topology, generated while it is
+ * written to the response.
+ * <p/>
+ * The JSON has the same format as the one of TopologySerializer. The
+ * topology must not be modified while it is written, so it is expected to be
+ * a private copy of the network topology.
+ * <p/>
+ * The elements written can be restricted to some of the switches, links and
+ * hosts arrays, and to the switch with a given DPID, with the links from and
+ * to that switch and the hosts attached to it.
+ */
+public class TopologyRepresentation extends OutputRepresentation {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * The arrays of elements of the topology.
+     */
+    public enum Element {
+        /**
+         * The switches and their ports.
+         */
+        SWITCHES,
+
+        /**
+         * The links.
+         */
+        LINKS,
+
+        /**
+         * The hosts.
+         */
+        HOSTS;
+
+        /**
+         * Gets the name of the array in the JSON.
+         *
+         * @return the name
+         */
+        public String getFieldName() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+
+        /**
+         * Gets the element from the name of its array in the JSON.
+         *
+         * @param fieldName the name of the array
+         * @return the element
+         * @throws IllegalArgumentException if the name is not an element
+         */
+        public static Element fromFieldName(String fieldName) {
+            return valueOf(fieldName.trim().toUpperCase(Locale.ENGLISH));
+        }
+    }
+
+    private final MutableTopology topology;
+    private final EnumSet<Element> elements;
+    private final Dpid dpid;
+    private final boolean gzip;
+
+    /**
+     * Creates the representation of a topology.
+     *
+     * @param topology the topology, which must not be modified while it is
+     *                 written
+     * @param elements the arrays of elements to write
+     * @param dpid the DPID of the only switch to write, or null to write all
+     *             the switches
+     * @param gzip true to compress the representation with gzip
+     */
+    public TopologyRepresentation(MutableTopology topology,
+                                  EnumSet<Element> elements, Dpid dpid,
+                                  boolean gzip) {
+        super(MediaType.APPLICATION_JSON);
+        this.topology = topology;
+        this.elements = elements.clone();
+        this.dpid = dpid;
+        this.gzip = gzip;
+        if (gzip) {
+            getEncodings().add(Encoding.GZIP);
+        }
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        final GZIPOutputStream gzipStream =
+                gzip ? new GZIPOutputStream(outputStream) : null;
+        final JsonGenerator jsonGenerator =
+                MAPPER.getJsonFactory().createJsonGenerator(
+                        gzip ? gzipStream : outputStream, JsonEncoding.UTF8);
+
+        final Switch sw = (dpid == null) ? null : topology.getSwitch(dpid);
+
+        jsonGenerator.writeStartObject();
+
+        if (elements.contains(Element.SWITCHES)) {
+            jsonGenerator.writeArrayFieldStart(Element.SWITCHES.getFieldName());
+            for (final Switch swtch : getSwitches(sw)) {
+                jsonGenerator.writeObject(swtch);
+            }
+            jsonGenerator.writeEndArray();
+        }
+
+        if (elements.contains(Element.LINKS)) {
+            jsonGenerator.writeArrayFieldStart(Element.LINKS.getFieldName());
+            if (dpid == null) {
+                for (final Link link : topology.getLinks()) {
+                    jsonGenerator.writeObject(link);
+                }
+            } else if (sw != null) {
+                for (final Link link : sw.getOutgoingLinks()) {
+                    jsonGenerator.writeObject(link);
+                }
+                for (final Link link : sw.getIncomingLinks()) {
+                    // a link looping on the switch was already written
+                    if (!link.getLinkTuple().getSrc().getDpid().equals(dpid)) {
+                        jsonGenerator.writeObject(link);
+                    }
+                }
+            }
+            jsonGenerator.writeEndArray();
+        }
+
+        if (elements.contains(Element.HOSTS)) {
+            jsonGenerator.writeArrayFieldStart(Element.HOSTS.getFieldName());
+            for (final Host host : getHosts(sw)) {
+                jsonGenerator.writeObject(host);
+            }
+            jsonGenerator.writeEndArray();
+        }
+
+        jsonGenerator.writeEndObject();
+        jsonGenerator.flush();
+        if (gzipStream != null) {
+            gzipStream.finish();
+        }
+    }
+
+    /**
+     * Gets the switches to write.
+     *
+     * @param sw the switch with the requested DPID, if any
+     * @return the switches
+     */
+    private Iterable<Switch> getSwitches(Switch sw) {
+        if (dpid == null) {
+            return topology.getSwitches();
+        } else if (sw != null) {
+            return Collections.singletonList(sw);
+        }
+        return Collections.<Switch>emptyList();
+    }
+
+    /**
+     * Gets the hosts to write.
+     *
+     * @param sw the switch with the requested DPID, if any
+     * @return the hosts
+     */
+    private Iterable<Host> getHosts(Switch sw) {
+        if (dpid == null) {
+            return topology.getHosts();
+        } else if (sw != null) {
+            return sw.getHosts();
+        }
+        return Collections.<Host>emptyList();
+    }
+}
@@ -1,8 +1,17 @@
 package net.onrc.onos.core.topology.web;
 
+import java.util.EnumSet;
+
 import net.onrc.onos.core.topology.ITopologyService;
 import net.onrc.onos.core.topology.MutableTopology;
+import net.onrc.onos.core.topology.TopologyImpl;
+import net.onrc.onos.core.topology.web.TopologyRepresentation.Element;
+import net.onrc.onos.core.util.Dpid;
 
+import org.restlet.data.Encoding;
+import org.restlet.data.Form;
+import org.restlet.data.Preference;
+import org.restlet.data.Status;
 import org.restlet.engine.io.BufferingRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.resource.Get;
@@ -12,8 +21,24 @@ import org.restlet.resource.ServerResource;
  * A class to access the network topology information.
  */
 public class TopologyResource extends ServerResource {
+    private static final String ELEMENTS_ERROR =
+            "Invalid elements: must be a comma separated list of " +
+                    "switches, links and hosts";
+    private static final String DPID_ERROR =
+            "Invalid Switch DPID: must be a 64-bit quantity, expressed in " +
+                    "hex as AA:BB:CC:DD:EE:FF:00:11";
+
     /**
      * Gets the network topology information.
+     * <p/>
+     * The topology is copied, and written to the response from the copy,
+     * so the topology is only locked while it is copied. The response is
+     * compressed if the client accepts the gzip encoding.
+     * <p/>
+     * The "elements" query parameter selects the arrays to return, for
+     * example "?elements=switches,links". The "dpid" query parameter selects
+     * the switch with the given DPID, with the links from and to that switch
+     * and the hosts attached to it.
      *
      * @return a Representation of the network topology.
      */
@@ -23,15 +48,67 @@ public class TopologyResource extends ServerResource {
             (ITopologyService) getContext().getAttributes()
                 .get(ITopologyService.class.getCanonicalName());
 
+        Form form = getQuery();
+        EnumSet<Element> elements = EnumSet.allOf(Element.class);
+        String elementsString = form.getFirstValue("elements", true);
+        if (elementsString != null && !elementsString.isEmpty()) {
+            elements = EnumSet.noneOf(Element.class);
+            try {
+                for (String fieldName : elementsString.split(",")) {
+                    elements.add(Element.fromFieldName(fieldName));
+                }
+            } catch (IllegalArgumentException e) {
+                setStatus(Status.CLIENT_ERROR_BAD_REQUEST, ELEMENTS_ERROR);
+                return null;
+            }
+        }
+
+        Dpid dpid = null;
+        String dpidString = form.getFirstValue("dpid", true);
+        if (dpidString != null) {
+            try {
+                dpid = new Dpid(dpidString);
+            } catch (Exception e) {
+                setStatus(Status.CLIENT_ERROR_BAD_REQUEST, DPID_ERROR);
+                return null;
+            }
+        }
+
+        boolean gzip = isGzipAccepted();
+
         MutableTopology mutableTopology = topologyService.getTopology();
+        if (mutableTopology instanceof TopologyImpl) {
+            // the copy constructor holds the read lock while copying
+            return new TopologyRepresentation(
+                    new TopologyImpl((TopologyImpl) mutableTopology),
+                    elements, dpid, gzip);
+        }
+
         mutableTopology.acquireReadLock();
         try {
-            return eval(toRepresentation(mutableTopology, null));
+            return eval(new TopologyRepresentation(mutableTopology,
+                    elements, dpid, gzip));
         } finally {
             mutableTopology.releaseReadLock();
         }
     }
 
+    /**
+     * Checks whether the client accepts gzip encoded responses.
+     *
+     * @return true if the gzip encoding is accepted
+     */
+    private boolean isGzipAccepted() {
+        for (Preference<Encoding> preference
+                : getClientInfo().getAcceptedEncodings()) {
+            if (Encoding.GZIP.equals(preference.getMetadata())
+                    && preference.getQuality() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Workaround code to trigger evaluation of Representation immediately.
      *
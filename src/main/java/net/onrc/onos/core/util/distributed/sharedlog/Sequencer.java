@@ -24,4 +24,15 @@ public interface Sequencer {
      * @return next sequence number
      */
     public SeqNum next();
+
+    /**
+     * Reserves a range of consecutive sequence numbers.
+     * <p>
+     * The sequence numbers following the returned one can be obtained
+     * by {@link SeqNum#next()}.
+     *
+     * @param count number of sequence numbers to reserve. Must be positive.
+     * @return first sequence number of the range
+     */
+    public SeqNum next(int count);
 }
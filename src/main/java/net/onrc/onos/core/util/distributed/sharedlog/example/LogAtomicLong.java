@@ -2,6 +2,8 @@ package net.onrc.onos.core.util.distributed.sharedlog.example;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -38,7 +40,8 @@ public class LogAtomicLong implements SharedLogObject {
 
     private static final Serializer SERIALIZER = new KryoSerializer(
             SetEvent.class,
-            CompareAndSetEvent.class);
+            CompareAndSetEvent.class,
+            AddEvent.class);
 
 
     private final LogBasedRuntime runtime;
@@ -186,6 +189,42 @@ public class LogAtomicLong implements SharedLogObject {
     }
 
 
+    /**
+     * LogMessage for {@link LogAtomicLong#add(long)}.
+     */
+    private static final class AddEvent {
+
+        private final long delta;
+
+        /**
+         * Constructor.
+         *
+         * @param delta value to add
+         */
+        public AddEvent(long delta) {
+            this.delta = delta;
+        }
+
+        /**
+         * Gets the value to add.
+         *
+         * @return value to add
+         */
+        public long getDelta() {
+            return delta;
+        }
+
+        /**
+         * Default constructor for deserializer.
+         */
+        @SuppressWarnings("unused")
+        @Deprecated
+        public AddEvent() {
+            this.delta = 0L;
+        }
+    }
+
+
     /**
      * Sets the specified value regardless of current value.
      *
@@ -226,6 +265,46 @@ public class LogAtomicLong implements SharedLogObject {
         }
     }
 
+    /**
+     * Adds the specified value to the current value.
+     *
+     * @param delta value to add
+     */
+    public void add(long delta) {
+        ByteValue newLog = serialize(new AddEvent(delta));
+
+        try {
+            runtime.updateHelper(this, newLog, true);
+        } catch (LogNotApplicable e) {
+            log.error("Should never happen", e);
+        } catch (LogWriteTimedOut e) {
+            log.warn("Timeout, retrying", e);
+            add(delta);
+        }
+    }
+
+    /**
+     * Adds each of the specified values to the current value,
+     * writing them to the shared log in a single batch.
+     *
+     * @param deltas values to add
+     * @return number of values added
+     */
+    public int addAll(long... deltas) {
+        List<ByteValue> newLogs = new ArrayList<>(deltas.length);
+        for (long delta : deltas) {
+            newLogs.add(serialize(new AddEvent(delta)));
+        }
+
+        int added = 0;
+        for (SeqNum seq : runtime.updateHelper(this, newLogs, true)) {
+            if (seq != null) {
+                ++added;
+            }
+        }
+        return added;
+    }
+
     /**
      * Serializes SetEvent to ByteValue.
      *
@@ -246,6 +325,16 @@ public class LogAtomicLong implements SharedLogObject {
         return new ByteValue(SERIALIZER.serialize(event));
     }
 
+    /**
+     * Serializes AddEvent to ByteValue.
+     *
+     * @param event {@link AddEvent}
+     * @return {@link ByteValue}
+     */
+    private ByteValue serialize(AddEvent event) {
+        return new ByteValue(SERIALIZER.serialize(event));
+    }
+
     /**
      * Gets the current value.
      *
@@ -290,6 +379,9 @@ public class LogAtomicLong implements SharedLogObject {
             if (event instanceof CompareAndSetEvent) {
                 applyCompareAndSetEvent(seq, (CompareAndSetEvent) event);
             }
+            if (event instanceof AddEvent) {
+                applyAddEvent(seq, (AddEvent) event);
+            }
 
         } else if (logValue instanceof NoOp) {
             this.current = seq;
@@ -321,6 +413,18 @@ public class LogAtomicLong implements SharedLogObject {
         this.value = setEvent.getNewValue();
     }
 
+    /**
+     * Applies {@link AddEvent}.
+     *
+     * @param seq sequence number of event
+     * @param addEvent {@link AddEvent}
+     */
+    @GuardedBy("writeLock")
+    private void applyAddEvent(SeqNum seq, final AddEvent addEvent) {
+        this.current = seq;
+        this.value += addEvent.getDelta();
+    }
+
     @GuardedBy("writeLock")
     @Override
     public void reset(SeqNum seq, SnapShotValue ssValue) {
@@ -344,7 +448,8 @@ public class LogAtomicLong implements SharedLogObject {
     @GuardedBy("readLock")
     @Override
     public ImmutablePair<SeqNum, ? extends SnapShotValue> createSnapshot() {
-        return ImmutablePair.of(getSeqNum(), serialize(new SetEvent(get())));
+        // must not replay here, it would require the write lock
+        return ImmutablePair.of(getSeqNum(), serialize(new SetEvent(value)));
     }
 
     @GuardedBy("readLock")
@@ -359,6 +464,9 @@ public class LogAtomicLong implements SharedLogObject {
             CompareAndSetEvent casEvent = (CompareAndSetEvent) event;
             return casEvent.getExpect() == value;
         }
+        if (event instanceof AddEvent) {
+            return true;
+        }
         return false;
     }
 
@@ -5,7 +5,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -17,7 +17,6 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import net.onrc.onos.core.util.distributed.sharedlog.ByteValue;
 import net.onrc.onos.core.util.distributed.sharedlog.LogEventListener;
@@ -34,19 +33,18 @@ import net.onrc.onos.core.util.distributed.sharedlog.internal.NoOp;
 import net.onrc.onos.core.util.distributed.sharedlog.runtime.LogBasedRuntime;
 import net.onrc.onos.core.util.distributed.sharedlog.runtime.SequencerRuntime;
 
-import org.apache.commons.lang3.concurrent.ConcurrentException;
-import org.apache.commons.lang3.concurrent.ConcurrentInitializer;
-import org.apache.commons.lang3.concurrent.ConcurrentUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IAtomicLong;
 import com.hazelcast.core.IFunction;
 import com.hazelcast.core.IMap;
+import com.hazelcast.map.EntryBackupProcessor;
+import com.hazelcast.map.EntryProcessor;
 import com.hazelcast.nio.ObjectDataInput;
 import com.hazelcast.nio.ObjectDataOutput;
 import com.hazelcast.nio.serialization.DataSerializable;
@@ -172,8 +170,7 @@ public class HazelcastRuntime implements LogBasedRuntime {
         log.trace("allocated {}", allocated);
 
         // replay
-        if (queryBeforeUpdate) {
-            // FIXME How to handle initial case?
+        if (queryBeforeUpdate && !isFirstLog(allocated)) {
             queryHelper(sobj, allocated.prev());
         }
 
@@ -210,14 +207,7 @@ public class HazelcastRuntime implements LogBasedRuntime {
 
             // give hint to snapshot builder
             if (allocated.longValue() % SNAPSHOT_CHECK_INTERVAL == 0) {
-                // check and create snapshot in background
-                EXECUTOR.execute(new Runnable() {
-
-                    @Override
-                    public void run() {
-                        createSnapShot(sobj);
-                    }
-                });
+                scheduleSnapShotCheck(sobj);
             }
             return allocated;
 
@@ -226,6 +216,194 @@ public class HazelcastRuntime implements LogBasedRuntime {
         }
     }
 
+    @Override
+    public List<SeqNum> updateHelper(final SharedLogObject sobj,
+                                     final List<ByteValue> logValues,
+                                     boolean queryBeforeUpdate) {
+
+        checkNotNull(sobj);
+        checkNotNull(logValues);
+        if (logValues.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        log.trace("updating {}@{} with {} logs", sobj.getObjectID(),
+                    sobj.getSeqNum(), logValues.size());
+
+        final Sequencer sequencer = sequencerRuntime.getSequencer(sobj.getObjectID());
+        final IMap<SeqNum, LogValue> logMap = getLogMap(sobj);
+
+        // allocate range of seq #
+        final SeqNum first = sequencer.next(logValues.size());
+        log.trace("allocated {} from {}", logValues.size(), first);
+
+        // replay
+        if (queryBeforeUpdate && !isFirstLog(first)) {
+            queryHelper(sobj, first.prev());
+        }
+
+        sobj.acquireWriteLock();
+        try {
+            final List<SeqNum> seqs = new ArrayList<>(logValues.size());
+            final List<LogValue> values = new ArrayList<>(logValues.size());
+            final List<Future<?>> writes = new ArrayList<>(logValues.size());
+
+            SeqNum seq = first;
+            for (ByteValue logValue : logValues) {
+                checkNotNull(logValue);
+                LogValue value = logValue;
+                if (!sobj.isApplicable(seq, logValue)) {
+                    log.trace("log not applicable abondoning {}", seq);
+                    value = NoOp.VALUE;
+                }
+                // apply to local object ahead of the write, so that the
+                // following logs are tested against the updated object.
+                // The object is rebuilt from the log if a write fails.
+                sobj.apply(seq, value);
+                writes.add(logMap.submitToKey(seq, new PutIfAbsentLogValue(value)));
+                seqs.add(seq);
+                values.add(value);
+                seq = seq.next();
+            }
+
+            // wait for all the writes together
+            final List<SeqNum> written = new ArrayList<>(logValues.size());
+            boolean writeFailed = false;
+            boolean checkSnapShot = false;
+            for (int i = 0; i < writes.size(); ++i) {
+                final SeqNum allocated = seqs.get(i);
+                Object existing;
+                try {
+                    existing = Uninterruptibles.getUninterruptibly(writes.get(i));
+                } catch (ExecutionException e) {
+                    log.error("Writing log " + sobj.getObjectID() + "@"
+                                + allocated + " failed", e);
+                    existing = e;
+                }
+                if (existing != null) {
+                    // timed out by other node or failed
+                    log.trace("write of {} failed", allocated);
+                    writeFailed = true;
+                    written.add(null);
+                } else if (NoOp.VALUE.equals(values.get(i))) {
+                    written.add(null);
+                } else {
+                    written.add(allocated);
+                }
+                if (allocated.longValue() % SNAPSHOT_CHECK_INTERVAL == 0) {
+                    checkSnapShot = true;
+                }
+            }
+
+            if (writeFailed) {
+                // local object was updated with logs which are not in the
+                // shared log, rebuild it from the shared log.
+                final SeqNum last = seqs.get(seqs.size() - 1);
+                log.debug("Rebuilding {} up to {} after write failure",
+                            sobj.getObjectID(), last);
+                resetToSnapShot(sobj, getLatestSnapShotId(sobj.getObjectID()));
+                if (sobj.getSeqNum().compareTo(last) < 0) {
+                    queryHelper(sobj, last);
+                }
+            }
+
+            if (checkSnapShot) {
+                scheduleSnapShotCheck(sobj);
+            }
+            return written;
+
+        } finally {
+            sobj.releaseWriteLock();
+        }
+    }
+
+    /**
+     * Tests if the sequence number is the first one ever allocated,
+     * in which case there is no log to replay before it.
+     *
+     * @param allocated allocated sequence number
+     * @return true if {@code allocated} is the first sequence number
+     */
+    private static boolean isFirstLog(SeqNum allocated) {
+        return allocated.equals(SeqNum.INITIAL.next());
+    }
+
+    /**
+     * Checks and creates a snapshot of {@link SharedLogObject} in background.
+     *
+     * @param sobj {@link SharedLogObject} to create snapshot.
+     */
+    private void scheduleSnapShotCheck(final SharedLogObject sobj) {
+        EXECUTOR.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                createSnapShot(sobj);
+            }
+        });
+    }
+
+    /**
+     * Writes a log value if the log entry does not exist.
+     * <p>
+     * EntryProcessor to apply to the Log Map, returning the existing
+     * log value or null if the log value was written.
+     */
+    public static final class PutIfAbsentLogValue implements
+                            EntryProcessor<SeqNum, LogValue>,
+                            EntryBackupProcessor<SeqNum, LogValue>,
+                            DataSerializable {
+
+        private static final long serialVersionUID = -3583479402376815372L;
+
+        private LogValue value;
+
+        /**
+         * Writes {@code value} if the log entry does not exist.
+         *
+         * @param value log value to write
+         */
+        public PutIfAbsentLogValue(LogValue value) {
+            this.value = checkNotNull(value);
+        }
+
+        @Override
+        public Object process(Map.Entry<SeqNum, LogValue> entry) {
+            final LogValue existing = entry.getValue();
+            if (existing == null) {
+                entry.setValue(value);
+            }
+            return existing;
+        }
+
+        @Override
+        public EntryBackupProcessor<SeqNum, LogValue> getBackupProcessor() {
+            return this;
+        }
+
+        @Override
+        public void processBackup(Map.Entry<SeqNum, LogValue> entry) {
+            process(entry);
+        }
+
+        @Override
+        public void writeData(ObjectDataOutput out) throws IOException {
+            out.writeObject(value);
+        }
+
+        @Override
+        public void readData(ObjectDataInput in) throws IOException {
+            this.value = in.readObject();
+        }
+
+        /**
+         * Default constructor for deserialization.
+         */
+        public PutIfAbsentLogValue() {
+            this.value = NoOp.VALUE;
+        }
+    }
+
     /**
      * Updates latest snapshot pointer.
      * <p>
@@ -439,49 +617,21 @@ public class HazelcastRuntime implements LogBasedRuntime {
             final SeqNum current = sobj.getSeqNum();
 
             List<SeqNum> range = getSeqNumRange(current, replayTo);
-            Map<SeqNum, Future<LogValue>> values = new HashMap<>(range.size());
-
-            // FIXME use notification based cache
 
             // pre-request all range first to pre-populate near cache
             log.trace("Pre reading range: {}", range);
             for (SeqNum key : range) {
-                Future<LogValue> value = logCache.getLogValue(key);
-                values.put(key, value);
+                logCache.getLogValue(key);
             }
 
             // walk and apply range 1 by 1
             for (SeqNum key : range) {
-                Future<LogValue> future = values.get(key);
-                LogValue value = null;
-
                 // FIXME handle Recycled Snapshot log entry scenario
                 // when the get result is null it could be waiting for writer
                 // or log has been trimmed.
 
-                final long deadline = System.currentTimeMillis()
-                                        + LOG_READ_TIMEOUT_MS;
-                if (log.isTraceEnabled()) {
-                    log.trace("Try reading {} until {}", key, new DateTime(deadline));
-                }
-                while (System.currentTimeMillis() < deadline) {
-                    try {
-                        value = future.get(LOG_READ_TIMEOUT_MS,
-                                                    TimeUnit.MILLISECONDS);
-                        if (value == null) {
-                            log.trace("{} was not there yet retrying.", key);
-                            // value not set yet, retry;
-                            future = logCache.getLogValue(key);
-                            continue;
-                        }
-                    } catch (InterruptedException | ExecutionException e) {
-                        log.error("queryError retrying", e);
-                        future = logCache.getLogValue(key);
-                        continue;
-                    } catch (TimeoutException e) {
-                        log.warn("query timed out", e);
-                    }
-                }
+                // wait for the writer, woken up by the Log Map notification
+                LogValue value = waitLogValue(logCache, key);
                 if (value == null) {
                     log.trace("{} was not found, writer failed?", key);
                     // writer failure scenario handling
@@ -506,6 +656,35 @@ public class HazelcastRuntime implements LogBasedRuntime {
         }
     }
 
+    /**
+     * Reads a log value, waiting at most {@link #LOG_READ_TIMEOUT_MS}
+     * for it to be written.
+     *
+     * @param logCache {@link LogMapManager} of the shared object
+     * @param key log sequence number
+     * @return log value or null if it was not written until timeout
+     */
+    private LogValue waitLogValue(LogMapManager logCache, SeqNum key) {
+        final long deadline = System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(LOG_READ_TIMEOUT_MS);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return logCache.waitLogValue(key,
+                                deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    // replay must not stop half way
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /**
      * Creates a List containing (afterThis, uptoThis].
      *
@@ -532,8 +711,6 @@ public class HazelcastRuntime implements LogBasedRuntime {
     public void addListener(SharedLogObjectID oid, LogEventListener listener) {
         LogMapManager hzListener = getLogMapManager(oid);
         hzListener.addListener(listener);
-
-        getLogMap(oid).addEntryListener(hzListener, true);
     }
 
     @Override
@@ -545,22 +722,26 @@ public class HazelcastRuntime implements LogBasedRuntime {
     /**
      * Gets the LogMapManager for given {@link SharedLogObjectID}.
      * <p/>
-     * If listener was not registered, it will create and register a listener.
+     * If listener was not registered, it will create and register a listener
+     * to the Log Map.
      *
      * @param oid {@link SharedLogObjectID}
      * @return {@link LogMapManager}
      */
     private LogMapManager getLogMapManager(final SharedLogObjectID oid) {
-        LogMapManager listener
-            = ConcurrentUtils.createIfAbsentUnchecked(listenerMap, oid,
-                new ConcurrentInitializer<LogMapManager>() {
-                    @Override
-                    public LogMapManager get() throws ConcurrentException {
-                        IMap<SeqNum, LogValue> logMap = getLogMap(oid);
-                        return new LogMapManager(oid, logMap);
-                    }
-                });
-        return listener;
+        LogMapManager listener = listenerMap.get(oid);
+        if (listener != null) {
+            return listener;
+        }
+        final IMap<SeqNum, LogValue> logMap = getLogMap(oid);
+        final LogMapManager newListener = new LogMapManager(oid, logMap);
+        listener = listenerMap.putIfAbsent(oid, newListener);
+        if (listener != null) {
+            return listener;
+        }
+        // register once, the notifications drive the log replay
+        logMap.addEntryListener(newListener, true);
+        return newListener;
     }
 
     @Override
@@ -1,9 +1,16 @@
 package net.onrc.onos.core.util.distributed.sharedlog.hazelcast;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.IOException;
+
 import com.google.common.annotations.Beta;
 import com.hazelcast.core.IAtomicLong;
+import com.hazelcast.core.IFunction;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
 
 import net.onrc.onos.core.util.distributed.sharedlog.SeqNum;
 import net.onrc.onos.core.util.distributed.sharedlog.Sequencer;
@@ -38,4 +45,62 @@ public final class HazelcastSequencer implements Sequencer {
         }
         return SeqNum.valueOf(next);
     }
+
+    @Override
+    public SeqNum next(int count) {
+        checkArgument(count > 0, "count must be positive");
+        if (count == 1) {
+            return next();
+        }
+        final long before = value.getAndAlter(new ReserveRange(count));
+        return SeqNum.anyValueOf(before).next();
+    }
+
+    /**
+     * Reserves a range of sequence numbers.
+     * <p>
+     * IFunction to apply to IAtomicLong used as Sequencer.
+     * The range skips {@link SeqNum#ZERO} the same way {@link #next()} does.
+     */
+    public static final class ReserveRange implements
+                                IFunction<Long, Long>, DataSerializable {
+
+        private int count;
+
+        /**
+         * Reserves {@code count} sequence numbers.
+         *
+         * @param count number of sequence numbers to reserve
+         */
+        public ReserveRange(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public Long apply(Long input) {
+            long last = input + count;
+            if (input < SeqNum.ZERO && last >= SeqNum.ZERO) {
+                // range wrapped around ZERO, which is never assigned
+                ++last;
+            }
+            return last;
+        }
+
+        @Override
+        public void writeData(ObjectDataOutput out) throws IOException {
+            out.writeInt(count);
+        }
+
+        @Override
+        public void readData(ObjectDataInput in) throws IOException {
+            this.count = in.readInt();
+        }
+
+        /**
+         * Default constructor for deserialization.
+         */
+        public ReserveRange() {
+            this.count = 1;
+        }
+    }
 }
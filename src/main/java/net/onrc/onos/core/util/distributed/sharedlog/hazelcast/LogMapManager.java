@@ -2,11 +2,14 @@ package net.onrc.onos.core.util.distributed.sharedlog.hazelcast;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -22,6 +25,7 @@ import net.onrc.onos.core.util.distributed.sharedlog.internal.LogValue;
 import com.google.common.annotations.Beta;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.SettableFuture;
 import com.hazelcast.core.EntryEvent;
 import com.hazelcast.core.EntryListener;
 import com.hazelcast.core.IMap;
@@ -32,6 +36,7 @@ import com.hazelcast.core.IMap;
  * - Listener to register to Hazelcast IMap.
  * - Caches LogValue notification.
  * - Dispatches LogValue added event to listeners
+ * - Wakes up readers waiting for a LogValue to be written
  * - TODO health check latest log to detect dropped notification
  */
 @Beta
@@ -52,6 +57,19 @@ public class LogMapManager implements EntryListener<SeqNum, LogValue> {
 
     private Cache<SeqNum, Future<LogValue>> cache;
 
+    // readers waiting for a LogValue which was not written yet,
+    // guarded by itself
+    private final Map<SeqNum, Waiter> waiters;
+
+    /**
+     * Future shared by the readers waiting for the same LogValue.
+     */
+    private static final class Waiter {
+        private final SettableFuture<LogValue> future = SettableFuture.create();
+        // number of readers waiting, guarded by waiters
+        private int readers;
+    }
+
     // latest log notified to clients
     private SeqNum lastLog;
 
@@ -74,6 +92,7 @@ public class LogMapManager implements EntryListener<SeqNum, LogValue> {
                 .maximumSize(CACHE_SIZE)
                 .build();
         this.lastLog = SeqNum.INITIAL;
+        this.waiters = new HashMap<>();
     }
 
     // called from Hazelcast thread
@@ -82,6 +101,7 @@ public class LogMapManager implements EntryListener<SeqNum, LogValue> {
         // Cache maintenance
         cache.put(event.getKey(),
                   ConcurrentUtils.constantFuture(event.getValue()));
+        notifyWaiter(event.getKey(), event.getValue());
 
         // TODO will need suppress mechanism once we have health check
 
@@ -108,6 +128,7 @@ public class LogMapManager implements EntryListener<SeqNum, LogValue> {
         // Cache maintenance
         cache.put(event.getKey(),
                   ConcurrentUtils.constantFuture(event.getValue()));
+        notifyWaiter(event.getKey(), event.getValue());
 
         // only add will be notified to listeners
     }
@@ -163,4 +184,119 @@ public class LogMapManager implements EntryListener<SeqNum, LogValue> {
             return ConcurrentUtils.constantFuture(null);
         }
     }
+
+    /**
+     * Reads LogValue from LogMap, waiting for it to be written if
+     * it does not exist yet.
+     * <p>
+     * The wait is driven by the entry events of the LogMap,
+     * this instance must be registered to the LogMap as an entry listener.
+     *
+     * @param key log sequence number
+     * @param timeout maximum time to wait
+     * @param unit time unit of {@code timeout}
+     * @return log value or null if it was not written until timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public LogValue waitLogValue(final SeqNum key, final long timeout,
+                                 final TimeUnit unit) throws InterruptedException {
+
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        final Future<LogValue> cached = getLogValue(key);
+        LogValue value = getValue(key, cached, unit.toNanos(timeout));
+        if (value != null) {
+            return value;
+        }
+        // don't keep the result of a read done before the log was written
+        cache.asMap().remove(key, cached);
+
+        final Waiter waiter = addWaiter(key);
+        try {
+            // log may have been written before the waiter was registered
+            final Future<LogValue> reread = getLogValue(key);
+            value = getValue(key, reread, deadline - System.nanoTime());
+            if (value != null) {
+                return value;
+            }
+            cache.asMap().remove(key, reread);
+            log.trace("Waiting for {}@{} to be written", oid, key);
+            return getValue(key, waiter.future, deadline - System.nanoTime());
+        } finally {
+            removeWaiter(key, waiter);
+        }
+    }
+
+    /**
+     * Registers a reader waiting for the specified log.
+     *
+     * @param key log sequence number
+     * @return the Waiter shared by the readers of the log
+     */
+    private Waiter addWaiter(final SeqNum key) {
+        synchronized (waiters) {
+            Waiter waiter = waiters.get(key);
+            if (waiter == null) {
+                waiter = new Waiter();
+                waiters.put(key, waiter);
+            }
+            waiter.readers++;
+            return waiter;
+        }
+    }
+
+    /**
+     * Unregisters a reader waiting for the specified log. The Waiter is
+     * removed when its last reader leaves, unless it was already notified.
+     *
+     * @param key log sequence number
+     * @param waiter the Waiter returned by {@link #addWaiter(SeqNum)}
+     */
+    private void removeWaiter(final SeqNum key, final Waiter waiter) {
+        synchronized (waiters) {
+            waiter.readers--;
+            if (waiter.readers == 0 && waiters.get(key) == waiter) {
+                waiters.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Gets the LogValue from a Future, waiting at most {@code timeoutNanos}.
+     *
+     * @param key log sequence number
+     * @param future Future containing log value
+     * @param timeoutNanos maximum time to wait in nanoseconds
+     * @return log value or null if it was not available
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private LogValue getValue(final SeqNum key, final Future<LogValue> future,
+                              final long timeoutNanos) throws InterruptedException {
+        try {
+            return future.get(Math.max(timeoutNanos, 0L), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            log.error("Reading " + oid + "@" + key + " from Log Map failed.", e);
+            cache.asMap().remove(key, future);
+            return null;
+        } catch (TimeoutException e) {
+            log.trace("Reading {}@{} timed out", oid, key);
+            return null;
+        }
+    }
+
+    /**
+     * Wakes up the readers waiting for the specified log, if any.
+     *
+     * @param key log sequence number
+     * @param value log value written
+     */
+    private void notifyWaiter(final SeqNum key, final LogValue value) {
+        final Waiter waiter;
+        synchronized (waiters) {
+            waiter = waiters.remove(key);
+        }
+        if (waiter != null) {
+            waiter.future.set(value);
+        }
+    }
 }
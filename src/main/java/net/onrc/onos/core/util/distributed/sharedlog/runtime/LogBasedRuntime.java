@@ -48,6 +48,26 @@ public interface LogBasedRuntime {
                              final boolean queryBeforeUpdate)
                                 throws LogNotApplicable, LogWriteTimedOut;
 
+    /**
+     * Apply given logValues to SharedLogObject in order.
+     * <p/>
+     * Sequence numbers for all the logValues are reserved at once and
+     * the logValues are written to the shared log without waiting for
+     * each write to complete.
+     * Each logValue is tested against the object updated with the
+     * preceding logValues; logValues which are not applicable are
+     * replaced by NoOp in the shared log.
+     *
+     * @param sobj SharedLogObject to manipulate.
+     * @param logValues LogValues to apply
+     * @param queryBeforeUpdate true if log should be replayed to latest before updating
+     * @return sequence number of the new log entry for each logValue,
+     *          or null if the logValue was not applicable or the write failed.
+     */
+    public List<SeqNum> updateHelper(final SharedLogObject sobj,
+                                     final List<ByteValue> logValues,
+                                     final boolean queryBeforeUpdate);
+
     /**
      * Reads from the shared log and
      * updates the {@link SharedLogObject} to latest state,
@@ -17,6 +17,11 @@ public final class HazelcastSerializationConstants {
      */
     public static final int LOG_VALUE_TYPE_ID = 2;
 
+    /**
+     * Type ID for {@link net.onrc.onos.core.datastore.hazelcast.VersionedWriteProcessor}.
+     */
+    public static final int VERSIONED_WRITE_PROCESSOR_TYPE_ID = 3;
+
 
     // Factory ID
 
@@ -0,0 +1,48 @@
+package net.onrc.onos.core.util.serializers;
+
+import net.onrc.onos.core.intent.IntentOperation;
+import net.onrc.onos.core.intent.IntentOperationList;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Kryo Serializer for IntentOperationLists.
+ * <p/>
+ * The default collection serializer only writes the elements of the list, so
+ * this serializer also writes the trace ID and the stage timestamps.
+ */
+public class IntentOperationListSerializer extends Serializer<IntentOperationList> {
+
+    private static final IntentOperationList.Stage[] STAGES =
+            IntentOperationList.Stage.values();
+
+    @Override
+    public void write(Kryo kryo, Output output, IntentOperationList list) {
+        output.writeLong(list.getTraceId());
+        for (IntentOperationList.Stage stage : STAGES) {
+            output.writeLong(list.getTimestamp(stage));
+        }
+        output.writeInt(list.size(), true);
+        for (IntentOperation op : list) {
+            kryo.writeClassAndObject(output, op);
+        }
+    }
+
+    @Override
+    public IntentOperationList read(Kryo kryo, Input input,
+            Class<IntentOperationList> type) {
+        IntentOperationList list = new IntentOperationList();
+        list.setTraceId(input.readLong());
+        for (IntentOperationList.Stage stage : STAGES) {
+            list.setTimestamp(stage, input.readLong());
+        }
+        final int size = input.readInt(true);
+        for (int i = 0; i < size; ++i) {
+            list.add((IntentOperation) kryo.readClassAndObject(input));
+        }
+        return list;
+    }
+}
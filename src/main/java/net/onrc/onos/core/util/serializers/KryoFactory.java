@@ -2,14 +2,16 @@ package net.onrc.onos.core.util.serializers;
 
 import java.net.Inet4Address;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -60,6 +62,9 @@ import net.onrc.onos.core.matchaction.action.ModifySrcMacAction;
 import net.onrc.onos.core.matchaction.action.NullAction;
 import net.onrc.onos.core.matchaction.action.OutputAction;
 import net.onrc.onos.core.matchaction.match.PacketMatch;
+import net.onrc.onos.core.metrics.OnosMetrics;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsComponent;
+import net.onrc.onos.core.metrics.OnosMetrics.MetricsFeature;
 import net.onrc.onos.core.newintent.IntentCompilationResult;
 import net.onrc.onos.core.newintent.PathFlowIntent;
 import net.onrc.onos.core.newintent.SingleDstTreeFlowIntent;
@@ -79,6 +84,7 @@ import net.onrc.onos.core.topology.SwitchData;
 import net.onrc.onos.core.topology.TopologyBatchOperation;
 import net.onrc.onos.core.topology.TopologyElement;
 import net.onrc.onos.core.topology.TopologyEvent;
+import net.onrc.onos.core.topology.TopologyEventSerializer;
 import net.onrc.onos.core.util.Dpid;
 import net.onrc.onos.core.util.IPv4;
 import net.onrc.onos.core.util.IPv4Net;
@@ -89,6 +95,8 @@ import net.onrc.onos.core.util.OnosInstanceId;
 import net.onrc.onos.core.util.PortNumber;
 import net.onrc.onos.core.util.SwitchPort;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
@@ -96,6 +104,12 @@ import com.esotericsoftware.kryo.io.Output;
 /**
  * Class factory for allocating Kryo instances for
  * serialization/deserialization of classes.
+ * <p/>
+ * A recycled Kryo instance is kept by the thread which recycled it, and is
+ * returned to the same thread by the next {@link #newKryo()}, so that a thread
+ * serializing repeatedly does not contend on the shared pool. The static
+ * serialization methods use a single global pool, and a serialization buffer
+ * kept by each thread, which grows to the size of the serialized objects.
  */
 @ThreadSafe
 public class KryoFactory {
@@ -108,9 +122,66 @@ public class KryoFactory {
      */
     public static final int DEFAULT_BUFFER_SIZE = 1 * 1000 * 1000;
 
-    private static final KryoFactory GLOBAL_POOL = new KryoFactory();
+    // Initial size of the serialization buffer of a thread
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    // Serialization buffers larger than this are not kept after use
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
 
-    private ConcurrentLinkedQueue<Kryo> kryoList = new ConcurrentLinkedQueue<Kryo>();
+    private static final MetricsComponent METRICS_COMPONENT =
+            OnosMetrics.registerComponent("Serializers");
+    private static final MetricsFeature METRICS_FEATURE_KRYO =
+            METRICS_COMPONENT.registerFeature("Kryo");
+    private static final Counter BUFFER_GROWTHS =
+            OnosMetrics.createCounter(METRICS_COMPONENT, METRICS_FEATURE_KRYO,
+                                      "Buffer.Growths");
+    private static final Counter BUFFER_RELEASES =
+            OnosMetrics.createCounter(METRICS_COMPONENT, METRICS_FEATURE_KRYO,
+                                      "Buffer.Releases");
+    private static final Counter SERIALIZED_BYTES =
+            OnosMetrics.createCounter(METRICS_COMPONENT, METRICS_FEATURE_KRYO,
+                                      "SerializedBytes");
+
+    // The serialization buffer of each thread, or null while it is in use
+    private static final ThreadLocal<Output[]> THREAD_OUTPUT =
+            new ThreadLocal<Output[]>() {
+                @Override
+                protected Output[] initialValue() {
+                    return new Output[1];
+                }
+            };
+
+    private static final KryoFactory GLOBAL_POOL =
+            new KryoFactory(Runtime.getRuntime().availableProcessors());
+
+    static {
+        OnosMetrics.registerMetric(METRICS_COMPONENT, METRICS_FEATURE_KRYO,
+                "Pool.Created", new Gauge<Long>() {
+                    @Override
+                    public Long getValue() {
+                        return GLOBAL_POOL.createdCount.get();
+                    }
+                });
+        OnosMetrics.registerMetric(METRICS_COMPONENT, METRICS_FEATURE_KRYO,
+                "Pool.Idle", new Gauge<Integer>() {
+                    @Override
+                    public Integer getValue() {
+                        return GLOBAL_POOL.idleCount.get();
+                    }
+                });
+    }
+
+    private final ConcurrentLinkedQueue<Kryo> kryoList = new ConcurrentLinkedQueue<Kryo>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final int maxIdle;
+
+    // The Kryo instance recycled by each thread, if any
+    private final ThreadLocal<Kryo[]> threadKryo = new ThreadLocal<Kryo[]>() {
+        @Override
+        protected Kryo[] initialValue() {
+            return new Kryo[1];
+        }
+    };
 
     /**
      * Default constructor.
@@ -123,51 +194,88 @@ public class KryoFactory {
 
     /**
      * Constructor to explicitly specify number of Kryo instances to pool.
+     * <p/>
+     * The pool keeps at most the larger of {@code initialCapacity} and
+     * {@code DEFAULT_PREALLOCATIONS} recycled instances.
      *
      * @param initialCapacity number of Kryo instance to preallocate
      */
     public KryoFactory(final int initialCapacity) {
+        maxIdle = Math.max(initialCapacity, DEFAULT_PREALLOCATIONS);
         // Preallocate
         for (int i = 0; i < initialCapacity; i++) {
-            Kryo kryo = newKryoObject();
+            Kryo kryo = createKryo();
             kryoList.add(kryo);
+            idleCount.incrementAndGet();
         }
     }
 
+    /**
+     * Gets the global pool used by the static serialization methods.
+     *
+     * @return the global KryoFactory
+     */
+    public static KryoFactory getGlobalPool() {
+        return GLOBAL_POOL;
+    }
+
     /**
      * Gets a new Kryo object.
+     * <p/>
+     * The instance last recycled by the calling thread is returned first.
      *
      * @return the Kryo object.
      */
     public Kryo newKryo() {
-        Kryo kryo = kryoList.poll();
-        if (kryo == null) {
-            // Will defer additional allocation until deleteKryo().
-            // It is more likely that it is no longer latency sensitive
-            // by the time caller is recycling Kryo instance.
-            return newKryoObject();
-        } else {
+        Kryo[] slot = threadKryo.get();
+        Kryo kryo = slot[0];
+        if (kryo != null) {
+            slot[0] = null;
             return kryo;
         }
+        kryo = kryoList.poll();
+        if (kryo == null) {
+            // Allocated on demand: recycled instances are kept by the
+            // threads and the shared pool, so the pool does not run out
+            // again once it has grown to the number of concurrent users.
+            return createKryo();
+        }
+        idleCount.decrementAndGet();
+        return kryo;
     }
 
     /**
      * Deletes an existing Kryo object.
+     * <p/>
+     * The instance is kept by the calling thread, or returned to the shared
+     * pool if the thread already keeps one. It is dropped if the shared pool
+     * is full.
      *
      * @param deleteKryo the object to delete.
      */
     public void deleteKryo(final Kryo deleteKryo) {
-        if (kryoList.isEmpty()) {
-            // buffer extra if kryo instance pool has exhausted.
-            List<Kryo> kryos = new ArrayList<>(DEFAULT_PREALLOCATIONS);
-            for (int i = 0; i < DEFAULT_PREALLOCATIONS; ++i) {
-                kryos.add(newKryoObject());
-            }
-            kryoList.addAll(kryos);
+        Kryo[] slot = threadKryo.get();
+        if (slot[0] == null) {
+            slot[0] = deleteKryo;
+            return;
         }
 
         // recycle
-        kryoList.add(deleteKryo);
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            kryoList.add(deleteKryo);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Creates a new Kryo object for this pool.
+     *
+     * @return the created Kryo object.
+     */
+    private Kryo createKryo() {
+        createdCount.incrementAndGet();
+        return newKryoObject();
     }
 
     /**
@@ -220,7 +328,7 @@ public class KryoFactory {
         kryo.register(TopologyBatchOperation.class);
         kryo.register(TopologyBatchOperation.Operator.class);
         kryo.register(TopologyElement.class);
-        kryo.register(TopologyEvent.class);
+        kryo.register(TopologyEvent.class, new TopologyEventSerializer());
         kryo.register(TopologyEvent.Type.class);
 
         // Intent-related classes
@@ -234,7 +342,7 @@ public class KryoFactory {
         kryo.register(ErrorIntent.ErrorType.class);
         kryo.register(IntentOperation.class);
         kryo.register(IntentOperation.Operator.class);
-        kryo.register(IntentOperationList.class);
+        kryo.register(IntentOperationList.class, new IntentOperationListSerializer());
         kryo.register(IntentStateList.class);
         kryo.register(HashMap.class);
 
@@ -327,20 +435,77 @@ public class KryoFactory {
      * Serializes given object to byte array using Kryo instance in global pool.
      *
      * @param obj Object to serialize (Class must be registered to KryoFactory)
-     * @param bufferSize maximum size of serialized bytes
+     * @param bufferSize maximum size of serialized bytes, or -1 for no limit
      * @return serialized bytes
      */
     public static byte[] serialize(final Object obj, final int bufferSize) {
-        Output out = new Output(bufferSize);
         Kryo kryo = GLOBAL_POOL.newKryo();
         try {
-            kryo.writeClassAndObject(out, obj);
-            return out.toBytes();
+            return serialize(kryo, obj, bufferSize);
         } finally {
             GLOBAL_POOL.deleteKryo(kryo);
         }
     }
 
+    /**
+     * Serializes given object with its class to byte array using the given
+     * Kryo instance, and the serialization buffer of the calling thread.
+     * <p>
+     * This is meant for the serialization formats with their own Kryo
+     * registrations.
+     *
+     * @param kryo Kryo instance to use
+     * @param obj Object to serialize
+     * @param bufferSize maximum size of serialized bytes, or -1 for no limit
+     * @return serialized bytes
+     */
+    public static byte[] serialize(final Kryo kryo, final Object obj,
+                                   final int bufferSize) {
+        return toBytes(kryo, obj, bufferSize, true);
+    }
+
+    /**
+     * Serializes given object without its class to byte array using the
+     * given Kryo instance, and the serialization buffer of the calling thread.
+     * <p>
+     * This is meant for the serialization formats with their own Kryo
+     * registrations.
+     *
+     * @param kryo Kryo instance to use
+     * @param obj Object to serialize
+     * @param bufferSize maximum size of serialized bytes, or -1 for no limit
+     * @return serialized bytes
+     */
+    public static byte[] serializeObject(final Kryo kryo, final Object obj,
+                                         final int bufferSize) {
+        return toBytes(kryo, obj, bufferSize, false);
+    }
+
+    /**
+     * Serializes given object into a ByteBuffer using Kryo instance in global
+     * pool.
+     * <p>
+     * The serialized bytes are written at the current position of the
+     * buffer, which is advanced past them, without allocating an
+     * intermediate byte array.
+     *
+     * @param obj Object to serialize (Class must be registered to KryoFactory)
+     * @param buffer buffer to write the serialized bytes to
+     * @throws java.nio.BufferOverflowException if the serialized bytes do not
+     *         fit in the remaining bytes of the buffer
+     */
+    public static void serialize(final Object obj, final ByteBuffer buffer) {
+        Kryo kryo = GLOBAL_POOL.newKryo();
+        Output out = acquireOutput(-1);
+        try {
+            write(kryo, out, obj, true);
+            buffer.put(out.getBuffer(), 0, out.position());
+        } finally {
+            releaseOutput(out);
+            GLOBAL_POOL.deleteKryo(kryo);
+        }
+    }
+
     /**
      * Deserializes given byte array to Object using Kryo instance in global pool.
      *
@@ -359,4 +524,142 @@ public class KryoFactory {
             GLOBAL_POOL.deleteKryo(kryo);
         }
     }
+
+    /**
+     * Creates a deep copy of given Object using Kryo instance in global pool.
+     * <p>
+     * The copy is made without going through the serialized bytes.
+     *
+     * @param obj Object to copy
+     * @param <T> copied Object type
+     * @return copy of the Object (Class must be registered to KryoFactory)
+     */
+    public static <T> T copy(final T obj) {
+        Kryo kryo = GLOBAL_POOL.newKryo();
+        try {
+            return kryo.copy(obj);
+        } finally {
+            GLOBAL_POOL.deleteKryo(kryo);
+        }
+    }
+
+    /**
+     * Deserializes an Object from a ByteBuffer using Kryo instance in global
+     * pool.
+     * <p>
+     * The Object is read from the current position of the buffer, which is
+     * advanced past the bytes read. The bytes of a buffer backed by an
+     * accessible array are read from that array, without copy.
+     *
+     * @param buffer buffer to read the serialized bytes from
+     * @param <T> deserialized Object type
+     * @return deserialized Object (Class must be registered to KryoFactory)
+     */
+    public static <T> T deserialize(final ByteBuffer buffer) {
+        final Input in;
+        final int offset;
+        if (buffer.hasArray()) {
+            offset = buffer.arrayOffset() + buffer.position();
+            in = new Input(buffer.array(), offset, buffer.remaining());
+        } else {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            offset = 0;
+            in = new Input(bytes);
+        }
+        Kryo kryo = GLOBAL_POOL.newKryo();
+        try {
+            @SuppressWarnings("unchecked")
+            T obj = (T) kryo.readClassAndObject(in);
+            buffer.position(buffer.position() + in.position() - offset);
+            return obj;
+        } finally {
+            GLOBAL_POOL.deleteKryo(kryo);
+        }
+    }
+
+    /**
+     * Serializes given object to byte array using the serialization buffer
+     * of the calling thread.
+     *
+     * @param kryo Kryo instance to use
+     * @param obj Object to serialize
+     * @param bufferSize maximum size of serialized bytes, or -1 for no limit
+     * @param writeClass true to write the class of the object
+     * @return serialized bytes
+     */
+    private static byte[] toBytes(final Kryo kryo, final Object obj,
+                                  final int bufferSize,
+                                  final boolean writeClass) {
+        Output out = acquireOutput(bufferSize);
+        try {
+            write(kryo, out, obj, writeClass);
+            return out.toBytes();
+        } finally {
+            releaseOutput(out);
+        }
+    }
+
+    /**
+     * Writes given object to an Output, and updates the buffer metrics.
+     *
+     * @param kryo Kryo instance to use
+     * @param out Output to write to
+     * @param obj Object to serialize
+     * @param writeClass true to write the class of the object
+     */
+    private static void write(final Kryo kryo, final Output out,
+                              final Object obj, final boolean writeClass) {
+        final int capacity = out.getBuffer().length;
+        if (writeClass) {
+            kryo.writeClassAndObject(out, obj);
+        } else {
+            kryo.writeObject(out, obj);
+        }
+        if (out.getBuffer().length > capacity) {
+            BUFFER_GROWTHS.inc();
+        }
+        SERIALIZED_BYTES.inc(out.position());
+    }
+
+    /**
+     * Gets the serialization buffer of the calling thread, reset and limited
+     * to the given size. A new buffer is allocated if the buffer of the
+     * thread is in use, or larger than the given size.
+     *
+     * @param bufferSize maximum size of serialized bytes, or -1 for no limit
+     * @return the Output to serialize to
+     */
+    private static Output acquireOutput(final int bufferSize) {
+        final Output[] slot = THREAD_OUTPUT.get();
+        final Output out = slot[0];
+        if (out == null
+                || (bufferSize != -1 && out.getBuffer().length > bufferSize)) {
+            final int initialSize = (bufferSize == -1)
+                    ? INITIAL_BUFFER_SIZE
+                    : Math.min(INITIAL_BUFFER_SIZE, bufferSize);
+            return new Output(initialSize, bufferSize);
+        }
+        slot[0] = null;
+        out.setBuffer(out.getBuffer(), bufferSize);
+        return out;
+    }
+
+    /**
+     * Gives back a serialization buffer to the calling thread. A buffer which
+     * grew larger than MAX_RETAINED_BUFFER_SIZE is replaced by a small one.
+     *
+     * @param out the Output acquired with {@link #acquireOutput(int)}
+     */
+    private static void releaseOutput(final Output out) {
+        final Output[] slot = THREAD_OUTPUT.get();
+        if (slot[0] != null) {
+            return;
+        }
+        if (out.getBuffer().length > MAX_RETAINED_BUFFER_SIZE) {
+            BUFFER_RELEASES.inc();
+            out.setBuffer(new byte[INITIAL_BUFFER_SIZE], -1);
+        }
+        slot[0] = out;
+    }
 }
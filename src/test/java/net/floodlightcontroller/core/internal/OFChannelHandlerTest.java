@@ -149,6 +149,8 @@ public class OFChannelHandlerTest {
 
     @After
     public void tearDown() {
+        // remove the metrics registered by the handshake
+        SwitchMetrics.remove(featuresReply.getDatapathId().getLong());
         /* ensure no exception was thrown */
         if (exceptionEventCapture.hasCaptured()) {
             Throwable ex = exceptionEventCapture.getValue().getCause();
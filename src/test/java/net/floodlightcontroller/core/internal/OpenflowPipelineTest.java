@@ -0,0 +1,180 @@
+package net.floodlightcontroller.core.internal;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.floodlightcontroller.core.FloodlightContext;
+import net.floodlightcontroller.core.IFloodlightProviderService;
+import net.floodlightcontroller.core.IOFMessageListener;
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.core.test.SwitchEmulator;
+import net.floodlightcontroller.debugcounter.DebugCounter;
+import net.floodlightcontroller.restserver.IRestApiService;
+import net.floodlightcontroller.threadpool.IThreadPoolService;
+import net.floodlightcontroller.threadpool.ThreadPool;
+import net.onrc.onos.core.flowprogrammer.FlowPusher;
+import net.onrc.onos.core.registry.StandaloneRegistry;
+import net.onrc.onos.core.util.Dpid;
+
+import org.jboss.netty.channel.Channel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFType;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.types.OFBufferId;
+
+/**
+ * Tests of the OpenFlow channel pipeline of the controller with emulated
+ * switches: the switches connect to a Controller listening on an ephemeral
+ * port, complete the handshake with the OFChannelHandler, and get the
+ * responses to their PACKET_INs and barriers through the FlowPusher.
+ */
+public class OpenflowPipelineTest {
+    private static final int NUM_SWITCHES = 2;
+    private static final long TIMEOUT_SEC = 10;
+
+    private Controller controller;
+    private ThreadPool threadPool;
+    private FlowPusher flowPusher;
+    private Channel serverChannel;
+    private SwitchEmulator emulator;
+
+    @Before
+    public void setUp() throws Exception {
+        FloodlightModuleContext context = new FloodlightModuleContext();
+        IRestApiService restApi = createNiceMock(IRestApiService.class);
+        replay(restApi);
+        context.addService(IRestApiService.class, restApi);
+
+        threadPool = new ThreadPool();
+        threadPool.init(context);
+        context.addService(IThreadPoolService.class, threadPool);
+
+        StandaloneRegistry registry = new StandaloneRegistry();
+        registry.init(context);
+
+        controller = new Controller();
+        controller.setDebugCounter(new DebugCounter());
+        controller.setRestApiService(restApi);
+        controller.setThreadPoolService(threadPool);
+        controller.setMastershipService(registry);
+        Map<String, String> configParams = new HashMap<>();
+        configParams.put("openflowport", "0");
+        configParams.put("controllerid", "test");
+        controller.init(configParams);
+        controller.startupComponents();
+        context.addService(IFloodlightProviderService.class, controller);
+
+        flowPusher = new FlowPusher();
+        flowPusher.init(context);
+        flowPusher.start();
+        controller.addOFMessageListener(OFType.PACKET_IN, new PacketInResponder());
+
+        serverChannel = controller.listen();
+    }
+
+    @After
+    public void tearDown() {
+        if (emulator != null) {
+            emulator.stop();
+        }
+        serverChannel.close().awaitUninterruptibly();
+        flowPusher.stop();
+        threadPool.getScheduledExecutor().shutdownNow();
+    }
+
+    /**
+     * Tests that the OF1.0 switches complete the handshake, and get the
+     * responses to their PACKET_INs and barriers.
+     */
+    @Test
+    public void testOF10() throws Exception {
+        runEmulator(OFVersion.OF_10);
+    }
+
+    /**
+     * Tests that the OF1.3 switches complete the handshake, and get the
+     * responses to their PACKET_INs and barriers.
+     */
+    @Test
+    public void testOF13() throws Exception {
+        runEmulator(OFVersion.OF_13);
+    }
+
+    private void runEmulator(OFVersion version) throws Exception {
+        final int port = ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        emulator = new SwitchEmulator("127.0.0.1", port, NUM_SWITCHES);
+        emulator.setVersion(version).setWindow(2);
+        emulator.start();
+
+        // Handshake
+        assertTrue(emulator.awaitActive(TIMEOUT_SEC, TimeUnit.SECONDS));
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SEC);
+        while (controller.getAllMasterSwitchDpids().size() < NUM_SWITCHES
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(NUM_SWITCHES, controller.getAllMasterSwitchDpids().size());
+        for (long dpid : controller.getAllMasterSwitchDpids()) {
+            assertEquals(version, controller.getMasterSwitch(dpid).getOFVersion());
+        }
+
+        // PACKET_IN
+        emulator.startLoad();
+        while (emulator.getLatency().getCount() < 100
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        emulator.stopLoad();
+        assertTrue(emulator.getLatency().getCount() >= 100);
+        assertTrue(emulator.getFlowMods().getCount() >= 100);
+        assertEquals(0, emulator.getTimedOutPacketIns());
+
+        // Barrier
+        for (long dpid : controller.getAllMasterSwitchDpids()) {
+            assertNotNull(flowPusher.barrierAsync(new Dpid(dpid))
+                    .get(TIMEOUT_SEC, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Answers each PACKET_IN with a FLOW_MOD pushed through the FlowPusher.
+     */
+    private class PacketInResponder implements IOFMessageListener {
+        @Override
+        public String getName() {
+            return "packetinresponder";
+        }
+
+        @Override
+        public boolean isCallbackOrderingPrereq(OFType type, String name) {
+            return false;
+        }
+
+        @Override
+        public boolean isCallbackOrderingPostreq(OFType type, String name) {
+            return false;
+        }
+
+        @Override
+        public Command receive(IOFSwitch sw, OFMessage msg, FloodlightContext cntx) {
+            flowPusher.add(new Dpid(sw.getId()), sw.getFactory().buildFlowAdd()
+                    .setMatch(sw.getFactory().buildMatch().build())
+                    .setBufferId(OFBufferId.NO_BUFFER)
+                    .setXid(sw.getNextTransactionId())
+                    .build());
+            return Command.CONTINUE;
+        }
+    }
+}
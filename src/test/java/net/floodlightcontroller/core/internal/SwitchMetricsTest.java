@@ -0,0 +1,162 @@
+package net.floodlightcontroller.core.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.onrc.onos.core.metrics.OnosMetrics;
+import net.onrc.onos.core.util.UnitTest;
+
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.DefaultChannelFuture;
+import org.junit.After;
+import org.junit.Test;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+
+/**
+ * Unit tests for the SwitchMetrics class.
+ */
+public class SwitchMetricsTest extends UnitTest {
+    private static final long DPID = 1L;
+    private static final String PREFIX = "Switches.00:00:00:00:00:00:00:01.";
+    private static final MetricFilter SWITCH_FILTER = new MetricFilter() {
+        @Override
+        public boolean matches(String name, Metric metric) {
+            return name.startsWith(PREFIX);
+        }
+    };
+
+    private final OFFactory factory = OFFactories.getFactory(OFVersion.OF_13);
+
+    @After
+    public void tearDownSwitchMetrics() {
+        SwitchMetrics.remove(DPID);
+    }
+
+    private static int countMetrics() {
+        return OnosMetrics.getMeters(SWITCH_FILTER).size()
+                + OnosMetrics.getHistograms(SWITCH_FILTER).size()
+                + OnosMetrics.getGauges(SWITCH_FILTER).size();
+    }
+
+    /**
+     * Tests that the metrics of a switch are registered once, and
+     * unregistered when the switch is removed.
+     */
+    @Test
+    public void testRegisterRemove() {
+        SwitchMetrics metrics = SwitchMetrics.register(DPID);
+        assertSame(metrics, SwitchMetrics.register(DPID));
+        assertSame(metrics, SwitchMetrics.get(DPID));
+        assertTrue(OnosMetrics.getHistograms(SWITCH_FILTER)
+                .containsKey(PREFIX + "BarrierRttNs"));
+        // 3 meters, 2 histograms and the write backlog gauge
+        assertEquals(6, countMetrics());
+
+        SwitchMetrics.remove(DPID);
+        assertNull(SwitchMetrics.get(DPID));
+        assertEquals(0, countMetrics());
+    }
+
+    /**
+     * Tests that the messages written are counted, and that the round trip
+     * time of the barriers is measured from the write of the request.
+     */
+    @Test
+    public void testMessagesWritten() {
+        SwitchMetrics metrics = SwitchMetrics.register(DPID);
+        List<OFMessage> msglist = Arrays.<OFMessage>asList(
+                factory.buildFlowAdd().setXid(1)
+                        .setMatch(factory.buildMatch().build()).build(),
+                factory.buildFlowDelete().setXid(2)
+                        .setMatch(factory.buildMatch().build()).build(),
+                factory.buildBarrierRequest().setXid(3).build());
+        metrics.messagesWritten(msglist, null);
+
+        assertEquals(3, metrics.getMessageRate().getCount());
+        assertEquals(2, metrics.getFlowModRate().getCount());
+
+        // unknown transaction ID
+        metrics.barrierReplyReceived(2);
+        assertEquals(0, metrics.getBarrierRtt().getCount());
+
+        metrics.barrierReplyReceived(3);
+        assertEquals(1, metrics.getBarrierRtt().getCount());
+        assertTrue(metrics.getBarrierRtt().getSnapshot().getMax() >= 0);
+
+        // replied only once
+        metrics.barrierReplyReceived(3);
+        assertEquals(1, metrics.getBarrierRtt().getCount());
+    }
+
+    /**
+     * Tests that the write backlog counts the messages until the write
+     * completes.
+     */
+    @Test
+    public void testWriteBacklog() {
+        SwitchMetrics metrics = SwitchMetrics.register(DPID);
+        List<OFMessage> msglist = Arrays.<OFMessage>asList(
+                factory.buildEchoRequest().build(),
+                factory.buildEchoRequest().build());
+        ChannelFuture future = new DefaultChannelFuture(null, false);
+        metrics.messagesWritten(msglist, future);
+        assertEquals(2, metrics.getWriteBacklog());
+
+        future.setSuccess();
+        assertEquals(0, metrics.getWriteBacklog());
+    }
+
+    /**
+     * Tests that only the reply to the last echo request is measured.
+     */
+    @Test
+    public void testEcho() {
+        SwitchMetrics metrics = SwitchMetrics.register(DPID);
+        metrics.echoReplyReceived(0);
+        metrics.echoSent(10);
+        metrics.echoSent(11);
+        metrics.echoReplyReceived(10);
+        assertEquals(0, metrics.getEchoRtt().getCount());
+        metrics.echoReplyReceived(11);
+        assertEquals(1, metrics.getEchoRtt().getCount());
+        metrics.echoReplyReceived(11);
+        assertEquals(1, metrics.getEchoRtt().getCount());
+    }
+
+    /**
+     * Tests the registration of the flow pusher queue depth.
+     */
+    @Test
+    public void testQueueDepth() {
+        SwitchMetrics metrics = SwitchMetrics.register(DPID);
+        assertEquals(0, metrics.getQueueDepth());
+
+        metrics.setQueueDepth(new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return 5;
+            }
+        });
+        assertEquals(5, metrics.getQueueDepth());
+        assertTrue(OnosMetrics.getGauges(SWITCH_FILTER)
+                .containsKey(PREFIX + "QueueDepth"));
+
+        metrics.setQueueDepth(null);
+        assertEquals(0, metrics.getQueueDepth());
+        assertFalse(OnosMetrics.getGauges(SWITCH_FILTER)
+                .containsKey(PREFIX + "QueueDepth"));
+    }
+}
@@ -0,0 +1,537 @@
+package net.floodlightcontroller.core.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.onrc.onos.core.packet.ARP;
+import net.onrc.onos.core.packet.Data;
+import net.onrc.onos.core.packet.Ethernet;
+import net.onrc.onos.core.packet.IPv4;
+import net.onrc.onos.core.packet.LLDP;
+import net.onrc.onos.core.packet.LLDPTLV;
+import net.onrc.onos.core.packet.UDP;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+import org.projectfloodlight.openflow.protocol.OFActionType;
+import org.projectfloodlight.openflow.protocol.OFCapabilities;
+import org.projectfloodlight.openflow.protocol.OFEchoRequest;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFFeaturesReply;
+import org.projectfloodlight.openflow.protocol.OFFlowStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFGroupDescStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFNiciraControllerRoleRequest;
+import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.projectfloodlight.openflow.protocol.OFPacketInReason;
+import org.projectfloodlight.openflow.protocol.OFPacketOut;
+import org.projectfloodlight.openflow.protocol.OFPortDesc;
+import org.projectfloodlight.openflow.protocol.OFPortStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFRoleRequest;
+import org.projectfloodlight.openflow.protocol.OFSetConfig;
+import org.projectfloodlight.openflow.protocol.OFStatsRequest;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.action.OFAction;
+import org.projectfloodlight.openflow.protocol.action.OFActionOutput;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFBufferId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An OpenFlow switch emulated over a Netty client channel, connected to a
+ * controller by the {@link SwitchEmulator}.
+ * <p/>
+ * The switch goes through the handshake initiated by the controller (hello,
+ * features, port description, configuration, description and role), answers
+ * the barrier, echo and statistics requests, and counts the flow-mods it
+ * receives. Once its role is set, it sends the PACKET_IN stream configured in
+ * the SwitchEmulator, and records the round-trip latency between each
+ * PACKET_IN and the next FLOW_MOD or PACKET_OUT sent by the controller.
+ * <p/>
+ * The emulated switches are linked in a chain: port {@link #LINK_PORT_PREV}
+ * of a switch is connected to port {@link #LINK_PORT_NEXT} of the switch with
+ * the previous DPID. LLDP and BDDP frames sent out of these ports by the
+ * controller are received by the peer switch, so that the controller
+ * discovers the links. The hosts are attached to the ports starting at
+ * {@link #FIRST_HOST_PORT}.
+ */
+public class EmulatedSwitch extends SimpleChannelHandler {
+    private static final Logger log = LoggerFactory.getLogger(EmulatedSwitch.class);
+
+    public static final int LINK_PORT_PREV = 1;
+    public static final int LINK_PORT_NEXT = 2;
+    public static final int FIRST_HOST_PORT = 3;
+
+    private static final short TYPE_BDDP = (short) 0x8942;
+    private static final int ETHER_TYPE_OFFSET = 12;
+    private static final byte[] LLDP_MULTICAST_MAC =
+        {0x01, (byte) 0x80, (byte) 0xc2, 0x00, 0x00, 0x0e};
+    private static final int EMULATED_UDP_PORT = 9;
+    private static final int UDP_PAYLOAD_LENGTH = 64;
+
+    private final SwitchEmulator emulator;
+    private final long dpid;
+    private final OFFactory factory;
+    private final List<OFPortDesc> ports;
+    private final Random random;
+
+    private volatile Channel channel;
+    private volatile boolean active;
+    private int missSendLen = 0xffff;
+    private final AtomicInteger nextXid = new AtomicInteger(1);
+
+    // Send times of the PACKET_INs waiting for a response, in sending order
+    private final Queue<Long> outstanding = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outstandingCount = new AtomicInteger();
+    // Guarded by this
+    private long nextSendTime;
+
+    /**
+     * Creates an emulated switch.
+     *
+     * @param emulator the emulator running the switch
+     * @param dpid DPID of the switch
+     * @param version OpenFlow version used by the switch
+     * @param hostsPerSwitch number of hosts attached to the switch
+     */
+    EmulatedSwitch(SwitchEmulator emulator, long dpid, OFVersion version,
+            int hostsPerSwitch) {
+        this.emulator = emulator;
+        this.dpid = dpid;
+        this.factory = OFFactories.getFactory(version);
+        this.random = new Random(dpid);
+
+        final int numPorts = FIRST_HOST_PORT - 1 + hostsPerSwitch;
+        this.ports = new ArrayList<>(numPorts);
+        for (int port = 1; port <= numPorts; port++) {
+            ports.add(factory.buildPortDesc()
+                    .setPortNo(OFPort.of(port))
+                    .setHwAddr(MacAddress.of((dpid << 16) | port))
+                    .setName("emu" + dpid + "-eth" + port)
+                    .build());
+        }
+    }
+
+    /**
+     * Gets the DPID of the switch.
+     *
+     * @return the DPID
+     */
+    public long getDpid() {
+        return dpid;
+    }
+
+    /**
+     * Checks whether the handshake with the controller is complete.
+     *
+     * @return true if the role of the controller is set
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Gets the MAC address of a host attached to an emulated switch.
+     *
+     * @param dpid DPID of the switch
+     * @param host index of the host on the switch
+     * @return the MAC address
+     */
+    static long getHostMac(long dpid, int host) {
+        return (dpid << 16) | 0x8000 | host;
+    }
+
+    /**
+     * Gets the IPv4 address of a host attached to an emulated switch.
+     *
+     * @param dpid DPID of the switch
+     * @param host index of the host on the switch
+     * @return the IPv4 address, in the 10.0.0.0/8 network
+     */
+    static int getHostIp(long dpid, int host) {
+        return (10 << 24) | (int) ((dpid & 0xffff) << 8) | ((host + 1) & 0xff);
+    }
+
+    @Override
+    public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) {
+        channel = e.getChannel();
+        write(factory.buildHello().setXid(nextXid.getAndIncrement()).build());
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) {
+        if (active) {
+            log.debug("Emulated switch {} disconnected", dpid);
+        }
+        active = false;
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) {
+        log.error("Exception on the channel of emulated switch " + dpid, e.getCause());
+        e.getChannel().close();
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) {
+        if (e.getMessage() instanceof OFMessage) {
+            processMessage((OFMessage) e.getMessage());
+        }
+    }
+
+    private void processMessage(OFMessage m) {
+        switch (m.getType()) {
+            case HELLO:
+                // the version is the one this switch sent in its hello
+                break;
+            case FEATURES_REQUEST:
+                write(buildFeaturesReply(m.getXid()));
+                break;
+            case SET_CONFIG:
+                missSendLen = ((OFSetConfig) m).getMissSendLen();
+                break;
+            case GET_CONFIG_REQUEST:
+                write(factory.buildGetConfigReply()
+                        .setXid(m.getXid())
+                        .setMissSendLen(missSendLen)
+                        .build());
+                break;
+            case STATS_REQUEST:
+                processStatsRequest((OFStatsRequest<?>) m);
+                break;
+            case BARRIER_REQUEST:
+                write(factory.buildBarrierReply().setXid(m.getXid()).build());
+                break;
+            case ECHO_REQUEST:
+                write(factory.buildEchoReply()
+                        .setXid(m.getXid())
+                        .setData(((OFEchoRequest) m).getData())
+                        .build());
+                break;
+            case ROLE_REQUEST:
+                OFRoleRequest roleRequest = (OFRoleRequest) m;
+                write(factory.buildRoleReply()
+                        .setXid(m.getXid())
+                        .setRole(roleRequest.getRole())
+                        .setGenerationId(roleRequest.getGenerationId())
+                        .build());
+                activate();
+                break;
+            case EXPERIMENTER:
+                if (m instanceof OFNiciraControllerRoleRequest) {
+                    write(factory.buildNiciraControllerRoleReply()
+                            .setXid(m.getXid())
+                            .setRole(((OFNiciraControllerRoleRequest) m).getRole())
+                            .build());
+                    activate();
+                }
+                break;
+            case FLOW_MOD:
+                emulator.flowModReceived();
+                responseReceived();
+                break;
+            case PACKET_OUT:
+                emulator.packetOutReceived();
+                if (!relayDiscoveryPacket((OFPacketOut) m)) {
+                    responseReceived();
+                }
+                break;
+            default:
+                log.trace("Emulated switch {} ignores {}", dpid, m);
+                break;
+        }
+    }
+
+    private OFFeaturesReply buildFeaturesReply(long xid) {
+        OFFeaturesReply.Builder builder = factory.buildFeaturesReply()
+                .setXid(xid)
+                .setDatapathId(DatapathId.of(dpid))
+                .setNBuffers(256)
+                .setNTables((short) 1)
+                .setCapabilities(EnumSet.of(OFCapabilities.FLOW_STATS,
+                        OFCapabilities.TABLE_STATS, OFCapabilities.PORT_STATS));
+        if (factory.getVersion() == OFVersion.OF_10) {
+            // OF1.3 switches send their ports in a port description reply
+            builder.setActions(EnumSet.of(OFActionType.OUTPUT))
+                    .setPorts(ports);
+        }
+        return builder.build();
+    }
+
+    private void processStatsRequest(OFStatsRequest<?> request) {
+        final long xid = request.getXid();
+        switch (request.getStatsType()) {
+            case DESC:
+                write(factory.buildDescStatsReply()
+                        .setXid(xid)
+                        .setMfrDesc(emulator.getManufacturerDescription())
+                        .setHwDesc(emulator.getHardwareDescription())
+                        .setSwDesc("ONOS switch emulator")
+                        .setSerialNum("None")
+                        .setDpDesc("Emulated switch " + dpid)
+                        .build());
+                break;
+            case PORT_DESC:
+                write(factory.buildPortDescStatsReply()
+                        .setXid(xid)
+                        .setEntries(ports)
+                        .build());
+                break;
+            case FLOW:
+                write(factory.buildFlowStatsReply()
+                        .setXid(xid)
+                        .setEntries(Collections.<OFFlowStatsEntry>emptyList())
+                        .build());
+                break;
+            case PORT:
+                write(factory.buildPortStatsReply()
+                        .setXid(xid)
+                        .setEntries(Collections.<OFPortStatsEntry>emptyList())
+                        .build());
+                break;
+            case AGGREGATE:
+                write(factory.buildAggregateStatsReply()
+                        .setXid(xid)
+                        .setPacketCount(U64.ZERO)
+                        .setByteCount(U64.ZERO)
+                        .setFlowCount(0)
+                        .build());
+                break;
+            case GROUP_DESC:
+                write(factory.buildGroupDescStatsReply()
+                        .setXid(xid)
+                        .setEntries(Collections.<OFGroupDescStatsEntry>emptyList())
+                        .build());
+                break;
+            default:
+                log.debug("Emulated switch {} does not support {} stats",
+                        dpid, request.getStatsType());
+                break;
+        }
+    }
+
+    private void activate() {
+        if (!active) {
+            active = true;
+            emulator.switchActivated(this);
+        }
+    }
+
+    /**
+     * Delivers the LLDP and BDDP frames sent out of a link port to the peer
+     * switch.
+     *
+     * @param packetOut the PACKET_OUT sent by the controller
+     * @return true if the PACKET_OUT holds a discovery frame
+     */
+    private boolean relayDiscoveryPacket(OFPacketOut packetOut) {
+        final byte[] data = packetOut.getData();
+        if (data == null || data.length < ETHER_TYPE_OFFSET + 2) {
+            return false;
+        }
+        final short etherType = (short) (((data[ETHER_TYPE_OFFSET] & 0xff) << 8)
+                | (data[ETHER_TYPE_OFFSET + 1] & 0xff));
+        if (etherType != Ethernet.TYPE_LLDP && etherType != TYPE_BDDP) {
+            return false;
+        }
+
+        for (OFAction action : packetOut.getActions()) {
+            if (action.getType() != OFActionType.OUTPUT) {
+                continue;
+            }
+            final OFPort port = ((OFActionOutput) action).getPort();
+            if (port.equals(OFPort.FLOOD) || port.equals(OFPort.ALL)) {
+                relayTo(LINK_PORT_PREV, data);
+                relayTo(LINK_PORT_NEXT, data);
+            } else {
+                relayTo(port.getPortNumber(), data);
+            }
+        }
+        return true;
+    }
+
+    private void relayTo(int port, byte[] data) {
+        EmulatedSwitch peer;
+        int peerPort;
+        if (port == LINK_PORT_PREV) {
+            peer = emulator.getSwitch(dpid - 1);
+            peerPort = LINK_PORT_NEXT;
+        } else if (port == LINK_PORT_NEXT) {
+            peer = emulator.getSwitch(dpid + 1);
+            peerPort = LINK_PORT_PREV;
+        } else {
+            return;
+        }
+        if (peer != null && peer.isActive()) {
+            peer.write(buildPacketIn(peerPort, data));
+        }
+    }
+
+    /**
+     * Records the latency of the oldest PACKET_IN waiting for a response,
+     * and sends the next PACKET_INs if the window allows.
+     */
+    private void responseReceived() {
+        final Long sendTime = outstanding.poll();
+        if (sendTime == null) {
+            return;
+        }
+        outstandingCount.decrementAndGet();
+        emulator.latencyRecorded(System.nanoTime() - sendTime);
+        sendPacketIns(System.nanoTime());
+    }
+
+    /**
+     * Sends the PACKET_INs allowed by the window of outstanding PACKET_INs
+     * and by the rate of the emulator, after dropping the PACKET_INs which
+     * timed out.
+     *
+     * @param now the current time in nanoseconds
+     */
+    synchronized void sendPacketIns(long now) {
+        if (!active || !emulator.isLoadStarted()) {
+            return;
+        }
+
+        final long timeout = emulator.getResponseTimeoutNanos();
+        Long sendTime;
+        while ((sendTime = outstanding.peek()) != null && now - sendTime > timeout) {
+            if (outstanding.remove(sendTime)) {
+                outstandingCount.decrementAndGet();
+                emulator.packetInTimedOut();
+            }
+        }
+
+        final long period = emulator.getPacketInPeriodNanos();
+        if (period > 0 && nextSendTime < now - period) {
+            // don't send a burst to catch up after a stall
+            nextSendTime = now - period;
+        }
+
+        List<OFMessage> packetIns = new ArrayList<>();
+        while (outstandingCount.get() < emulator.getWindow()
+                && (period == 0 || nextSendTime <= now)) {
+            nextSendTime += period;
+            packetIns.add(buildPacketIn(FIRST_HOST_PORT, buildFrame()));
+            outstanding.offer(System.nanoTime());
+            outstandingCount.incrementAndGet();
+        }
+        if (!packetIns.isEmpty()) {
+            write(packetIns);
+            emulator.packetInsSent(packetIns.size());
+        }
+    }
+
+    private OFPacketIn buildPacketIn(int inPort, byte[] frame) {
+        OFPacketIn.Builder builder = factory.buildPacketIn()
+                .setXid(nextXid.getAndIncrement())
+                .setBufferId(OFBufferId.NO_BUFFER)
+                .setReason(OFPacketInReason.NO_MATCH)
+                .setTotalLen(frame.length)
+                .setData(frame);
+        if (factory.getVersion() == OFVersion.OF_10) {
+            builder.setInPort(OFPort.of(inPort));
+        } else {
+            builder.setMatch(factory.buildMatch()
+                    .setExact(MatchField.IN_PORT, OFPort.of(inPort))
+                    .build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builds the next frame of the PACKET_IN stream, sent by a random host
+     * of this switch to a random host of the emulated network.
+     *
+     * @return the frame
+     */
+    private byte[] buildFrame() {
+        final int srcHost = random.nextInt(emulator.getHostsPerSwitch());
+        final long dstDpid = emulator.getFirstDpid()
+                + random.nextInt(emulator.getNumSwitches());
+        final int dstHost = random.nextInt(emulator.getHostsPerSwitch());
+
+        Ethernet eth = new Ethernet();
+        eth.setSourceMACAddress(MacAddress.of(getHostMac(dpid, srcHost)).getBytes());
+
+        switch (emulator.nextPacketType(random)) {
+            case ARP:
+                ARP arp = new ARP();
+                arp.setHardwareType(ARP.HW_TYPE_ETHERNET);
+                arp.setProtocolType(ARP.PROTO_TYPE_IP);
+                arp.setHardwareAddressLength((byte) Ethernet.DATALAYER_ADDRESS_LENGTH);
+                arp.setProtocolAddressLength((byte) IPv4.ADDRESS_LENGTH);
+                arp.setOpCode(ARP.OP_REQUEST);
+                arp.setSenderHardwareAddress(eth.getSourceMACAddress());
+                arp.setSenderProtocolAddress(getHostIp(dpid, srcHost));
+                arp.setTargetHardwareAddress(new byte[Ethernet.DATALAYER_ADDRESS_LENGTH]);
+                arp.setTargetProtocolAddress(getHostIp(dstDpid, dstHost));
+                eth.setDestinationMACAddress(MacAddress.BROADCAST.getBytes());
+                eth.setEtherType(Ethernet.TYPE_ARP);
+                eth.setPayload(arp);
+                break;
+            case LLDP:
+                LLDP lldp = new LLDP();
+                byte[] chassisId = new byte[1 + Ethernet.DATALAYER_ADDRESS_LENGTH];
+                chassisId[0] = 4; // MAC address subtype
+                System.arraycopy(eth.getSourceMACAddress(), 0, chassisId, 1,
+                        Ethernet.DATALAYER_ADDRESS_LENGTH);
+                lldp.setChassisId(new LLDPTLV().setType((byte) 1)
+                        .setLength((short) chassisId.length).setValue(chassisId));
+                lldp.setPortId(new LLDPTLV().setType((byte) 2)
+                        .setLength((short) 3).setValue(new byte[] {2, 0, 1}));
+                lldp.setTtl(new LLDPTLV().setType((byte) 3)
+                        .setLength((short) 2).setValue(new byte[] {0, 120}));
+                eth.setDestinationMACAddress(LLDP_MULTICAST_MAC);
+                eth.setEtherType(Ethernet.TYPE_LLDP);
+                eth.setPayload(lldp);
+                break;
+            case IPV4:
+            default:
+                UDP udp = new UDP();
+                udp.setSourcePort((short) EMULATED_UDP_PORT);
+                udp.setDestinationPort((short) EMULATED_UDP_PORT);
+                udp.setPayload(new Data(new byte[UDP_PAYLOAD_LENGTH]));
+                IPv4 ipv4 = new IPv4();
+                ipv4.setSourceAddress(getHostIp(dpid, srcHost));
+                ipv4.setDestinationAddress(getHostIp(dstDpid, dstHost));
+                ipv4.setProtocol(IPv4.PROTOCOL_UDP);
+                ipv4.setTtl((byte) 64);
+                ipv4.setPayload(udp);
+                eth.setDestinationMACAddress(
+                        MacAddress.of(getHostMac(dstDpid, dstHost)).getBytes());
+                eth.setEtherType(Ethernet.TYPE_IPV4);
+                eth.setPayload(ipv4);
+                break;
+        }
+        return eth.serialize();
+    }
+
+    private void write(OFMessage message) {
+        write(Collections.singletonList(message));
+    }
+
+    private void write(List<OFMessage> messages) {
+        final Channel ch = channel;
+        if (ch != null && ch.isConnected()) {
+            // OFMessageEncoder encodes lists of messages
+            ch.write(messages);
+        }
+    }
+}
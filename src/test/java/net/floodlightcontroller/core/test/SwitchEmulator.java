@@ -0,0 +1,451 @@
+package net.floodlightcontroller.core.test;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import net.floodlightcontroller.core.internal.OFMessageDecoder;
+import net.floodlightcontroller.core.internal.OFMessageEncoder;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFactory;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.UniformReservoir;
+
+/**
+ * Emulates a network of OpenFlow switches connected to a controller, and
+ * generates a PACKET_IN load on the controller, in the manner of cbench.
+ * <p/>
+ * Each {@link EmulatedSwitch} runs over its own TCP connection to the
+ * controller. Once the load is started, each switch keeps up to
+ * {@link #setWindow(int) window} PACKET_INs waiting for a response from the
+ * controller, optionally limited to {@link #setPacketInRate(double) rate}
+ * PACKET_INs per second. With the default window of 1, the switches wait for
+ * the response to each PACKET_IN before sending the next one, which measures
+ * the round-trip latency of the controller; with a larger window, they
+ * measure its throughput.
+ * <p/>
+ * Usage:
+ * <pre>
+ * SwitchEmulator emulator = new SwitchEmulator("127.0.0.1", 6633, 16);
+ * emulator.setVersion(OFVersion.OF_13).setWindow(100);
+ * emulator.start();
+ * emulator.awaitActive(30, TimeUnit.SECONDS);
+ * emulator.startLoad();
+ * Thread.sleep(10000);
+ * emulator.stopLoad();
+ * System.out.println(emulator.report());
+ * emulator.stop();
+ * </pre>
+ */
+public class SwitchEmulator {
+    /**
+     * Types of the packets sent in PACKET_INs.
+     */
+    public enum PacketType {
+        /** ARP request to a host of the emulated network. */
+        ARP,
+        /** LLDP frame from a host. */
+        LLDP,
+        /** UDP datagram to a host of the emulated network. */
+        IPV4,
+    }
+
+    private static final long TICK_MILLIS = 1;
+    private static final double NANO_IN_MICRO = 1000.0;
+
+    private final InetSocketAddress controllerAddress;
+    private final int numSwitches;
+
+    private OFVersion version = OFVersion.OF_10;
+    private long firstDpid = 1;
+    private int hostsPerSwitch = 4;
+    private int window = 1;
+    private long packetInPeriodNanos = 0;
+    private long responseTimeoutNanos = TimeUnit.SECONDS.toNanos(1);
+    private int[] packetTypeWeights = {1, 0, 1};
+    private String manufacturerDescription = "Nicira, Inc.";
+    private String hardwareDescription = "Open vSwitch";
+
+    private final Map<Long, EmulatedSwitch> switches = new ConcurrentHashMap<>();
+    private ChannelFactory channelFactory;
+    private final ChannelGroup channels = new DefaultChannelGroup("SwitchEmulator");
+    private ScheduledExecutorService loadGenerator;
+    private CountDownLatch activeLatch;
+    private volatile boolean loadStarted;
+
+    private final Histogram latency = new Histogram(new UniformReservoir());
+    private final Meter packetIns = new Meter();
+    private final Meter flowMods = new Meter();
+    private final Meter packetOuts = new Meter();
+    private final Counter timedOutPacketIns = new Counter();
+
+    /**
+     * Creates an emulator.
+     *
+     * @param controllerHost host name of the controller
+     * @param controllerPort OpenFlow port of the controller
+     * @param numSwitches number of switches to emulate
+     */
+    public SwitchEmulator(String controllerHost, int controllerPort, int numSwitches) {
+        checkArgument(numSwitches > 0, "numSwitches must be positive");
+        this.controllerAddress = new InetSocketAddress(controllerHost, controllerPort);
+        this.numSwitches = numSwitches;
+    }
+
+    /**
+     * Sets the OpenFlow version of the switches. Defaults to OF1.0.
+     *
+     * @param ofVersion OF_10 or OF_13
+     * @return this emulator
+     */
+    public SwitchEmulator setVersion(OFVersion ofVersion) {
+        checkArgument(ofVersion == OFVersion.OF_10 || ofVersion == OFVersion.OF_13,
+                "Unsupported OpenFlow version %s", ofVersion);
+        this.version = ofVersion;
+        return this;
+    }
+
+    /**
+     * Sets the DPID of the first switch. The switches have consecutive DPIDs.
+     * Defaults to 1.
+     *
+     * @param dpid the DPID of the first switch
+     * @return this emulator
+     */
+    public SwitchEmulator setFirstDpid(long dpid) {
+        this.firstDpid = dpid;
+        return this;
+    }
+
+    /**
+     * Sets the number of hosts attached to each switch. Defaults to 4.
+     *
+     * @param hosts number of hosts
+     * @return this emulator
+     */
+    public SwitchEmulator setHostsPerSwitch(int hosts) {
+        checkArgument(hosts > 0, "hosts must be positive");
+        this.hostsPerSwitch = hosts;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of PACKET_INs each switch keeps waiting for a
+     * response. Defaults to 1.
+     *
+     * @param packetIns the window size
+     * @return this emulator
+     */
+    public SwitchEmulator setWindow(int packetIns) {
+        checkArgument(packetIns > 0, "window must be positive");
+        this.window = packetIns;
+        return this;
+    }
+
+    /**
+     * Sets the maximum rate of PACKET_INs sent by each switch. Defaults to 0,
+     * which means the rate is only limited by the window.
+     *
+     * @param packetInsPerSecond the rate
+     * @return this emulator
+     */
+    public SwitchEmulator setPacketInRate(double packetInsPerSecond) {
+        checkArgument(packetInsPerSecond >= 0, "rate must not be negative");
+        this.packetInPeriodNanos = (packetInsPerSecond == 0) ? 0
+                : Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / packetInsPerSecond));
+        return this;
+    }
+
+    /**
+     * Sets the time after which a PACKET_IN without response is not waited
+     * for anymore. Defaults to 1 second.
+     *
+     * @param timeout the timeout
+     * @param unit the unit of the timeout
+     * @return this emulator
+     */
+    public SwitchEmulator setResponseTimeout(long timeout, TimeUnit unit) {
+        this.responseTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * Sets the relative weights of the packet types of the PACKET_IN stream.
+     * Defaults to equal parts of ARP and IPv4 packets.
+     *
+     * @param arp weight of the ARP requests
+     * @param lldp weight of the LLDP frames
+     * @param ipv4 weight of the IPv4 packets
+     * @return this emulator
+     */
+    public SwitchEmulator setPacketInMix(int arp, int lldp, int ipv4) {
+        checkArgument(arp >= 0 && lldp >= 0 && ipv4 >= 0 && arp + lldp + ipv4 > 0,
+                "invalid packet mix");
+        this.packetTypeWeights = new int[] {arp, lldp, ipv4};
+        return this;
+    }
+
+    /**
+     * Sets the description the switches report to the controller, which
+     * selects the switch driver. Defaults to Open vSwitch.
+     *
+     * @param manufacturer manufacturer description
+     * @param hardware hardware description
+     * @return this emulator
+     */
+    public SwitchEmulator setDescription(String manufacturer, String hardware) {
+        this.manufacturerDescription = manufacturer;
+        this.hardwareDescription = hardware;
+        return this;
+    }
+
+    /**
+     * Connects the switches to the controller.
+     */
+    public void start() {
+        checkState(channelFactory == null, "Emulator already started");
+        activeLatch = new CountDownLatch(numSwitches);
+        channelFactory = new NioClientSocketChannelFactory(
+                Executors.newCachedThreadPool(), Executors.newCachedThreadPool());
+
+        for (long dpid = firstDpid; dpid < firstDpid + numSwitches; dpid++) {
+            EmulatedSwitch sw = new EmulatedSwitch(this, dpid, version, hostsPerSwitch);
+            switches.put(dpid, sw);
+
+            ChannelPipeline pipeline = Channels.pipeline(
+                    new OFMessageDecoder(), new OFMessageEncoder(), sw);
+            Channel channel = channelFactory.newChannel(pipeline);
+            channel.getConfig().setOption("tcpNoDelay", true);
+            channels.add(channel);
+            channel.connect(controllerAddress);
+        }
+
+        loadGenerator = Executors.newSingleThreadScheduledExecutor();
+        loadGenerator.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                final long now = System.nanoTime();
+                for (EmulatedSwitch sw : switches.values()) {
+                    sw.sendPacketIns(now);
+                }
+            }
+        }, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Waits until the handshake of all the switches with the controller is
+     * complete.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if all the switches are active
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitActive(long timeout, TimeUnit unit) throws InterruptedException {
+        checkState(activeLatch != null, "Emulator not started");
+        return activeLatch.await(timeout, unit);
+    }
+
+    /**
+     * Starts sending PACKET_INs.
+     */
+    public void startLoad() {
+        loadStarted = true;
+    }
+
+    /**
+     * Stops sending PACKET_INs.
+     */
+    public void stopLoad() {
+        loadStarted = false;
+    }
+
+    /**
+     * Disconnects the switches and releases the resources of the emulator.
+     */
+    public void stop() {
+        loadStarted = false;
+        if (loadGenerator != null) {
+            loadGenerator.shutdownNow();
+        }
+        channels.close().awaitUninterruptibly();
+        if (channelFactory != null) {
+            channelFactory.releaseExternalResources();
+        }
+    }
+
+    /**
+     * Gets the switches of the emulator.
+     *
+     * @return the switches
+     */
+    public List<EmulatedSwitch> getSwitches() {
+        return new ArrayList<>(switches.values());
+    }
+
+    /**
+     * Gets the histogram of the latencies between the PACKET_INs and the
+     * responses of the controller, in microseconds.
+     *
+     * @return the histogram
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Gets the meter of the PACKET_INs sent by the switches.
+     *
+     * @return the meter
+     */
+    public Meter getPacketIns() {
+        return packetIns;
+    }
+
+    /**
+     * Gets the meter of the FLOW_MODs received by the switches.
+     *
+     * @return the meter
+     */
+    public Meter getFlowMods() {
+        return flowMods;
+    }
+
+    /**
+     * Gets the meter of the PACKET_OUTs received by the switches.
+     *
+     * @return the meter
+     */
+    public Meter getPacketOuts() {
+        return packetOuts;
+    }
+
+    /**
+     * Gets the number of PACKET_INs which did not get a response before
+     * the timeout.
+     *
+     * @return the number of PACKET_INs
+     */
+    public long getTimedOutPacketIns() {
+        return timedOutPacketIns.getCount();
+    }
+
+    /**
+     * Formats the statistics of the emulator.
+     *
+     * @return the statistics
+     */
+    public String report() {
+        final Snapshot snapshot = latency.getSnapshot();
+        return String.format(
+                "%d %s switches, window %d: %d packet-ins (%.1f/sec), "
+                + "%d flow-mods (%.1f/sec), %d packet-outs, %d timed out, "
+                + "latency usec min %d / median %.1f / 99th %.1f / max %d",
+                numSwitches, version, window,
+                packetIns.getCount(), packetIns.getMeanRate(),
+                flowMods.getCount(), flowMods.getMeanRate(),
+                packetOuts.getCount(), timedOutPacketIns.getCount(),
+                snapshot.getMin(), snapshot.getMedian(),
+                snapshot.get99thPercentile(), snapshot.getMax());
+    }
+
+    EmulatedSwitch getSwitch(long dpid) {
+        return switches.get(dpid);
+    }
+
+    long getFirstDpid() {
+        return firstDpid;
+    }
+
+    int getNumSwitches() {
+        return numSwitches;
+    }
+
+    int getHostsPerSwitch() {
+        return hostsPerSwitch;
+    }
+
+    int getWindow() {
+        return window;
+    }
+
+    long getPacketInPeriodNanos() {
+        return packetInPeriodNanos;
+    }
+
+    long getResponseTimeoutNanos() {
+        return responseTimeoutNanos;
+    }
+
+    String getManufacturerDescription() {
+        return manufacturerDescription;
+    }
+
+    String getHardwareDescription() {
+        return hardwareDescription;
+    }
+
+    boolean isLoadStarted() {
+        return loadStarted;
+    }
+
+    PacketType nextPacketType(Random random) {
+        int total = 0;
+        for (int weight : packetTypeWeights) {
+            total += weight;
+        }
+        int r = random.nextInt(total);
+        for (int i = 0; i < packetTypeWeights.length; i++) {
+            r -= packetTypeWeights[i];
+            if (r < 0) {
+                return PacketType.values()[i];
+            }
+        }
+        return PacketType.IPV4;
+    }
+
+    void switchActivated(EmulatedSwitch sw) {
+        activeLatch.countDown();
+    }
+
+    void packetInsSent(int count) {
+        packetIns.mark(count);
+    }
+
+    void flowModReceived() {
+        flowMods.mark();
+    }
+
+    void packetOutReceived() {
+        packetOuts.mark();
+    }
+
+    void packetInTimedOut() {
+        timedOutPacketIns.inc();
+    }
+
+    void latencyRecorded(long nanos) {
+        latency.update((long) (nanos / NANO_IN_MICRO));
+    }
+}
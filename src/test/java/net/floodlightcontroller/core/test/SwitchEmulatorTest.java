@@ -0,0 +1,324 @@
+package net.floodlightcontroller.core.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import net.floodlightcontroller.core.internal.OFMessageDecoder;
+import net.floodlightcontroller.core.internal.OFMessageEncoder;
+import net.onrc.onos.core.packet.Data;
+import net.onrc.onos.core.packet.Ethernet;
+import net.onrc.onos.core.util.IntegrationTest;
+
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.projectfloodlight.openflow.protocol.OFControllerRole;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFFeaturesReply;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFNiciraControllerRole;
+import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.projectfloodlight.openflow.protocol.OFStatsReply;
+import org.projectfloodlight.openflow.protocol.OFStatsType;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.action.OFAction;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.OFBufferId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
+
+/**
+ * Tests of the SwitchEmulator against a stub controller, and benchmark of a
+ * running controller.
+ * <p/>
+ * The benchmark only runs if the controller.host system property is set.
+ * OpenflowPipelineTest runs the emulator against the channel pipeline of an
+ * in-process controller.
+ */
+public class SwitchEmulatorTest {
+    private static final int NUM_SWITCHES = 4;
+    private static final long TIMEOUT_SEC = 10;
+
+    // Host of the benchmarked controller, the benchmark is skipped if unset
+    private static final String CONTROLLER_HOST =
+            System.getProperty("controller.host");
+    private static final int CONTROLLER_PORT = Integer.parseInt(
+            System.getProperty("controller.port", "6633"));
+    private static final int NUM_BENCHMARK_SWITCHES = Integer.parseInt(
+            System.getProperty("switches", "16"));
+    private static final int BENCHMARK_WINDOW = Integer.parseInt(
+            System.getProperty("window", "1"));
+    private static final long BENCHMARK_DURATION_SEC = Long.parseLong(
+            System.getProperty("duration", "10"));
+
+    private ServerBootstrap server;
+    private Channel serverChannel;
+    private SwitchEmulator emulator;
+
+    // handshakes completed by the stub controller
+    private CountDownLatch handshakes;
+    // DPID of each switch connected to the stub controller
+    private final ConcurrentMap<Long, StubControllerHandler> connectedSwitches =
+            new ConcurrentHashMap<>();
+    // in port of the LLDP frames received by the stub controller, by DPID
+    private final ConcurrentMap<Long, Integer> lldpInPorts = new ConcurrentHashMap<>();
+
+    @Before
+    public void setUp() {
+        handshakes = new CountDownLatch(NUM_SWITCHES);
+        server = new ServerBootstrap(new NioServerSocketChannelFactory(
+                Executors.newCachedThreadPool(), Executors.newCachedThreadPool()));
+        server.setPipelineFactory(new ChannelPipelineFactory() {
+            @Override
+            public ChannelPipeline getPipeline() {
+                return Channels.pipeline(new OFMessageDecoder(),
+                        new OFMessageEncoder(), new StubControllerHandler());
+            }
+        });
+        serverChannel = server.bind(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    @After
+    public void tearDown() {
+        if (emulator != null) {
+            emulator.stop();
+        }
+        serverChannel.close().awaitUninterruptibly();
+        server.releaseExternalResources();
+    }
+
+    private SwitchEmulator createEmulator(OFVersion version) {
+        final int port = ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        emulator = new SwitchEmulator("127.0.0.1", port, NUM_SWITCHES);
+        emulator.setVersion(version).setWindow(2).setPacketInMix(1, 1, 1);
+        return emulator;
+    }
+
+    /**
+     * Tests that the OF1.0 switches complete the handshake and get
+     * responses to their PACKET_INs.
+     */
+    @Test
+    public void testOF10() throws Exception {
+        runEmulator(createEmulator(OFVersion.OF_10));
+    }
+
+    /**
+     * Tests that the OF1.3 switches complete the handshake and get
+     * responses to their PACKET_INs.
+     */
+    @Test
+    public void testOF13() throws Exception {
+        runEmulator(createEmulator(OFVersion.OF_13));
+    }
+
+    private void runEmulator(SwitchEmulator switchEmulator) throws Exception {
+        switchEmulator.start();
+        assertTrue(switchEmulator.awaitActive(TIMEOUT_SEC, TimeUnit.SECONDS));
+        // the barrier sent after the role request is answered
+        assertTrue(handshakes.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+        assertEquals(NUM_SWITCHES, connectedSwitches.size());
+
+        switchEmulator.startLoad();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SEC);
+        while (switchEmulator.getLatency().getCount() < 100
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        switchEmulator.stopLoad();
+
+        assertTrue(switchEmulator.getLatency().getCount() >= 100);
+        assertTrue(switchEmulator.getFlowMods().getCount() >= 100);
+        assertTrue(switchEmulator.getPacketIns().getCount()
+                >= switchEmulator.getFlowMods().getCount());
+        assertEquals(0, switchEmulator.getTimedOutPacketIns());
+    }
+
+    /**
+     * Tests that an LLDP frame sent out of a link port is received by the
+     * peer switch.
+     */
+    @Test
+    public void testLldpRelay() throws Exception {
+        SwitchEmulator switchEmulator = createEmulator(OFVersion.OF_13);
+        switchEmulator.start();
+        assertTrue(switchEmulator.awaitActive(TIMEOUT_SEC, TimeUnit.SECONDS));
+        assertTrue(handshakes.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+
+        connectedSwitches.get(1L).sendLldp(EmulatedSwitch.LINK_PORT_NEXT);
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SEC);
+        while (!lldpInPorts.containsKey(2L) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Integer.valueOf(EmulatedSwitch.LINK_PORT_PREV), lldpInPorts.get(2L));
+        assertEquals(1, lldpInPorts.size());
+    }
+
+    /**
+     * Benchmarks a running controller with emulated switches.
+     * <p/>
+     * The controller is expected to listen at controller.host:controller.port
+     * (port 6633 by default); the benchmark is skipped if controller.host is
+     * not set, or if the switches can't complete the handshake.
+     */
+    @Category(IntegrationTest.class)
+    @Test
+    public void benchmarkController() throws Exception {
+        assumeTrue(CONTROLLER_HOST != null);
+        emulator = new SwitchEmulator(CONTROLLER_HOST, CONTROLLER_PORT,
+                NUM_BENCHMARK_SWITCHES);
+        emulator.setVersion(OFVersion.valueOf(System.getProperty("ofversion", "OF_10")))
+                .setWindow(BENCHMARK_WINDOW);
+        emulator.start();
+        assumeTrue(emulator.awaitActive(TIMEOUT_SEC, TimeUnit.SECONDS));
+
+        emulator.startLoad();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(BENCHMARK_DURATION_SEC));
+        emulator.stopLoad();
+
+        System.out.println(emulator.report());
+    }
+
+    /**
+     * Handler of a switch connection to the stub controller, sending the
+     * same handshake messages as the controller, and answering each
+     * PACKET_IN with a FLOW_MOD.
+     */
+    private class StubControllerHandler extends SimpleChannelHandler {
+        private volatile Channel channel;
+        private volatile OFFactory factory;
+        private volatile long dpid;
+
+        @Override
+        public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) {
+            channel = e.getChannel();
+            write(OFFactories.getFactory(OFVersion.OF_13).buildHello().build());
+        }
+
+        @Override
+        public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) {
+            final OFMessage m = (OFMessage) e.getMessage();
+            switch (m.getType()) {
+                case HELLO:
+                    factory = OFFactories.getFactory(m.getVersion());
+                    write(factory.buildFeaturesRequest().build());
+                    break;
+                case FEATURES_REPLY:
+                    dpid = ((OFFeaturesReply) m).getDatapathId().getLong();
+                    connectedSwitches.put(dpid, this);
+                    if (factory.getVersion() == OFVersion.OF_10) {
+                        sendConfig();
+                    } else {
+                        write(factory.buildPortDescStatsRequest().build());
+                    }
+                    break;
+                case STATS_REPLY:
+                    if (((OFStatsReply) m).getStatsType() == OFStatsType.PORT_DESC) {
+                        sendConfig();
+                    } else if (((OFStatsReply) m).getStatsType() == OFStatsType.DESC) {
+                        sendRoleRequest();
+                    }
+                    break;
+                case GET_CONFIG_REPLY:
+                    write(factory.buildDescStatsRequest().build());
+                    break;
+                case ROLE_REPLY:
+                case EXPERIMENTER:
+                    write(factory.buildBarrierRequest().setXid(1).build());
+                    break;
+                case BARRIER_REPLY:
+                    handshakes.countDown();
+                    break;
+                case PACKET_IN:
+                    packetInReceived((OFPacketIn) m);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void sendConfig() {
+            write(factory.buildSetConfig().setMissSendLen(0xffff).build());
+            write(factory.buildGetConfigRequest().build());
+        }
+
+        private void sendRoleRequest() {
+            if (factory.getVersion() == OFVersion.OF_10) {
+                write(factory.buildNiciraControllerRoleRequest()
+                        .setRole(OFNiciraControllerRole.ROLE_MASTER)
+                        .build());
+            } else {
+                write(factory.buildRoleRequest()
+                        .setRole(OFControllerRole.ROLE_MASTER)
+                        .setGenerationId(U64.ZERO)
+                        .build());
+            }
+        }
+
+        private void packetInReceived(OFPacketIn packetIn) {
+            final Ethernet eth = new Ethernet();
+            eth.deserialize(packetIn.getData(), 0, packetIn.getData().length);
+            if (eth.getEtherType() == Ethernet.TYPE_LLDP
+                    && !eth.isBroadcast() && !eth.isMulticast()) {
+                // frame relayed from a peer switch
+                final OFPort inPort = (factory.getVersion() == OFVersion.OF_10)
+                        ? packetIn.getInPort()
+                        : packetIn.getMatch().get(MatchField.IN_PORT);
+                lldpInPorts.put(dpid, inPort.getPortNumber());
+                return;
+            }
+            write(factory.buildFlowAdd()
+                    .setMatch(factory.buildMatch().build())
+                    .setBufferId(OFBufferId.NO_BUFFER)
+                    .build());
+        }
+
+        /**
+         * Sends an LLDP frame out of a port of the switch.
+         *
+         * @param port the port
+         */
+        void sendLldp(int port) {
+            final Ethernet eth = new Ethernet();
+            eth.setSourceMACAddress("00:00:00:00:00:01");
+            eth.setDestinationMACAddress("02:00:00:00:00:01");
+            eth.setEtherType(Ethernet.TYPE_LLDP);
+            eth.setPayload(new Data(new byte[64]));
+            write(factory.buildPacketOut()
+                    .setBufferId(OFBufferId.NO_BUFFER)
+                    .setInPort(OFPort.CONTROLLER)
+                    .setActions(Collections.<OFAction>singletonList(
+                            factory.actions().output(OFPort.of(port), 0)))
+                    .setData(eth.serialize())
+                    .build());
+        }
+
+        private void write(OFMessage message) {
+            final List<OFMessage> messages = Collections.singletonList(message);
+            channel.write(messages);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package net.floodlightcontroller.debugcounter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import net.floodlightcontroller.debugcounter.IDebugCounterService.CounterType;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the DebugCounter class.
+ */
+public class DebugCounterTest {
+    private static final String MODULE_NAME = "test";
+
+    private DebugCounter debugCounter;
+
+    @Before
+    public void setUp() {
+        debugCounter = new DebugCounter();
+    }
+
+    /**
+     * Tests that the updates of concurrent threads are counted exactly,
+     * without flushing.
+     */
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        final IDebugCounter counter = debugCounter.registerCounter(MODULE_NAME,
+                "pktin", "packet-ins", CounterType.ALWAYS_COUNT);
+        final int numThreads = 8;
+        final int numUpdates = 100000;
+        final CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < numUpdates; j++) {
+                        counter.updateCounterNoFlush();
+                    }
+                    counter.updateCounterWithFlush(2);
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        final long expected = numThreads * (numUpdates + 2L);
+        assertEquals(expected, counter.getCounterValue());
+        assertEquals(expected, debugCounter.getCounterHierarchy(MODULE_NAME, "pktin")
+                .get(0).getCounterValue().longValue());
+    }
+
+    /**
+     * Tests that the counters on demand only count while enabled, and that
+     * the resets apply to the levels below in the hierarchy.
+     */
+    @Test
+    public void testEnableAndReset() throws Exception {
+        final IDebugCounter parent = debugCounter.registerCounter(MODULE_NAME,
+                "sw1", "switch", CounterType.ALWAYS_COUNT);
+        final IDebugCounter child = debugCounter.registerCounter(MODULE_NAME,
+                "sw1/drops", "drops", CounterType.COUNT_ON_DEMAND);
+
+        child.updateCounterNoFlush();
+        assertEquals(0, child.getCounterValue());
+
+        debugCounter.enableCtrOnDemand(MODULE_NAME, "sw1/drops");
+        child.updateCounterNoFlush(5);
+        parent.updateCounterNoFlush(3);
+        assertEquals(5, child.getCounterValue());
+        assertEquals(3, parent.getCounterValue());
+
+        debugCounter.resetCounterHierarchy(MODULE_NAME, "sw1");
+        assertEquals(0, child.getCounterValue());
+        assertEquals(0, parent.getCounterValue());
+
+        child.updateCounterNoFlush();
+        debugCounter.disableCtrOnDemand(MODULE_NAME, "sw1/drops");
+        assertEquals(0, child.getCounterValue());
+        child.updateCounterNoFlush();
+        assertEquals(0, child.getCounterValue());
+    }
+}
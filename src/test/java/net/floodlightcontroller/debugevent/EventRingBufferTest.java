@@ -0,0 +1,103 @@
+package net.floodlightcontroller.debugevent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the EventRingBuffer class.
+ */
+public class EventRingBufferTest {
+
+    private static List<Long> timestamps(List<Event> events) {
+        List<Long> result = new ArrayList<>();
+        for (Event event : events) {
+            result.add(event.getTimestamp());
+        }
+        return result;
+    }
+
+    /**
+     * Tests that the most recent events are returned, from the most recent
+     * to the oldest, once the buffer wrapped around.
+     */
+    @Test
+    public void testOverwrite() {
+        EventRingBuffer buffer = new EventRingBuffer(3);
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.snapshot(3).isEmpty());
+
+        for (long i = 1; i <= 5; i++) {
+            buffer.add(i, 1, "thread", "event" + i);
+        }
+        assertEquals(3, buffer.size());
+        assertEquals(Arrays.asList(5L, 4L, 3L), timestamps(buffer.snapshot(10)));
+        assertEquals(Arrays.asList(5L, 4L), timestamps(buffer.snapshot(2)));
+
+        Event latest = buffer.iterator().next();
+        assertEquals("event5", latest.geteventData());
+        assertEquals("thread", latest.getThreadName());
+    }
+
+    /**
+     * Tests that the events added before a clear are not returned.
+     */
+    @Test
+    public void testClear() {
+        EventRingBuffer buffer = new EventRingBuffer(4);
+        buffer.add(1, 1, "thread", "event1");
+        buffer.add(2, 1, "thread", "event2");
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.snapshot(4).isEmpty());
+
+        buffer.add(3, 1, "thread", "event3");
+        assertEquals(1, buffer.size());
+        assertEquals(Arrays.asList(3L), timestamps(buffer.snapshot(4)));
+    }
+
+    /**
+     * Tests that concurrent writers leave the buffer holding the latest
+     * events, each one written completely.
+     */
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        final int capacity = 64;
+        final int numThreads = 4;
+        final int numEvents = 100000;
+        final EventRingBuffer buffer = new EventRingBuffer(capacity);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            final long threadId = i;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (long j = 0; j < numEvents; j++) {
+                        // the timestamp and data of an event always match
+                        buffer.add(j, threadId, "writer", Long.valueOf(j));
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<Event> events = buffer.snapshot(capacity);
+        assertEquals(capacity, buffer.size());
+        // the latest event of each slot is never dropped
+        assertEquals(capacity, events.size());
+        for (Event event : events) {
+            assertEquals(Long.valueOf(event.getTimestamp()), event.geteventData());
+            assertTrue(event.getTimestamp() >= numEvents - capacity);
+        }
+    }
+}
@@ -293,5 +293,41 @@ public class TestRestMetricsFilters extends TestRestMetrics {
         checkEmptyLists(metrics, "meters", "counters");
     }
 
+    /**
+     * Tests that query by name prefix returns the metrics with the prefix,
+     * along with the metrics selected by name.
+     *
+     * @throws JSONException if any of the JSON processing fails.
+     */
+    @Test
+    public void testPrefixFilter() throws JSONException {
 
+        //  Read the metrics from the REST API for the test data
+        final ClientResource client = new ClientResource(getBaseRestMetricsUrl());
+        client.addQueryParameter("prefix",
+                OnosMetrics.generateName(COMPONENT, FEATURE, "histogram"));
+        client.addQueryParameter("ids", METER2_FULL_NAME);
+
+        final JSONObject metrics = getJSONObject(client);
+        assertThat(metrics.length(), is(equalTo(5)));
+
+        //  There should be 3 histograms that match the prefix
+        final JSONArray histograms = metrics.getJSONArray("histograms");
+        assertThat(histograms, is(notNullValue()));
+        assertThat(histograms.length(), is(3));
+
+        final JSONObject jsonHistogram1 = histograms.getJSONObject(0);
+        assertThat(jsonHistogram1.getString("name"), is(equalTo(HISTOGRAM1_FULL_NAME)));
+
+        //  There should be 1 meter that matches the name
+        final JSONArray meters = metrics.getJSONArray("meters");
+        assertThat(meters, is(notNullValue()));
+        assertThat(meters.length(), is(1));
+
+        final JSONObject jsonMeter1 = meters.getJSONObject(0);
+        assertThat(jsonMeter1.getString("name"), is(equalTo(METER2_FULL_NAME)));
+
+        //  There should be no timers, gauges or counters
+        checkEmptyLists(metrics, "timers", "gauges", "counters");
+    }
 }
@@ -0,0 +1,71 @@
+package net.onrc.onos.api.rest;
+
+import net.floodlightcontroller.core.internal.SwitchMetrics;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+import org.restlet.resource.ClientResource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Unit tests for the REST API for the metrics of the slowest switches.
+ */
+public class TestRestMetricsSwitches extends TestRestMetrics {
+
+    private static final long FAST_DPID = 1L;
+    private static final long SLOW_DPID = 2L;
+    private static final long MEDIUM_DPID = 3L;
+
+    /**
+     * Removes the metrics of the test switches.
+     */
+    @After
+    public void tearDownSwitches() {
+        SwitchMetrics.remove(FAST_DPID);
+        SwitchMetrics.remove(SLOW_DPID);
+        SwitchMetrics.remove(MEDIUM_DPID);
+    }
+
+    /**
+     * Fill in the barrier round trip times of the test switches.
+     */
+    private void fillSwitches() {
+        SwitchMetrics.register(FAST_DPID).getBarrierRtt().update(1000);
+        SwitchMetrics.register(SLOW_DPID).getBarrierRtt().update(100000);
+        SwitchMetrics.register(MEDIUM_DPID).getBarrierRtt().update(10000);
+    }
+
+    /**
+     * UNIT test for the switches REST API: the switches are ordered from the
+     * slowest to the fastest, and limited to the requested number.
+     *
+     * @throws JSONException if any JSON processing fails
+     */
+    @Test
+    public void testSlowestSwitches() throws JSONException {
+        fillSwitches();
+
+        final ClientResource client =
+                new ClientResource(getBaseRestMetricsUrl() + "/switches?top=2");
+        final JSONArray switches = getJSONArray(client);
+        assertThat(switches, is(notNullValue()));
+        assertThat(switches.length(), is(equalTo(2)));
+
+        final JSONObject slowest = switches.getJSONObject(0);
+        assertThat(slowest.getString("dpid"),
+                is(equalTo("00:00:00:00:00:00:00:02")));
+        assertThat(slowest.getLong("barrierCount"), is(equalTo(1L)));
+        assertThat(slowest.getLong("barrierRttMaxNs"), is(equalTo(100000L)));
+        assertThat(slowest.getInt("queueDepth"), is(equalTo(0)));
+
+        final JSONObject medium = switches.getJSONObject(1);
+        assertThat(medium.getString("dpid"),
+                is(equalTo("00:00:00:00:00:00:00:03")));
+    }
+}
@@ -1,6 +1,7 @@
 package net.onrc.onos.api.rest;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharStreams;
 import net.onrc.onos.core.intent.runtime.PathCalcRuntimeModule;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -9,16 +10,25 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.restlet.data.Encoding;
+import org.restlet.data.Preference;
 import org.restlet.data.Status;
+import org.restlet.representation.Representation;
 import org.restlet.resource.ClientResource;
+import org.restlet.resource.ResourceException;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import static net.onrc.onos.api.rest.ClientResourceStatusMatcher.hasStatusOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
@@ -201,4 +211,102 @@ public class TestRestTopologyGet extends TestRestTopology {
 
         checkHosts(hosts);
     }
+
+    /**
+     * Test that the GET of Topology REST call with the elements parameter
+     * returns only the requested arrays.
+     *
+     * @throws JSONException if JSON processing fails
+     */
+    @Test
+    public void testFetchOfTopologyElements() throws JSONException {
+        final ClientResource client = new ClientResource(
+                getBaseRestTopologyUrl() + "?elements=switches,links");
+        final JSONObject topology = getJSONObject(client);
+
+        // HTTP status should be OK
+        assertThat(client, hasStatusOf(Status.SUCCESS_OK));
+
+        // Only the switches and links arrays are present
+        assertThat(topology.length(), is(equalTo(2)));
+        checkSwitches(topology.getJSONArray("switches"));
+        checkLinks(topology.getJSONArray("links"));
+    }
+
+    /**
+     * Test that the GET of Topology REST call with the dpid parameter
+     * returns only the switch and its links.
+     *
+     * @throws JSONException if JSON processing fails
+     */
+    @Test
+    public void testFetchOfSwitchTopology() throws JSONException {
+        final String dpid = "00:00:00:00:00:00:00:02";
+        final ClientResource client = new ClientResource(
+                getBaseRestTopologyUrl() + "?dpid=" + dpid);
+        final JSONObject topology = getJSONObject(client);
+
+        // HTTP status should be OK
+        assertThat(client, hasStatusOf(Status.SUCCESS_OK));
+        assertThat(topology.length(), is(equalTo(3)));
+
+        final JSONArray switches = topology.getJSONArray("switches");
+        assertThat(switches.length(), is(equalTo(1)));
+        assertThat(switches.getJSONObject(0).getString("dpid"),
+                   is(equalTo(dpid)));
+
+        // Switch 2 has 3 outgoing and 3 incoming links
+        final JSONArray links = topology.getJSONArray("links");
+        assertThat(links.length(), is(equalTo(6)));
+        for (int linkIndex = 0; linkIndex < links.length(); linkIndex++) {
+            final JSONObject link = links.getJSONObject(linkIndex);
+            final String srcDpid = link.getJSONObject("src").getString("dpid");
+            final String dstDpid = link.getJSONObject("dst").getString("dpid");
+            assertThat(srcDpid.equals(dpid) || dstDpid.equals(dpid), is(true));
+        }
+
+        checkHosts(topology.getJSONArray("hosts"));
+    }
+
+    /**
+     * Test that the GET of Topology REST call with an invalid dpid parameter
+     * returns a bad request error.
+     */
+    @Test
+    public void testFetchOfTopologyInvalidDpid() {
+        final ClientResource client = new ClientResource(
+                getBaseRestTopologyUrl() + "?dpid=invalid");
+        try {
+            client.get();
+        } catch (ResourceException resourceError) {
+            // expected
+        }
+        assertThat(client, hasStatusOf(Status.CLIENT_ERROR_BAD_REQUEST));
+    }
+
+    /**
+     * Test that the GET of Topology REST call is compressed with gzip when
+     * the client accepts it.
+     *
+     * @throws JSONException if JSON processing fails
+     * @throws IOException if the response can not be decompressed
+     */
+    @Test
+    public void testFetchOfGzipTopology() throws JSONException, IOException {
+        final ClientResource client = new ClientResource(getBaseRestTopologyUrl());
+        client.getClientInfo().getAcceptedEncodings()
+                .add(new Preference<>(Encoding.GZIP));
+        final Representation response = client.get();
+
+        // HTTP status should be OK
+        assertThat(client, hasStatusOf(Status.SUCCESS_OK));
+        assertThat(response.getEncodings(), hasItem(Encoding.GZIP));
+
+        final String responseJSONString = CharStreams.toString(
+                new InputStreamReader(new GZIPInputStream(response.getStream()),
+                                      StandardCharsets.UTF_8));
+        final JSONObject topology = new JSONObject(responseJSONString);
+        assertThat(topology.length(), is(equalTo(3)));
+        checkSwitches(topology.getJSONArray("switches"));
+    }
 }
@@ -0,0 +1,176 @@
+package net.onrc.onos.apps.sdnip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.net.InetAddresses;
+
+/**
+ * Tests for {@link PrefixTrie}.
+ */
+public class PrefixTrieTest {
+
+    private Map<String, Interface> interfaces;
+    private PrefixTrie<Interface> interfaceRoutes;
+
+    /**
+     * Tests that the longest prefix match lookup retrieves the longest
+     * matching prefix, and not just any matching prefix.
+     */
+    @Test
+    public void getOutgoingInterfaceTest() {
+        interfaces = new HashMap<>();
+        interfaceRoutes = new PrefixTrie<>();
+
+        Interface interface1 = new Interface("sw3-eth1", "00:00:00:00:00:00:00:a3",
+                (short) 1, "192.168.10.101", 24);
+        interfaces.put(interface1.getName(), interface1);
+        Interface interface2 = new Interface("sw5-eth1", "00:00:00:00:00:00:00:a5",
+                (short) 1, "192.168.20.101", 16);
+        interfaces.put(interface2.getName(), interface2);
+        Interface interface3 = new Interface("sw2-eth1", "00:00:00:00:00:00:00:a2",
+                (short) 1, "192.168.60.101", 16);
+        interfaces.put(interface3.getName(), interface3);
+        Interface interface4 = new Interface("sw6-eth1", "00:00:00:00:00:00:00:a6",
+                (short) 1, "192.168.60.101", 30);
+        interfaces.put(interface4.getName(), interface4);
+        Interface interface5 = new Interface("sw4-eth4", "00:00:00:00:00:00:00:a4",
+                (short) 4, "192.168.60.101", 24);
+        interfaces.put(interface5.getName(), interface5);
+
+        for (Interface intf : interfaces.values()) {
+            Prefix prefix = new Prefix(intf.getIpAddress().getAddress(),
+                    intf.getPrefixLength());
+            interfaceRoutes.put(prefix, intf);
+        }
+
+        // Check whether the prefix length takes effect
+        InetAddress nextHopAddress = InetAddresses.forString("192.0.0.1");
+        assertNotNull(nextHopAddress);
+        assertNull(interfaceRoutes.longestPrefixMatch(nextHopAddress));
+
+        // Check whether it returns the longest matchable address
+        nextHopAddress = InetAddresses.forString("192.168.60.101");
+        assertEquals("sw6-eth1",
+                interfaceRoutes.longestPrefixMatch(nextHopAddress).getName());
+        nextHopAddress = InetAddresses.forString("192.168.60.1");
+        assertEquals("sw4-eth4",
+                interfaceRoutes.longestPrefixMatch(nextHopAddress).getName());
+    }
+
+    /**
+     * Tests adding, replacing and removing prefixes, including the default
+     * route and host routes.
+     */
+    @Test
+    public void testPutGetRemove() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        Prefix defaultRoute = new Prefix("0.0.0.0", 0);
+        Prefix net = new Prefix("10.0.0.0", 8);
+        Prefix subnet = new Prefix("10.1.0.0", 16);
+        Prefix host = new Prefix("10.1.2.3", 32);
+
+        assertNull(trie.put(net, "net"));
+        assertNull(trie.put(host, "host"));
+        assertNull(trie.put(subnet, "subnet"));
+        assertNull(trie.put(defaultRoute, "default"));
+        assertEquals("net", trie.put(net, "net2"));
+        assertEquals(4, trie.size());
+
+        assertEquals("net2", trie.get(net));
+        assertEquals("subnet", trie.get(subnet));
+        assertNull(trie.get(new Prefix("10.1.0.0", 24)));
+        assertEquals("host", trie.longestPrefixMatch(
+                InetAddresses.forString("10.1.2.3")));
+        assertEquals("subnet", trie.longestPrefixMatch(
+                InetAddresses.forString("10.1.2.4")));
+        assertEquals("default", trie.longestPrefixMatch(
+                InetAddresses.forString("11.0.0.1")));
+
+        assertEquals("subnet", trie.remove(subnet));
+        assertNull(trie.remove(subnet));
+        assertEquals("net2", trie.longestPrefixMatch(
+                InetAddresses.forString("10.1.2.4")));
+        assertEquals("host", trie.get(host));
+        assertEquals("default", trie.remove(defaultRoute));
+        assertNull(trie.longestPrefixMatch(
+                InetAddresses.forString("11.0.0.1")));
+        assertEquals(2, trie.size());
+    }
+
+    /**
+     * Tests that the entries are returned in the order of their binary
+     * strings.
+     */
+    @Test
+    public void testGetEntries() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put(new Prefix("192.168.0.0", 16), "c");
+        trie.put(new Prefix("10.0.0.0", 8), "a");
+        trie.put(new Prefix("10.128.0.0", 9), "b");
+
+        List<String> values = new ArrayList<>();
+        for (Entry<Prefix, String> entry : trie.getEntries()) {
+            assertEquals(entry.getValue(), trie.get(entry.getKey()));
+            values.add(entry.getValue());
+        }
+        assertEquals(3, values.size());
+        assertEquals("a", values.get(0));
+        assertEquals("b", values.get(1));
+        assertEquals("c", values.get(2));
+    }
+
+    /**
+     * Compares the lookups with a linear search over random prefixes, while
+     * prefixes are added and removed.
+     */
+    @Test
+    public void testRandomPrefixes() {
+        final Random random = new Random(0);
+        PrefixTrie<Prefix> trie = new PrefixTrie<>();
+        List<Prefix> prefixes = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            // Few first bits, so that the prefixes overlap
+            byte[] address = {(byte) (random.nextInt(4) << 6),
+                    (byte) random.nextInt(), (byte) random.nextInt(),
+                    (byte) random.nextInt()};
+            Prefix prefix = new Prefix(address, random.nextInt(33));
+            if (random.nextInt(4) == 0 && !prefixes.isEmpty()) {
+                Prefix removed = prefixes.remove(random.nextInt(prefixes.size()));
+                assertEquals(removed, trie.remove(removed));
+            } else if (!prefixes.contains(prefix)) {
+                prefixes.add(prefix);
+                assertNull(trie.put(prefix, prefix));
+            }
+        }
+        assertEquals(prefixes.size(), trie.size());
+
+        for (int i = 0; i < 2000; i++) {
+            int address = (random.nextInt(4) << 30) | (random.nextInt() >>> 2);
+            Prefix expected = null;
+            for (Prefix prefix : prefixes) {
+                int mask = (prefix.getPrefixLength() == 0) ? 0
+                        : -1 << (Prefix.MAX_PREFIX_LENGTH - prefix.getPrefixLength());
+                int prefixBits = ByteBuffer.wrap(prefix.getAddress()).getInt();
+                if ((address & mask) == prefixBits && (expected == null
+                        || prefix.getPrefixLength() > expected.getPrefixLength())) {
+                    expected = prefix;
+                }
+            }
+            assertEquals(expected, trie.longestPrefixMatch(address));
+        }
+    }
+}
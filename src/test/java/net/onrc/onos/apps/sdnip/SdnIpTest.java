@@ -328,6 +328,59 @@ public class SdnIpTest {
         verify(intentService);
     }
 
+    /**
+     * Tests that the route updates superseded within a batch are not
+     * processed.
+     * <p/>
+     * A batch adds, deletes and adds again a set of routes (via
+     * processRibUpdates). Only the last add of each route is processed, so
+     * each intent is submitted once and never withdrawn.
+     *
+     * @throws InterruptedException if interrupted while waiting on a latch
+     */
+    @Test
+    public void testCoalesceRouteUpdates() throws InterruptedException {
+        int numRoutes = 100;
+        List<RibUpdate> routeUpdates = generateRouteUpdateIntents(numRoutes);
+
+        final CountDownLatch installCount = new CountDownLatch(numRoutes);
+
+        reset(intentService);
+
+        List<RibUpdate> batch = new ArrayList<>(3 * numRoutes);
+        for (RibUpdate update : routeUpdates) {
+            InetAddress nextHopPeer = update.getRibEntry().getNextHop();
+            MultiPointToSinglePointIntent intent = getIntentForUpdate(update,
+                    generateMacAddress(nextHopPeer),
+                    interfaces.get(peers.get(nextHopPeer).getInterfaceName()));
+            intentService.submit(eqExceptId(intent));
+            expectLastCall().andAnswer(new IAnswer<Object>() {
+                @Override
+                public Object answer() throws Throwable {
+                    installCount.countDown();
+                    return null;
+                }
+            }).once();
+            batch.add(update);
+        }
+
+        replay(intentService);
+
+        for (RibUpdate update : routeUpdates) {
+            batch.add(new RibUpdate(Operation.DELETE, update.getPrefix(),
+                    update.getRibEntry()));
+        }
+        batch.addAll(routeUpdates);
+
+        sdnip.processRibUpdates(batch);
+
+        installCount.await(5000, TimeUnit.MILLISECONDS);
+
+        assertEquals(numRoutes, sdnip.getPtree().size());
+
+        verify(intentService);
+    }
+
     /**
      * Generates a set of route updates. The prefix for each route is randomly
      * generated, and the next hop is selected from the set of BGP peers that
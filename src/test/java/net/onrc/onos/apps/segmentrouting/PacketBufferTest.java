@@ -0,0 +1,101 @@
+package net.onrc.onos.apps.segmentrouting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import net.onrc.onos.core.packet.IPv4;
+import net.onrc.onos.core.util.UnitTest;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PacketBuffer}.
+ */
+public class PacketBufferTest extends UnitTest {
+
+    private static final int DEST_1 = 0x0a000001;
+    private static final int DEST_2 = 0x0a000002;
+
+    private static IPv4 packet(int destination) {
+        return new IPv4().setDestinationAddress(destination);
+    }
+
+    /**
+     * Tests that the packets are removed by destination, oldest first.
+     */
+    @Test
+    public void testRemoveByDestination() {
+        PacketBuffer buffer = new PacketBuffer(4, 4, 5);
+        IPv4 first = packet(DEST_1);
+        IPv4 second = packet(DEST_1);
+        IPv4 other = packet(DEST_2);
+        assertTrue(buffer.add(first));
+        assertTrue(buffer.add(other));
+        assertTrue(buffer.add(second));
+
+        List<IPv4> packets = buffer.remove(DEST_1);
+        assertEquals(2, packets.size());
+        assertSame(first, packets.get(0));
+        assertSame(second, packets.get(1));
+        assertTrue(buffer.remove(DEST_1).isEmpty());
+        assertEquals(1, buffer.getDestinationCount());
+        assertSame(other, buffer.remove(DEST_2).get(0));
+    }
+
+    /**
+     * Tests that the oldest packets are dropped when a destination is full,
+     * and the new destinations when there are too many destinations.
+     */
+    @Test
+    public void testBounds() {
+        PacketBuffer buffer = new PacketBuffer(2, 1, 5);
+        IPv4 second = packet(DEST_1);
+        IPv4 third = packet(DEST_1);
+        buffer.add(packet(DEST_1));
+        buffer.add(second);
+        buffer.add(third);
+        assertFalse(buffer.add(packet(DEST_2)));
+
+        List<IPv4> packets = buffer.remove(DEST_1);
+        assertEquals(2, packets.size());
+        assertSame(second, packets.get(0));
+        assertSame(third, packets.get(1));
+        assertTrue(buffer.add(packet(DEST_2)));
+    }
+
+    /**
+     * Tests that the packets expire after the TTL.
+     */
+    @Test
+    public void testExpiry() {
+        PacketBuffer buffer = new PacketBuffer(4, 4, 3);
+        buffer.add(packet(DEST_1));
+        buffer.tick();
+        buffer.add(packet(DEST_1));
+        buffer.add(packet(DEST_2));
+        buffer.tick();
+        assertEquals(2, buffer.getDestinationCount());
+
+        // The first packet expires at the third tick, the others at the
+        // fourth tick
+        buffer.tick();
+        assertEquals(2, buffer.getDestinationCount());
+        buffer.tick();
+        assertEquals(0, buffer.getDestinationCount());
+
+        // A destination removed and buffered again expires from the new
+        // packet only
+        buffer.add(packet(DEST_1));
+        buffer.remove(DEST_1);
+        buffer.tick();
+        IPv4 packet = packet(DEST_1);
+        buffer.add(packet);
+        buffer.tick();
+        buffer.tick();
+        assertSame(packet, buffer.remove(DEST_1).get(0));
+    }
+}
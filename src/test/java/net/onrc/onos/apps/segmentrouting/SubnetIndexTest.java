@@ -0,0 +1,122 @@
+package net.onrc.onos.apps.segmentrouting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import net.onrc.onos.apps.segmentrouting.SubnetIndex.Subnet;
+import net.onrc.onos.core.topology.SwitchData;
+import net.onrc.onos.core.util.Dpid;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+/**
+ * Tests for {@link SubnetIndex}.
+ */
+public class SubnetIndexTest {
+
+    private static final Dpid DPID_1 = new Dpid(1L);
+    private static final Dpid DPID_2 = new Dpid(2L);
+
+    private SubnetIndex index;
+    private SwitchData switch1;
+    private SwitchData switch2;
+
+    private static int ip(String address) {
+        return IPv4Address.of(address).getInt();
+    }
+
+    private static SwitchData switchData(Dpid dpid, String nodeSid,
+                                         String subnets) {
+        SwitchData switchData = new SwitchData(dpid);
+        switchData.createStringAttribute("routerMac", "00:00:00:00:00:0" + nodeSid);
+        switchData.createStringAttribute("nodeSid", nodeSid);
+        switchData.createStringAttribute("subnets", subnets);
+        return switchData;
+    }
+
+    @Before
+    public void setUp() {
+        index = new SubnetIndex();
+        switch1 = switchData(DPID_1, "1",
+                "[{\"portNo\": 1, \"subnetIp\": \"10.0.1.128/24\"},"
+                + " {\"portNo\": 2, \"subnetIp\": \"10.0.1.128/24\"},"
+                + " {\"portNo\": 3, \"subnetIp\": \"10.0.0.1/16\"}]");
+        switch2 = switchData(DPID_2, "2",
+                "[{\"portNo\": 1, \"subnetIp\": \"10.0.2.1/25\"}]");
+        index.update(Arrays.asList(switch1, switch2),
+                     Collections.<SwitchData>emptyList());
+    }
+
+    /**
+     * Tests that the lookups return the subnet with the longest prefix.
+     */
+    @Test
+    public void testLongestPrefixMatch() {
+        Subnet subnet = index.lookup(ip("10.0.1.5"));
+        assertEquals("10.0.1.128/24", subnet.getSubnetIp());
+        assertEquals(DPID_1, subnet.getDpid());
+        assertEquals("1", subnet.getNodeSid());
+
+        subnet = index.lookup(ip("10.0.2.5"));
+        assertEquals("10.0.2.1/25", subnet.getSubnetIp());
+        assertEquals(DPID_2, subnet.getDpid());
+
+        assertEquals("10.0.0.1/16", index.lookup(ip("10.0.2.200")).getSubnetIp());
+        assertNull(index.lookup(ip("10.1.0.1")));
+    }
+
+    /**
+     * Tests the gateway IP addresses and ports of each switch.
+     */
+    @Test
+    public void testSwitchSubnets() {
+        assertTrue(index.isGatewayIp(DPID_1, ip("10.0.1.128")));
+        assertTrue(index.isGatewayIp(DPID_1, ip("10.0.0.1")));
+        assertFalse(index.isGatewayIp(DPID_1, ip("10.0.2.1")));
+        assertTrue(index.isGatewayIp(DPID_2, ip("10.0.2.1")));
+
+        assertEquals(new HashSet<>(Arrays.asList(1, 2, 3)),
+                     index.getSubnetPorts(DPID_1, ip("10.0.1.5")));
+        assertEquals(new HashSet<>(Arrays.asList(3)),
+                     index.getSubnetPorts(DPID_1, ip("10.0.3.5")));
+        assertTrue(index.getSubnetPorts(DPID_2, ip("10.0.1.5")).isEmpty());
+    }
+
+    /**
+     * Tests that the index follows the switches updated and removed.
+     */
+    @Test
+    public void testUpdate() {
+        SwitchData updated = switchData(DPID_2, "2",
+                "[{\"portNo\": 4, \"subnetIp\": \"10.0.3.1/24\"}]");
+        index.update(Arrays.asList(updated),
+                     Collections.<SwitchData>emptyList());
+        assertEquals("10.0.0.1/16", index.lookup(ip("10.0.2.5")).getSubnetIp());
+        assertEquals("10.0.3.1/24", index.lookup(ip("10.0.3.5")).getSubnetIp());
+
+        index.update(Collections.<SwitchData>emptyList(),
+                     Arrays.asList(switch1));
+        assertNull(index.lookup(ip("10.0.1.5")));
+        assertFalse(index.isGatewayIp(DPID_1, ip("10.0.1.128")));
+        assertEquals(DPID_2, index.lookup(ip("10.0.3.5")).getDpid());
+    }
+
+    /**
+     * Tests that a switch with invalid subnets has no subnets.
+     */
+    @Test
+    public void testInvalidSubnets() {
+        index.update(Arrays.asList(switchData(DPID_2, "2", "not JSON")),
+                     Collections.<SwitchData>emptyList());
+        assertTrue(index.getSubnets(DPID_2).isEmpty());
+        assertEquals(DPID_1, index.lookup(ip("10.0.2.5")).getDpid());
+    }
+}
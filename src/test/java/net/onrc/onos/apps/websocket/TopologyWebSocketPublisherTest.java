@@ -0,0 +1,185 @@
+package net.onrc.onos.apps.websocket;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.Session;
+
+import net.onrc.onos.apps.websocket.TopologyWebSocketPublisher.ClientEvents;
+import net.onrc.onos.core.topology.HostData;
+import net.onrc.onos.core.topology.ITopologyService;
+import net.onrc.onos.core.topology.LinkData;
+import net.onrc.onos.core.topology.MastershipData;
+import net.onrc.onos.core.topology.PortData;
+import net.onrc.onos.core.topology.SwitchData;
+import net.onrc.onos.core.topology.TopologyEvents;
+
+import org.easymock.Capture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the TopologyWebSocketPublisher and TopologyWebSocket
+ * classes.
+ */
+public class TopologyWebSocketPublisherTest {
+    private ITopologyService topologyService;
+    private TopologyWebSocketPublisher publisher;
+    private TopologyEvents events;
+
+    @Before
+    public void setUp() throws Exception {
+        topologyService = createMock(ITopologyService.class);
+        publisher = new TopologyWebSocketPublisher();
+        WebSocketManager.topologyService = topologyService;
+        WebSocketManager.publisher = publisher;
+        events = new TopologyEvents(Collections.<MastershipData>emptyList(),
+                                    Collections.<SwitchData>emptyList(),
+                                    Collections.<PortData>emptyList(),
+                                    Collections.<LinkData>emptyList(),
+                                    Collections.<HostData>emptyList());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        WebSocketManager.topologyService = null;
+        WebSocketManager.publisher = null;
+    }
+
+    /**
+     * Creates a mocked WebSocket session with its asynchronous remote
+     * endpoint.
+     *
+     * @param remote the remote endpoint of the session
+     * @return the session
+     */
+    private Session createSession(RemoteEndpoint.Async remote) {
+        Session session = createMock(Session.class);
+        expect(session.getId()).andReturn("session").anyTimes();
+        expect(session.getAsyncRemote()).andReturn(remote).anyTimes();
+        return session;
+    }
+
+    /**
+     * Tests that the same events received by several clients are encoded
+     * once and sent to each client.
+     */
+    @Test
+    public void testPublishToAllClients() throws Exception {
+        TopologyWebSocket client1 = new TopologyWebSocket();
+        TopologyWebSocket client2 = new TopologyWebSocket();
+        RemoteEndpoint.Async remote1 = createMock(RemoteEndpoint.Async.class);
+        RemoteEndpoint.Async remote2 = createMock(RemoteEndpoint.Async.class);
+        Session session1 = createSession(remote1);
+        Session session2 = createSession(remote2);
+
+        topologyService.addListener(client1, true);
+        topologyService.addListener(client2, true);
+        Capture<String> message1 = new Capture<>();
+        Capture<String> message2 = new Capture<>();
+        remote1.sendText(capture(message1), anyObject(SendHandler.class));
+        remote2.sendText(capture(message2), anyObject(SendHandler.class));
+        replay(topologyService, remote1, remote2, session1, session2);
+
+        client1.onOpen(session1, null);
+        client2.onOpen(session2, null);
+        publisher.sendEvents(new ClientEvents(client1, events));
+        publisher.sendEvents(new ClientEvents(client2, events));
+
+        verify(topologyService, remote1, remote2);
+        assertSame(message1.getValue(), message2.getValue());
+    }
+
+    /**
+     * Tests that a client with too many messages waiting to be sent is
+     * registered again to the Topology Service, to receive the whole
+     * topology.
+     */
+    @Test
+    public void testResyncWhenQueueIsFull() throws Exception {
+        TopologyWebSocket client = new TopologyWebSocket();
+        RemoteEndpoint.Async remote = createMock(RemoteEndpoint.Async.class);
+        Session session = createSession(remote);
+
+        topologyService.addListener(client, true);
+        // The first message is never completed, the next ones are queued
+        remote.sendText(anyObject(String.class), anyObject(SendHandler.class));
+        // The client falls behind and is resynchronized
+        topologyService.removeListener(client);
+        topologyService.addListener(client, true);
+        replay(topologyService, remote, session);
+
+        client.onOpen(session, null);
+        for (int i = 0; i <= TopologyWebSocket.MAX_PENDING_MESSAGES; i++) {
+            publisher.sendEvents(new ClientEvents(client, events));
+        }
+        // The queue is full: the message is dropped
+        publisher.sendEvents(new ClientEvents(client, events));
+        verify(topologyService, remote);
+    }
+
+    /**
+     * Tests that a client which does not answer the pings is disconnected.
+     */
+    @Test
+    public void testMissedPingsDisconnect() throws Exception {
+        TopologyWebSocket client = new TopologyWebSocket();
+        RemoteEndpoint.Async remote = createMock(RemoteEndpoint.Async.class);
+        Session session = createSession(remote);
+
+        topologyService.addListener(client, true);
+        remote.sendPing(anyObject(ByteBuffer.class));
+        expectLastCall().times(TopologyWebSocket.MAX_MISSING_PING);
+        topologyService.removeListener(client);
+        replay(topologyService, remote, session);
+
+        client.onOpen(session, null);
+        for (int i = 0; i <= TopologyWebSocket.MAX_MISSING_PING; i++) {
+            client.ping();
+        }
+        verify(topologyService, remote);
+
+        // Nothing is sent to the disconnected client
+        assertTrue(client.send("message"));
+        verify(remote);
+    }
+
+    /**
+     * Tests that a pong from the client resets the count of missed pings.
+     */
+    @Test
+    public void testPongKeepsClient() throws Exception {
+        TopologyWebSocket client = new TopologyWebSocket();
+        RemoteEndpoint.Async remote = createMock(RemoteEndpoint.Async.class);
+        Session session = createSession(remote);
+
+        topologyService.addListener(client, true);
+        remote.sendPing(anyObject(ByteBuffer.class));
+        expectLastCall().times(2 * TopologyWebSocket.MAX_MISSING_PING);
+        replay(topologyService, remote, session);
+
+        client.onOpen(session, null);
+        for (int i = 0; i < TopologyWebSocket.MAX_MISSING_PING; i++) {
+            client.ping();
+        }
+        client.onPongMessage(session, null);
+        for (int i = 0; i < TopologyWebSocket.MAX_MISSING_PING; i++) {
+            client.ping();
+        }
+
+        verify(topologyService, remote);
+    }
+}
@@ -0,0 +1,156 @@
+package net.onrc.onos.core.datastore.hazelcast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import net.onrc.onos.core.datastore.IMultiEntryOperation;
+import net.onrc.onos.core.datastore.IMultiEntryOperation.STATUS;
+import net.onrc.onos.core.datastore.hazelcast.HZTable.VersionedValue;
+import net.onrc.onos.core.datastore.topology.KVSwitch;
+import net.onrc.onos.core.datastore.utils.KVObject;
+import net.onrc.onos.core.datastore.utils.KVObject.WriteOp;
+import net.onrc.onos.core.util.IntegrationTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Unit tests for the multi-entry operations of HZClient.
+ */
+public class HZClientTest {
+    private static final byte[] KEY1 = "key1".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] KEY2 = "key2".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VALUE1 = "value1".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VALUE2 = "value2".getBytes(StandardCharsets.UTF_8);
+
+    private static final int NUM_BENCHMARK_OBJECTS = Integer.parseInt(
+            System.getProperty("objects", "1000"));
+    private static final int NUM_BENCHMARK_ITERATIONS = Integer.parseInt(
+            System.getProperty("iterations", "20"));
+    private static final double SEC_IN_NANO = 1000 * 1000 * 1000.0;
+
+    private final HZClient client = HZClient.getClient();
+    private final String namespace = UUID.randomUUID().toString();
+    private HZTable table;
+
+    @Before
+    public void setUp() throws Exception {
+        table = (HZTable) client.getTable("TableForUnitTest" + namespace);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.dropTable(table);
+    }
+
+    /**
+     * Tests that creates and updates are applied with the version checks of
+     * the single entry operations.
+     */
+    @Test
+    public void testMultiWrite() {
+        final long version1 = client.forceCreate(table, KEY1, VALUE1);
+
+        IMultiEntryOperation create1 = client.createOp(table, KEY1, VALUE2);
+        IMultiEntryOperation create2 = client.createOp(table, KEY2, VALUE2);
+        IMultiEntryOperation update1 = client.updateOp(table, KEY1, VALUE2, version1);
+        IMultiEntryOperation update2 = client.updateOp(table, KEY1, VALUE1, version1);
+
+        assertTrue(client.multiWrite(Arrays.asList(create1, create2, update1, update2)));
+
+        assertEquals(STATUS.FAILED, create1.getStatus());
+        assertEquals(STATUS.SUCCESS, create2.getStatus());
+        assertEquals(STATUS.SUCCESS, update1.getStatus());
+        // applied after update1 on the same entry, with an outdated version
+        assertEquals(STATUS.FAILED, update2.getStatus());
+
+        VersionedValue value1 = table.getBackendMap().get(KEY1);
+        assertEquals(HZTable.getNextVersion(version1), value1.getVersion());
+        assertEquals(new String(VALUE2, StandardCharsets.UTF_8),
+                new String(value1.getValue(), StandardCharsets.UTF_8));
+        assertNotNull(table.getBackendMap().get(KEY2));
+    }
+
+    /**
+     * Tests that deletes are applied with the version checks of the single
+     * entry operations.
+     */
+    @Test
+    public void testMultiDelete() {
+        final long version1 = client.forceCreate(table, KEY1, VALUE1);
+        final long version2 = client.forceCreate(table, KEY2, VALUE2);
+
+        IMultiEntryOperation delete1 = client.deleteOp(table, KEY1, VALUE1, version1);
+        IMultiEntryOperation delete2 = client.deleteOp(table, KEY2, VALUE2,
+                HZTable.getNextVersion(version2));
+
+        assertTrue(client.multiDelete(Arrays.asList(delete1, delete2)));
+        assertEquals(STATUS.SUCCESS, delete1.getStatus());
+        assertEquals(STATUS.FAILED, delete2.getStatus());
+        assertNull(table.getBackendMap().get(KEY1));
+        assertNotNull(table.getBackendMap().get(KEY2));
+
+        IMultiEntryOperation forceDelete2 = client.forceDeleteOp(table, KEY2);
+        assertFalse(client.multiDelete(Arrays.asList(forceDelete2)));
+        assertEquals(STATUS.SUCCESS, forceDelete2.getStatus());
+        assertNull(table.getBackendMap().get(KEY2));
+    }
+
+    /**
+     * Benchmarks KVObject.multiWrite and KVObject.multiRead against the
+     * embedded Hazelcast instance.
+     */
+    @Category(IntegrationTest.class)
+    @Test
+    public void benchmarkMultiReadWrite() {
+        List<KVSwitch> switches = new ArrayList<>(NUM_BENCHMARK_OBJECTS);
+        for (long dpid = 1; dpid <= NUM_BENCHMARK_OBJECTS; ++dpid) {
+            KVSwitch sw = new KVSwitch(dpid, namespace);
+            sw.setStatus(KVSwitch.STATUS.ACTIVE);
+            switches.add(sw);
+        }
+
+        List<WriteOp> createOps = new ArrayList<>(switches.size());
+        for (KVSwitch sw : switches) {
+            createOps.add(sw.forceCreateOp(client));
+        }
+        assertFalse(KVObject.multiWrite(createOps));
+
+        long writeTime = 0;
+        long readTime = 0;
+        for (int i = 0; i < NUM_BENCHMARK_ITERATIONS; ++i) {
+            List<WriteOp> updateOps = new ArrayList<>(switches.size());
+            for (KVSwitch sw : switches) {
+                updateOps.add(sw.updateOp(client));
+            }
+            long t1 = System.nanoTime();
+            assertFalse(KVObject.multiWrite(updateOps));
+            long t2 = System.nanoTime();
+            assertFalse(KVObject.multiRead(switches));
+            long t3 = System.nanoTime();
+            writeTime += t2 - t1;
+            readTime += t3 - t2;
+        }
+        assertNotEquals(client.getVersionNonexistant(), switches.get(0).getVersion());
+
+        client.dropTable(client.getTable(namespace + ":Switch"));
+
+        final long ops = (long) NUM_BENCHMARK_OBJECTS * NUM_BENCHMARK_ITERATIONS;
+        System.out.println(String.format(
+                "%d objects x %d iterations: multiWrite %.1f ops/sec, multiRead %.1f ops/sec",
+                NUM_BENCHMARK_OBJECTS, NUM_BENCHMARK_ITERATIONS,
+                ops * SEC_IN_NANO / writeTime, ops * SEC_IN_NANO / readTime));
+    }
+}
@@ -0,0 +1,316 @@
+package net.onrc.onos.core.drivermanager;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.floodlightcontroller.core.IFloodlightProviderService;
+import net.floodlightcontroller.core.IOF13Switch.NeighborSet;
+import net.onrc.onos.core.configmanager.INetworkConfigService;
+import net.onrc.onos.core.configmanager.INetworkConfigService.NetworkConfigState;
+import net.onrc.onos.core.configmanager.INetworkConfigService.SwitchConfigStatus;
+import net.onrc.onos.core.configmanager.NetworkConfig.LinkConfig;
+import net.onrc.onos.core.configmanager.NetworkConfigManager;
+import net.onrc.onos.core.configmanager.PktLinkConfig;
+import net.onrc.onos.core.configmanager.SegmentRouterConfig;
+import net.onrc.onos.core.matchaction.MatchAction;
+import net.onrc.onos.core.matchaction.MatchActionId;
+import net.onrc.onos.core.matchaction.MatchActionOperationEntry;
+import net.onrc.onos.core.matchaction.MatchActionOperations.Operator;
+import net.onrc.onos.core.matchaction.action.Action;
+import net.onrc.onos.core.matchaction.action.GroupAction;
+import net.onrc.onos.core.matchaction.match.Ipv4Match;
+import net.onrc.onos.core.util.Dpid;
+import net.onrc.onos.core.util.SwitchPort;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.protocol.OFBarrierRequest;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFFlowAdd;
+import org.projectfloodlight.openflow.protocol.OFFlowDeleteStrict;
+import org.projectfloodlight.openflow.protocol.OFFlowMod;
+import org.projectfloodlight.openflow.protocol.OFFlowModifyStrict;
+import org.projectfloodlight.openflow.protocol.OFGroupAdd;
+import org.projectfloodlight.openflow.protocol.OFGroupDelete;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFPortDesc;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.action.OFAction;
+import org.projectfloodlight.openflow.protocol.action.OFActionGroup;
+import org.projectfloodlight.openflow.protocol.instruction.OFInstruction;
+import org.projectfloodlight.openflow.protocol.instruction.OFInstructionWriteActions;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+
+/**
+ * Unit tests for the ECMP groups of the OFSwitchImplSpringOpenTTP class.
+ */
+public class OFSwitchImplSpringOpenTTPTest {
+    private static final long SW_DPID = 1L;
+    private static final long NEIGHBOR1_DPID = 2L;
+    private static final long NEIGHBOR2_DPID = 3L;
+    // Neighbor connected to a port the switch does not have
+    private static final long DOWN_NEIGHBOR_DPID = 4L;
+
+    private final OFFactory factory13 = OFFactories.getFactory(OFVersion.OF_13);
+    private TestSwitch sw;
+    private int matchActionId;
+
+    /**
+     * Switch keeping the messages written to it.
+     */
+    private static class TestSwitch extends OFSwitchImplSpringOpenTTP {
+        private final List<OFMessage> written = new ArrayList<OFMessage>();
+
+        TestSwitch() {
+            super(null, true);
+            datapathId = DatapathId.of(SW_DPID);
+            stringId = datapathId.toString();
+        }
+
+        @Override
+        protected void write(List<OFMessage> msglist) {
+            written.addAll(msglist);
+        }
+
+        /**
+         * Gets the messages written since the last call.
+         *
+         * @return the messages written
+         */
+        List<OFMessage> takeWritten() {
+            List<OFMessage> messages = new ArrayList<OFMessage>(written);
+            written.clear();
+            return messages;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        SegmentRouterConfig srConfig = createNiceMock(SegmentRouterConfig.class);
+        expect(srConfig.getRouterMac()).andReturn("00:00:00:00:00:01").anyTimes();
+        SwitchConfigStatus configStatus = createNiceMock(SwitchConfigStatus.class);
+        expect(configStatus.getConfigState())
+                .andReturn(NetworkConfigState.ACCEPT_ADD).anyTimes();
+        expect(configStatus.getSwitchConfig()).andReturn(srConfig).anyTimes();
+
+        List<LinkConfig> links = Arrays.<LinkConfig>asList(
+                createLink(NEIGHBOR1_DPID, 1),
+                createLink(NEIGHBOR2_DPID, 2),
+                createLink(DOWN_NEIGHBOR_DPID, 3));
+        INetworkConfigService ncs = createMock(INetworkConfigService.class);
+        expect(ncs.checkSwitchConfig(anyObject(Dpid.class)))
+                .andReturn(configStatus).anyTimes();
+        expect(ncs.getConfiguredAllowedLinks()).andReturn(links).anyTimes();
+        IFloodlightProviderService floodlightProvider =
+                createMock(IFloodlightProviderService.class);
+        expect(floodlightProvider.getNetworkConfigService())
+                .andReturn(ncs).anyTimes();
+        replay(srConfig, configStatus, ncs, floodlightProvider);
+
+        sw = new TestSwitch();
+        sw.setOFVersion(OFVersion.OF_13);
+        sw.factory = sw.getFactory();
+        sw.setFloodlightProvider(floodlightProvider);
+        sw.setPorts(Arrays.asList(createPort(1), createPort(2)));
+        assertTrue(sw.getNetworkConfig());
+    }
+
+    private PktLinkConfig createLink(long neighborDpid, int port) {
+        PktLinkConfig link = createNiceMock(PktLinkConfig.class);
+        expect(link.getType()).andReturn(NetworkConfigManager.PKT_LINK).anyTimes();
+        expect(link.getDpid1()).andReturn(SW_DPID).anyTimes();
+        expect(link.getPort1()).andReturn(port).anyTimes();
+        expect(link.getDpid2()).andReturn(neighborDpid).anyTimes();
+        expect(link.getPort2()).andReturn(1).anyTimes();
+        replay(link);
+        return link;
+    }
+
+    private OFPortDesc createPort(int port) {
+        return factory13.buildPortDesc()
+                .setName("port" + port)
+                .setPortNo(OFPort.of(port))
+                .build();
+    }
+
+    /**
+     * Creates an operation on an IPv4 flow forwarding to the ECMP group of
+     * a neighbor.
+     *
+     * @param op the operator
+     * @param prefix the destination prefix of the flow
+     * @param neighborDpid the DPID of the neighbor
+     * @return the operation
+     */
+    private MatchActionOperationEntry createIpFlow(Operator op, String prefix,
+            long neighborDpid) {
+        GroupAction groupAction = new GroupAction();
+        groupAction.addSwitch(new Dpid(neighborDpid));
+        MatchAction ma = new MatchAction(new MatchActionId(++matchActionId),
+                new SwitchPort(SW_DPID, (short) 0), new Ipv4Match(prefix),
+                Collections.<Action>singletonList(groupAction));
+        return new MatchActionOperationEntry(op, ma);
+    }
+
+    private int getGroupId(OFFlowMod flowMod) {
+        for (OFInstruction instruction : flowMod.getInstructions()) {
+            if (instruction instanceof OFInstructionWriteActions) {
+                for (OFAction action
+                        : ((OFInstructionWriteActions) instruction).getActions()) {
+                    if (action instanceof OFActionGroup) {
+                        return ((OFActionGroup) action).getGroup().getGroupNumber();
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Tests that the group used by a flow is created with the flow, and
+     * that the GroupAdd is sent ahead of the flow-mod with a barrier in
+     * between.
+     */
+    @Test
+    public void testGroupAddedBeforeFlow() throws Exception {
+        sw.pushFlows(Collections.singletonList(
+                createIpFlow(Operator.ADD, "10.0.1.0/24", NEIGHBOR1_DPID)));
+
+        List<OFMessage> messages = sw.takeWritten();
+        assertEquals(3, messages.size());
+        assertTrue(messages.get(0) instanceof OFGroupAdd);
+        assertTrue(messages.get(1) instanceof OFBarrierRequest);
+        assertTrue(messages.get(2) instanceof OFFlowAdd);
+        int groupId = ((OFGroupAdd) messages.get(0)).getGroup().getGroupNumber();
+        assertEquals(groupId, getGroupId((OFFlowMod) messages.get(2)));
+        assertEquals(groupId, sw.getEcmpGroupId(new NeighborSet(new Dpid(NEIGHBOR1_DPID))));
+    }
+
+    /**
+     * Tests that a group shared by several flows is created once, and is
+     * deleted after the flow-mod removing the last flow referencing it.
+     */
+    @Test
+    public void testGroupDeletedWithLastReference() throws Exception {
+        MatchActionOperationEntry flow1 =
+                createIpFlow(Operator.ADD, "10.0.1.0/24", NEIGHBOR1_DPID);
+        MatchActionOperationEntry flow2 =
+                createIpFlow(Operator.ADD, "10.0.2.0/24", NEIGHBOR1_DPID);
+        sw.pushFlows(Arrays.asList(flow1, flow2));
+        List<OFMessage> messages = sw.takeWritten();
+        assertEquals(4, messages.size());
+        int groupId = ((OFGroupAdd) messages.get(0)).getGroup().getGroupNumber();
+
+        // The group is still referenced by the second flow
+        sw.pushFlow(createIpFlow(Operator.REMOVE, "10.0.1.0/24", NEIGHBOR1_DPID));
+        messages = sw.takeWritten();
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0) instanceof OFFlowDeleteStrict);
+
+        // The last reference is removed: the group is deleted in the same
+        // batch, after the flow-mod
+        sw.pushFlow(createIpFlow(Operator.REMOVE, "10.0.2.0/24", NEIGHBOR1_DPID));
+        messages = sw.takeWritten();
+        assertEquals(3, messages.size());
+        assertTrue(messages.get(0) instanceof OFFlowDeleteStrict);
+        assertTrue(messages.get(1) instanceof OFBarrierRequest);
+        assertTrue(messages.get(2) instanceof OFGroupDelete);
+        assertEquals(groupId,
+                ((OFGroupDelete) messages.get(2)).getGroup().getGroupNumber());
+
+        // A new flow creates the group again
+        sw.pushFlow(flow1);
+        messages = sw.takeWritten();
+        assertEquals(3, messages.size());
+        assertTrue(messages.get(0) instanceof OFGroupAdd);
+    }
+
+    /**
+     * Tests that a group released and referenced again in the same batch is
+     * not deleted.
+     */
+    @Test
+    public void testGroupReferencedAgainInBatch() throws Exception {
+        sw.pushFlow(createIpFlow(Operator.ADD, "10.0.1.0/24", NEIGHBOR1_DPID));
+        sw.takeWritten();
+
+        sw.pushFlows(Arrays.asList(
+                createIpFlow(Operator.REMOVE, "10.0.1.0/24", NEIGHBOR1_DPID),
+                createIpFlow(Operator.ADD, "10.0.2.0/24", NEIGHBOR1_DPID)));
+        List<OFMessage> messages = sw.takeWritten();
+        assertEquals(2, messages.size());
+        assertTrue(messages.get(0) instanceof OFFlowDeleteStrict);
+        assertTrue(messages.get(1) instanceof OFFlowAdd);
+    }
+
+    /**
+     * Tests that a flow modified to use another group releases the group it
+     * used before.
+     */
+    @Test
+    public void testModifiedFlowReleasesGroup() throws Exception {
+        sw.pushFlow(createIpFlow(Operator.ADD, "10.0.1.0/24", NEIGHBOR1_DPID));
+        int oldGroupId = ((OFGroupAdd) sw.takeWritten().get(0))
+                .getGroup().getGroupNumber();
+
+        sw.pushFlow(createIpFlow(Operator.MODIFY, "10.0.1.0/24", NEIGHBOR2_DPID));
+        List<OFMessage> messages = sw.takeWritten();
+        assertEquals(5, messages.size());
+        assertTrue(messages.get(0) instanceof OFGroupAdd);
+        assertTrue(messages.get(1) instanceof OFBarrierRequest);
+        assertTrue(messages.get(2) instanceof OFFlowModifyStrict);
+        assertTrue(messages.get(3) instanceof OFBarrierRequest);
+        assertTrue(messages.get(4) instanceof OFGroupDelete);
+        int newGroupId = ((OFGroupAdd) messages.get(0)).getGroup().getGroupNumber();
+        assertNotEquals(oldGroupId, newGroupId);
+        assertEquals(newGroupId, getGroupId((OFFlowMod) messages.get(2)));
+        assertEquals(oldGroupId,
+                ((OFGroupDelete) messages.get(4)).getGroup().getGroupNumber());
+    }
+
+    /**
+     * Tests that getting the ID of a group which does not exist yet creates
+     * the group, which is then used by the flows.
+     */
+    @Test
+    public void testGetEcmpGroupIdCreatesGroup() throws Exception {
+        NeighborSet ns = new NeighborSet(new Dpid(NEIGHBOR1_DPID));
+        int groupId = sw.getEcmpGroupId(ns);
+        assertTrue(groupId > 0);
+        List<OFMessage> messages = sw.takeWritten();
+        assertEquals(1, messages.size());
+        assertEquals(groupId,
+                ((OFGroupAdd) messages.get(0)).getGroup().getGroupNumber());
+
+        assertEquals(groupId, sw.getEcmpGroupId(ns));
+        assertTrue(sw.takeWritten().isEmpty());
+
+        sw.pushFlow(createIpFlow(Operator.ADD, "10.0.1.0/24", NEIGHBOR1_DPID));
+        messages = sw.takeWritten();
+        assertEquals(1, messages.size());
+        assertEquals(groupId, getGroupId((OFFlowMod) messages.get(0)));
+    }
+
+    /**
+     * Tests that no group is created for a neighbor without enabled port.
+     */
+    @Test
+    public void testGetEcmpGroupIdWithoutEnabledPort() {
+        assertEquals(-1, sw.getEcmpGroupId(
+                new NeighborSet(new Dpid(DOWN_NEIGHBOR_DPID))));
+        assertTrue(sw.takeWritten().isEmpty());
+    }
+}
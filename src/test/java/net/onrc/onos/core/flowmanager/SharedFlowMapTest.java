@@ -3,6 +3,7 @@ package net.onrc.onos.core.flowmanager;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -34,6 +35,9 @@ import org.junit.Test;
  * Unit test for {@link SharedFlowMap}.
  */
 public class SharedFlowMapTest {
+    // Maximum time to wait for the entry events of the shared map
+    private static final long EVENT_TIMEOUT_MS = 5000;
+
     private ISharedCollectionsService scs;
     private Path path;
     private PacketMatch match;
@@ -131,4 +135,97 @@ public class SharedFlowMapTest {
         assertEquals(flow, map.remove(flow.getId()));
         assertNull(map.getState(flow.getId()));
     }
+
+    /**
+     * Tests that the locally cached flows reflect the flows put to and
+     * removed from the map.
+     */
+    @Test
+    public void testGetAllAfterPutAndRemove() {
+        SharedFlowMap map = new SharedFlowMap(scs);
+        Flow otherFlow = new PacketPathFlow(new FlowId(2L), match,
+                PortNumber.uint32(12345), path, actions, 0, 0);
+
+        assertTrue(map.put(flow));
+        assertTrue(map.put(otherFlow));
+        Set<Flow> flows = map.getAll();
+        assertEquals(2, flows.size());
+        assertTrue(flows.contains(flow));
+        assertTrue(flows.contains(otherFlow));
+
+        // Repeated reads return the same flow
+        assertEquals(flow, map.get(flow.getId()));
+        assertEquals(flow, map.get(flow.getId()));
+
+        assertEquals(flow, map.remove(flow.getId()));
+        assertNull(map.get(flow.getId()));
+        flows = map.getAll();
+        assertEquals(1, flows.size());
+        assertTrue(flows.contains(otherFlow));
+
+        assertEquals(otherFlow, map.remove(otherFlow.getId()));
+        assertTrue(map.getAll().isEmpty());
+    }
+
+    /**
+     * Tests that the flows read from the map are copies, which can be
+     * modified without affecting the locally cached flows.
+     */
+    @Test
+    public void testReadsReturnCopies() {
+        SharedFlowMap map = new SharedFlowMap(scs);
+        assertTrue(map.put(flow));
+
+        PacketPathFlow obtainedFlow = (PacketPathFlow) map.get(flow.getId());
+        assertNotSame(obtainedFlow, map.get(flow.getId()));
+        obtainedFlow.getPath().add(new FlowLink(
+                new SwitchPort(2, (short) 12), new SwitchPort(3, (short) 13)));
+
+        PacketPathFlow cachedFlow = (PacketPathFlow) map.get(flow.getId());
+        assertEquals(1, cachedFlow.getPath().size());
+
+        assertEquals(flow, map.remove(flow.getId()));
+    }
+
+    /**
+     * Tests that a flow put to or removed from the shared map by another
+     * instance invalidates the locally cached entry.
+     */
+    @Test
+    public void testRemoteUpdatesInvalidateCache() throws InterruptedException {
+        SharedFlowMap localMap = new SharedFlowMap(scs);
+        SharedFlowMap remoteMap = new SharedFlowMap(scs);
+
+        // The absence of the flow is cached locally
+        assertNull(localMap.get(flow.getId()));
+        assertTrue(remoteMap.put(flow));
+        assertTrue(waitForFlow(localMap, flow.getId(), true));
+        assertEquals(flow, localMap.get(flow.getId()));
+
+        // The flow is cached locally
+        assertEquals(flow, remoteMap.remove(flow.getId()));
+        assertTrue(waitForFlow(localMap, flow.getId(), false));
+        assertTrue(localMap.getAll().isEmpty());
+    }
+
+    /**
+     * Waits until the flow read from the map is present or absent.
+     *
+     * @param map the map to read the flow from
+     * @param id the ID of the flow
+     * @param present true to wait for the flow to be present
+     * @return true if the flow was in the expected state before the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private boolean waitForFlow(SharedFlowMap map, FlowId id, boolean present)
+            throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + EVENT_TIMEOUT_MS;
+        while ((map.get(id) != null) != present) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
 }
@@ -26,7 +26,6 @@ import java.util.concurrent.TimeUnit;
 import net.floodlightcontroller.core.FloodlightContext;
 import net.floodlightcontroller.core.IFloodlightProviderService;
 import net.floodlightcontroller.core.IOFSwitch;
-import net.floodlightcontroller.core.internal.OFMessageFuture;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import net.onrc.onos.core.intent.FlowEntry;
@@ -37,7 +36,6 @@ import net.onrc.onos.core.util.IntegrationTest;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
-import org.projectfloodlight.openflow.protocol.OFBarrierReply;
 import org.projectfloodlight.openflow.protocol.OFBarrierRequest;
 import org.projectfloodlight.openflow.protocol.OFFactories;
 import org.projectfloodlight.openflow.protocol.OFFactory;
@@ -404,7 +402,7 @@ public class FlowPusherTest {
         endInitMock();
         initPusher(1);
 
-        OFMessageFuture<OFBarrierReply> future = pusher.barrierAsync(dpid);
+        OFBarrierReplyFuture future = pusher.barrierAsync(dpid);
 
         assertNotNull(future);
 
@@ -415,6 +413,7 @@ public class FlowPusherTest {
         }
 
         verifyAll();
+        assertTrue(future.getRequestWrittenTime() != 0);
 
         pusher.stop();
     }
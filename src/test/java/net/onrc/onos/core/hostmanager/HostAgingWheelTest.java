@@ -0,0 +1,114 @@
+package net.onrc.onos.core.hostmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import net.floodlightcontroller.util.MACAddress;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the HostAgingWheel class.
+ */
+public class HostAgingWheelTest {
+    private static final long AGING = 1000;
+    private static final long START = 1000000;
+
+    private static final MACAddress MAC1 = MACAddress.valueOf(1L);
+    private static final MACAddress MAC2 = MACAddress.valueOf(2L);
+    private static final MACAddress MAC3 = MACAddress.valueOf(3L);
+
+    /**
+     * Tests that the hosts are expired only once they have not been seen
+     * for longer than the aging time.
+     */
+    @Test
+    public void testExpire() {
+        HostAgingWheel wheel = new HostAgingWheel(AGING, 16);
+        wheel.touch(MAC1, START);
+        wheel.touch(MAC2, START + 100);
+        assertEquals(2, wheel.size());
+
+        assertTrue(wheel.expire(START + AGING).isEmpty());
+        assertEquals(list(MAC1), wheel.expire(START + AGING + 1));
+        assertTrue(wheel.expire(START + AGING + 100).isEmpty());
+        assertEquals(list(MAC2), wheel.expire(START + AGING + 101));
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Tests that refreshing or removing a host takes it out of its previous
+     * slot.
+     */
+    @Test
+    public void testTouchAndRemove() {
+        HostAgingWheel wheel = new HostAgingWheel(AGING, 16);
+        wheel.touch(MAC1, START);
+        wheel.touch(MAC2, START);
+        wheel.touch(MAC3, START);
+
+        wheel.touch(MAC1, START + 500);
+        // An older time doesn't move the host back
+        wheel.touch(MAC1, START + 200);
+        wheel.remove(MAC2);
+
+        assertEquals(list(MAC3), wheel.expire(START + AGING + 1));
+        assertEquals(list(MAC1), wheel.expire(START + AGING + 501));
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Compares the expired hosts with a scan of all the hosts, with the
+     * hosts refreshed at random times and expiries spanning several turns of
+     * the wheel.
+     */
+    @Test
+    public void testRandomTimes() {
+        final Random random = new Random(0);
+        HostAgingWheel wheel = new HostAgingWheel(AGING, 8);
+        Map<MACAddress, Long> lastSeenTimes = new HashMap<>();
+
+        long now = START;
+        for (int i = 0; i < 200; i++) {
+            now += random.nextInt(200);
+            for (int j = 0; j < 20; j++) {
+                MACAddress mac = MACAddress.valueOf((long) random.nextInt(100));
+                long lastSeen = now - random.nextInt(50);
+                wheel.touch(mac, lastSeen);
+                Long previous = lastSeenTimes.get(mac);
+                if (previous == null || previous < lastSeen) {
+                    lastSeenTimes.put(mac, lastSeen);
+                }
+            }
+            if (random.nextInt(5) == 0) {
+                // Sometimes the expiry runs late
+                now += random.nextInt(5000);
+            }
+
+            Set<MACAddress> expected = new HashSet<>();
+            for (Map.Entry<MACAddress, Long> entry : lastSeenTimes.entrySet()) {
+                if (now - entry.getValue() > AGING) {
+                    expected.add(entry.getKey());
+                }
+            }
+            lastSeenTimes.keySet().removeAll(expected);
+
+            assertEquals(expected, new HashSet<>(wheel.expire(now)));
+            assertEquals(lastSeenTimes.size(), wheel.size());
+        }
+    }
+
+    private static List<MACAddress> list(MACAddress mac) {
+        List<MACAddress> macs = new ArrayList<>();
+        macs.add(mac);
+        return macs;
+    }
+}
@@ -1,6 +1,7 @@
 package net.onrc.onos.core.hostmanager;
 
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.eq;
@@ -10,6 +11,8 @@ import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 
 import net.floodlightcontroller.core.IFloodlightProviderService;
@@ -31,12 +34,21 @@ import net.onrc.onos.core.packet.IPacket;
 import net.onrc.onos.core.packet.IPv4;
 import net.onrc.onos.core.packet.UDP;
 import net.onrc.onos.core.registry.IControllerRegistryService;
+import net.onrc.onos.core.topology.HostData;
 import net.onrc.onos.core.topology.ITopologyListener;
 import net.onrc.onos.core.topology.ITopologyService;
+import net.onrc.onos.core.topology.LinkData;
+import net.onrc.onos.core.topology.MastershipData;
 import net.onrc.onos.core.topology.MockTopology;
+import net.onrc.onos.core.topology.PortData;
+import net.onrc.onos.core.topology.SwitchData;
+import net.onrc.onos.core.topology.TopologyEvents;
 import net.onrc.onos.core.util.Dpid;
 import net.onrc.onos.core.util.PortNumber;
+import net.onrc.onos.core.util.SwitchPort;
 
+import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -68,13 +80,14 @@ public class HostManagerTest extends FloodlightTestCase {
     private IFloodlightProviderService floodlightProvider;
     private Date lastSeenTimestamp;
     private OFFactory ofact;
+    private MockTopology topology;
 
     @Override
     @Before
     @SuppressWarnings("unchecked")
     public void setUp() throws Exception {
         super.setUp();
-        MockTopology topology = new MockTopology();
+        topology = new MockTopology();
         IDatagridService datagridService;
         IControllerRegistryService controllerRegistryService;
 
@@ -306,6 +319,43 @@ public class HostManagerTest extends FloodlightTestCase {
         verify(floodlightProvider);
     }
 
+    /**
+     * Test that a host seen again at the same place is not published again,
+     * and that a host with a new IP address is.
+     * @throws FloodlightModuleException
+     */
+    @Test
+    public void testProcessPacketInUnchangedHost() throws FloodlightModuleException {
+        floodlightProvider.addOFMessageListener(eq(OFType.PACKET_IN),
+                isA(HostManager.class));
+        expectLastCall();
+        floodlightProvider.publishUpdate(isA(IUpdate.class));
+        expectLastCall().times(2);
+        replay(floodlightProvider);
+
+        Ethernet newIpPacket = new Ethernet()
+        .setDestinationMACAddress("00:11:22:33:44:55")
+        .setSourceMACAddress("00:44:33:22:11:00")
+        .setEtherType(Ethernet.TYPE_IPV4)
+        .setPayload(
+                new IPv4()
+                .setTtl((byte) 128)
+                .setSourceAddress("192.168.1.3")
+                .setDestinationAddress("192.168.1.2")
+                .setPayload(getUDP(new Data(new byte[]{0x01}))));
+
+        hostManager.init(modContext);
+        hostManager.startUp(modContext);
+        assertEquals(Command.CONTINUE, hostManager.processPacketIn(
+                sw1, pktIn, (Ethernet) pkt1, (short) sw1DevPort));
+        assertEquals(Command.CONTINUE, hostManager.processPacketIn(
+                sw1, pktIn, (Ethernet) pkt1, (short) sw1DevPort));
+        assertEquals(Command.CONTINUE, hostManager.processPacketIn(
+                sw1, pktIn, newIpPacket, (short) sw1DevPort));
+
+        verify(floodlightProvider);
+    }
+
     /**
      * Test return Command.STOP path in processPacketIn method by injecting a broadcast packet.
      */
@@ -386,6 +436,91 @@ public class HostManagerTest extends FloodlightTestCase {
         verify(floodlightProvider);
     }
 
+    /**
+     * Test that the hosts in the topology at startup, which were not seen by
+     * this instance, are deleted once they expire.
+     * @throws FloodlightModuleException
+     */
+    @Test
+    public void testExpireHostsAtStartUp() throws FloodlightModuleException {
+        final long agingMillis = 60 * 60 * 1000;
+        Capture<IUpdate> updates = new Capture<>(CaptureType.ALL);
+        floodlightProvider.addOFMessageListener(eq(OFType.PACKET_IN),
+                isA(HostManager.class));
+        expectLastCall();
+        floodlightProvider.publishUpdate(capture(updates));
+        expectLastCall();
+        replay(floodlightProvider);
+
+        Capture<Collection<Host>> removedHosts = new Capture<>();
+        IHostListener listener = createMock(IHostListener.class);
+        listener.hostsRemoved(capture(removedHosts));
+        expectLastCall();
+        replay(listener);
+
+        hostManager.init(modContext);
+        hostManager.startUp(modContext);
+        hostManager.addHostListener(listener);
+        hostManager.removeExpiredHosts(1 + agingMillis);
+        hostManager.removeExpiredHosts(1 + agingMillis + 1);
+
+        verify(floodlightProvider);
+        updates.getValue().dispatch();
+        verify(listener);
+        // The two hosts of the sample topology, last seen at time 1
+        assertEquals(2, removedHosts.getValue().size());
+    }
+
+    /**
+     * Test that a host added to the topology by another instance is deleted
+     * once it expires, although this instance never saw it.
+     * @throws FloodlightModuleException
+     */
+    @Test
+    public void testExpireHostFromTopologyEvent() throws FloodlightModuleException {
+        final long agingMillis = 60 * 60 * 1000;
+        final long lastSeen = 10 * agingMillis;
+        final MACAddress mac = MACAddress.valueOf("00:44:33:22:11:22");
+        Capture<IUpdate> updates = new Capture<>(CaptureType.ALL);
+        floodlightProvider.addOFMessageListener(eq(OFType.PACKET_IN),
+                isA(HostManager.class));
+        expectLastCall();
+        floodlightProvider.publishUpdate(capture(updates));
+        expectLastCall().times(2);
+        replay(floodlightProvider);
+
+        Capture<Host> removedHost = new Capture<>();
+        IHostListener listener = createNiceMock(IHostListener.class);
+        listener.hostRemoved(capture(removedHost));
+        expectLastCall();
+        replay(listener);
+
+        hostManager.init(modContext);
+        hostManager.startUp(modContext);
+        hostManager.addHostListener(listener);
+        // Expire the hosts of the sample topology first
+        hostManager.removeExpiredHosts(lastSeen);
+
+        HostData hostData = new HostData(mac);
+        hostData.addAttachmentPoint(new SwitchPort(1L, 15L));
+        hostData.setLastSeenTime(lastSeen);
+        topology.addHost(hostData);
+        hostManager.topologyEvents(new TopologyEvents(
+                Collections.<MastershipData>emptyList(),
+                Collections.<SwitchData>emptyList(),
+                Collections.<PortData>emptyList(),
+                Collections.<LinkData>emptyList(),
+                Collections.singletonList(hostData)));
+
+        hostManager.removeExpiredHosts(lastSeen + agingMillis);
+        hostManager.removeExpiredHosts(lastSeen + agingMillis + 1);
+
+        verify(floodlightProvider);
+        updates.getValues().get(1).dispatch();
+        verify(listener);
+        assertEquals(mac, removedHost.getValue().getMacAddress());
+    }
+
     /**
      * Helper for building PacketIns. Defaults to a flowtable miss.
      * @param inport the inport field value
@@ -0,0 +1,144 @@
+package net.onrc.onos.core.intent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import net.onrc.onos.core.intent.IntentOperation.Operator;
+import net.onrc.onos.core.topology.LinkData;
+import net.onrc.onos.core.topology.MockTopology;
+import net.onrc.onos.core.topology.Switch;
+import net.onrc.onos.core.util.Dpid;
+import net.onrc.onos.core.util.IntegrationTest;
+import net.onrc.onos.core.util.PortNumber;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Unit tests for ConstrainedPathBatch class.
+ */
+public class ConstrainedPathBatchTest {
+    private static final Dpid DPID_1 = new Dpid(1L);
+    private static final Dpid DPID_2 = new Dpid(2L);
+    private static final Dpid DPID_4 = new Dpid(4L);
+
+    private static final PortNumber PORT_NUMBER_12 = PortNumber.uint16((short) 12);
+    private static final PortNumber PORT_NUMBER_14 = PortNumber.uint16((short) 14);
+    private static final PortNumber PORT_NUMBER_42 = PortNumber.uint16((short) 42);
+
+    private static final int NUM_BENCHMARK_INTENTS = Integer.parseInt(
+            System.getProperty("intents", "50000"));
+    private static final int FAT_TREE_K = 8;
+    private static final double SEC_IN_NANO = 1000 * 1000 * 1000.0;
+
+    /**
+     * Tests that the bandwidth allocated to a path is accounted for when
+     * calculating the next paths of the same batch.
+     */
+    @Test
+    public void testAllocatePathsInBatch() {
+        MockTopology topology = new MockTopology();
+        topology.createSampleTopology1();
+        ConstrainedPathBatch batch = new ConstrainedPathBatch(new PathIntentMap());
+        Switch sw1 = topology.getSwitch(DPID_1);
+        Switch sw2 = topology.getSwitch(DPID_2);
+
+        Path path1 = batch.allocatePath(sw1, sw2, 600.0);
+        assertNotNull(path1);
+        assertEquals(1, path1.size());
+        assertEquals(new LinkData(topology.getOutgoingLink(DPID_1, PORT_NUMBER_12)), path1.get(0));
+
+        Path path2 = batch.allocatePath(sw1, sw2, 600.0);
+        assertNotNull(path2);
+        assertEquals(2, path2.size());
+        assertEquals(new LinkData(topology.getOutgoingLink(DPID_1, PORT_NUMBER_14)), path2.get(0));
+        assertEquals(new LinkData(topology.getOutgoingLink(DPID_4, PORT_NUMBER_42)), path2.get(1));
+
+        assertNull(batch.allocatePath(sw1, sw2, 600.0));
+
+        // a smaller request still fits on the direct link
+        assertNotNull(batch.allocatePath(sw1, sw2, 400.0));
+    }
+
+    /**
+     * Tests that the bandwidth reserved in the PathIntentMap and the
+     * bandwidth allocated in the batch are both accounted for.
+     */
+    @Test
+    public void testAllocateOnTopOfPathIntentMap() {
+        MockTopology topology = new MockTopology();
+        topology.createSampleTopology1();
+        PathIntentMap intents = new PathIntentMap();
+        Switch sw1 = topology.getSwitch(DPID_1);
+        Switch sw2 = topology.getSwitch(DPID_2);
+
+        Path path1 = new ConstrainedBFSTree(sw1, intents, 600.0).getPath(sw2);
+        ConstrainedShortestPathIntent intent1 = new ConstrainedShortestPathIntent(
+                "1", 1L, MockTopology.LOCAL_PORT, 0x111L,
+                2L, MockTopology.LOCAL_PORT, 0x222L, 600.0);
+        IntentOperationList intentOps = new IntentOperationList();
+        intentOps.add(Operator.ADD, new PathIntent("pi1", path1, 600.0, intent1));
+        intents.executeOperations(intentOps);
+
+        ConstrainedPathBatch batch = new ConstrainedPathBatch(intents);
+        Path path2 = batch.allocatePath(sw1, sw2, 600.0);
+        assertNotNull(path2);
+        assertEquals(2, path2.size());
+        assertNull(batch.allocatePath(sw1, sw2, 600.0));
+
+        // the PathIntentMap itself is not modified by the batch
+        assertEquals(1000.0, intents.getAvailableBandwidth(
+                topology.getOutgoingLink(DPID_1, PORT_NUMBER_14)), 0.0);
+    }
+
+    /**
+     * Benchmarks the calculation of a batch of constrained paths on a fat-tree
+     * topology, followed by the update of the PathIntentMap.
+     */
+    @Category(IntegrationTest.class)
+    @Test
+    public void benchmarkConstrainedPathBatch() {
+        MockTopology topology = new MockTopology();
+        List<Switch> edgeSwitches = topology.createFatTree(FAT_TREE_K, 1000000.0);
+        PathIntentMap intents = new PathIntentMap();
+        Random random = new Random(42);
+
+        ConstrainedPathBatch batch = new ConstrainedPathBatch(intents);
+        IntentOperationList intentOps = new IntentOperationList();
+        int pathNotFound = 0;
+
+        long t1 = System.nanoTime();
+        for (int i = 0; i < NUM_BENCHMARK_INTENTS; i++) {
+            Switch src = edgeSwitches.get(random.nextInt(edgeSwitches.size()));
+            Switch dst = edgeSwitches.get(random.nextInt(edgeSwitches.size()));
+            double bandwidth = 1.0 + random.nextInt(10);
+            Path path = batch.allocatePath(src, dst, bandwidth);
+            if (path == null) {
+                pathNotFound++;
+                continue;
+            }
+            ConstrainedShortestPathIntent intent = new ConstrainedShortestPathIntent(
+                    Integer.toString(i), src.getDpid().value(), MockTopology.LOCAL_PORT, i,
+                    dst.getDpid().value(), MockTopology.LOCAL_PORT, i, bandwidth);
+            intentOps.add(Operator.ADD, new PathIntent("pi" + i, path, bandwidth, intent));
+        }
+        long t2 = System.nanoTime();
+        intents.executeOperations(intentOps);
+        long t3 = System.nanoTime();
+
+        assertEquals(NUM_BENCHMARK_INTENTS, intentOps.size() + pathNotFound);
+        assertTrue(intents.getAllIntents().size() > 0);
+
+        System.out.println(String.format(
+                "%d constrained intents on a k=%d fat-tree (%d not routed): "
+                + "path calculation %.1f intents/sec, PathIntentMap update %.1f intents/sec",
+                NUM_BENCHMARK_INTENTS, FAT_TREE_K, pathNotFound,
+                NUM_BENCHMARK_INTENTS * SEC_IN_NANO / (t2 - t1),
+                intentOps.size() * SEC_IN_NANO / (t3 - t2)));
+    }
+}
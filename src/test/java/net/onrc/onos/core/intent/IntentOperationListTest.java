@@ -67,4 +67,33 @@ public class IntentOperationListTest {
         Intent intent2 = op2.intent;
         assertEquals("22", intent2.getId());
     }
+
+    /**
+     * Tests that the trace ID and the stage timestamps are serialized along
+     * with the operations.
+     */
+    @Test
+    public void testTraceSerialization() {
+        IntentOperationList opList = new IntentOperationList();
+        opList.add(IntentOperation.Operator.REMOVE, new Intent("1"));
+        opList.setTraceId(0x1234L);
+        opList.setTimestamp(IntentOperationList.Stage.SUBMITTED, 100L);
+        opList.setTimestamp(IntentOperationList.Stage.PUBLISHED, 300L);
+
+        KryoFactory factory = new KryoFactory();
+        Kryo kryo = factory.newKryo();
+        Output output = new Output(1024);
+        kryo.writeObject(output, opList);
+        output.close();
+
+        Input input = new Input(output.toBytes());
+        IntentOperationList rcvOpList = kryo.readObject(input, IntentOperationList.class);
+
+        assertEquals(1, rcvOpList.size());
+        assertEquals("1", rcvOpList.get(0).intent.getId());
+        assertEquals(0x1234L, rcvOpList.getTraceId());
+        assertEquals(100L, rcvOpList.getTimestamp(IntentOperationList.Stage.SUBMITTED));
+        assertEquals(0L, rcvOpList.getTimestamp(IntentOperationList.Stage.PATH_CALCULATED));
+        assertEquals(300L, rcvOpList.getTimestamp(IntentOperationList.Stage.PUBLISHED));
+    }
 }
@@ -6,6 +6,7 @@ import static org.easymock.EasyMock.replay;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.Collection;
 
 import net.onrc.onos.core.intent.IntentOperation.Operator;
@@ -218,4 +219,28 @@ public class PathIntentMapTest {
 
         assertEquals(200.0, intents.getAvailableBandwidth(link12), 0.0);
     }
+
+    @Test
+    public void testGetAvailableBandwidthAfterPurge() {
+        IntentOperationList operations = new IntentOperationList();
+        operations.add(Operator.ADD, intent1);
+        operations.add(Operator.ADD, intent2);
+
+        PathIntentMap intents = new PathIntentMap();
+        intents.executeOperations(operations);
+        assertEquals(200.0, intents.getAvailableBandwidth(link12), 0.0);
+        assertEquals(600.0, intents.getAvailableBandwidth(link24), 0.0);
+
+        intents.purge(Arrays.asList(intent2.getId()));
+        assertEquals(600.0, intents.getAvailableBandwidth(link12), 0.0);
+        assertEquals(1000.0, intents.getAvailableBandwidth(link24), 0.0);
+
+        // adding the same intent again must not reserve its bandwidth twice
+        intents.executeOperations(operations);
+        assertEquals(200.0, intents.getAvailableBandwidth(link12), 0.0);
+
+        intents.purge(Arrays.asList(intent1.getId(), intent2.getId()));
+        assertEquals(1000.0, intents.getAvailableBandwidth(link12), 0.0);
+        assertEquals(1000.0, intents.getAvailableBandwidth(link23), 0.0);
+    }
 }
@@ -0,0 +1,109 @@
+package net.onrc.onos.core.intent.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.onrc.onos.core.intent.Intent;
+import net.onrc.onos.core.intent.IntentOperation;
+import net.onrc.onos.core.intent.IntentOperationList;
+import net.onrc.onos.core.intent.IntentOperationList.Stage;
+import net.onrc.onos.core.util.UnitTest;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the IntentTracer class.
+ */
+public class IntentTracerTest extends UnitTest {
+
+    private static long count(Stage stage) {
+        return IntentTracer.getStageLatency(stage).getCount();
+    }
+
+    private static IntentOperationList createList() {
+        IntentOperationList list = new IntentOperationList();
+        list.add(IntentOperation.Operator.REMOVE, new Intent("1"));
+        return list;
+    }
+
+    /**
+     * Tests that the traces started by this instance get distinct IDs, and
+     * that a started trace keeps its ID.
+     */
+    @Test
+    public void testStart() {
+        IntentOperationList list1 = createList();
+        IntentOperationList list2 = createList();
+        IntentTracer.start(list1);
+        IntentTracer.start(list2);
+
+        assertNotEquals(0L, list1.getTraceId());
+        assertNotEquals(list1.getTraceId(), list2.getTraceId());
+        assertTrue(IntentTracer.isLocal(list1));
+        assertNotEquals(0L, list1.getTimestamp(Stage.SUBMITTED));
+
+        final long traceId = list1.getTraceId();
+        IntentTracer.start(list1);
+        assertEquals(traceId, list1.getTraceId());
+    }
+
+    /**
+     * Tests that the latency of each traced stage is recorded from the
+     * previous traced stage.
+     */
+    @Test
+    public void testRecordLocal() {
+        IntentOperationList list = createList();
+        IntentTracer.start(list);
+        final long submitted = list.getTimestamp(Stage.SUBMITTED);
+        list.setTimestamp(Stage.PATH_CALCULATED, submitted + 10);
+        list.setTimestamp(Stage.RECEIVED, submitted + 30);
+        list.setTimestamp(Stage.BARRIER_ACKED, submitted + 100);
+
+        final long pathCalculated = count(Stage.PATH_CALCULATED);
+        final long published = count(Stage.PUBLISHED);
+        final long received = count(Stage.RECEIVED);
+        final long barrierAcked = count(Stage.BARRIER_ACKED);
+        final long total = IntentTracer.getTotalLatency().getCount();
+
+        IntentTracer.record(list);
+
+        assertEquals(pathCalculated + 1, count(Stage.PATH_CALCULATED));
+        assertEquals(published, count(Stage.PUBLISHED));
+        assertEquals(received + 1, count(Stage.RECEIVED));
+        assertEquals(barrierAcked + 1, count(Stage.BARRIER_ACKED));
+        assertEquals(total + 1, IntentTracer.getTotalLatency().getCount());
+    }
+
+    /**
+     * Tests that only the stages run by this instance are recorded for a
+     * trace started by another instance.
+     */
+    @Test
+    public void testRecordRemote() {
+        IntentOperationList list = createList();
+        IntentTracer.start(list);
+        // flip the instance ID bits
+        list.setTraceId(list.getTraceId() ^ 0xffffffff00000000L);
+        assertFalse(IntentTracer.isLocal(list));
+
+        final long submitted = list.getTimestamp(Stage.SUBMITTED);
+        list.setTimestamp(Stage.PATH_CALCULATED, submitted + 10);
+        list.setTimestamp(Stage.RECEIVED, submitted + 30);
+        list.setTimestamp(Stage.PLAN_COMPUTED, submitted + 60);
+
+        final long pathCalculated = count(Stage.PATH_CALCULATED);
+        final long received = count(Stage.RECEIVED);
+        final long planComputed = count(Stage.PLAN_COMPUTED);
+        final long total = IntentTracer.getTotalLatency().getCount();
+
+        IntentTracer.record(list);
+
+        assertEquals(pathCalculated, count(Stage.PATH_CALCULATED));
+        assertEquals(received, count(Stage.RECEIVED));
+        assertEquals(planComputed + 1, count(Stage.PLAN_COMPUTED));
+        assertEquals(total, IntentTracer.getTotalLatency().getCount());
+    }
+}
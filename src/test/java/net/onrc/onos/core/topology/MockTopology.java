@@ -1,5 +1,8 @@
 package net.onrc.onos.core.topology;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import net.floodlightcontroller.util.MACAddress;
 import net.onrc.onos.core.util.Dpid;
 import net.onrc.onos.core.util.LinkTuple;
@@ -34,6 +37,11 @@ public class MockTopology extends TopologyImpl {
         return this.getPort(port.getSwitchPort());
     }
 
+    public Host addHost(HostData host) {
+        this.putHost(host);
+        return this.getHostByMac(host.getMac());
+    }
+
     public void addBidirectionalLinks(Long srcDpid, Long srcPortNo,
                                       Long dstDpid, Long dstPortNo) {
         addBidirectionalLinks(srcDpid, srcPortNo, dstDpid, dstPortNo, null);
@@ -146,6 +154,58 @@ public class MockTopology extends TopologyImpl {
         addBidirectionalLinks(2L, 24L, 4L, 42L, 1000.0);
     }
 
+    /**
+     * Creates a k-ary fat-tree topology of (k/2)^2 core switches and k pods
+     * of k/2 aggregation and k/2 edge switches each.
+     * <p>
+     * The DPIDs are assigned from 1, starting with the core switches. Each
+     * edge switch has a {@link #LOCAL_PORT} to attach hosts to.
+     *
+     * @param k number of ports of each switch
+     * @param capacity capacity of each link
+     * @return the edge switches of the fat-tree
+     */
+    public List<Switch> createFatTree(int k, double capacity) {
+        final int half = k / 2;
+        long nextDpid = 1;
+        List<Switch> coreSwitches = new ArrayList<>();
+        List<Switch> edgeSwitches = new ArrayList<>();
+
+        for (int c = 0; c < half * half; c++) {
+            coreSwitches.add(addSwitch(nextDpid++));
+        }
+        for (int pod = 0; pod < k; pod++) {
+            List<Switch> aggSwitches = new ArrayList<>();
+            for (int a = 0; a < half; a++) {
+                Switch agg = addSwitch(nextDpid++);
+                aggSwitches.add(agg);
+                // uplinks to the core switches
+                for (int c = 0; c < half; c++) {
+                    Switch core = coreSwitches.get(a * half + c);
+                    connect(core, (long) pod + 1, agg, (long) half + c + 1, capacity);
+                }
+            }
+            for (int e = 0; e < half; e++) {
+                Switch edge = addSwitch(nextDpid++);
+                addPort(edge, LOCAL_PORT);
+                edgeSwitches.add(edge);
+                for (int a = 0; a < half; a++) {
+                    connect(aggSwitches.get(a), (long) e + 1,
+                            edge, (long) half + a + 1, capacity);
+                }
+            }
+        }
+        return edgeSwitches;
+    }
+
+    private void connect(Switch sw1, Long port1, Switch sw2, Long port2,
+                         double capacity) {
+        addPort(sw1, port1);
+        addPort(sw2, port2);
+        addBidirectionalLinks(sw1.getDpid().value(), port1,
+                sw2.getDpid().value(), port2, capacity);
+    }
+
     public void removeLink(Long srcDpid, Long srcPortNo, Long dstDpid,
                            Long dstPortNo) {
         this.removeLink(new Dpid(srcDpid),
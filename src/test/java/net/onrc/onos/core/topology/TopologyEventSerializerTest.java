@@ -0,0 +1,163 @@
+package net.onrc.onos.core.topology;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import net.floodlightcontroller.core.IFloodlightProviderService.Role;
+import net.floodlightcontroller.util.MACAddress;
+import net.onrc.onos.core.util.Dpid;
+import net.onrc.onos.core.util.OnosInstanceId;
+import net.onrc.onos.core.util.PortNumber;
+import net.onrc.onos.core.util.SwitchPort;
+import net.onrc.onos.core.util.serializers.KryoFactory;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+
+/**
+ * Tests for {@link TopologyEventSerializer}.
+ */
+public class TopologyEventSerializerTest {
+
+    private static final OnosInstanceId INSTANCE_ID =
+            new OnosInstanceId("TheInstance");
+    private static final Dpid DPID_A = new Dpid(0x1234L);
+    private static final Dpid DPID_B = new Dpid(Long.MAX_VALUE);
+    private static final PortNumber PORT_A = PortNumber.uint32(42);
+    private static final PortNumber PORT_B = PortNumber.uint32(-2);
+
+    /**
+     * Serializes and deserializes an event with the global Kryo pool, and
+     * checks that the result is equal to the original event.
+     *
+     * @param event the event to serialize
+     * @return the deserialized event
+     */
+    private static TopologyEvent assertRoundTrip(TopologyEvent event) {
+        final TopologyEvent result =
+                KryoFactory.deserialize(KryoFactory.serialize(event));
+        assertEquals(event, result);
+        assertEquals(event.getEventType(), result.getEventType());
+        return result;
+    }
+
+    /**
+     * Tests the serialization of each type of event, with well-known and
+     * other attributes.
+     */
+    @Test
+    public void testRoundTrip() {
+        SwitchData switchData = new SwitchData(DPID_B);
+        switchData.createStringAttribute(TopologyElement.TYPE,
+                                         TopologyElement.TYPE_PACKET_LAYER);
+        switchData.createStringAttribute("foo", "bar");
+        switchData.freeze();
+        TopologyEvent result =
+                assertRoundTrip(new TopologyEvent(switchData, INSTANCE_ID));
+        assertTrue(result.getSwitchData().isFrozen());
+        assertEquals("bar", result.getSwitchData().getStringAttribute("foo"));
+
+        PortData portData = new PortData(DPID_A, PORT_B);
+        portData.createStringAttribute(TopologyElement.ELEMENT_ADMIN_STATUS,
+                                       AdminStatus.ACTIVE.toString());
+        result = assertRoundTrip(new TopologyEvent(portData, INSTANCE_ID));
+        assertFalse(result.getPortData().isFrozen());
+        assertEquals(PORT_B, result.getPortData().getPortNumber());
+
+        LinkData linkData = new LinkData(new SwitchPort(DPID_A, PORT_A),
+                                         new SwitchPort(DPID_B, PORT_B));
+        linkData.setCapacity(1000.0);
+        linkData.freeze();
+        result = assertRoundTrip(new TopologyEvent(linkData, INSTANCE_ID));
+        assertEquals(Double.valueOf(1000.0),
+                     result.getLinkData().getCapacity());
+
+        HostData hostData =
+                new HostData(MACAddress.valueOf(0x123456789aL), 0x0a000001);
+        hostData.setAttachmentPoints(Arrays.asList(
+                new SwitchPort(DPID_A, PORT_A),
+                new SwitchPort(DPID_B, PORT_B)));
+        hostData.setLastSeenTime(392860800000L);
+        result = assertRoundTrip(new TopologyEvent(hostData, INSTANCE_ID));
+        assertEquals(392860800000L, result.getHostData().getLastSeenTime());
+
+        MastershipData mastershipData = new MastershipData(DPID_A,
+                new OnosInstanceId("OtherInstance"), Role.MASTER);
+        assertRoundTrip(new TopologyEvent(mastershipData, INSTANCE_ID));
+
+        assertRoundTrip(new TopologyEvent(INSTANCE_ID));
+    }
+
+    /**
+     * Tests that reading an event with an invalid role ordinal fails with a
+     * KryoException.
+     */
+    @Test(expected = KryoException.class)
+    public void testReadInvalidRole() {
+        Kryo kryo = KryoFactory.newKryoObject();
+        Output output = new Output(256);
+        output.writeByte(TopologyEvent.Type.MASTERSHIP.ordinal());
+        kryo.writeObject(output, INSTANCE_ID);
+        output.writeLong(DPID_A.value());
+        kryo.writeObject(output, INSTANCE_ID);
+        output.writeByte(Role.values().length);
+
+        kryo.readObject(new Input(output.toBytes()), TopologyEvent.class);
+    }
+
+    /**
+     * Tests that a copy of an event is a deep copy, frozen as the original.
+     */
+    @Test
+    public void testCopy() {
+        SwitchData switchData = new SwitchData(DPID_A);
+        switchData.createStringAttribute("foo", "bar");
+        switchData.freeze();
+        TopologyEvent event = new TopologyEvent(switchData, INSTANCE_ID);
+
+        Kryo kryo = KryoFactory.newKryoObject();
+        TopologyEvent copy = kryo.copy(event);
+        assertEquals(event, copy);
+        assertNotSame(switchData, copy.getSwitchData());
+        assertTrue(copy.getSwitchData().isFrozen());
+    }
+
+    /**
+     * Tests that the encoding is smaller than the default field serializer
+     * encoding for an event with the usual attributes.
+     */
+    @Test
+    public void testSmallerThanFieldSerializer() {
+        PortData portData = new PortData(DPID_B, PORT_A);
+        portData.createStringAttribute(TopologyElement.TYPE,
+                                       TopologyElement.TYPE_PACKET_LAYER);
+        portData.createStringAttribute(TopologyElement.ELEMENT_CONFIG_STATE,
+                                       ConfigState.NOT_CONFIGURED.toString());
+        portData.createStringAttribute(TopologyElement.ELEMENT_ADMIN_STATUS,
+                                       AdminStatus.ACTIVE.toString());
+        portData.createStringAttribute("name", "eth1");
+        portData.freeze();
+        TopologyEvent event = new TopologyEvent(portData, INSTANCE_ID);
+
+        Kryo fieldKryo = KryoFactory.newKryoObject();
+        fieldKryo.register(TopologyEvent.class,
+                new FieldSerializer<TopologyEvent>(fieldKryo,
+                                                   TopologyEvent.class));
+
+        int compactSize = KryoFactory.serialize(
+                KryoFactory.newKryoObject(), event, -1).length;
+        int fieldSize = KryoFactory.serialize(fieldKryo, event, -1).length;
+        assertTrue("compact encoding is " + compactSize
+                + " bytes, field encoding is " + fieldSize + " bytes",
+                compactSize < fieldSize);
+    }
+}
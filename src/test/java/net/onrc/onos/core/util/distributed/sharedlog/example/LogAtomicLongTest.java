@@ -2,7 +2,13 @@ package net.onrc.onos.core.util.distributed.sharedlog.example;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import net.onrc.onos.core.datastore.hazelcast.HZClient;
 import net.onrc.onos.core.util.IntegrationTest;
@@ -23,6 +29,14 @@ import com.hazelcast.core.HazelcastInstance;
  */
 public class LogAtomicLongTest {
 
+    private static final int NUM_WRITERS = Integer.parseInt(
+            System.getProperty("writers", "4"));
+    private static final int NUM_INCREMENTS = Integer.parseInt(
+            System.getProperty("increments", "2000"));
+    private static final int BATCH_SIZE = 10;
+    private static final double SEC_IN_NANO = 1000 * 1000 * 1000.0;
+
+    private LogBasedRuntime runtime;
     private LogAtomicLong along;
 
     /**
@@ -34,7 +48,7 @@ public class LogAtomicLongTest {
         HazelcastInstance hz = TestUtils.callMethod(cl, "getHZInstance", null);
 
         SequencerRuntime sequencerRuntime = new HazelcastSequencerRuntime(hz);
-        LogBasedRuntime runtime = new HazelcastRuntime(hz, sequencerRuntime);
+        runtime = new HazelcastRuntime(hz, sequencerRuntime);
 
         String counterName = UUID.randomUUID().toString();
         along = new LogAtomicLong(runtime, counterName);
@@ -67,6 +81,34 @@ public class LogAtomicLongTest {
         assertEquals(43, along.get());
     }
 
+    /**
+     * Test add.
+     */
+    @Test
+    public void testAdd() {
+        along.add(2);
+        assertEquals(2, along.get());
+        along.add(3);
+        assertEquals(5, along.get());
+    }
+
+    /**
+     * Test batched add.
+     */
+    @Test
+    public void testAddAll() {
+        along.set(40);
+        assertEquals(3, along.addAll(1, 2, -1));
+        assertEquals(42, along.get());
+
+        // other instance observes all the logs of the batch
+        LogAtomicLong anotherInstance = new LogAtomicLong(runtime,
+                                                along.getObjectID());
+        assertEquals(42, anotherInstance.get());
+        assertEquals(2, anotherInstance.addAll(10, 10));
+        assertEquals(62, along.get());
+    }
+
     /**
      * Confirm initial value is 0.
      */
@@ -123,4 +165,79 @@ public class LogAtomicLongTest {
         assertEquals(99, anotherInstance2.get());
 
     }
+
+    /**
+     * Benchmark increments from multiple writers,
+     * one log write per increment and batched log writes.
+     *
+     * @throws Exception if a writer failed
+     */
+    @Category(IntegrationTest.class)
+    @Test
+    public void benchmarkIncrement() throws Exception {
+        along.set(0);
+
+        final long singleTime = runWriters(false);
+        final long singleIncrements = (long) NUM_WRITERS * NUM_INCREMENTS;
+        assertEquals(singleIncrements, along.get());
+
+        final long batchTime = runWriters(true);
+        final long batchIncrements = (long) NUM_WRITERS
+                * (NUM_INCREMENTS / BATCH_SIZE) * BATCH_SIZE;
+        assertEquals(singleIncrements + batchIncrements, along.get());
+
+        System.out.println(String.format(
+                "%d writers x %d increments: add %.1f increments/sec, "
+                + "addAll(batch %d) %.1f increments/sec",
+                NUM_WRITERS, NUM_INCREMENTS,
+                singleIncrements * SEC_IN_NANO / singleTime, BATCH_SIZE,
+                batchIncrements * SEC_IN_NANO / batchTime));
+    }
+
+    /**
+     * Runs writers incrementing the counter, each with its own instance.
+     *
+     * @param batched true if increments should be batched
+     * @return elapsed time in nanoseconds
+     * @throws Exception if a writer failed
+     */
+    private long runWriters(final boolean batched) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_WRITERS);
+        try {
+            final long[] deltas = new long[BATCH_SIZE];
+            for (int i = 0; i < BATCH_SIZE; ++i) {
+                deltas[i] = 1;
+            }
+
+            List<Callable<Void>> writers = new ArrayList<>(NUM_WRITERS);
+            for (int w = 0; w < NUM_WRITERS; ++w) {
+                final LogAtomicLong writer = new LogAtomicLong(runtime,
+                                                    along.getObjectID());
+                writers.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        if (batched) {
+                            for (int i = 0; i < NUM_INCREMENTS / BATCH_SIZE; ++i) {
+                                assertEquals(BATCH_SIZE, writer.addAll(deltas));
+                            }
+                        } else {
+                            for (int i = 0; i < NUM_INCREMENTS; ++i) {
+                                writer.add(1);
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+
+            long start = System.nanoTime();
+            for (Future<Void> result : executor.invokeAll(writers)) {
+                // rethrows failure of the writer
+                result.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -1,12 +1,17 @@
 package net.onrc.onos.core.util.serializers;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.PrintStream;
 import java.lang.reflect.Constructor;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -163,6 +168,65 @@ public class KryoFactoryTest {
         }
     }
 
+    /**
+     * Tests that a Kryo instance recycled by a thread is returned to the
+     * same thread first.
+     */
+    @Test
+    public void testThreadAffinity() {
+        KryoFactory pool = new KryoFactory(1);
+
+        Kryo kryo = pool.newKryo();
+        pool.deleteKryo(kryo);
+        assertSame(kryo, pool.newKryo());
+    }
+
+    /**
+     * Tests the static serialize/deserialize methods with ByteBuffers,
+     * including large objects which grow the serialization buffer.
+     */
+    @Test
+    public void testStaticSerializeDeserializeByteBuffer() {
+        final List<Object> objects = new ArrayList<>();
+        for (int i = 0; i < 10000; ++i) {
+            objects.add(new SwitchPort(new Dpid(i), PortNumber.uint32(i)));
+        }
+        final Dpid dpid = new Dpid(1);
+
+        final ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+        buffer.putInt(42);
+        KryoFactory.serialize(objects, buffer);
+        KryoFactory.serialize(dpid, buffer);
+        buffer.flip();
+
+        // deserialize from an array offset
+        assertEquals(42, buffer.getInt());
+        final List<Object> deserialized = KryoFactory.deserialize(buffer);
+        assertEquals(objects, deserialized);
+
+        // deserialize from a buffer without accessible array
+        final ByteBuffer readOnly = buffer.asReadOnlyBuffer();
+        final Dpid deserializedDpid = KryoFactory.deserialize(readOnly);
+        assertEquals(dpid, deserializedDpid);
+        assertFalse(readOnly.hasRemaining());
+
+        // same bytes as the byte array serialization
+        buffer.position(4);
+        final byte[] bytes = KryoFactory.serialize(objects);
+        final byte[] bufferBytes = new byte[bytes.length];
+        buffer.get(bufferBytes);
+        assertArrayEquals(bytes, bufferBytes);
+    }
+
+    /**
+     * Tests that serializing to a ByteBuffer which is too small fails.
+     */
+    @Test(expected = BufferOverflowException.class)
+    public void testSerializeByteBufferOverflow() {
+        KryoFactory.serialize(new SwitchPort(new Dpid(1), PortNumber.uint32(1)),
+                              ByteBuffer.allocate(2));
+    }
+
     /**
      * Benchmark result.
      */
@@ -343,7 +407,7 @@ public class KryoFactoryTest {
             Result result = benchType(obj, EqualityCheck.TO_STRING);
             results.add(result);
             // update me if serialized form is expected to change
-            assertEquals(45, result.size);
+            assertEquals(35, result.size);
         }
 
         { // CHECKSTYLE IGNORE THIS LINE
@@ -377,7 +441,7 @@ public class KryoFactoryTest {
             Result result = benchType(tbo, EqualityCheck.EQUALS);
             results.add(result);
             // update me if serialized form is expected to change
-            assertEquals(186, result.size);
+            assertEquals(196, result.size);
         }
 
         // TODO Add registered classes we still use.